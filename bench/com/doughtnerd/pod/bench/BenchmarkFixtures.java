@@ -0,0 +1,310 @@
+package com.doughtnerd.pod.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+import com.doughtnerd.pod.excel.ExcelCellObject;
+import com.doughtnerd.pod.excel.ExcelSheetWriter;
+import com.doughtnerd.pod.excel.ExcelWriter;
+import com.doughtnerd.pod.excel.RowSink;
+import com.doughtnerd.pod.excel.StyleRef;
+import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.excel.enums.ExcelFormatType;
+
+/**
+ * This class generates the Excel and Word files the benchmarks run against.
+ * Fixtures are written once to a directory under java.io.tmpdir (or the
+ * directory named by the pod.bench.dir system property) and reused by later
+ * runs, so the cost of generating a million row file is only paid once.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class BenchmarkFixtures {
+
+	/**
+	 * The most data rows an xls sheet can hold below its header row.
+	 */
+	public static final int MAX_XLS_ROWS = 65535;
+
+	/**
+	 * The number of characters in the text cells of a fixture row.
+	 */
+	private static final int TEXT_LENGTH = 12;
+
+	private static final StyleRef PERCENT = StyleRef.of(ExcelFormatType.PERCENT);
+
+	private static final StyleRef CURRENCY = StyleRef.of(ExcelFormatType.US_CURRENCY);
+
+	/**
+	 * The column layouts fixtures are generated with.
+	 */
+	public enum Shape {
+
+		/**
+		 * Four columns: text, whole number, currency and percent.
+		 */
+		NARROW(4),
+
+		/**
+		 * Forty columns, repeating the narrow layout ten times.
+		 */
+		WIDE(40);
+
+		private final int columns;
+
+		private Shape(int columns) {
+			this.columns = columns;
+		}
+
+		/**
+		 * @return The number of columns of a row.
+		 */
+		public int getColumns() {
+			return columns;
+		}
+	}
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Returns the directory fixtures are kept in, creating it if needed.
+	 *
+	 * @return The fixture directory.
+	 */
+	public static File getFixtureDirectory() {
+		File dir = new File(System.getProperty("pod.bench.dir",
+				new File(System.getProperty("java.io.tmpdir"), "pod-bench").getAbsolutePath()));
+		dir.mkdirs();
+		return dir;
+	}
+
+	/**
+	 * Clamps a row count to what the given file type can hold.
+	 *
+	 * @param type
+	 *            The file type.
+	 * @param rows
+	 *            The requested number of rows.
+	 * @return The number of rows a fixture of the type will have.
+	 */
+	public static int rowsFor(ExcelFileType type, int rows) {
+		return type == ExcelFileType.XLS ? Math.min(rows, MAX_XLS_ROWS) : rows;
+	}
+
+	/**
+	 * Returns a spreadsheet fixture with a header row followed by the given
+	 * number of data rows, generating it if it does not exist yet. Rows are
+	 * clamped to {@link #MAX_XLS_ROWS} for xls files.
+	 *
+	 * @param type
+	 *            The file type, XLS or XLSX. SXLSX is written as XLSX.
+	 * @param rows
+	 *            The number of data rows.
+	 * @param shape
+	 *            The column layout.
+	 * @return The fixture file.
+	 * @throws IOException
+	 *             Thrown if the fixture could not be written.
+	 */
+	public static File spreadsheet(ExcelFileType type, int rows, Shape shape) throws IOException {
+		rows = rowsFor(type, rows);
+		String extension = type == ExcelFileType.XLS ? "xls" : "xlsx";
+		String name = "rows-" + rows + "-" + shape.name().toLowerCase();
+		File file = new File(getFixtureDirectory(), name + "." + extension);
+		if (file.isFile() && file.length() > 0) {
+			return file;
+		}
+		File partial = new File(getFixtureDirectory(), name + "-partial." + extension);
+		if (type == ExcelFileType.XLS) {
+			HSSFWorkbook workbook = (HSSFWorkbook) ExcelWriter.writeNewSheetToNewWorkbook(ExcelFileType.XLS,
+					"Data", headers(shape), rows(rows, shape));
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(partial));
+			try {
+				workbook.write(out);
+			} finally {
+				out.close();
+				workbook.close();
+			}
+		} else {
+			ExcelSheetWriter<FixtureRow> writer = ExcelWriter.openSheet(partial.getPath(), "Data", headers(shape),
+					ExcelWriter.DEFAULT_ROW_ACCESS_WINDOW, true);
+			try {
+				for (int i = 0; i < rows; i++) {
+					writer.append(new FixtureRow(i, shape));
+				}
+			} finally {
+				writer.close();
+			}
+		}
+		if (!partial.renameTo(file)) {
+			throw new IOException("Could not move fixture into place: " + file);
+		}
+		return file;
+	}
+
+	/**
+	 * Returns a Word fixture holding the given number of paragraphs, every one
+	 * of which contains the placeholders #{name}, #{date} and #{amount}, plus
+	 * a table with one placeholder row per ten paragraphs.
+	 *
+	 * @param paragraphs
+	 *            The number of paragraphs.
+	 * @return The fixture file.
+	 * @throws IOException
+	 *             Thrown if the fixture could not be written.
+	 */
+	public static File document(int paragraphs) throws IOException {
+		File file = new File(getFixtureDirectory(), "template-" + paragraphs + ".docx");
+		if (file.isFile() && file.length() > 0) {
+			return file;
+		}
+		XWPFDocument doc = new XWPFDocument();
+		for (int i = 0; i < paragraphs; i++) {
+			XWPFParagraph p = doc.createParagraph();
+			p.createRun().setText("Dear #{name}, on #{date} your account " + i + " was charged #{amount}.");
+		}
+		int tableRows = Math.max(1, paragraphs / 10);
+		XWPFTable table = doc.createTable(tableRows, 2);
+		for (int i = 0; i < tableRows; i++) {
+			table.getRows().get(i).getCell(0).setText("#{name}");
+			table.getRows().get(i).getCell(1).setText("#{amount}");
+		}
+		File partial = new File(getFixtureDirectory(), "template-" + paragraphs + "-partial.docx");
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(partial));
+		try {
+			doc.write(out);
+		} finally {
+			out.close();
+			doc.close();
+		}
+		if (!partial.renameTo(file)) {
+			throw new IOException("Could not move fixture into place: " + file);
+		}
+		return file;
+	}
+
+	/**
+	 * Creates the header names of a fixture sheet.
+	 *
+	 * @param shape
+	 *            The column layout.
+	 * @return The header names.
+	 */
+	public static List<String> headers(Shape shape) {
+		List<String> headers = new ArrayList<>(shape.getColumns());
+		for (int i = 0; i < shape.getColumns(); i++) {
+			headers.add("Column " + i);
+		}
+		return headers;
+	}
+
+	/**
+	 * Creates the rows of a fixture sheet in memory.
+	 *
+	 * @param rows
+	 *            The number of rows.
+	 * @param shape
+	 *            The column layout.
+	 * @return The rows.
+	 */
+	public static List<FixtureRow> rows(int rows, Shape shape) {
+		List<FixtureRow> data = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			data.add(new FixtureRow(i, shape));
+		}
+		return data;
+	}
+
+	/**
+	 * Creates the rows of a fixture sheet in memory that write themselves
+	 * through toCellObjectArray instead of a RowSink.
+	 *
+	 * @param rows
+	 *            The number of rows.
+	 * @param shape
+	 *            The column layout.
+	 * @return The rows.
+	 */
+	public static List<FixtureRow> cellObjectRows(int rows, Shape shape) {
+		List<FixtureRow> data = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			data.add(new FixtureRow(i, shape, false));
+		}
+		return data;
+	}
+
+	/**
+	 * A generated fixture row. Every value is derived from the row number, so
+	 * the same fixture is produced on every machine.
+	 */
+	public static final class FixtureRow extends ExcelRowObject {
+
+		private final int rowNum;
+
+		private final Shape shape;
+
+		private final boolean useSink;
+
+		public FixtureRow(int rowNum, Shape shape) {
+			this(rowNum, shape, true);
+		}
+
+		public FixtureRow(int rowNum, Shape shape, boolean useSink) {
+			this.rowNum = rowNum;
+			this.shape = shape;
+			this.useSink = useSink;
+		}
+
+		@Override
+		public ExcelCellObject[] toCellObjectArray() {
+			ExcelCellObject[] cells = new ExcelCellObject[shape.getColumns()];
+			for (int column = 0; column < cells.length; column += 4) {
+				cells[column] = createCell(text(rowNum + column));
+				cells[column + 1] = createCell(rowNum * 31 + column);
+				cells[column + 2] = createCell((rowNum % 10000) / 100.0, ExcelFormatType.US_CURRENCY);
+				cells[column + 3] = createCell((rowNum % 1000) / 1000.0, ExcelFormatType.PERCENT);
+			}
+			return cells;
+		}
+
+		@Override
+		public void writeTo(RowSink sink) {
+			if (!useSink) {
+				super.writeTo(sink);
+				return;
+			}
+			for (int column = 0; column < shape.getColumns(); column += 4) {
+				sink.writeString(column, text(rowNum + column), StyleRef.GENERAL);
+				sink.writeDouble(column + 1, rowNum * 31 + column, StyleRef.GENERAL);
+				sink.writeDouble(column + 2, (rowNum % 10000) / 100.0, CURRENCY);
+				sink.writeDouble(column + 3, (rowNum % 1000) / 1000.0, PERCENT);
+			}
+		}
+
+		/**
+		 * Creates a deterministic text value for the given seed.
+		 */
+		private static String text(int seed) {
+			char[] chars = new char[TEXT_LENGTH];
+			int value = Math.abs(seed);
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = (char) ('a' + (value % 26));
+				value = value / 26 + i * 7;
+			}
+			return new String(chars);
+		}
+	}
+}
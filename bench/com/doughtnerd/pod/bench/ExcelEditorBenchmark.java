@@ -0,0 +1,89 @@
+package com.doughtnerd.pod.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.doughtnerd.pod.bench.BenchmarkFixtures.Shape;
+import com.doughtnerd.pod.excel.abstracts.ExcelEditor;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
+
+/**
+ * Measures a full ExcelEditor round trip: opening a fixture, editing one cell
+ * of every row with processSheet and saving the workbook to a new file.
+ *
+ * @author Christopher Carlson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExcelEditorBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	@Param({ "NARROW", "WIDE" })
+	public Shape shape;
+
+	@Param({ "XLS", "XLSX" })
+	public ExcelFileType fileType;
+
+	private File file;
+
+	private File output;
+
+	@Setup
+	public void setup() throws IOException {
+		file = BenchmarkFixtures.spreadsheet(fileType, rows, shape);
+		output = File.createTempFile("pod-edit", fileType == ExcelFileType.XLS ? ".xls" : ".xlsx");
+	}
+
+	@TearDown
+	public void tearDown() {
+		output.delete();
+	}
+
+	@Benchmark
+	public long processSheetAndSave() throws IOException, SheetNotFoundException {
+		IncrementEditor editor = new IncrementEditor(file);
+		editor.processSheet(0, true);
+		editor.save(output);
+		return output.length();
+	}
+
+	/**
+	 * Increments the whole number in the second column of every row.
+	 */
+	static final class IncrementEditor extends ExcelEditor {
+
+		IncrementEditor(File file) throws IOException {
+			super(file);
+		}
+
+		@Override
+		protected void editRow(Row row) {
+			Cell cell = row.getCell(1);
+			cell.setCellValue(cell.getNumericCellValue() + 1);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.doughtnerd.pod.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.doughtnerd.pod.bench.BenchmarkFixtures.Shape;
+import com.doughtnerd.pod.excel.abstracts.ExcelReader;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+
+/**
+ * Measures opening a fixture with an ExcelReader and reading its sheet with
+ * processSheet, in both read modes. The time includes opening the file, since
+ * that is where the DOM read mode does most of its work.
+ *
+ * @author Christopher Carlson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExcelReaderBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	@Param({ "NARROW", "WIDE" })
+	public Shape shape;
+
+	@Param({ "XLS", "XLSX" })
+	public ExcelFileType fileType;
+
+	@Param({ "DOM", "DOM_FILE_BACKED", "STREAMING" })
+	public ExcelReadMode readMode;
+
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		file = BenchmarkFixtures.spreadsheet(fileType, rows, shape);
+	}
+
+	@Benchmark
+	public void processSheet(Blackhole blackhole) throws IOException {
+		CellCountReader reader = new CellCountReader(file, readMode);
+		try {
+			List<Integer> items = reader.processSheet(0, true);
+			blackhole.consume(items);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads every cell of a row as a string, so every value is decoded.
+	 */
+	static final class CellCountReader extends ExcelReader<Integer> {
+
+		CellCountReader(File file, ExcelReadMode mode) throws IOException {
+			super(file, mode);
+		}
+
+		@Override
+		protected Integer extractItem(Row row) {
+			int length = 0;
+			for (Cell cell : row) {
+				length += ExcelReader.getCellStringValue(cell).length();
+			}
+			return length;
+		}
+	}
+}
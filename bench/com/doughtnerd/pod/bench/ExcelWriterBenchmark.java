@@ -0,0 +1,100 @@
+package com.doughtnerd.pod.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.doughtnerd.pod.bench.BenchmarkFixtures.FixtureRow;
+import com.doughtnerd.pod.bench.BenchmarkFixtures.Shape;
+import com.doughtnerd.pod.excel.ExcelWriter;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+
+/**
+ * Measures ExcelWriter.writeNewSheetToNewWorkbook for every ExcelFileType,
+ * including serializing the workbook to a stream that discards its bytes.
+ * Rows are clamped to what an xls sheet can hold when the file type is XLS.
+ *
+ * @author Christopher Carlson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExcelWriterBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	@Param({ "NARROW", "WIDE" })
+	public Shape shape;
+
+	@Param({ "XLS", "XLSX", "SXLSX" })
+	public ExcelFileType fileType;
+
+	/**
+	 * Whether rows are written through a RowSink or through
+	 * toCellObjectArray.
+	 */
+	@Param({ "true", "false" })
+	public boolean rowSink;
+
+	private List<FixtureRow> data;
+
+	@Setup
+	public void setup() {
+		int count = BenchmarkFixtures.rowsFor(fileType, rows);
+		data = rowSink ? BenchmarkFixtures.rows(count, shape) : BenchmarkFixtures.cellObjectRows(count, shape);
+	}
+
+	@Benchmark
+	public long writeNewSheetToNewWorkbook() throws IOException {
+		Workbook workbook = ExcelWriter.writeNewSheetToNewWorkbook(fileType, "Data",
+				BenchmarkFixtures.headers(shape), data);
+		CountingOutputStream out = new CountingOutputStream();
+		try {
+			workbook.write(out);
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) workbook).dispose();
+			}
+			workbook.close();
+		}
+		return out.count;
+	}
+
+	/**
+	 * An OutputStream that only counts the bytes written to it.
+	 */
+	static final class CountingOutputStream extends OutputStream {
+
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
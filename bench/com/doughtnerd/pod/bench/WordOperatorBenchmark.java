@@ -0,0 +1,70 @@
+package com.doughtnerd.pod.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.doughtnerd.pod.word.WordOperator;
+
+/**
+ * Measures filling the three placeholders of a Word fixture with
+ * WordOperator.replaceInDocument. A fresh copy of the document is loaded
+ * before every invocation, outside of the measured time, since replacing
+ * changes the document.
+ *
+ * @author Christopher Carlson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WordOperatorBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int paragraphs;
+
+	private File file;
+
+	private XWPFDocument doc;
+
+	@Setup(Level.Trial)
+	public void createFixture() throws IOException {
+		file = BenchmarkFixtures.document(paragraphs);
+	}
+
+	@Setup(Level.Invocation)
+	public void loadDocument() throws IOException {
+		doc = WordOperator.loadDocument(file);
+	}
+
+	@TearDown(Level.Invocation)
+	public void closeDocument() throws IOException {
+		doc.close();
+	}
+
+	@Benchmark
+	public XWPFDocument replaceInDocument() {
+		WordOperator.replaceInDocument(doc, "name", "Jane Doe", true);
+		WordOperator.replaceInDocument(doc, "date", "2017-02-02", true);
+		WordOperator.replaceInDocument(doc, "amount", "$1,024.00", true);
+		return doc;
+	}
+}
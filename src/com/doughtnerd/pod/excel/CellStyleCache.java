@@ -0,0 +1,149 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+
+/**
+ * This class hands out the CellStyles the ExcelWriter applies to cells, keyed
+ * on the format string, wrap text flag and horizontal alignment of an
+ * ExcelCellObject or {@link StyleRef}. Every distinct combination is created once per workbook
+ * and found again with a single hash lookup.
+ * <p>
+ * The style indexes created for a workbook are remembered for as long as the
+ * workbook is reachable, so styles are shared by every write to the same
+ * workbook and not only within a single call. Only indexes are kept across
+ * calls because CellStyle objects hold a reference back to their workbook.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class CellStyleCache {
+
+	/**
+	 * The style indexes created for each workbook, keyed by style.
+	 */
+	private static final Map<Workbook, Map<StyleRef, Short>> STYLE_INDEXES = Collections
+			.synchronizedMap(new WeakHashMap<Workbook, Map<StyleRef, Short>>());
+
+	/**
+	 * The workbook the styles belong to.
+	 */
+	private final Workbook workbook;
+
+	/**
+	 * The style indexes this workbook shares across writes.
+	 */
+	private final Map<StyleRef, Short> indexes;
+
+	/**
+	 * The CellStyle objects already resolved during this write.
+	 */
+	private final Map<StyleRef, CellStyle> styles;
+
+	/**
+	 * The data format table of the workbook, created on first use.
+	 */
+	private DataFormat dataFormat;
+
+	/**
+	 * Creates a new CellStyleCache.
+	 *
+	 * @param workbook
+	 *            The workbook the styles belong to.
+	 * @param indexes
+	 *            The style indexes this workbook shares across writes.
+	 */
+	private CellStyleCache(Workbook workbook, Map<StyleRef, Short> indexes) {
+		this.workbook = workbook;
+		this.indexes = indexes;
+		this.styles = new HashMap<>();
+	}
+
+	/**
+	 * Returns a style cache for the given workbook that reuses every style
+	 * created by earlier writes to the same workbook.
+	 *
+	 * @param workbook
+	 *            The workbook being written to.
+	 * @return The style cache for the workbook.
+	 */
+	static CellStyleCache forWorkbook(Workbook workbook) {
+		Map<StyleRef, Short> indexes;
+		synchronized (STYLE_INDEXES) {
+			indexes = STYLE_INDEXES.get(workbook);
+			if (indexes == null) {
+				indexes = new HashMap<>();
+				STYLE_INDEXES.put(workbook, indexes);
+			}
+		}
+		return new CellStyleCache(workbook, indexes);
+	}
+
+	/**
+	 * Returns the style matching the formatting of the given cell object,
+	 * creating it in the workbook if it does not exist yet.
+	 *
+	 * @param obj
+	 *            The ExcelCellObject whose formatting the style should have.
+	 * @return The matching CellStyle.
+	 */
+	CellStyle getStyle(ExcelCellObject obj) {
+		return getStyle(StyleRef.keyOf(obj));
+	}
+
+	/**
+	 * Returns the style matching the given StyleRef, creating it in the
+	 * workbook if it does not exist yet.
+	 *
+	 * @param ref
+	 *            The formatting the style should have.
+	 * @return The matching CellStyle.
+	 */
+	CellStyle getStyle(StyleRef ref) {
+		CellStyle style = styles.get(ref);
+		if (style == null) {
+			style = resolve(ref);
+			styles.put(ref, style);
+		}
+		return style;
+	}
+
+	/**
+	 * Looks up the style for the given key among the styles earlier writes
+	 * created, or creates it.
+	 *
+	 * @param key
+	 *            The formatting the style should have.
+	 * @return The matching CellStyle.
+	 */
+	private CellStyle resolve(StyleRef key) {
+		Short index = indexes.get(key);
+		if (index != null) {
+			return workbook.getCellStyleAt(index);
+		}
+		if (dataFormat == null) {
+			dataFormat = workbook.createDataFormat();
+		}
+		CellStyle style = workbook.createCellStyle();
+		style.setDataFormat(dataFormat.getFormat(key.getFormat().getFormatString()));
+		style.setWrapText(key.getWrapText());
+		if (key.getHorizontalAlignment() != null && key.getHorizontalAlignment() != HorizontalAlignment.GENERAL) {
+			style.setAlignment(key.getHorizontalAlignment());
+		}
+		indexes.put(key, style.getIndex());
+		if (PodMetricsRegistry.isEnabled()) {
+			PodMetricsRegistry.get().styleCreated(style.getIndex());
+		}
+		return style;
+	}
+}
@@ -0,0 +1,207 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * This class is a {@link ReaderConfig} bound to the columns of one sheet. It
+ * reads the declared columns from a row by slot, converting each cell to the
+ * requested type and falling back to the column's default for blank cells, so
+ * mapping a row needs neither property lookups nor string parsing.
+ * <p>
+ * Plans are immutable and may be shared between threads.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class ColumnPlan {
+
+	/**
+	 * The configuration this plan was bound from.
+	 */
+	private final ReaderConfig config;
+
+	/**
+	 * The sheet column of each slot.
+	 */
+	private final int[] columns;
+
+	/**
+	 * Creates a new plan.
+	 *
+	 * @param config
+	 *            The configuration the plan was bound from.
+	 * @param columns
+	 *            The sheet column of each slot.
+	 */
+	ColumnPlan(ReaderConfig config, int[] columns) {
+		this.config = config;
+		this.columns = columns;
+	}
+
+	/**
+	 * @return The configuration this plan was bound from.
+	 */
+	public ReaderConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * @param slot
+	 *            The slot of a column.
+	 * @return The zero based sheet column the slot reads from.
+	 */
+	public int getColumn(int slot) {
+		return columns[slot];
+	}
+
+	/**
+	 * Returns the type of the cell a slot reads, treating error cells as
+	 * blank.
+	 */
+	private CellType typeOf(ExcelRowView row, int slot) {
+		CellType type = row.getCellType(columns[slot]);
+		return type == CellType.ERROR ? CellType.BLANK : type;
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return True if the cell is blank or holds an error.
+	 */
+	public boolean isBlank(ExcelRowView row, int slot) {
+		return typeOf(row, slot) == CellType.BLANK;
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The cell as text, the column default or null if it is blank.
+	 */
+	public String getString(ExcelRowView row, int slot) {
+		CellType type = typeOf(row, slot);
+		if (type == CellType.BLANK) {
+			Object value = config.getDefault(slot);
+			return value != null ? value.toString() : null;
+		}
+		return RowValues.text(row, columns[slot], type);
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The cell as a number, the column default or 0 if it is blank.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell holds neither a number nor text that
+	 *             parses as one.
+	 */
+	public double getDouble(ExcelRowView row, int slot) {
+		CellType type = typeOf(row, slot);
+		if (type == CellType.BLANK) {
+			Object value = config.getDefault(slot);
+			return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+		}
+		return RowValues.number(row, columns[slot], type);
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The cell as a number, with its fraction dropped.
+	 * @see #getDouble(ExcelRowView, int)
+	 */
+	public long getLong(ExcelRowView row, int slot) {
+		return (long) getDouble(row, slot);
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The cell as a number, with its fraction dropped.
+	 * @see #getDouble(ExcelRowView, int)
+	 */
+	public int getInt(ExcelRowView row, int slot) {
+		return (int) getDouble(row, slot);
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The cell as a boolean, the column default or false if it is
+	 *         blank. Text is true if it reads true, numbers if they are not 0.
+	 */
+	public boolean getBoolean(ExcelRowView row, int slot) {
+		CellType type = typeOf(row, slot);
+		if (type == CellType.BLANK) {
+			return Boolean.TRUE.equals(config.getDefault(slot));
+		} else if (type == CellType.STRING) {
+			return Boolean.parseBoolean(row.getString(columns[slot]).trim());
+		} else if (type == CellType.NUMERIC) {
+			return row.getDouble(columns[slot]) != 0.0;
+		}
+		return row.getBoolean(columns[slot]);
+	}
+
+	/**
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The cell as a date, the column default or null if it is blank.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell does not hold a number.
+	 */
+	public Date getDate(ExcelRowView row, int slot) {
+		CellType type = typeOf(row, slot);
+		if (type == CellType.BLANK) {
+			Object value = config.getDefault(slot);
+			return value instanceof Date ? new Date(((Date) value).getTime()) : null;
+		}
+		return row.getDate(columns[slot]);
+	}
+
+	/**
+	 * Reads a cell as the declared type of its column.
+	 *
+	 * @param row
+	 *            The row to read from.
+	 * @param slot
+	 *            The slot of the column.
+	 * @return The value of the cell boxed as the declared type, the column
+	 *         default or null if it is blank.
+	 */
+	public Object getValue(ExcelRowView row, int slot) {
+		if (isBlank(row, slot)) {
+			Object value = config.getDefault(slot);
+			return value instanceof Date ? new Date(((Date) value).getTime()) : value;
+		}
+		switch (config.getType(slot)) {
+		case DOUBLE:
+			return getDouble(row, slot);
+		case LONG:
+			return getLong(row, slot);
+		case INT:
+			return getInt(row, slot);
+		case BOOLEAN:
+			return getBoolean(row, slot);
+		case DATE:
+			return getDate(row, slot);
+		default:
+			return getString(row, slot);
+		}
+	}
+}
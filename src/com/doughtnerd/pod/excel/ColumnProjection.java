@@ -0,0 +1,106 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class describes the columns a reader actually needs, either by column
+ * index or by header name. Streaming reads skip the cells of every other
+ * column without decoding their values, which makes reading a few columns of
+ * a wide sheet much cheaper.
+ * <p>
+ * Header names are matched exactly against the header row of each sheet as
+ * it is read, so the same projection can be used for sheets whose columns are
+ * in a different order.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class ColumnProjection {
+
+	/**
+	 * The projected column indexes, null if the projection is by header name.
+	 */
+	private final int[] columns;
+
+	/**
+	 * The projected header names, empty if the projection is by index.
+	 */
+	private final List<String> headers;
+
+	private ColumnProjection(int[] columns, List<String> headers) {
+		this.columns = columns;
+		this.headers = headers;
+	}
+
+	/**
+	 * Creates a projection onto the given zero based column indexes.
+	 *
+	 * @param columns
+	 *            The indexes of the columns to read.
+	 * @return The projection.
+	 */
+	public static ColumnProjection ofColumns(int... columns) {
+		for (int column : columns) {
+			if (column < 0) {
+				throw new IllegalArgumentException("Column index must not be negative: " + column);
+			}
+		}
+		return new ColumnProjection(columns.clone(), Collections.<String> emptyList());
+	}
+
+	/**
+	 * Creates a projection onto the columns with the given header names.
+	 *
+	 * @param headers
+	 *            The header names of the columns to read.
+	 * @return The projection.
+	 */
+	public static ColumnProjection ofHeaders(String... headers) {
+		return new ColumnProjection(null, Collections.unmodifiableList(Arrays.asList(headers.clone())));
+	}
+
+	/**
+	 * @return True if this projection names its columns by header and needs
+	 *         the header row of a sheet to be resolved.
+	 */
+	public boolean isByHeader() {
+		return columns == null;
+	}
+
+	/**
+	 * Resolves this projection to the set of column indexes to read.
+	 *
+	 * @param headerRow
+	 *            The header of every column of the sheet, indexed by column.
+	 *            Ignored if the projection is by index.
+	 * @return The indexes of the columns to read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if a projected header is not in the header row.
+	 */
+	public BitSet resolve(List<String> headerRow) {
+		BitSet set = new BitSet();
+		if (columns != null) {
+			for (int column : columns) {
+				set.set(column);
+			}
+			return set;
+		}
+		for (String header : headers) {
+			int column = headerRow.indexOf(header);
+			if (column < 0) {
+				throw new IllegalArgumentException("Header not found in sheet: " + header);
+			}
+			set.set(column);
+		}
+		return set;
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnProjection" + (columns != null ? Arrays.toString(columns) : headers.toString());
+	}
+}
@@ -87,9 +87,9 @@ public final class ExcelCellObject {
 							+ value.getClass());
 		}
 		this.value = value;
-		this.format = format!=null ? new ExcelFormat(format) : new ExcelFormat(ExcelFormatType.GENERAL);
+		this.format = ExcelFormat.valueOf(format != null ? format : ExcelFormatType.GENERAL);
 		this.wrapText = false;
-		this.hAlignment = HorizontalAlignment.LEFT;
+		this.hAlignment = HorizontalAlignment.GENERAL;
 	}
 
 	/**
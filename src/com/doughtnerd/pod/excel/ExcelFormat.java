@@ -11,10 +11,23 @@ import com.doughtnerd.pod.excel.enums.ExcelFormatType;
  */
 public final class ExcelFormat {
 
+	/**
+	 * The shared instance of every ExcelFormatType, indexed by ordinal.
+	 */
+	private static final ExcelFormat[] SHARED;
+
+	static {
+		ExcelFormatType[] types = ExcelFormatType.values();
+		SHARED = new ExcelFormat[types.length];
+		for (ExcelFormatType type : types) {
+			SHARED[type.ordinal()] = new ExcelFormat(type);
+		}
+	}
+
 	/**
 	 * The format string that this format represents.
 	 */
-	private String formatString;
+	private final String formatString;
 
 	/**
 	 * Creates a new ExcelFormat object to help control excel cell styling.
@@ -39,6 +52,23 @@ public final class ExcelFormat {
 		}
 	}
 
+	/**
+	 * Returns the shared ExcelFormat for the given type. ExcelFormats are
+	 * immutable, so a single instance per type is used by every cell instead
+	 * of creating a new one each time.
+	 * 
+	 * @param type
+	 *            An ExcelFormatType enum that represents the available format
+	 *            types.
+	 * @return The shared ExcelFormat for the type.
+	 */
+	public static ExcelFormat valueOf(ExcelFormatType type) {
+		if (type == null) {
+			throw new IllegalArgumentException("Invalid ExcelFormatType parameter");
+		}
+		return SHARED[type.ordinal()];
+	}
+
 	/**
 	 * Returns this object's formatString.
 	 * 
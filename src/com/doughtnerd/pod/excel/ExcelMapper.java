@@ -0,0 +1,481 @@
+package com.doughtnerd.pod.excel;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
+import com.doughtnerd.pod.excel.abstracts.SinkRowObject;
+import com.doughtnerd.pod.excel.annotations.ExcelColumn;
+
+/**
+ * This class reads and writes objects whose fields are annotated with
+ * {@link ExcelColumn}. The annotated fields are found once per class and
+ * accessed through method handles, and the header row of a sheet is bound to
+ * the fields once per sheet, so mapping a row costs no reflection and no
+ * header lookups.
+ * <p>
+ * Supported field types are String, Date, boolean, double, float, long and
+ * int, and the boxed forms of the primitives. Blank cells leave their field
+ * untouched. String fields accept numbers and booleans, and number fields
+ * accept text that parses as a number; any other mismatch throws an
+ * IllegalStateException, as the typed accessors of {@link ExcelRowView} do.
+ * </p>
+ * <p>
+ * Mappers are immutable and may be shared between threads.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ * @param <T>
+ *            The type of object that is read and written.
+ */
+public final class ExcelMapper<T> {
+
+	/**
+	 * The mapper of every class a mapper has been requested for.
+	 */
+	private static final ClassValue<ExcelMapper<?>> MAPPERS = new ClassValue<ExcelMapper<?>>() {
+		@Override
+		protected ExcelMapper<?> computeValue(Class<?> type) {
+			return new ExcelMapper<>(type);
+		}
+	};
+
+	/**
+	 * Creates a new instance of the mapped class, typed ()Object.
+	 */
+	private final MethodHandle constructor;
+
+	/**
+	 * The annotated fields, in declaration order.
+	 */
+	private final Column[] columns;
+
+	/**
+	 * The header of every column, indexed by column. Columns no field is
+	 * placed at hold an empty string.
+	 */
+	private final List<String> headers;
+
+	/**
+	 * The binding used when a sheet is read without headers.
+	 */
+	private final Binding positional;
+
+	/**
+	 * Finds the annotated fields of the given class and creates their
+	 * accessors.
+	 */
+	private ExcelMapper(Class<?> type) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			Constructor<?> noArgs = type.getDeclaredConstructor();
+			noArgs.setAccessible(true);
+			this.constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalArgumentException(type.getName() + " must declare a no argument constructor", e);
+		}
+		List<Field> fields = new ArrayList<>();
+		collectFields(type, fields);
+		if (fields.isEmpty()) {
+			throw new IllegalArgumentException(type.getName() + " has no fields annotated with @ExcelColumn");
+		}
+		this.columns = new Column[fields.size()];
+		int[] positions = new int[columns.length];
+		List<String> headers = new ArrayList<>();
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new Column(lookup, fields.get(i), i);
+			int position = columns[i].position;
+			while (headers.size() <= position) {
+				headers.add("");
+			}
+			if (!headers.get(position).isEmpty()) {
+				throw new IllegalArgumentException(
+						type.getName() + " places more than one field at column " + position);
+			}
+			headers.set(position, columns[i].header);
+			positions[i] = position;
+		}
+		this.headers = Collections.unmodifiableList(headers);
+		this.positional = new Binding(positions);
+	}
+
+	/**
+	 * Returns the mapper for the given class. Mappers are created once per
+	 * class and cached.
+	 *
+	 * @param <T>
+	 *            The type of object that is read and written.
+	 * @param type
+	 *            The class to map. It must declare a no argument constructor
+	 *            and at least one field annotated with {@link ExcelColumn}.
+	 * @return The mapper for the class.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the class cannot be mapped.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> ExcelMapper<T> of(Class<T> type) {
+		return (ExcelMapper<T>) MAPPERS.get(type);
+	}
+
+	/**
+	 * Collects the annotated instance fields of the given class, those of its
+	 * superclasses first.
+	 */
+	private static void collectFields(Class<?> type, List<Field> fields) {
+		if (type == null || type == Object.class) {
+			return;
+		}
+		collectFields(type.getSuperclass(), fields);
+		for (Field field : type.getDeclaredFields()) {
+			if (field.isAnnotationPresent(ExcelColumn.class) && !Modifier.isStatic(field.getModifiers())) {
+				fields.add(field);
+			}
+		}
+	}
+
+	/**
+	 * @return The header of every column, indexed by column, as written by
+	 *         the writer methods.
+	 */
+	public List<String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Binds the columns to the given header row. Columns with an index keep
+	 * it, every other column is looked up by its header.
+	 *
+	 * @param headerRow
+	 *            The header of every column of the sheet, indexed by column,
+	 *            or null if the sheet has no header row.
+	 * @return A function mapping the rows of the sheet. Rows whose mapped
+	 *         columns are all blank map to null.
+	 * @throws IllegalArgumentException
+	 *             Thrown if a header is not in the header row.
+	 */
+	public Function<ExcelRowView, T> bind(List<String> headerRow) {
+		if (headerRow == null) {
+			return positional;
+		}
+		int[] bound = new int[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].indexed) {
+				bound[i] = columns[i].position;
+			} else {
+				bound[i] = headerRow.indexOf(columns[i].header);
+				if (bound[i] < 0) {
+					throw new IllegalArgumentException("Header not found in sheet: " + columns[i].header);
+				}
+			}
+		}
+		return new Binding(bound);
+	}
+
+	/**
+	 * Maps a row of a sheet without headers.
+	 *
+	 * @param row
+	 *            The row to map.
+	 * @return The mapped object, null if every mapped column is blank.
+	 */
+	public T read(ExcelRowView row) {
+		return positional.apply(row);
+	}
+
+	/**
+	 * Writes the annotated fields of the given object to the given sink.
+	 *
+	 * @param item
+	 *            The object to write.
+	 * @param sink
+	 *            The sink the cell values are written to.
+	 */
+	public void write(T item, RowSink sink) {
+		try {
+			for (Column column : columns) {
+				column.write(item, sink);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Wraps the given object in an ExcelRowObject, so it can be written by
+	 * {@link ExcelWriter} and {@link ExcelSheetWriter}.
+	 *
+	 * @param item
+	 *            The object to wrap.
+	 * @return The row object writing the object's annotated fields.
+	 */
+	public ExcelRowObject toRowObject(final T item) {
+		return new SinkRowObject() {
+			@Override
+			public void writeTo(RowSink sink) {
+				write(item, sink);
+			}
+		};
+	}
+
+	/**
+	 * Returns a view of the given objects as ExcelRowObjects. Each row object
+	 * is created when the writer reaches it, so the list is not copied.
+	 *
+	 * @param items
+	 *            The objects to wrap.
+	 * @return The row objects writing the objects' annotated fields.
+	 */
+	public List<ExcelRowObject> toRowObjects(final List<? extends T> items) {
+		return new AbstractList<ExcelRowObject>() {
+			@Override
+			public ExcelRowObject get(int index) {
+				return toRowObject(items.get(index));
+			}
+
+			@Override
+			public int size() {
+				return items.size();
+			}
+		};
+	}
+
+	/**
+	 * The columns of this mapper bound to the column indexes of one sheet.
+	 */
+	private final class Binding implements Function<ExcelRowView, T> {
+
+		/**
+		 * The sheet column each mapper column reads from.
+		 */
+		private final int[] bound;
+
+		private Binding(int[] bound) {
+			this.bound = bound;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T apply(ExcelRowView row) {
+			try {
+				Object item = null;
+				for (int i = 0; i < columns.length; i++) {
+					CellType type = row.getCellType(bound[i]);
+					if (type == CellType.BLANK || type == CellType.ERROR) {
+						continue;
+					}
+					if (item == null) {
+						item = (Object) constructor.invokeExact();
+					}
+					columns[i].read(item, row, bound[i], type);
+				}
+				return (T) item;
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "ExcelMapper.Binding" + Arrays.toString(bound);
+		}
+	}
+
+	/**
+	 * The kinds of value a field can hold.
+	 */
+	private enum Kind {
+		STRING, DATE, BOOLEAN, DOUBLE, FLOAT, LONG, INT
+	}
+
+	/**
+	 * An annotated field and the method handles reading and writing it.
+	 * Primitive fields are accessed through handles typed with the primitive,
+	 * so their values are never boxed; every other field is accessed through
+	 * handles typed (Object)Object and (Object,Object)void.
+	 */
+	private static final class Column {
+
+		/**
+		 * The header of the column.
+		 */
+		private final String header;
+
+		/**
+		 * The column the field is written to and read from without headers.
+		 */
+		private final int position;
+
+		/**
+		 * Whether the position comes from the annotation rather than the
+		 * declaration order.
+		 */
+		private final boolean indexed;
+
+		/**
+		 * The formatting cells of the column are written with.
+		 */
+		private final StyleRef style;
+
+		/**
+		 * The kind of value the field holds.
+		 */
+		private final Kind kind;
+
+		/**
+		 * Whether the field has a primitive type.
+		 */
+		private final boolean primitive;
+
+		/**
+		 * Reads the field. Typed (Object)double for primitive numbers,
+		 * (Object)boolean for a primitive boolean, (Object)Object otherwise.
+		 */
+		private final MethodHandle getter;
+
+		/**
+		 * Sets the field. Typed (Object,double)void for primitive numbers,
+		 * (Object,boolean)void for a primitive boolean, (Object,Object)void
+		 * otherwise.
+		 */
+		private final MethodHandle setter;
+
+		private Column(MethodHandles.Lookup lookup, Field field, int ordinal) {
+			ExcelColumn annotation = field.getAnnotation(ExcelColumn.class);
+			this.header = annotation.name().isEmpty() ? field.getName() : annotation.name();
+			this.indexed = annotation.index() >= 0;
+			this.position = indexed ? annotation.index() : ordinal;
+			this.style = StyleRef.of(annotation.format());
+			Class<?> type = field.getType();
+			this.primitive = type.isPrimitive();
+			this.kind = kindOf(type, field);
+			Class<?> valueType = !primitive ? Object.class : kind == Kind.BOOLEAN ? boolean.class : double.class;
+			try {
+				field.setAccessible(true);
+				this.getter = MethodHandles.explicitCastArguments(lookup.unreflectGetter(field),
+						MethodType.methodType(valueType, Object.class));
+				this.setter = MethodHandles.explicitCastArguments(lookup.unreflectSetter(field),
+						MethodType.methodType(void.class, Object.class, valueType));
+			} catch (IllegalAccessException | RuntimeException e) {
+				throw new IllegalArgumentException("Cannot access field: " + field, e);
+			}
+		}
+
+		/**
+		 * Returns the kind of value a field of the given type holds.
+		 */
+		private static Kind kindOf(Class<?> type, Field field) {
+			if (type == String.class) {
+				return Kind.STRING;
+			} else if (type == Date.class) {
+				return Kind.DATE;
+			} else if (type == boolean.class || type == Boolean.class) {
+				return Kind.BOOLEAN;
+			} else if (type == double.class || type == Double.class) {
+				return Kind.DOUBLE;
+			} else if (type == float.class || type == Float.class) {
+				return Kind.FLOAT;
+			} else if (type == long.class || type == Long.class) {
+				return Kind.LONG;
+			} else if (type == int.class || type == Integer.class) {
+				return Kind.INT;
+			}
+			throw new IllegalArgumentException("Unsupported @ExcelColumn field type: " + field);
+		}
+
+		/**
+		 * Reads the given non blank column of a row into the field of the
+		 * given object.
+		 */
+		private void read(Object item, ExcelRowView row, int column, CellType type) throws Throwable {
+			switch (kind) {
+			case STRING:
+				setter.invokeExact(item, (Object) RowValues.text(row, column, type));
+				break;
+			case DATE:
+				setter.invokeExact(item, (Object) row.getDate(column));
+				break;
+			case BOOLEAN:
+				boolean bool = row.getBoolean(column);
+				if (primitive) {
+					setter.invokeExact(item, bool);
+				} else {
+					setter.invokeExact(item, (Object) Boolean.valueOf(bool));
+				}
+				break;
+			default:
+				double number = RowValues.number(row, column, type);
+				if (primitive) {
+					setter.invokeExact(item, number);
+				} else {
+					setter.invokeExact(item, box(number));
+				}
+			}
+		}
+
+		/**
+		 * Writes the field of the given object to the sink. Null values leave
+		 * the cell blank.
+		 */
+		private void write(Object item, RowSink sink) throws Throwable {
+			if (primitive) {
+				if (kind == Kind.BOOLEAN) {
+					sink.writeBoolean(position, (boolean) getter.invokeExact(item), style);
+				} else {
+					sink.writeDouble(position, (double) getter.invokeExact(item), style);
+				}
+				return;
+			}
+			Object value = (Object) getter.invokeExact(item);
+			if (value == null) {
+				return;
+			}
+			switch (kind) {
+			case STRING:
+				sink.writeString(position, (String) value, style);
+				break;
+			case DATE:
+				sink.writeDate(position, (Date) value, style);
+				break;
+			case BOOLEAN:
+				sink.writeBoolean(position, (Boolean) value, style);
+				break;
+			default:
+				sink.writeDouble(position, ((Number) value).doubleValue(), style);
+			}
+		}
+
+		/**
+		 * Boxes a number into the wrapper type of the field.
+		 */
+		private Object box(double number) {
+			switch (kind) {
+			case FLOAT:
+				return Float.valueOf((float) number);
+			case LONG:
+				return Long.valueOf((long) number);
+			case INT:
+				return Integer.valueOf((int) number);
+			default:
+				return Double.valueOf(number);
+			}
+		}
+	}
+}
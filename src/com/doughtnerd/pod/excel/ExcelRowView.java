@@ -0,0 +1,109 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * This interface is a read only view of the cell values of a single row, the
+ * read side counterpart of {@link RowSink}. Values are read by column index
+ * through typed accessors, so mapping a row does not need a Cell object per
+ * cell.
+ * <p>
+ * Streaming readers recycle a single view for every row of a sheet, so a view
+ * is only valid until the next row is read. Values that should outlive the
+ * row must be copied out of it.
+ * </p>
+ * <p>
+ * The typed accessors behave like their Cell counterparts: a column without a
+ * cell reads as blank, and asking for a value of the wrong type throws an
+ * IllegalStateException. Formula cells read as their cached result.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public interface ExcelRowView {
+
+	/**
+	 * @return The zero based index of this row within its sheet.
+	 */
+	int getRowNum();
+
+	/**
+	 * @return One more than the highest column index holding a cell, 0 if the
+	 *         row has no cells.
+	 */
+	int getColumnCount();
+
+	/**
+	 * Returns the type of the value stored in the given column. For formula
+	 * cells this is the type of the cached result.
+	 *
+	 * @param column
+	 *            The zero based column index.
+	 * @return The type of the value, BLANK if the column holds no cell.
+	 */
+	CellType getCellType(int column);
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return True if the column holds no cell or a blank cell.
+	 */
+	default boolean isBlank(int column) {
+		return getCellType(column) == CellType.BLANK;
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return The numeric value of the cell, 0.0 if it is blank.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell does not hold a number.
+	 */
+	double getDouble(int column);
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return The string value of the cell, an empty string if it is blank.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell does not hold a string.
+	 */
+	String getString(int column);
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return The boolean value of the cell, false if it is blank.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell does not hold a boolean.
+	 */
+	boolean getBoolean(int column);
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return The numeric value of the cell as a date, null if it is blank.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell does not hold a number.
+	 */
+	Date getDate(int column);
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return The formula text of the cell, null if it holds no formula.
+	 */
+	String getFormula(int column);
+
+	/**
+	 * Returns this row as a POI Row, for mapping code written against Row.
+	 * The returned Row is subject to the same lifetime as this view.
+	 *
+	 * @return The row this view reads from.
+	 */
+	Row asRow();
+}
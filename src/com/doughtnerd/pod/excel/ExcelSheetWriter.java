@@ -0,0 +1,311 @@
+package com.doughtnerd.pod.excel;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+
+/**
+ * This class is a handle for writing a single sheet of an xlsx file one row
+ * at a time, so data can be piped from a database cursor or a queue straight
+ * into a file without first collecting it into a List. Instances are created
+ * through {@link ExcelWriter#openSheet(String, String, java.util.List)}.
+ * <p>
+ * Only the most recent rows are held in memory, older rows are flushed to a
+ * temp file automatically. The workbook is written to its file and the temp
+ * file is deleted when this writer is closed.
+ * </p>
+ * <p>
+ * If appending a row fails, because writing it threw or the iterator rows
+ * are pulled from threw, the writer is marked as failed. It then rejects
+ * further rows and closing it discards the rows instead of writing an
+ * incomplete file. A caller whose
+ * own code fails between appends should call {@link #abort()} so the partial
+ * workbook is not written either:
+ * </p>
+ * 
+ * <pre>
+ * ExcelSheetWriter&lt;Row&gt; writer = ExcelWriter.openSheet(path, "Data", headers);
+ * try {
+ * 	while (cursor.next()) {
+ * 		writer.append(toRow(cursor));
+ * 	}
+ * } catch (Exception e) {
+ * 	writer.abort();
+ * 	throw e;
+ * } finally {
+ * 	writer.close();
+ * }
+ * </pre>
+ *
+ * @author Christopher Carlson
+ *
+ * @param <T>
+ *            The type of objects being written to the sheet. All objects must
+ *            extend ExcelRowObject.
+ */
+public final class ExcelSheetWriter<T extends ExcelRowObject> implements Closeable {
+
+	/**
+	 * The streaming workbook rows are written to.
+	 */
+	private final SXSSFWorkbook workbook;
+
+	/**
+	 * The sheet rows are appended to.
+	 */
+	private final Sheet sheet;
+
+	/**
+	 * The file the workbook is written to on close.
+	 */
+	private final File file;
+
+	/**
+	 * The sink rows are written through.
+	 */
+	private final SheetRowSink sink;
+
+	/**
+	 * The index of the next row to write.
+	 */
+	private int nextRow;
+
+	/**
+	 * The index of the first data row.
+	 */
+	private final int startRow;
+
+	/**
+	 * When this writer was opened, 0 if instrumentation is switched off.
+	 */
+	private final long start;
+
+	/**
+	 * The number of rows currently held in memory.
+	 */
+	private int rowsBuffered;
+
+	/**
+	 * The largest number of rows held in memory at once.
+	 */
+	private int peakRowsBuffered;
+
+	/**
+	 * Whether this writer has been closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Whether an append failed or the writer was aborted, so the workbook must
+	 * not be written.
+	 */
+	private boolean failed;
+
+	/**
+	 * Creates a new ExcelSheetWriter.
+	 *
+	 * @param workbook
+	 *            The streaming workbook rows are written to.
+	 * @param sheet
+	 *            The sheet rows are appended to.
+	 * @param file
+	 *            The file the workbook is written to on close.
+	 * @param startRow
+	 *            The index of the first data row.
+	 */
+	ExcelSheetWriter(SXSSFWorkbook workbook, Sheet sheet, File file, int startRow) {
+		this.workbook = workbook;
+		this.sheet = sheet;
+		this.file = file;
+		this.sink = new SheetRowSink(sheet, CellStyleCache.forWorkbook(workbook));
+		this.nextRow = startRow;
+		this.startRow = startRow;
+		this.start = PodMetricsRegistry.startTimer();
+		this.rowsBuffered = startRow;
+	}
+
+	/**
+	 * Appends the given object as the next row of the sheet.
+	 *
+	 * @param data
+	 *            The object to write.
+	 * @throws IllegalStateException
+	 *             Thrown if this writer has been closed or has failed.
+	 */
+	public void append(T data) {
+		ensureOpen();
+		try {
+			sink.writeRow(nextRow++, data);
+		} catch (RuntimeException | Error e) {
+			failed = true;
+			throw e;
+		}
+		int window = workbook.getRandomAccessWindowSize();
+		rowsBuffered = window < 0 ? rowsBuffered + 1 : Math.min(rowsBuffered + 1, window);
+		peakRowsBuffered = Math.max(peakRowsBuffered, rowsBuffered);
+	}
+
+	/**
+	 * Appends every object the iterator returns as rows of the sheet, in
+	 * order. Objects are pulled from the iterator one at a time.
+	 *
+	 * @param data
+	 *            The objects to write.
+	 */
+	public void appendAll(Iterator<? extends T> data) {
+		try {
+			while (data.hasNext()) {
+				append(data.next());
+			}
+		} catch (RuntimeException | Error e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends every object of the given Iterable as rows of the sheet, in
+	 * order.
+	 *
+	 * @param data
+	 *            The objects to write.
+	 */
+	public void appendAll(Iterable<? extends T> data) {
+		appendAll(data.iterator());
+	}
+
+	/**
+	 * Flushes every row still held in memory to the temp file. Rows are
+	 * flushed automatically once the row access window is full, so this is
+	 * only needed to release memory early, for example before a long pause
+	 * between appends.
+	 *
+	 * @throws IOException
+	 *             Thrown if the rows could not be written to the temp file.
+	 */
+	public void flush() throws IOException {
+		ensureOpen();
+		ExcelWriter.tryFlushRows(workbook, sheet);
+		rowsBuffered = 0;
+	}
+
+	/**
+	 * @return The number of rows written so far, including the header row.
+	 */
+	public int getRowCount() {
+		return nextRow;
+	}
+
+	/**
+	 * @return The file the workbook is written to when this writer is closed.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return True if an append failed or the writer was aborted, in which
+	 *         case closing it does not write the file.
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Discards every row written so far without writing the file, and
+	 * deletes the temp file holding the flushed rows. Calling close
+	 * afterwards has no effect.
+	 */
+	public void abort() {
+		failed = true;
+		if (closed) {
+			return;
+		}
+		closed = true;
+		discard();
+	}
+
+	/**
+	 * Writes the workbook to its file and deletes the temp file holding the
+	 * flushed rows. If an append failed or the writer was aborted, nothing is
+	 * written. If writing fails, the incomplete file is deleted. Calling this
+	 * method more than once has no effect.
+	 *
+	 * @throws IOException
+	 *             Thrown if the file could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (failed) {
+			discard();
+			return;
+		}
+		long saveStart = 0;
+		if (start != 0) {
+			saveStart = System.nanoTime();
+			PodMetricsRegistry.get().sheetWritten(sheet.getSheetName(), nextRow - startRow, sink.getCellCount(),
+					peakRowsBuffered, saveStart - start);
+		}
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+			boolean written = false;
+			try {
+				workbook.write(out);
+				written = true;
+			} finally {
+				try {
+					out.close();
+				} finally {
+					if (!written) {
+						file.delete();
+					}
+				}
+			}
+			if (start != 0) {
+				PodMetricsRegistry.get().documentSaved(file.getPath(), System.nanoTime() - saveStart);
+			}
+		} finally {
+			workbook.dispose();
+			workbook.close();
+		}
+	}
+
+	/**
+	 * Releases the workbook and its temp file without writing it.
+	 */
+	private void discard() {
+		workbook.dispose();
+		try {
+			workbook.close();
+		} catch (IOException e) {
+			// Nothing was written, so there is nothing left to release.
+		}
+	}
+
+	/**
+	 * Throws an IllegalStateException if this writer has already been closed
+	 * or has failed, since the rows of a failed writer are discarded.
+	 */
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("This ExcelSheetWriter has already been closed.");
+		}
+		if (failed) {
+			throw new IllegalStateException("This ExcelSheetWriter has failed and its rows will be discarded.");
+		}
+	}
+}
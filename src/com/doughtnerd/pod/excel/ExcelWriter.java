@@ -4,16 +4,12 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.TreeMap;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.DataFormat;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -23,6 +19,7 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
 import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
 
 /**
  * This class provides static methods to handle writing operations of excel
@@ -39,6 +36,13 @@ public final class ExcelWriter {
 	 */
 	public static final String DEFAULT_SHEETNAME = "Sheet1";
 
+	/**
+	 * The default number of rows a sheet opened with
+	 * {@link #openSheet(String, String, List)} keeps in memory before older
+	 * rows are flushed to a temp file.
+	 */
+	public static final int DEFAULT_ROW_ACCESS_WINDOW = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
 	/**
 	 * Writes the given data to the given workbook on a sheet named after the
 	 * given sheetName using the given headers.
@@ -65,6 +69,75 @@ public final class ExcelWriter {
 		writeData(workbook, data, sheet, startRow);
 	}
 
+	/**
+	 * Opens a new xlsx file for incremental writing. Rows are appended one at
+	 * a time through the returned ExcelSheetWriter and only the last
+	 * {@link #DEFAULT_ROW_ACCESS_WINDOW} rows are kept in memory, older rows
+	 * are flushed to a compressed temp file. The file is written once the
+	 * ExcelSheetWriter is closed.
+	 * 
+	 * @param <T>
+	 *            The type of objects being written to the sheet. All objects
+	 *            must extend ExcelRowObject.
+	 * @param path
+	 *            The destination of the workbook file. If the extension is not
+	 *            xlsx it is replaced.
+	 * @param sheetName
+	 *            The name the sheet should have in the new workbook. If null or
+	 *            empty, defaults to DEFAULT_SHEETNAME.
+	 * @param headers
+	 *            List of String headers that that the sheet should use. If null
+	 *            or empty, no headers are written to the sheet.
+	 * @return The writer rows are appended to.
+	 */
+	public static <T extends ExcelRowObject> ExcelSheetWriter<T> openSheet(String path, String sheetName,
+			List<String> headers) {
+		return openSheet(path, sheetName, headers, DEFAULT_ROW_ACCESS_WINDOW, true);
+	}
+
+	/**
+	 * Opens a new xlsx file for incremental writing. See
+	 * {@link #openSheet(String, String, List)}.
+	 * 
+	 * @param <T>
+	 *            The type of objects being written to the sheet. All objects
+	 *            must extend ExcelRowObject.
+	 * @param path
+	 *            The destination of the workbook file. If the extension is not
+	 *            xlsx it is replaced.
+	 * @param sheetName
+	 *            The name the sheet should have in the new workbook. If null or
+	 *            empty, defaults to DEFAULT_SHEETNAME.
+	 * @param headers
+	 *            List of String headers that that the sheet should use. If null
+	 *            or empty, no headers are written to the sheet.
+	 * @param rowAccessWindow
+	 *            The number of most recent rows kept in memory. Older rows are
+	 *            flushed to a temp file automatically.
+	 * @param compressTempFiles
+	 *            Whether the temp file holding flushed rows should be gzip
+	 *            compressed. Compression costs CPU but keeps large exports from
+	 *            filling the temp directory.
+	 * @return The writer rows are appended to.
+	 */
+	public static <T extends ExcelRowObject> ExcelSheetWriter<T> openSheet(String path, String sheetName,
+			List<String> headers, int rowAccessWindow, boolean compressTempFiles) {
+		if (rowAccessWindow < 1) {
+			throw new IllegalArgumentException("Row access window must be at least 1.");
+		}
+		if (sheetName == null || sheetName.equals("")) {
+			sheetName = DEFAULT_SHEETNAME;
+		}
+		SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindow);
+		workbook.setCompressTempFiles(compressTempFiles);
+		Sheet sheet = workbook.createSheet(sheetName);
+		int startRow = 0;
+		if (headers != null && headers.size() != 0) {
+			writeHeaders(headers, sheet, startRow++);
+		}
+		return new ExcelSheetWriter<>(workbook, sheet, correctFileExtension(workbook, path), startRow);
+	}
+
 	/**
 	 * Writes a TreeMap of String sheetName to List&lt;? extends ExcelObject&gt;
 	 * pairings to a workbook. Each key in the map represents a sheet and the
@@ -147,12 +220,15 @@ public final class ExcelWriter {
 	 */
 	public static void writeWorkbookToFile(Workbook workbook, String path) throws IOException {
 		File file = correctFileExtension(workbook, path);
+		long start = PodMetricsRegistry.startTimer();
 		FileOutputStream out = new FileOutputStream(file);
 		workbook.write(out);
 		out.close();
+		if (start != 0) {
+			PodMetricsRegistry.get().documentSaved(file.getPath(), System.nanoTime() - start);
+		}
 		workbook.close();
 		workbook = null;
-		System.out.println("Excel written successfully...");
 	}
 
 	/**
@@ -204,6 +280,7 @@ public final class ExcelWriter {
 	 *            as rows to the sheet.
 	 * @return The workbook the data was written to.
 	 */
+	@Deprecated
 	public static <T extends ExcelRowObject> Workbook writeNewSheetToNewWorkbook(String workbookType, String sheetName,
 			List<String> headers, List<T> data) {
 		if (data == null || data.size() == 0) {
@@ -269,7 +346,7 @@ public final class ExcelWriter {
 	 * @param sheet
 	 *            The sheet to write the headers to.
 	 */
-	private static void writeHeaders(List<String> headers, Sheet sheet, int startRow) {
+	static void writeHeaders(List<String> headers, Sheet sheet, int startRow) {
 		Row headerRow = sheet.createRow(startRow++);
 		for (int i = 0; i < headers.size(); i++) {
 			Cell head = headerRow.createCell(i);
@@ -284,30 +361,21 @@ public final class ExcelWriter {
 	 *            The workbook to write the sheet to.
 	 * @param data
 	 *            The data to write to the sheet.
-	 * @param allFormatTypes
-	 *            The format types that exist across all of the data.
 	 * @param sheet
 	 *            The sheet that all data is written to and added to the
 	 *            workbook.
 	 */
 	private static <T extends ExcelRowObject> void writeData(Workbook workbook, List<T> data, Sheet sheet,
 			int startRow) {
-		ArrayList<CellStyle> addedStyles = new ArrayList<>();
-		System.out.println("Writing data to: " + sheet.getSheetName());
+		long start = PodMetricsRegistry.startTimer();
+		SheetRowSink sink = new SheetRowSink(sheet, CellStyleCache.forWorkbook(workbook));
 		for (T key : data) {
-			Row row = sheet.createRow(startRow++);
-			ExcelCellObject[] objArr = key.toCellObjectArray();
-			Objects.requireNonNull(objArr, "ExcelRowObject.toCellObjectArray() cannot result in a null object");
-			int cellnum = 0;
-			for (ExcelCellObject obj : objArr) {
-				Cell cell = row.createCell(cellnum++);
-				if (obj != null) {
-					Object value = obj.getValue();
-
-					setCellFormat(workbook, cell, addedStyles, obj);
-					setCellValue(value, cell);
-				}
-			}
+			sink.writeRow(startRow++, key);
+		}
+		if (start != 0) {
+			int window = workbook instanceof SXSSFWorkbook ? ((SXSSFWorkbook) workbook).getRandomAccessWindowSize() : -1;
+			PodMetricsRegistry.get().sheetWritten(sheet.getSheetName(), data.size(), sink.getCellCount(),
+					window < 0 ? startRow : Math.min(startRow, window), System.nanoTime() - start);
 		}
 	}
 
@@ -321,109 +389,13 @@ public final class ExcelWriter {
 	 *            SXSSFWorkbook instance.
 	 * @param sheet
 	 *            The sheet whose data should be flushed.
+	 * @throws IOException
+	 *             Thrown if the rows could not be written to the temp file.
 	 */
-	@SuppressWarnings("unused")
-	private static void tryFlushRows(Workbook workbook, Sheet sheet) {
+	static void tryFlushRows(Workbook workbook, Sheet sheet) throws IOException {
 		if (workbook instanceof SXSSFWorkbook) {
-			try {
-				((SXSSFSheet) sheet).flushRows();
-				System.out.println("Flushed Sheet to Disk");
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		} else {
-			System.out.println("Workbook not instance of SXSSF, Cannot flush to disk");
-		}
-	}
-
-	/**
-	 * This method is responsible for setting the style (formats) of each cell
-	 * that is placed into the document.
-	 * 
-	 * @param workbook
-	 *            The workbook that will contain the styling.
-	 * @param cell
-	 *            The cell that is to have styling added.
-	 * @param addedStyles
-	 *            The list of currently existing styles that have been added to
-	 *            the workbook.
-	 * @param obj
-	 *            The ExcelCellObject being added to the cell.
-	 */
-	private static void setCellFormat(Workbook workbook, Cell cell, ArrayList<CellStyle> addedStyles,
-			ExcelCellObject obj) {
-		if (!styleListContains(addedStyles, obj)) {
-			setNewFormat(workbook, cell, addedStyles, obj);
-		} else {
-			setExistingFormat(cell, addedStyles, obj);
-		}
-	}
-
-	/**
-	 * Sets the cell format to an existing cell format, assuming the format can
-	 * be found in the cell styles.
-	 * 
-	 * @param cell
-	 *            The cell to add the style to.
-	 * @param addedStyles
-	 *            The list of current styles that exist in the workbook.
-	 * @param obj
-	 *            The ExcelCellObject whose formatting properties need to be
-	 *            matched.
-	 */
-	private static void setExistingFormat(Cell cell, ArrayList<CellStyle> addedStyles, ExcelCellObject obj) {
-		for (CellStyle s : addedStyles) {
-			if (s.getDataFormatString().equals(obj.getDataFormat().getFormatString())
-					&& s.getWrapText() == obj.getWrapText()) {
-				cell.setCellStyle(s);
-				break;
-			}
-		}
-	}
-
-	/**
-	 * Sets the cell format to a new format type and adds that format data to
-	 * addedFormats and addedStyles.
-	 * 
-	 * @param workbook
-	 *            The workbook that will contain the new cell style.
-	 * @param cell
-	 *            Cell to add the style to.
-	 * @param addedStyles
-	 *            The list of styles that currently exist in the workbook.
-	 * @param obj
-	 *            The ExcelCellObject whose formats are being used to format the
-	 *            cell.
-	 */
-	private static void setNewFormat(Workbook workbook, Cell cell, ArrayList<CellStyle> addedStyles,
-			ExcelCellObject obj) {
-		CellStyle format = workbook.createCellStyle();
-		DataFormat formatObj = workbook.createDataFormat();
-		format.setDataFormat(formatObj.getFormat(obj.getDataFormat().getFormatString()));
-		format.setWrapText(obj.getWrapText());
-		cell.setCellStyle(format);
-		addedStyles.add(format);
-	}
-
-	/**
-	 * Helper method that searches through a list of styles to see if there is a
-	 * match between the format string and the style.
-	 * 
-	 * @param styles
-	 *            List of styles to search through.
-	 * @param formatString
-	 *            The String to match off of.
-	 * @return A boolean representing whether or not a match was found in the
-	 *         list.
-	 */
-	private static boolean styleListContains(ArrayList<CellStyle> addedStyles, ExcelCellObject obj) {
-		for (CellStyle c : addedStyles) {
-			if (c.getDataFormatString().equals(obj.getDataFormat().getFormatString())
-					&& c.getWrapText() == obj.getWrapText()) {
-				return true;
-			}
+			((SXSSFSheet) sheet).flushRows();
 		}
-		return false;
 	}
 
 	/**
@@ -438,6 +410,7 @@ public final class ExcelWriter {
 	 *            to sxlsx) defaults to xlsx.
 	 * @return The new xls, xlsx, or streamable-xlsx type workbook.
 	 */
+	@Deprecated
 	public static Workbook getNewWorkbook(String type) {
 		if (type == null || type.equals("") || (!type.equals("xls") && !type.equals("xlsx") && !type.equals("sxlsx"))) {
 			type = "xlsx";
@@ -475,7 +448,7 @@ public final class ExcelWriter {
 	 * @param cell
 	 *            The cell that will contain the object.
 	 */
-	private static void setCellValue(Object obj, Cell cell) {
+	static void setCellValue(Object obj, Cell cell) {
 		if (obj instanceof Date)
 			cell.setCellValue((Date) obj);
 		else if (obj instanceof Boolean)
@@ -0,0 +1,110 @@
+package com.doughtnerd.pod.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+import com.doughtnerd.pod.excel.abstracts.ExcelViewReader;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+import com.doughtnerd.pod.excel.streaming.StreamingOptions;
+
+/**
+ * An ExcelViewReader for classes whose fields are annotated with
+ * {@link com.doughtnerd.pod.excel.annotations.ExcelColumn}, so no
+ * extractItem has to be written. Columns without an index are found by
+ * header name once per sheet when a sheet is read with headers; see
+ * {@link ExcelMapper} for the supported field types.
+ *
+ * @author Christopher Carlson
+ *
+ * @param <T>
+ *            The type of object the rows are mapped to.
+ */
+public class MappedExcelReader<T> extends ExcelViewReader<T> {
+
+	/**
+	 * The mapper creating the objects.
+	 */
+	private final ExcelMapper<T> mapper;
+
+	/**
+	 * Creates a new MappedExcelReader that loads the whole file into memory.
+	 *
+	 * @param type
+	 *            The class rows are mapped to.
+	 * @param file
+	 *            The file to process
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public MappedExcelReader(Class<T> type, File file) throws IOException {
+		this(type, file, ExcelReadMode.DOM);
+	}
+
+	/**
+	 * Creates a new MappedExcelReader that loads the file using the given
+	 * read mode.
+	 *
+	 * @param type
+	 *            The class rows are mapped to.
+	 * @param file
+	 *            The file to process
+	 * @param mode
+	 *            How the file should be loaded.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public MappedExcelReader(Class<T> type, File file, ExcelReadMode mode) throws IOException {
+		super(file, mode);
+		this.mapper = mapperFor(type);
+	}
+
+	/**
+	 * Creates a new MappedExcelReader that streams the file using the given
+	 * options.
+	 *
+	 * @param type
+	 *            The class rows are mapped to.
+	 * @param file
+	 *            The file to process
+	 * @param options
+	 *            How the file should be streamed.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public MappedExcelReader(Class<T> type, File file, StreamingOptions options) throws IOException {
+		super(file, options);
+		this.mapper = mapperFor(type);
+	}
+
+	/**
+	 * Returns the mapper for the given class, closing this reader if the
+	 * class cannot be mapped.
+	 */
+	private ExcelMapper<T> mapperFor(Class<T> type) throws IOException {
+		try {
+			return ExcelMapper.of(type);
+		} catch (IllegalArgumentException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The mapper creating the objects.
+	 */
+	public ExcelMapper<T> getMapper() {
+		return mapper;
+	}
+
+	@Override
+	protected Function<ExcelRowView, T> bindSheet(List<String> headers) {
+		return mapper.bind(headers);
+	}
+
+	@Override
+	protected T extractItem(ExcelRowView row) {
+		return mapper.read(row);
+	}
+}
@@ -0,0 +1,426 @@
+package com.doughtnerd.pod.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.commons.io.FilenameUtils;
+
+import com.doughtnerd.pod.excel.abstracts.ExcelReader;
+import com.doughtnerd.pod.excel.abstracts.ExcelViewReader;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+import com.doughtnerd.pod.excel.exceptions.ExcelReadException;
+
+/**
+ * This class reads many excel files at once and merges their rows into a
+ * single stream. Files are opened and read by a fixed number of worker
+ * threads, each holding at most one file open, and the rows they map are
+ * handed to the consumer through a bounded buffer, so workers wait whenever
+ * the consumer falls behind and memory stays bounded no matter how many
+ * files are read.
+ * <p>
+ * A file that cannot be opened or read does not stop the batch: its error is
+ * handed to the error handler and the other files are read as usual. Rows a
+ * file yielded before it failed are still delivered. The handlers and the
+ * consumer of the stream are always called from the thread consuming the
+ * stream.
+ * </p>
+ * <p>
+ * Rows of different files are interleaved in the order they are read. Rows
+ * of one file keep their order relative to each other.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ * @param <T>
+ *            The type of object the rows are mapped to.
+ */
+public final class PodBatchReader<T> {
+
+	/**
+	 * The number of rows handed to the consumer at a time.
+	 */
+	private static final int CHUNK_SIZE = 256;
+
+	/**
+	 * Numbers the worker threads.
+	 */
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	/**
+	 * Opens the reader of each file.
+	 */
+	private final ReaderFactory<T> factory;
+
+	/**
+	 * Whether every sheet of every file starts with a header row.
+	 */
+	private final boolean headers;
+
+	/**
+	 * The number of files read at once.
+	 */
+	private final int parallelism;
+
+	/**
+	 * The number of chunks of rows buffered for the consumer.
+	 */
+	private final int bufferedChunks;
+
+	/**
+	 * Creates a new PodBatchReader buffering two chunks of rows per worker.
+	 *
+	 * @param factory
+	 *            Opens the reader of each file.
+	 * @param headers
+	 *            Whether every sheet of every file starts with a header row.
+	 * @param parallelism
+	 *            The number of files read at once.
+	 * @throws IllegalArgumentException
+	 *             Thrown if parallelism is less than 1.
+	 */
+	public PodBatchReader(ReaderFactory<T> factory, boolean headers, int parallelism) {
+		this(factory, headers, parallelism, parallelism * 2);
+	}
+
+	/**
+	 * Creates a new PodBatchReader.
+	 *
+	 * @param factory
+	 *            Opens the reader of each file.
+	 * @param headers
+	 *            Whether every sheet of every file starts with a header row.
+	 * @param parallelism
+	 *            The number of files read at once.
+	 * @param bufferedChunks
+	 *            The number of chunks of rows buffered for the consumer
+	 *            before workers wait.
+	 * @throws IllegalArgumentException
+	 *             Thrown if parallelism or bufferedChunks is less than 1.
+	 */
+	public PodBatchReader(ReaderFactory<T> factory, boolean headers, int parallelism, int bufferedChunks) {
+		if (factory == null) {
+			throw new NullPointerException("factory");
+		}
+		if (parallelism < 1 || bufferedChunks < 1) {
+			throw new IllegalArgumentException(
+					"Parallelism and buffered chunks must be positive: " + parallelism + ", " + bufferedChunks);
+		}
+		this.factory = factory;
+		this.headers = headers;
+		this.parallelism = parallelism;
+		this.bufferedChunks = bufferedChunks;
+	}
+
+	/**
+	 * Creates a new PodBatchReader mapping the rows of every file with the
+	 * given function.
+	 *
+	 * @param mapper
+	 *            Maps a row to an object, or to null to skip the row. In
+	 *            STREAMING mode the view is reused, so it must not be kept.
+	 * @param mode
+	 *            How each file should be loaded.
+	 * @param headers
+	 *            Whether every sheet of every file starts with a header row.
+	 * @param parallelism
+	 *            The number of files read at once.
+	 * @param <T>
+	 *            The type of object the rows are mapped to.
+	 * @return The batch reader.
+	 */
+	public static <T> PodBatchReader<T> mapping(final Function<ExcelRowView, T> mapper, final ExcelReadMode mode,
+			boolean headers, int parallelism) {
+		return new PodBatchReader<>(file -> new ExcelViewReader<T>(file, mode) {
+			@Override
+			protected T extractItem(ExcelRowView row) {
+				return mapper.apply(row);
+			}
+		}, headers, parallelism);
+	}
+
+	/**
+	 * Lists the xls and xlsx files directly inside the given directory, in
+	 * name order.
+	 *
+	 * @param directory
+	 *            The directory to list.
+	 * @return The excel files of the directory.
+	 * @throws IOException
+	 *             Thrown if the directory could not be listed.
+	 */
+	public static List<Path> listExcelFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(Files::isRegularFile).filter(file -> {
+				String extension = FilenameUtils.getExtension(file.getFileName().toString());
+				return extension.equals("xls") || extension.equals("xlsx");
+			}).sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Reads every excel file directly inside the given directory.
+	 *
+	 * @param directory
+	 *            The directory to read.
+	 * @param onError
+	 *            Called with each file that could not be read and why.
+	 * @return The rows of all files. See {@link #stream(List, BiConsumer)}.
+	 * @throws IOException
+	 *             Thrown if the directory could not be listed.
+	 */
+	public Stream<T> stream(Path directory, BiConsumer<Path, ? super Exception> onError) throws IOException {
+		return stream(listExcelFiles(directory), onError);
+	}
+
+	/**
+	 * Starts reading the given files and returns their rows as they are
+	 * mapped. Workers start right away and stop once every file is read or
+	 * the stream is closed, so a stream that is not consumed to the end must
+	 * be closed.
+	 *
+	 * @param files
+	 *            The files to read.
+	 * @param onError
+	 *            Called with each file that could not be read and why.
+	 * @return A sequential stream of the rows of all files.
+	 */
+	public Stream<T> stream(List<Path> files, BiConsumer<Path, ? super Exception> onError) {
+		if (onError == null) {
+			throw new NullPointerException("onError");
+		}
+		Batch batch = new Batch(new ArrayList<>(files), onError);
+		return StreamSupport.stream(batch, false).onClose(batch::close);
+	}
+
+	/**
+	 * Reads the given files, handing every row to the given consumer.
+	 *
+	 * @param files
+	 *            The files to read.
+	 * @param onRow
+	 *            Called with every row of every file.
+	 * @param onError
+	 *            Called with each file that could not be read and why.
+	 */
+	public void read(List<Path> files, Consumer<? super T> onRow, BiConsumer<Path, ? super Exception> onError) {
+		try (Stream<T> rows = stream(files, onError)) {
+			rows.forEach(onRow);
+		}
+	}
+
+	/**
+	 * Opens the reader of a file of a batch.
+	 *
+	 * @param <T>
+	 *            The type of object the rows are mapped to.
+	 */
+	@FunctionalInterface
+	public interface ReaderFactory<T> {
+
+		/**
+		 * @param file
+		 *            The file to read.
+		 * @return A reader of the file. It is closed once the file is read.
+		 * @throws IOException
+		 *             Thrown if the file could not be opened.
+		 */
+		ExcelReader<T> open(File file) throws IOException;
+	}
+
+	/**
+	 * A message from a worker to the consumer: a chunk of rows of a file,
+	 * the error that ended a file, or the end of a file.
+	 */
+	private static final class Message<T> {
+
+		private final Path file;
+
+		private final List<T> rows;
+
+		private final Throwable error;
+
+		private Message(Path file, List<T> rows, Throwable error) {
+			this.file = file;
+			this.rows = rows;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * One run of the batch: the workers reading the files and the spliterator
+	 * handing their rows to the consumer.
+	 */
+	private final class Batch implements Spliterator<T> {
+
+		/**
+		 * Called with each file that could not be read.
+		 */
+		private final BiConsumer<Path, ? super Exception> onError;
+
+		/**
+		 * The messages of the workers.
+		 */
+		private final BlockingQueue<Message<T>> queue = new ArrayBlockingQueue<>(bufferedChunks);
+
+		/**
+		 * The workers.
+		 */
+		private final ExecutorService executor;
+
+		/**
+		 * The number of files not yet ended.
+		 */
+		private int remaining;
+
+		/**
+		 * The rows of the current chunk.
+		 */
+		private Iterator<T> chunk = Collections.emptyIterator();
+
+		/**
+		 * True once the batch is closed.
+		 */
+		private volatile boolean closed;
+
+		private Batch(List<Path> files, BiConsumer<Path, ? super Exception> onError) {
+			this.onError = onError;
+			this.remaining = files.size();
+			this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, files.size())),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable task) {
+							Thread thread = new Thread(task, "pod-batch-reader-" + THREADS.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			for (Path file : files) {
+				executor.execute(() -> readFile(file));
+			}
+			executor.shutdown();
+		}
+
+		/**
+		 * Reads one file, handing its rows to the consumer in chunks. Always
+		 * ends with a message without rows, carrying the error if the file
+		 * failed.
+		 */
+		private void readFile(Path file) {
+			if (closed) {
+				return;
+			}
+			Throwable error = null;
+			try (ExcelReader<T> reader = factory.open(file.toFile()); Stream<T> rows = reader.streamDocument(headers)) {
+				List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+				Iterator<T> iter = rows.iterator();
+				while (iter.hasNext()) {
+					chunk.add(iter.next());
+					if (chunk.size() == CHUNK_SIZE) {
+						if (!send(new Message<>(file, chunk, null))) {
+							return;
+						}
+						chunk = new ArrayList<>(CHUNK_SIZE);
+					}
+				}
+				if (!chunk.isEmpty() && !send(new Message<>(file, chunk, null))) {
+					return;
+				}
+			} catch (Throwable e) {
+				error = e;
+			}
+			send(new Message<>(file, null, error));
+		}
+
+		/**
+		 * Hands a message to the consumer, waiting while the buffer is full.
+		 *
+		 * @return False if the batch was closed before the message was taken.
+		 */
+		private boolean send(Message<T> message) {
+			try {
+				while (!closed) {
+					if (queue.offer(message, 100, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (!chunk.hasNext()) {
+				if (remaining == 0 || closed) {
+					return false;
+				}
+				Message<T> message;
+				try {
+					message = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+					throw new ExcelReadException("Interrupted while waiting for rows", e);
+				}
+				if (message.rows != null) {
+					chunk = message.rows.iterator();
+					continue;
+				}
+				remaining--;
+				if (message.error instanceof Exception) {
+					onError.accept(message.file, (Exception) message.error);
+				} else if (message.error != null) {
+					close();
+					throw (Error) message.error;
+				}
+			}
+			action.accept(chunk.next());
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return NONNULL;
+		}
+
+		/**
+		 * Stops the workers and drops the rows not yet consumed.
+		 */
+		private void close() {
+			closed = true;
+			executor.shutdownNow();
+			queue.clear();
+		}
+	}
+}
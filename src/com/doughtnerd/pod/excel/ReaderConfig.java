@@ -0,0 +1,330 @@
+package com.doughtnerd.pod.excel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.doughtnerd.pod.excel.enums.ColumnType;
+
+/**
+ * This class is a reader configuration file compiled once into an immutable,
+ * typed column plan, so readers no longer look up and parse properties for
+ * every row. A compiled configuration can be shared by any number of readers,
+ * data files and threads.
+ * <p>
+ * Columns are declared with properties of the form
+ * <code>column.&lt;name&gt;.&lt;setting&gt;</code>:
+ * </p>
+ * <ul>
+ * <li>header - The header the column is found by, once per sheet.</li>
+ * <li>index - The zero based index of the column, used instead of the
+ * header.</li>
+ * <li>type - A {@link ColumnType}, STRING if not given.</li>
+ * <li>default - The value read from blank cells, parsed once as the column
+ * type.</li>
+ * </ul>
+ * <p>
+ * Every other property is kept as is and available through
+ * {@link #getProperty(String)}.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class ReaderConfig {
+
+	/**
+	 * The prefix of the properties declaring columns.
+	 */
+	private static final String PREFIX = "column.";
+
+	/**
+	 * The configurations loaded from files, keyed by canonical path.
+	 */
+	private static final Map<String, Loaded> LOADED = new ConcurrentHashMap<>();
+
+	/**
+	 * The properties the configuration was compiled from. Never handed out.
+	 */
+	private final Properties properties;
+
+	/**
+	 * The declared column names, indexed by slot.
+	 */
+	private final String[] names;
+
+	/**
+	 * The header of each column, null if the column is found by index.
+	 */
+	private final String[] headers;
+
+	/**
+	 * The index of each column, -1 if the column is found by header.
+	 */
+	private final int[] indexes;
+
+	/**
+	 * The type of each column.
+	 */
+	private final ColumnType[] types;
+
+	/**
+	 * The value of each column read from blank cells, null if none.
+	 */
+	private final Object[] defaults;
+
+	/**
+	 * The slot of each column name.
+	 */
+	private final Map<String, Integer> slots;
+
+	/**
+	 * Compiles the given properties.
+	 */
+	private ReaderConfig(Properties source) {
+		this.properties = new Properties();
+		this.properties.putAll(source);
+		TreeSet<String> declared = new TreeSet<>();
+		for (String key : properties.stringPropertyNames()) {
+			int dot = key.lastIndexOf('.');
+			if (key.startsWith(PREFIX) && dot > PREFIX.length()) {
+				declared.add(key.substring(PREFIX.length(), dot));
+			}
+		}
+		int count = declared.size();
+		this.names = declared.toArray(new String[count]);
+		this.headers = new String[count];
+		this.indexes = new int[count];
+		this.types = new ColumnType[count];
+		this.defaults = new Object[count];
+		Map<String, Integer> slots = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			String prefix = PREFIX + names[i] + ".";
+			String index = properties.getProperty(prefix + "index");
+			String type = properties.getProperty(prefix + "type");
+			String defaultValue = properties.getProperty(prefix + "default");
+			try {
+				indexes[i] = index != null ? Integer.parseInt(index.trim()) : -1;
+				types[i] = type != null ? ColumnType.valueOf(type.trim().toUpperCase(Locale.ROOT)) : ColumnType.STRING;
+				defaults[i] = defaultValue != null ? parse(defaultValue, types[i]) : null;
+			} catch (IllegalArgumentException | DateTimeParseException e) {
+				throw new IllegalArgumentException("Invalid configuration of column: " + names[i], e);
+			}
+			headers[i] = indexes[i] < 0 ? properties.getProperty(prefix + "header", names[i]) : null;
+			slots.put(names[i], i);
+		}
+		this.slots = Collections.unmodifiableMap(slots);
+	}
+
+	/**
+	 * Compiles the given properties into a configuration. The properties are
+	 * copied, so later changes to them have no effect.
+	 *
+	 * @param properties
+	 *            The properties to compile.
+	 * @return The compiled configuration.
+	 * @throws IllegalArgumentException
+	 *             Thrown if a column is declared with an invalid index, type
+	 *             or default.
+	 */
+	public static ReaderConfig compile(Properties properties) {
+		return new ReaderConfig(properties);
+	}
+
+	/**
+	 * Loads and compiles the given configuration file. Compiled files are
+	 * cached, and a file is only read again once it has changed on disk.
+	 *
+	 * @param file
+	 *            The properties file to load.
+	 * @return The compiled configuration.
+	 * @throws IOException
+	 *             Thrown if the file could not be read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if a column is declared with an invalid index, type
+	 *             or default.
+	 */
+	public static ReaderConfig load(File file) throws IOException {
+		String key = file.getCanonicalPath();
+		long modified = file.lastModified();
+		long length = file.length();
+		Loaded loaded = LOADED.get(key);
+		if (loaded != null && loaded.modified == modified && loaded.length == length) {
+			return loaded.config;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			properties.load(in);
+		}
+		ReaderConfig config = new ReaderConfig(properties);
+		LOADED.put(key, new Loaded(modified, length, config));
+		return config;
+	}
+
+	/**
+	 * Parses a default value as the given column type.
+	 */
+	private static Object parse(String value, ColumnType type) {
+		value = value.trim();
+		switch (type) {
+		case DOUBLE:
+			return Double.valueOf(value);
+		case LONG:
+			return Long.valueOf(value);
+		case INT:
+			return Integer.valueOf(value);
+		case BOOLEAN:
+			return Boolean.valueOf(value);
+		case DATE:
+			return Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * @return A copy of the properties this configuration was compiled from.
+	 */
+	public Properties getProperties() {
+		Properties copy = new Properties();
+		copy.putAll(properties);
+		return copy;
+	}
+
+	/**
+	 * @param key
+	 *            The property key.
+	 * @return The value of the property, null if it is not set.
+	 */
+	public String getProperty(String key) {
+		return properties.getProperty(key);
+	}
+
+	/**
+	 * @param key
+	 *            The property key.
+	 * @param defaultValue
+	 *            The value returned if the property is not set.
+	 * @return The value of the property.
+	 */
+	public String getProperty(String key, String defaultValue) {
+		return properties.getProperty(key, defaultValue);
+	}
+
+	/**
+	 * @return The names of the declared columns, indexed by slot.
+	 */
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+
+	/**
+	 * Returns the slot of the given column. Slots do not change for the life
+	 * of the configuration, so they are looked up once and then used to read
+	 * the column from every row.
+	 *
+	 * @param column
+	 *            The name of the column.
+	 * @return The slot of the column.
+	 * @throws IllegalArgumentException
+	 *             Thrown if no column of that name is declared.
+	 */
+	public int slot(String column) {
+		Integer slot = slots.get(column);
+		if (slot == null) {
+			throw new IllegalArgumentException("Column not declared in configuration: " + column);
+		}
+		return slot;
+	}
+
+	/**
+	 * @param slot
+	 *            The slot of a column.
+	 * @return The declared type of the column.
+	 */
+	public ColumnType getType(int slot) {
+		return types[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            The slot of a column.
+	 * @return The value read from blank cells of the column, null if none.
+	 */
+	Object getDefault(int slot) {
+		return defaults[slot];
+	}
+
+	/**
+	 * Resolves the columns against the header row of a sheet.
+	 *
+	 * @param headerRow
+	 *            The header of every column of the sheet, indexed by column,
+	 *            or null if the sheet has no header row.
+	 * @return The plan reading the declared columns from rows of the sheet.
+	 * @throws IllegalArgumentException
+	 *             Thrown if a header is not in the header row.
+	 * @throws IllegalStateException
+	 *             Thrown if a column is found by header and the sheet has no
+	 *             header row.
+	 */
+	public ColumnPlan bind(List<String> headerRow) {
+		int[] bound = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			if (indexes[i] >= 0) {
+				bound[i] = indexes[i];
+			} else if (headerRow == null) {
+				throw new IllegalStateException("Column " + names[i] + " is found by header and needs a header row");
+			} else {
+				bound[i] = headerRow.indexOf(headers[i]);
+				if (bound[i] < 0) {
+					throw new IllegalArgumentException("Header not found in sheet: " + headers[i]);
+				}
+			}
+		}
+		return new ColumnPlan(this, bound);
+	}
+
+	@Override
+	public String toString() {
+		List<String> columns = new ArrayList<>();
+		for (int i = 0; i < names.length; i++) {
+			columns.add(names[i] + "=" + (headers[i] != null ? headers[i] : "#" + indexes[i]) + ":" + types[i]);
+		}
+		return "ReaderConfig" + columns;
+	}
+
+	/**
+	 * A compiled configuration file and the state of the file it was read
+	 * from.
+	 */
+	private static final class Loaded {
+
+		private final long modified;
+
+		private final long length;
+
+		private final ReaderConfig config;
+
+		private Loaded(long modified, long length, ReaderConfig config) {
+			this.modified = modified;
+			this.length = length;
+			this.config = config;
+		}
+	}
+}
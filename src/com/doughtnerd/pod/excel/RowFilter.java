@@ -0,0 +1,116 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * This interface decides from the raw cell values of a row whether the row
+ * is mapped at all. Readers evaluate it before extractItem, and streaming
+ * reads evaluate it as each row is parsed, so rejected rows never create a
+ * domain object and, in STREAMING mode, never allocate a row.
+ * <p>
+ * In STREAMING mode the filter runs once the cells of the row have been
+ * parsed, but before their shared strings are looked up: a string cell is
+ * only resolved when the filter or the mapping reads it. Numbers, booleans
+ * and inline strings are decoded as the row is parsed.
+ * </p>
+ * <p>
+ * A filter only sees the columns a reader parses, so when a
+ * {@link ColumnProjection} is set it must include the columns the filter
+ * reads.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+@FunctionalInterface
+public interface RowFilter {
+
+	/**
+	 * @param row
+	 *            The row to test. The view is only valid for the duration of
+	 *            the call.
+	 * @return True if the row should be mapped, false to skip it.
+	 */
+	boolean accept(ExcelRowView row);
+
+	/**
+	 * @param other
+	 *            Another filter.
+	 * @return A filter accepting the rows both filters accept.
+	 */
+	default RowFilter and(RowFilter other) {
+		return row -> accept(row) && other.accept(row);
+	}
+
+	/**
+	 * @param other
+	 *            Another filter.
+	 * @return A filter accepting the rows either filter accepts.
+	 */
+	default RowFilter or(RowFilter other) {
+		return row -> accept(row) || other.accept(row);
+	}
+
+	/**
+	 * @return A filter accepting the rows this filter rejects.
+	 */
+	default RowFilter negate() {
+		return row -> !accept(row);
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @param value
+	 *            The string to compare with.
+	 * @return A filter accepting rows whose cell in the given column is a
+	 *         string equal to the given value.
+	 */
+	static RowFilter stringEquals(int column, String value) {
+		return row -> row.getCellType(column) == CellType.STRING && value.equals(row.getString(column));
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @param min
+	 *            The smallest accepted value.
+	 * @param max
+	 *            The largest accepted value.
+	 * @return A filter accepting rows whose cell in the given column is a
+	 *         number between min and max, inclusive.
+	 */
+	static RowFilter numberBetween(int column, double min, double max) {
+		return row -> {
+			if (row.getCellType(column) != CellType.NUMERIC) {
+				return false;
+			}
+			double value = row.getDouble(column);
+			return value >= min && value <= max;
+		};
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @param date
+	 *            The date to compare with.
+	 * @return A filter accepting rows whose cell in the given column is a date
+	 *         after the given date.
+	 */
+	static RowFilter dateAfter(int column, Date date) {
+		return row -> row.getCellType(column) == CellType.NUMERIC && row.getDate(column).after(date);
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return A filter accepting rows that hold a non blank cell in the given
+	 *         column.
+	 */
+	static RowFilter notBlank(int column) {
+		return row -> !row.isBlank(column);
+	}
+}
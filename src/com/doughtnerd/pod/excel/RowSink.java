@@ -0,0 +1,82 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Date;
+
+/**
+ * This interface receives the cell values of a single row as an
+ * ExcelRowObject writes itself through
+ * {@link com.doughtnerd.pod.excel.abstracts.ExcelRowObject#writeTo(RowSink)}.
+ * Values are passed as primitives together with an interned {@link StyleRef},
+ * so writing a row does not need an ExcelCellObject or a boxed value per cell.
+ * <p>
+ * Columns are zero based and may be written in any order. A null StyleRef is
+ * treated as {@link StyleRef#GENERAL}.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public interface RowSink {
+
+	/**
+	 * Writes a numeric value to the given column.
+	 *
+	 * @param column
+	 *            The column to write to.
+	 * @param value
+	 *            The value of the cell.
+	 * @param style
+	 *            The formatting of the cell.
+	 */
+	void writeDouble(int column, double value, StyleRef style);
+
+	/**
+	 * Writes a text value to the given column. A null value leaves the cell
+	 * blank.
+	 *
+	 * @param column
+	 *            The column to write to.
+	 * @param value
+	 *            The value of the cell.
+	 * @param style
+	 *            The formatting of the cell.
+	 */
+	void writeString(int column, String value, StyleRef style);
+
+	/**
+	 * Writes a boolean value to the given column.
+	 *
+	 * @param column
+	 *            The column to write to.
+	 * @param value
+	 *            The value of the cell.
+	 * @param style
+	 *            The formatting of the cell.
+	 */
+	void writeBoolean(int column, boolean value, StyleRef style);
+
+	/**
+	 * Writes a date value to the given column. A null value leaves the cell
+	 * blank.
+	 *
+	 * @param column
+	 *            The column to write to.
+	 * @param value
+	 *            The value of the cell.
+	 * @param style
+	 *            The formatting of the cell.
+	 */
+	void writeDate(int column, Date value, StyleRef style);
+
+	/**
+	 * Writes an ExcelCellObject to the given column. This is how rows that
+	 * only implement toCellObjectArray are written. A null cell object leaves
+	 * the cell blank and unstyled.
+	 *
+	 * @param column
+	 *            The column to write to.
+	 * @param cell
+	 *            The cell object to write.
+	 */
+	void writeCell(int column, ExcelCellObject cell);
+}
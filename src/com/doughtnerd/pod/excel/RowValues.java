@@ -0,0 +1,68 @@
+package com.doughtnerd.pod.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * The lenient conversions shared by the mapping classes, which read a cell
+ * of a row view as text or as a number regardless of the type it is stored
+ * as.
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class RowValues {
+
+	private RowValues() {
+	}
+
+	/**
+	 * Reads a non blank cell as text. Whole numbers are written without a
+	 * decimal point.
+	 *
+	 * @param row
+	 *            The row holding the cell.
+	 * @param column
+	 *            The zero based column index.
+	 * @param type
+	 *            The type of the cell's value.
+	 * @return The text of the cell.
+	 */
+	static String text(ExcelRowView row, int column, CellType type) {
+		if (type == CellType.NUMERIC) {
+			double number = row.getDouble(column);
+			if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+				return Long.toString((long) number);
+			}
+			return Double.toString(number);
+		} else if (type == CellType.BOOLEAN) {
+			return Boolean.toString(row.getBoolean(column));
+		}
+		return row.getString(column);
+	}
+
+	/**
+	 * Reads a non blank cell as a number, parsing text cells.
+	 *
+	 * @param row
+	 *            The row holding the cell.
+	 * @param column
+	 *            The zero based column index.
+	 * @param type
+	 *            The type of the cell's value.
+	 * @return The number held by the cell.
+	 * @throws IllegalStateException
+	 *             Thrown if the cell holds neither a number nor text that
+	 *             parses as one.
+	 */
+	static double number(ExcelRowView row, int column, CellType type) {
+		if (type == CellType.STRING) {
+			String text = row.getString(column).trim();
+			try {
+				return Double.parseDouble(text);
+			} catch (NumberFormatException e) {
+				throw new IllegalStateException("Cannot read text as a number in column " + column + ": " + text);
+			}
+		}
+		return row.getDouble(column);
+	}
+}
@@ -0,0 +1,123 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
+
+/**
+ * The {@link RowSink} the ExcelWriter uses to write ExcelRowObjects to a
+ * sheet. One instance is reused for every row of a sheet.
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class SheetRowSink implements RowSink {
+
+	/**
+	 * The sheet rows are written to.
+	 */
+	private final Sheet sheet;
+
+	/**
+	 * The style cache of the sheet's workbook.
+	 */
+	private final CellStyleCache styles;
+
+	/**
+	 * The row currently being written.
+	 */
+	private Row row;
+
+	/**
+	 * The number of cells written so far.
+	 */
+	private long cellCount;
+
+	/**
+	 * Creates a new SheetRowSink.
+	 *
+	 * @param sheet
+	 *            The sheet rows are written to.
+	 * @param styles
+	 *            The style cache of the sheet's workbook.
+	 */
+	SheetRowSink(Sheet sheet, CellStyleCache styles) {
+		this.sheet = sheet;
+		this.styles = styles;
+	}
+
+	/**
+	 * Writes a single ExcelRowObject as a new row of the sheet.
+	 *
+	 * @param rowNum
+	 *            The index of the new row.
+	 * @param data
+	 *            The object to write as a row.
+	 */
+	void writeRow(int rowNum, ExcelRowObject data) {
+		row = sheet.createRow(rowNum);
+		try {
+			data.writeTo(this);
+		} finally {
+			row = null;
+		}
+	}
+
+	@Override
+	public void writeDouble(int column, double value, StyleRef style) {
+		createCell(column, style).setCellValue(value);
+	}
+
+	@Override
+	public void writeString(int column, String value, StyleRef style) {
+		Cell cell = createCell(column, style);
+		if (value != null) {
+			cell.setCellValue(value);
+		}
+	}
+
+	@Override
+	public void writeBoolean(int column, boolean value, StyleRef style) {
+		createCell(column, style).setCellValue(value);
+	}
+
+	@Override
+	public void writeDate(int column, Date value, StyleRef style) {
+		Cell cell = createCell(column, style);
+		if (value != null) {
+			cell.setCellValue(value);
+		}
+	}
+
+	/**
+	 * @return The number of cells written so far.
+	 */
+	long getCellCount() {
+		return cellCount;
+	}
+
+	@Override
+	public void writeCell(int column, ExcelCellObject obj) {
+		cellCount++;
+		Cell cell = row.createCell(column);
+		if (obj != null) {
+			cell.setCellStyle(styles.getStyle(obj));
+			ExcelWriter.setCellValue(obj.getValue(), cell);
+		}
+	}
+
+	/**
+	 * Creates the cell at the given column of the current row with the style
+	 * of the given StyleRef.
+	 */
+	private Cell createCell(int column, StyleRef style) {
+		cellCount++;
+		Cell cell = row.createCell(column);
+		cell.setCellStyle(styles.getStyle(style != null ? style : StyleRef.GENERAL));
+		return cell;
+	}
+}
@@ -0,0 +1,154 @@
+package com.doughtnerd.pod.excel;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+
+import com.doughtnerd.pod.excel.enums.ExcelFormatType;
+
+/**
+ * This class identifies the formatting a cell written through a
+ * {@link RowSink} should have: its ExcelFormat, whether its text wraps and its
+ * horizontal alignment. StyleRefs are interned, so a row object can look one
+ * up once, keep it in a static field and pass it with every value it writes.
+ * The ExcelWriter maps each StyleRef to a single CellStyle per workbook.
+ *
+ * @see RowSink
+ * @author Christopher Carlson
+ *
+ */
+public final class StyleRef {
+
+	/**
+	 * Every StyleRef handed out by {@link #of(ExcelFormatType, boolean, HorizontalAlignment)}.
+	 */
+	private static final ConcurrentMap<StyleRef, StyleRef> INTERNED = new ConcurrentHashMap<>();
+
+	/**
+	 * The style ExcelCellObjects have by default: GENERAL format, no text
+	 * wrapping and general alignment.
+	 */
+	public static final StyleRef GENERAL = of(ExcelFormatType.GENERAL);
+
+	/**
+	 * The format of the cell.
+	 */
+	private final ExcelFormat format;
+
+	/**
+	 * Whether the text of the cell wraps.
+	 */
+	private final boolean wrapText;
+
+	/**
+	 * The horizontal alignment of the cell, null to keep the workbook default.
+	 */
+	private final HorizontalAlignment alignment;
+
+	/**
+	 * The hash code of this StyleRef, computed once.
+	 */
+	private final int hash;
+
+	/**
+	 * Creates a new StyleRef.
+	 *
+	 * @param format
+	 *            The format of the cell.
+	 * @param wrapText
+	 *            Whether the text of the cell wraps.
+	 * @param alignment
+	 *            The horizontal alignment of the cell.
+	 */
+	StyleRef(ExcelFormat format, boolean wrapText, HorizontalAlignment alignment) {
+		this.format = format;
+		this.wrapText = wrapText;
+		this.alignment = alignment;
+		int h = format.getFormatString().hashCode();
+		h = 31 * h + (wrapText ? 1 : 0);
+		h = 31 * h + (alignment != null ? alignment.hashCode() : 0);
+		this.hash = h;
+	}
+
+	/**
+	 * Returns the StyleRef with the given format, no text wrapping and general
+	 * alignment, so text is aligned left and numbers right.
+	 *
+	 * @param format
+	 *            The format of the cell.
+	 * @return The interned StyleRef.
+	 */
+	public static StyleRef of(ExcelFormatType format) {
+		return of(format, false, HorizontalAlignment.GENERAL);
+	}
+
+	/**
+	 * Returns the StyleRef with the given formatting. The same instance is
+	 * returned for equal arguments.
+	 *
+	 * @param format
+	 *            The format of the cell.
+	 * @param wrapText
+	 *            Whether the text of the cell wraps.
+	 * @param alignment
+	 *            The horizontal alignment of the cell.
+	 * @return The interned StyleRef.
+	 */
+	public static StyleRef of(ExcelFormatType format, boolean wrapText, HorizontalAlignment alignment) {
+		StyleRef ref = new StyleRef(ExcelFormat.valueOf(format), wrapText, alignment);
+		StyleRef existing = INTERNED.putIfAbsent(ref, ref);
+		return existing != null ? existing : ref;
+	}
+
+	/**
+	 * Returns the key the formatting of the given ExcelCellObject is cached
+	 * under. The key is not interned.
+	 *
+	 * @param obj
+	 *            The ExcelCellObject.
+	 * @return A StyleRef equal to the formatting of the cell object.
+	 */
+	static StyleRef keyOf(ExcelCellObject obj) {
+		return new StyleRef(obj.getDataFormat(), obj.getWrapText(), obj.getHorizontalAlignment());
+	}
+
+	/**
+	 * @return The format of the cell.
+	 */
+	public ExcelFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return Whether the text of the cell wraps.
+	 */
+	public boolean getWrapText() {
+		return wrapText;
+	}
+
+	/**
+	 * @return The horizontal alignment of the cell.
+	 */
+	public HorizontalAlignment getHorizontalAlignment() {
+		return alignment;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof StyleRef)) {
+			return false;
+		}
+		StyleRef other = (StyleRef) obj;
+		return wrapText == other.wrapText && alignment == other.alignment
+				&& format.getFormatString().equals(other.format.getFormatString());
+	}
+}
@@ -0,0 +1,496 @@
+package com.doughtnerd.pod.excel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * This class writes a zip archive, such as an OOXML package, that is mostly a
+ * copy of an existing one. Entries copied from the source archive are written
+ * byte for byte as they are stored, without inflating and deflating them
+ * again, so copying an entry costs no more than reading it. New entries are
+ * deflated as they are written.
+ * <p>
+ * Entries are written one at a time: either copied with
+ * {@link #copyEntry(String)}, or started with {@link #putNextEntry(String)},
+ * written through {@link #getEntryStream()} and finished with
+ * {@link #closeEntry()}. Closing the writer writes the central directory and
+ * closes both archives. Archives that need ZIP64 are not supported.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class ZipPackageWriter implements Closeable {
+
+	private static final int LOCAL_HEADER = 0x04034b50;
+
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+
+	private static final int CENTRAL_HEADER = 0x02014b50;
+
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+	/**
+	 * The general purpose flag stating that sizes follow the entry data.
+	 */
+	private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+	/**
+	 * The general purpose flag stating that the entry name is UTF-8.
+	 */
+	private static final int FLAG_UTF8 = 0x800;
+
+	private static final int METHOD_DEFLATED = 8;
+
+	/**
+	 * The largest value the 32 bit fields of a zip archive can hold.
+	 */
+	private static final long MAX_32 = 0xFFFFFFFFL;
+
+	/**
+	 * The source archive, open for reading.
+	 */
+	private final FileChannel source;
+
+	/**
+	 * The entries of the source archive, keyed by name, in archive order.
+	 */
+	private final Map<String, Entry> sourceEntries;
+
+	/**
+	 * The stream the archive is written to.
+	 */
+	private final CountingOutputStream out;
+
+	/**
+	 * The entries written so far.
+	 */
+	private final List<Entry> written = new ArrayList<>();
+
+	/**
+	 * The entry being written through {@link #getEntryStream()}, null if none.
+	 */
+	private Entry current;
+
+	/**
+	 * Compresses the entry being written.
+	 */
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+	/**
+	 * Checksums the entry being written.
+	 */
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * The stream the data of the current entry is written to.
+	 */
+	private final OutputStream entryStream = new EntryOutputStream();
+
+	/**
+	 * Creates a new writer copying entries from the given source archive.
+	 *
+	 * @param source
+	 *            The archive entries are copied from.
+	 * @param out
+	 *            The stream the new archive is written to. It is closed when
+	 *            the writer is closed.
+	 * @throws IOException
+	 *             Thrown if the source could not be read.
+	 * @throws ZipException
+	 *             Thrown if the source is not a zip archive or needs ZIP64.
+	 */
+	public ZipPackageWriter(File source, OutputStream out) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(source, "r");
+		try {
+			this.source = file.getChannel();
+			this.sourceEntries = Collections.unmodifiableMap(readCentralDirectory(this.source));
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+		this.out = new CountingOutputStream(out);
+	}
+
+	/**
+	 * @return The names of the entries of the source archive, in archive
+	 *         order.
+	 */
+	public List<String> getSourceEntryNames() {
+		return new ArrayList<>(sourceEntries.keySet());
+	}
+
+	/**
+	 * Copies an entry of the source archive as it is stored.
+	 *
+	 * @param name
+	 *            The name of the entry.
+	 * @throws IOException
+	 *             Thrown if the entry could not be copied.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the source archive has no such entry.
+	 */
+	public void copyEntry(String name) throws IOException {
+		Entry entry = sourceEntries.get(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("No such entry in the source archive: " + name);
+		}
+		checkNoEntryOpen();
+		long dataOffset = entry.offset + 30 + readShort(source, entry.offset + 26) + readShort(source, entry.offset + 28);
+		Entry copy = new Entry(entry.name, entry.flags & ~FLAG_DATA_DESCRIPTOR, entry.method, entry.dosTime);
+		copy.crc = entry.crc;
+		copy.compressedSize = entry.compressedSize;
+		copy.size = entry.size;
+		writeLocalHeader(copy);
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		long position = dataOffset;
+		long end = dataOffset + entry.compressedSize;
+		while (position < end) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - position));
+			int read = source.read(buffer, position);
+			if (read < 0) {
+				throw new ZipException("Truncated entry: " + name);
+			}
+			out.write(buffer.array(), 0, read);
+			position += read;
+		}
+	}
+
+	/**
+	 * Starts a new, deflated entry. Its data is written through
+	 * {@link #getEntryStream()} until {@link #closeEntry()} is called.
+	 *
+	 * @param name
+	 *            The name of the entry.
+	 * @throws IOException
+	 *             Thrown if the entry could not be started.
+	 */
+	public void putNextEntry(String name) throws IOException {
+		checkNoEntryOpen();
+		current = new Entry(name, FLAG_DATA_DESCRIPTOR | FLAG_UTF8, METHOD_DEFLATED, dosTime(System.currentTimeMillis()));
+		writeLocalHeader(current);
+		deflater.reset();
+		crc.reset();
+	}
+
+	/**
+	 * @return The stream the data of the current entry is written to. Closing
+	 *         it has no effect.
+	 */
+	public OutputStream getEntryStream() {
+		return entryStream;
+	}
+
+	/**
+	 * Finishes the current entry.
+	 *
+	 * @throws IOException
+	 *             Thrown if the entry could not be written.
+	 */
+	public void closeEntry() throws IOException {
+		if (current == null) {
+			throw new IllegalStateException("No entry is open");
+		}
+		deflater.finish();
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			int length = deflater.deflate(buffer);
+			out.write(buffer, 0, length);
+		}
+		current.crc = crc.getValue();
+		current.compressedSize = deflater.getBytesWritten();
+		current.size = deflater.getBytesRead();
+		checkSize(current.compressedSize);
+		checkSize(current.size);
+		ByteBuffer descriptor = littleEndian(16);
+		descriptor.putInt(DATA_DESCRIPTOR).putInt((int) current.crc).putInt((int) current.compressedSize)
+				.putInt((int) current.size);
+		out.write(descriptor.array());
+		current = null;
+	}
+
+	/**
+	 * Writes the central directory and closes both archives.
+	 *
+	 * @throws IOException
+	 *             Thrown if the archive could not be finished.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (current != null) {
+				closeEntry();
+			}
+			long directoryOffset = out.count;
+			for (Entry entry : written) {
+				byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+				ByteBuffer header = littleEndian(46);
+				header.putInt(CENTRAL_HEADER).putShort((short) 20).putShort((short) 20).putShort((short) entry.flags)
+						.putShort((short) entry.method).putInt(entry.dosTime).putInt((int) entry.crc)
+						.putInt((int) entry.compressedSize).putInt((int) entry.size).putShort((short) name.length)
+						.putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(0)
+						.putInt((int) entry.offset);
+				out.write(header.array());
+				out.write(name);
+			}
+			long directorySize = out.count - directoryOffset;
+			if (written.size() > 0xFFFF) {
+				throw new ZipException("Too many entries without ZIP64: " + written.size());
+			}
+			checkSize(directoryOffset);
+			ByteBuffer end = littleEndian(22);
+			end.putInt(END_OF_CENTRAL_DIRECTORY).putShort((short) 0).putShort((short) 0)
+					.putShort((short) written.size()).putShort((short) written.size()).putInt((int) directorySize)
+					.putInt((int) directoryOffset).putShort((short) 0);
+			out.write(end.array());
+			out.flush();
+		} finally {
+			deflater.end();
+			try {
+				out.close();
+			} finally {
+				source.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes the local header of an entry and records the entry.
+	 */
+	private void writeLocalHeader(Entry entry) throws IOException {
+		entry.offset = out.count;
+		checkSize(entry.offset);
+		byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer header = littleEndian(30);
+		header.putInt(LOCAL_HEADER).putShort((short) 20).putShort((short) entry.flags).putShort((short) entry.method)
+				.putInt(entry.dosTime).putInt((int) entry.crc).putInt((int) entry.compressedSize)
+				.putInt((int) entry.size).putShort((short) name.length).putShort((short) 0);
+		out.write(header.array());
+		out.write(name);
+		written.add(entry);
+	}
+
+	/**
+	 * Throws if an entry started with putNextEntry is still open.
+	 */
+	private void checkNoEntryOpen() {
+		if (current != null) {
+			throw new IllegalStateException("Entry not closed: " + current.name);
+		}
+	}
+
+	/**
+	 * Throws if a size or offset does not fit the archive without ZIP64.
+	 */
+	private static void checkSize(long value) throws ZipException {
+		if (value >= MAX_32) {
+			throw new ZipException("Archive too large without ZIP64");
+		}
+	}
+
+	/**
+	 * Reads the entries of an archive from its central directory.
+	 */
+	private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+		long length = channel.size();
+		int tail = (int) Math.min(length, 22 + 0xFFFF);
+		ByteBuffer buffer = littleEndian(tail);
+		readFully(channel, buffer, length - tail, "Truncated archive");
+		int end = -1;
+		for (int i = tail - 22; i >= 0; i--) {
+			if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0) {
+			throw new ZipException("Not a zip archive");
+		}
+		int count = buffer.getShort(end + 10) & 0xFFFF;
+		long size = buffer.getInt(end + 12) & MAX_32;
+		long offset = buffer.getInt(end + 16) & MAX_32;
+		if (count == 0xFFFF || size == MAX_32 || offset == MAX_32) {
+			throw new ZipException("ZIP64 archives are not supported");
+		}
+		ByteBuffer directory = littleEndian((int) size);
+		readFully(channel, directory, offset, "Truncated central directory");
+		Map<String, Entry> entries = new LinkedHashMap<>();
+		int position = 0;
+		for (int i = 0; i < count; i++) {
+			if (directory.getInt(position) != CENTRAL_HEADER) {
+				throw new ZipException("Invalid central directory");
+			}
+			int nameLength = directory.getShort(position + 28) & 0xFFFF;
+			int extraLength = directory.getShort(position + 30) & 0xFFFF;
+			int commentLength = directory.getShort(position + 32) & 0xFFFF;
+			byte[] name = new byte[nameLength];
+			directory.position(position + 46);
+			directory.get(name);
+			Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), directory.getShort(position + 8) & 0xFFFF,
+					directory.getShort(position + 10) & 0xFFFF, directory.getInt(position + 12));
+			entry.crc = directory.getInt(position + 16) & MAX_32;
+			entry.compressedSize = directory.getInt(position + 20) & MAX_32;
+			entry.size = directory.getInt(position + 24) & MAX_32;
+			entry.offset = directory.getInt(position + 42) & MAX_32;
+			if (entry.compressedSize == MAX_32 || entry.size == MAX_32 || entry.offset == MAX_32) {
+				throw new ZipException("ZIP64 archives are not supported");
+			}
+			entries.put(entry.name, entry);
+			position += 46 + nameLength + extraLength + commentLength;
+		}
+		return entries;
+	}
+
+	/**
+	 * Reads an unsigned 16 bit value of an archive.
+	 */
+	private static int readShort(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = littleEndian(2);
+		readFully(channel, buffer, position, "Truncated local header");
+		return buffer.getShort(0) & 0xFFFF;
+	}
+
+	/**
+	 * Fills a buffer from the given position of a channel, which may take
+	 * several reads.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position, String truncated)
+			throws IOException {
+		int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position() - start) < 0) {
+				throw new ZipException(truncated);
+			}
+		}
+	}
+
+	/**
+	 * Allocates a little endian buffer, the byte order of every zip field.
+	 */
+	private static ByteBuffer littleEndian(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Converts a time to the MS-DOS date and time of a zip entry.
+	 */
+	private static int dosTime(long millis) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(millis);
+		int year = Math.max(calendar.get(Calendar.YEAR), 1980);
+		return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21
+				| calendar.get(Calendar.DAY_OF_MONTH) << 16 | calendar.get(Calendar.HOUR_OF_DAY) << 11
+				| calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	/**
+	 * An entry of the source or the written archive.
+	 */
+	private static final class Entry {
+
+		private final String name;
+
+		private final int flags;
+
+		private final int method;
+
+		private final int dosTime;
+
+		private long crc;
+
+		private long compressedSize;
+
+		private long size;
+
+		/**
+		 * The offset of the local header within its archive.
+		 */
+		private long offset;
+
+		private Entry(String name, int flags, int method, int dosTime) {
+			this.name = name;
+			this.flags = flags;
+			this.method = method;
+			this.dosTime = dosTime;
+		}
+	}
+
+	/**
+	 * Deflates the data of the current entry into the archive.
+	 */
+	private final class EntryOutputStream extends OutputStream {
+
+		private final byte[] buffer = new byte[8192];
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (current == null) {
+				throw new IllegalStateException("No entry is open");
+			}
+			crc.update(b, off, len);
+			deflater.setInput(b, off, len);
+			while (!deflater.needsInput()) {
+				int length = deflater.deflate(buffer);
+				out.write(buffer, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes written, giving the offsets of the entries.
+	 */
+	private static final class CountingOutputStream extends OutputStream {
+
+		private final OutputStream out;
+
+		private long count;
+
+		private CountingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * A change an {@link ExcelEditor} made to the value of one cell. Values are
+ * given as text the way they would be typed into Excel: formulas start with
+ * an equals sign, numbers and booleans are written as
+ * {@link ExcelReader#getCellString(org.apache.poi.ss.usermodel.Cell)} writes
+ * them and a blank or removed cell is an empty string.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class CellChange {
+
+	private final String sheetName;
+
+	private final int rowNum;
+
+	private final int column;
+
+	private final CellType oldType;
+
+	private final String oldValue;
+
+	private final CellType newType;
+
+	private final String newValue;
+
+	CellChange(String sheetName, int rowNum, int column, CellType oldType, String oldValue, CellType newType,
+			String newValue) {
+		this.sheetName = sheetName;
+		this.rowNum = rowNum;
+		this.column = column;
+		this.oldType = oldType;
+		this.oldValue = oldValue;
+		this.newType = newType;
+		this.newValue = newValue;
+	}
+
+	/**
+	 * @return The name of the sheet holding the cell.
+	 */
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	/**
+	 * @return The zero based index of the row holding the cell.
+	 */
+	public int getRowNum() {
+		return rowNum;
+	}
+
+	/**
+	 * @return The zero based column index of the cell.
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return The type of the cell before the edit, BLANK if it did not
+	 *         exist.
+	 */
+	public CellType getOldType() {
+		return oldType;
+	}
+
+	/**
+	 * @return The value of the cell before the edit.
+	 */
+	public String getOldValue() {
+		return oldValue;
+	}
+
+	/**
+	 * @return The type of the cell after the edit, BLANK if it was removed.
+	 */
+	public CellType getNewType() {
+		return newType;
+	}
+
+	/**
+	 * @return The value of the cell after the edit.
+	 */
+	public String getNewValue() {
+		return newValue;
+	}
+
+	@Override
+	public String toString() {
+		return sheetName + "!R" + (rowNum + 1) + "C" + (column + 1) + ": " + oldValue + " -> " + newValue;
+	}
+}
@@ -1,18 +1,29 @@
 package com.doughtnerd.pod.excel.abstracts;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.List;
 import java.util.Properties;
+import java.util.function.Function;
 
 import org.apache.poi.ss.usermodel.Row;
 
+import com.doughtnerd.pod.excel.ColumnPlan;
+import com.doughtnerd.pod.excel.ExcelRowView;
+import com.doughtnerd.pod.excel.ReaderConfig;
 import com.doughtnerd.pod.excel.abstracts.ExcelReader;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
 
 /**
  * This class is an alternate implementation of ExcelReader that allows for a
  * configuration file to be read in for configuring the reader.
+ * <p>
+ * The configuration is compiled into a {@link ReaderConfig}, which is cached
+ * per file and can be shared across readers. Columns declared in it are
+ * resolved once per sheet into a {@link ColumnPlan}. Readers that extend
+ * {@link ConfiguredViewReader} instead read typed values from the plan by
+ * slot, rather than looking up and parsing properties for every row.
+ * </p>
  * 
  * @author Christopher Carlson
  *
@@ -23,7 +34,13 @@ import com.doughtnerd.pod.excel.abstracts.ExcelReader;
 public abstract class ConfiguredExcelReader<T> {
 
 	/**
-	 * The properties this reader will use during its operations.
+	 * The compiled configuration this reader uses during its operations.
+	 */
+	private ReaderConfig config;
+
+	/**
+	 * This reader's copy of the configuration properties, handed to
+	 * {@link #extractItem(Row, Properties)}.
 	 */
 	private Properties props;
 
@@ -41,27 +58,60 @@ public abstract class ConfiguredExcelReader<T> {
 	 *            The data file this reader will operate on.
 	 */
 	public ConfiguredExcelReader(File configFile, File dataFile) {
-		Properties prop = new Properties();
-		InputStream input = null;
+		this(configFile, dataFile, ExcelReadMode.DOM);
+	}
+
+	/**
+	 * Creates a new ConfiguredExcelReader object that loads the data file
+	 * using the given read mode. The configuration file is compiled once and
+	 * cached, see {@link ReaderConfig#load(File)}.
+	 * 
+	 * @param configFile
+	 *            The file used to configure this reader.
+	 * @param dataFile
+	 *            The data file this reader will operate on.
+	 * @param mode
+	 *            How the data file should be loaded.
+	 */
+	public ConfiguredExcelReader(File configFile, File dataFile, ExcelReadMode mode) {
 		try {
-			reader = new DataReader(dataFile);
-			input = new FileInputStream(configFile);
-			prop.load(input);
-			props = prop;
-			configureReader(this.props);
+			reader = new DataReader(dataFile, mode);
+			init(ReaderConfig.load(configFile));
 		} catch (IOException e) {
 			e.printStackTrace();
-		} finally {
-			if (input != null) {
-				try {
-					input.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-			}
 		}
 	}
 
+	/**
+	 * Creates a new ConfiguredExcelReader object that shares an already
+	 * compiled configuration, so a batch of data files pays for reading the
+	 * configuration only once.
+	 * 
+	 * @param config
+	 *            The compiled configuration of this reader.
+	 * @param dataFile
+	 *            The data file this reader will operate on.
+	 * @param mode
+	 *            How the data file should be loaded.
+	 * @throws IOException
+	 *             Thrown if the data file could not be opened.
+	 */
+	public ConfiguredExcelReader(ReaderConfig config, File dataFile, ExcelReadMode mode) throws IOException {
+		reader = new DataReader(dataFile, mode);
+		init(config);
+	}
+
+	/**
+	 * Takes on the given configuration and lets the subclass configure
+	 * itself from it.
+	 */
+	private void init(ReaderConfig config) {
+		this.config = config;
+		this.props = config.getProperties();
+		configureReader(config);
+		configureReader(this.props);
+	}
+
 	/**
 	 * Called by the constructor to initialize any variables the reader might
 	 * contain or need to use before the extraction process begins.
@@ -72,6 +122,17 @@ public abstract class ConfiguredExcelReader<T> {
 	 */
 	public abstract void configureReader(Properties properties);
 
+	/**
+	 * Called by the constructor with the compiled configuration, before
+	 * {@link #configureReader(Properties)}. This is where the slots of the
+	 * declared columns are looked up once. Does nothing by default.
+	 * 
+	 * @param config
+	 *            The compiled configuration of this reader.
+	 */
+	public void configureReader(ReaderConfig config) {
+	}
+
 	/**
 	 * How this reader will extract data from a given row in the excel document.
 	 * 
@@ -83,6 +144,30 @@ public abstract class ConfiguredExcelReader<T> {
 	 */
 	public abstract T extractItem(Row row, Properties properties);
 
+	/**
+	 * How this reader will extract data from a view of a given row, reading
+	 * the configured columns through the plan bound to the current sheet. The
+	 * default implementation hands {@link ExcelRowView#asRow()} to
+	 * {@link #extractItem(Row, Properties)}.
+	 * 
+	 * @param row
+	 *            The view of the current row. In STREAMING mode it must not be
+	 *            kept after this method returns.
+	 * @param plan
+	 *            The configured columns bound to the current sheet.
+	 * @return The data extracted from the row, or null to skip the row.
+	 */
+	public T extractItem(ExcelRowView row, ColumnPlan plan) {
+		return extractItem(row.asRow(), props);
+	}
+
+	/**
+	 * @return The compiled configuration of this reader.
+	 */
+	public ReaderConfig getConfig() {
+		return config;
+	}
+
 	/**
 	 * @return The underlying data reader.
 	 */
@@ -96,6 +181,20 @@ public abstract class ConfiguredExcelReader<T> {
 			super(file);
 		}
 
+		public DataReader(File file, ExcelReadMode mode) throws IOException {
+			super(file, mode);
+		}
+
+		/**
+		 * Binds the configured columns to the headers of the sheet once, then
+		 * maps every row of the sheet with the bound plan.
+		 */
+		@Override
+		protected Function<ExcelRowView, T> bindSheet(List<String> headers) {
+			ColumnPlan plan = config.bind(headers);
+			return row -> ConfiguredExcelReader.this.extractItem(row, plan);
+		}
+
 		@Override
 		protected T extractItem(Row row) {
 			return ConfiguredExcelReader.this.extractItem(row, props);
@@ -0,0 +1,132 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.poi.ss.usermodel.Row;
+
+import com.doughtnerd.pod.excel.ColumnPlan;
+import com.doughtnerd.pod.excel.ExcelRowView;
+import com.doughtnerd.pod.excel.ReaderConfig;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+
+/**
+ * This class is an alternate implementation of ConfiguredExcelReader that
+ * maps rows through the columns its configuration declares. The declared
+ * columns are resolved once per sheet into a {@link ColumnPlan}, so
+ * implementations of {@link #extractItem(ExcelRowView, ColumnPlan)} read
+ * typed values by slot instead of looking up and parsing properties for
+ * every row. Slots are best looked up once in
+ * {@link #configureReader(ReaderConfig)}.
+ * 
+ * @author Christopher Carlson
+ *
+ * @param <T>
+ *            The data type this reader will be extracting from the Excel
+ *            document.
+ */
+public abstract class ConfiguredViewReader<T> extends ConfiguredExcelReader<T> {
+
+	/**
+	 * The plan rows mapped outside a sheet read are read through, bound on
+	 * first use.
+	 */
+	private volatile ColumnPlan rowPlan;
+
+	/**
+	 * Creates a new ConfiguredViewReader object.
+	 * 
+	 * @param configFile
+	 *            The file used to configure this reader.
+	 * @param dataFile
+	 *            The data file this reader will operate on.
+	 */
+	public ConfiguredViewReader(File configFile, File dataFile) {
+		super(configFile, dataFile);
+	}
+
+	/**
+	 * Creates a new ConfiguredViewReader object that loads the data file
+	 * using the given read mode.
+	 * 
+	 * @param configFile
+	 *            The file used to configure this reader.
+	 * @param dataFile
+	 *            The data file this reader will operate on.
+	 * @param mode
+	 *            How the data file should be loaded.
+	 */
+	public ConfiguredViewReader(File configFile, File dataFile, ExcelReadMode mode) {
+		super(configFile, dataFile, mode);
+	}
+
+	/**
+	 * Creates a new ConfiguredViewReader object that shares an already
+	 * compiled configuration.
+	 * 
+	 * @param config
+	 *            The compiled configuration of this reader.
+	 * @param dataFile
+	 *            The data file this reader will operate on.
+	 * @param mode
+	 *            How the data file should be loaded.
+	 * @throws IOException
+	 *             Thrown if the data file could not be opened.
+	 */
+	public ConfiguredViewReader(ReaderConfig config, File dataFile, ExcelReadMode mode) throws IOException {
+		super(config, dataFile, mode);
+	}
+
+	/**
+	 * Does nothing, the configuration is read through
+	 * {@link #configureReader(ReaderConfig)}.
+	 */
+	@Override
+	public void configureReader(Properties properties) {
+	}
+
+	/**
+	 * Maps a POI Row that is not part of a sheet read. Such a row has no
+	 * header row to resolve columns against, so it is read through a plan
+	 * that binds every configured column by its index. The plan is bound
+	 * once and reused for every later row.
+	 * 
+	 * @param row
+	 *            The current row this reader is operating on.
+	 * @param properties
+	 *            The properties read in from the configuration file.
+	 * @return The data extracted from the row.
+	 * @throws IllegalStateException
+	 *             Thrown if a configured column is found by header instead of
+	 *             by index.
+	 */
+	@Override
+	public final T extractItem(Row row, Properties properties) {
+		ColumnPlan plan = rowPlan;
+		if (plan == null) {
+			try {
+				plan = getConfig().bind(null);
+			} catch (IllegalStateException e) {
+				throw new IllegalStateException("Rows mapped outside a sheet read have no header row, so every "
+						+ "configured column needs an index. " + e.getMessage(), e);
+			}
+			rowPlan = plan;
+		}
+		return extractItem(new RowViewAdapter().wrap(row), plan);
+	}
+
+	/**
+	 * How this reader will extract data from a view of a given row, reading
+	 * the configured columns through the plan bound to the current sheet.
+	 * 
+	 * @param row
+	 *            The view of the current row. In STREAMING mode it must not be
+	 *            kept after this method returns.
+	 * @param plan
+	 *            The configured columns bound to the current sheet.
+	 * @return The data extracted from the row, or null to skip the row.
+	 */
+	@Override
+	public abstract T extractItem(ExcelRowView row, ColumnPlan plan);
+}
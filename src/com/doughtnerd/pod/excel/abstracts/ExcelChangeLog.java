@@ -0,0 +1,166 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The record of what an {@link ExcelEditor} changed: the rows of each sheet
+ * whose cells changed in value or format, and every change of a cell's value.
+ * A change log can be written as a compact diff with
+ * {@link #writeDiff(Writer)}, so the edits can be applied elsewhere without
+ * shipping the whole workbook.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class ExcelChangeLog {
+
+	/**
+	 * The first line of a diff.
+	 */
+	private static final String DIFF_HEADER = "sheet,row,column,old,new";
+
+	/**
+	 * The changed rows of each sheet, in the order the sheets were first
+	 * changed.
+	 */
+	private final Map<String, SortedSet<Integer>> changedRows = new LinkedHashMap<>();
+
+	/**
+	 * Every change of a cell's value, in the order it was recorded.
+	 */
+	private final List<CellChange> changes = new ArrayList<>();
+
+	ExcelChangeLog() {
+	}
+
+	/**
+	 * Records that a row changed, in value or format.
+	 */
+	void rowChanged(String sheetName, int rowNum) {
+		changedRows.computeIfAbsent(sheetName, name -> new TreeSet<>()).add(rowNum);
+	}
+
+	/**
+	 * Records the change of a cell's value.
+	 */
+	void cellChanged(CellChange change) {
+		rowChanged(change.getSheetName(), change.getRowNum());
+		changes.add(change);
+	}
+
+	/**
+	 * @return True if nothing has changed.
+	 */
+	public boolean isEmpty() {
+		return changedRows.isEmpty();
+	}
+
+	/**
+	 * @return The names of the sheets with at least one changed row, in the
+	 *         order they were first changed.
+	 */
+	public Set<String> getChangedSheets() {
+		return Collections.unmodifiableSet(changedRows.keySet());
+	}
+
+	/**
+	 * @param sheetName
+	 *            The name of a sheet.
+	 * @return The zero based indices of the changed rows of the sheet, in
+	 *         ascending order. Empty if none changed.
+	 */
+	public SortedSet<Integer> getChangedRows(String sheetName) {
+		SortedSet<Integer> rows = changedRows.get(sheetName);
+		return rows != null ? Collections.unmodifiableSortedSet(rows) : Collections.<Integer> emptySortedSet();
+	}
+
+	/**
+	 * @return Every change of a cell's value, in the order it was made.
+	 *         Changes of format alone are not listed.
+	 */
+	public List<CellChange> getChanges() {
+		return Collections.unmodifiableList(changes);
+	}
+
+	/**
+	 * Forgets every recorded change.
+	 */
+	public void clear() {
+		changedRows.clear();
+		changes.clear();
+	}
+
+	/**
+	 * Writes the changes as CSV with the columns sheet, row, column, old and
+	 * new. Rows and columns are zero based. Values are written as
+	 * {@link CellChange} gives them and quoted when they hold a comma, quote
+	 * or line break.
+	 *
+	 * @param out
+	 *            The writer to write to. It is not closed.
+	 * @throws IOException
+	 *             Thrown if the writer failed.
+	 */
+	public void writeDiff(Writer out) throws IOException {
+		out.write(DIFF_HEADER);
+		out.write("\r\n");
+		for (CellChange change : changes) {
+			writeField(out, change.getSheetName());
+			out.write(',');
+			out.write(Integer.toString(change.getRowNum()));
+			out.write(',');
+			out.write(Integer.toString(change.getColumn()));
+			out.write(',');
+			writeField(out, change.getOldValue());
+			out.write(',');
+			writeField(out, change.getNewValue());
+			out.write("\r\n");
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the changes to a file in UTF-8. See {@link #writeDiff(Writer)}.
+	 *
+	 * @param file
+	 *            The file to write.
+	 * @throws IOException
+	 *             Thrown if the file could not be written.
+	 */
+	public void writeDiff(File file) throws IOException {
+		try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writeDiff(out);
+		}
+	}
+
+	/**
+	 * Writes a CSV field, quoting it if needed.
+	 */
+	private static void writeField(Writer out, String value) throws IOException {
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			out.write(value);
+			return;
+		}
+		out.write('"');
+		out.write(value.replace("\"", "\"\""));
+		out.write('"');
+	}
+}
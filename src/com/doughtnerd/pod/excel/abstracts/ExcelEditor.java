@@ -4,7 +4,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
@@ -14,11 +17,24 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
 
 /**
  * This class reads in an excel file and allows for the user to edit specific
  * parts of a given row. After editing, this editors workbook can be saved to a
  * file location on disk.
+ * <p>
+ * With {@link #setTrackChanges(boolean)} enabled, the editor records which
+ * rows and cells editRow changes in a {@link ExcelChangeLog}.
+ * </p>
+ * <p>
+ * By default the whole workbook is written when it is saved. With
+ * {@link #setCopyUnchangedParts(boolean)} enabled, an xlsx workbook is
+ * instead saved by serializing only the processed sheets, along with the
+ * workbook wide parts they may have changed, and every other part is copied
+ * from the original file as it is stored. Sheets edited outside of editRow
+ * must then be marked with {@link #markSheetEdited(Sheet)}.
+ * </p>
  * 
  * @author Christopher Carlson
  *
@@ -35,6 +51,43 @@ public abstract class ExcelEditor {
 	 */
 	protected File file;
 
+	/**
+	 * The index of the sheet names, built on the first lookup by name.
+	 */
+	private SheetNameIndex sheetNameIndex;
+
+	/**
+	 * The sheets that were processed or marked as edited.
+	 */
+	private final Set<Sheet> editedSheets = new LinkedHashSet<>();
+
+	/**
+	 * The state of the xlsx package on load, null for xls workbooks.
+	 */
+	private XlsxCopyThrough copyThrough;
+
+	/**
+	 * Whether processSheet compares every row against its state before the
+	 * edit.
+	 */
+	private boolean trackChanges;
+
+	/**
+	 * The changes recorded by processSheet.
+	 */
+	private final ExcelChangeLog changeLog = new ExcelChangeLog();
+
+	/**
+	 * The state of the row being edited, before the edit.
+	 */
+	private final RowSnapshot snapshot = new RowSnapshot();
+
+	/**
+	 * Whether saving copies the parts of the original file that were not
+	 * edited.
+	 */
+	private boolean copyUnchangedParts;
+
 	/**
 	 * Creates a new ExcelEditor Object.
 	 * 
@@ -44,6 +97,7 @@ public abstract class ExcelEditor {
 	 *             Thrown if an IOException occurred.
 	 */
 	public ExcelEditor(File file) throws IOException {
+		long start = PodMetricsRegistry.startTimer();
 		FileInputStream fis;
 		String extension = FilenameUtils.getExtension(file.getAbsolutePath());
 		this.file = file;
@@ -54,6 +108,25 @@ public abstract class ExcelEditor {
 			throw new IllegalArgumentException("File needs to be of type: xls or xlsx");
 		}
 		fis.close();
+		if (workbook instanceof XSSFWorkbook) {
+			copyThrough = XlsxCopyThrough.of((XSSFWorkbook) workbook, file);
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().documentLoaded(file.getPath(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Creates a new ExcelEditor Object. The whole file is loaded into memory,
+	 * so the edited workbook can be saved over the file it was read from.
+	 * 
+	 * @param path
+	 *            The file to process.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelEditor(Path path) throws IOException {
+		this(path.toFile());
 	}
 
 	/**
@@ -88,6 +161,22 @@ public abstract class ExcelEditor {
 		processSheet(sheet, headers);
 	}
 
+	/**
+	 * Processes every sheet of the workbook. The sheets are edited one after
+	 * the other, since a POI workbook must not be modified by several threads
+	 * at once; {@link StreamingExcelEditor#processDocument(boolean, java.util.concurrent.Executor)}
+	 * edits the sheets of an xlsx file in parallel.
+	 * 
+	 * @param headers
+	 *            Whether or not headers are present on every sheet of the file.
+	 */
+	public void processDocument(boolean headers) {
+		int sheetCount = workbook.getNumberOfSheets();
+		for (int i = 0; i < sheetCount; i++) {
+			processSheet(workbook.getSheetAt(i), headers);
+		}
+	}
+
 	/**
 	 * Processes the given sheet.
 	 * 
@@ -99,15 +188,46 @@ public abstract class ExcelEditor {
 	 */
 	public void processSheet(Sheet sheet, boolean headers) {
 		if (sheet != null) {
+			if (!trackChanges) {
+				markSheetEdited(sheet);
+			}
+			String sheetName = sheet.getSheetName();
+			int physicalRows = sheet.getPhysicalNumberOfRows();
+			int lastRowNum = sheet.getLastRowNum();
+			boolean changed = false;
+			long start = PodMetricsRegistry.startTimer();
+			long editNanos = 0;
+			long rows = 0;
 			Iterator<Row> iter = sheet.iterator();
 			while (iter.hasNext()) {
 				Row current = iter.next();
 				if (!headers) {
+					if (trackChanges) {
+						snapshot.capture(current);
+					}
+					long editStart = start != 0 ? System.nanoTime() : 0;
 					editRow(current);
+					if (start != 0) {
+						editNanos += System.nanoTime() - editStart;
+						rows++;
+					}
+					if (trackChanges) {
+						changed |= snapshot.compare(current, sheetName, changeLog);
+					}
 				} else {
 					headers = false;
 				}
 			}
+			if (trackChanges) {
+				snapshot.clear();
+				if (changed || !sheetName.equals(sheet.getSheetName())
+						|| physicalRows != sheet.getPhysicalNumberOfRows() || lastRowNum != sheet.getLastRowNum()) {
+					markSheetEdited(sheet);
+				}
+			}
+			if (start != 0) {
+				PodMetricsRegistry.get().sheetEdited(sheetName, rows, editNanos, System.nanoTime() - start);
+			}
 		}
 	}
 
@@ -120,24 +240,116 @@ public abstract class ExcelEditor {
 	protected abstract void editRow(Row row);
 
 	/**
-	 * Scans the workbook for a specific sheet
+	 * Marks a sheet as edited, so it is written anew when the workbook is
+	 * saved. Sheets in which processSheet saw a change are marked already.
+	 * 
+	 * @param sheet
+	 *            The sheet that was edited.
+	 */
+	protected void markSheetEdited(Sheet sheet) {
+		editedSheets.add(sheet);
+	}
+
+	/**
+	 * Sets whether processSheet records the changes editRow makes. Disabled
+	 * by default. With tracking enabled, each row is compared against its
+	 * state before editRow was called and the changed cells are listed in
+	 * {@link #getChangeLog()}. Only the values and styles of the cells of the
+	 * row handed to editRow are compared.
+	 * <p>
+	 * If unchanged parts are also copied on save, see
+	 * {@link #setCopyUnchangedParts(boolean)}, a processed sheet is only
+	 * written anew if a change was seen in it. Changes the comparison cannot
+	 * see, such as to other rows, rich text, comments, hyperlinks, merged
+	 * regions, column widths or row heights, are then lost unless the sheet
+	 * is marked with {@link #markSheetEdited(Sheet)}. Without copying, the
+	 * whole workbook is written and no change is lost.
+	 * </p>
+	 * 
+	 * @param trackChanges
+	 *            True to record changes, false to treat every processed sheet
+	 *            as changed.
+	 */
+	public void setTrackChanges(boolean trackChanges) {
+		this.trackChanges = trackChanges;
+	}
+
+	/**
+	 * Returns the changes recorded by processSheet so far, which stays empty
+	 * unless {@link #setTrackChanges(boolean)} is enabled. The log can be
+	 * written as a cell level diff with
+	 * {@link ExcelChangeLog#writeDiff(File)} instead of, or as well as,
+	 * saving the workbook.
+	 * 
+	 * @return The change log of this editor.
+	 */
+	public ExcelChangeLog getChangeLog() {
+		return changeLog;
+	}
+
+	/**
+	 * Sets whether saving an xlsx workbook copies the parts that were not
+	 * edited from the original file, rather than writing the whole workbook.
+	 * Disabled by default.
+	 * <p>
+	 * Only the sheets handed to processSheet, or marked with
+	 * {@link #markSheetEdited(Sheet)}, and the parts they relate to are
+	 * written anew; changes made to any other sheet, through the workbook
+	 * field or a sheet returned by getSheet, are lost unless that sheet is
+	 * marked. The parts are serialized through protected methods of POI,
+	 * reached by reflection; if they cannot be reached, or the package or the
+	 * original file changed since the workbook was loaded, the whole workbook
+	 * is written instead.
+	 * </p>
+	 * 
+	 * @param copyUnchangedParts
+	 *            True to copy the unchanged parts, false to write every part.
+	 */
+	public void setCopyUnchangedParts(boolean copyUnchangedParts) {
+		this.copyUnchangedParts = copyUnchangedParts;
+	}
+
+	/**
+	 * Finds a sheet of the workbook by name: the sheet named sheetName if
+	 * there is one, otherwise the first sheet whose name contains it. The
+	 * lookup goes through an index of the sheet names of this editor's
+	 * workbook that is kept between calls. The index is rebuilt when the
+	 * number of sheets changes, when the sheet found no longer has the name
+	 * the index holds for it, or when no sheet matches. Subclasses that
+	 * rename sheets must call {@link #invalidateSheetNames()} afterwards, or
+	 * a name first answered by a contains match keeps that answer after
+	 * another sheet is renamed to match it exactly.
 	 * 
 	 * @param workbook
 	 *            The workbook to scan
 	 * @param sheetName
-	 *            The string the sheet should contain
-	 * @return The first sheet containing the sheetName given to the method
+	 *            The string the sheet should be named or contain
+	 * @return The sheet named sheetName, else the first sheet containing it
 	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheetName returned null.
+	 *             Thrown if no sheet name contains the given sheetName.
 	 */
 	protected Sheet getSheet(Workbook workbook, String sheetName) throws SheetNotFoundException {
-		for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-			Sheet sheet = workbook.getSheetAt(i);
-			if (sheet.getSheetName().contains(sheetName)) {
-				return sheet;
-			}
+		SheetNameIndex index = SheetNameIndex.of(sheetNameIndex, workbook);
+		int found = index.find(sheetName);
+		if (!index.isCurrent(found)) {
+			index = SheetNameIndex.of(workbook);
+			found = index.find(sheetName);
+		}
+		if (workbook == this.workbook) {
+			sheetNameIndex = index;
+		}
+		if (found < 0) {
+			throw new SheetNotFoundException("Could not find sheet: " + sheetName);
 		}
-		throw new SheetNotFoundException("Could not find sheet: " + sheetName);
+		return workbook.getSheetAt(found);
+	}
+
+	/**
+	 * Drops the index of the sheet names so that the next lookup by name
+	 * builds it anew. Call this after renaming sheets of the workbook.
+	 */
+	protected void invalidateSheetNames() {
+		sheetNameIndex = null;
 	}
 
 	/**
@@ -160,7 +372,10 @@ public abstract class ExcelEditor {
 	}
 
 	/**
-	 * Saves this ExcelEditor objects workbook to the specified file.
+	 * Saves this ExcelEditor objects workbook to the specified file. If
+	 * copying unchanged parts is enabled but the parts of an xlsx workbook
+	 * cannot be copied, because parts were added or removed or the original
+	 * file has changed, the whole workbook is written.
 	 * 
 	 * @param file
 	 *            The file location to write to.
@@ -168,8 +383,15 @@ public abstract class ExcelEditor {
 	 *             Thrown if a file access error occurred.
 	 */
 	public void save(File file) throws IOException {
-		FileOutputStream out = new FileOutputStream(file);
-		this.workbook.write(out);
-		out.close();
+		long start = PodMetricsRegistry.startTimer();
+		if (!copyUnchangedParts || copyThrough == null
+				|| !copyThrough.save((XSSFWorkbook) workbook, editedSheets, file)) {
+			FileOutputStream out = new FileOutputStream(file);
+			this.workbook.write(out);
+			out.close();
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().documentSaved(file.getPath(), System.nanoTime() - start);
+		}
 	}
 }
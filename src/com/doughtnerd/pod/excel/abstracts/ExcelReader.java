@@ -1,30 +1,77 @@
 package com.doughtnerd.pod.excel.abstracts;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import com.doughtnerd.pod.excel.ColumnProjection;
+import com.doughtnerd.pod.excel.ExcelRowView;
+import com.doughtnerd.pod.excel.RowFilter;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+import com.doughtnerd.pod.excel.exceptions.ExcelReadException;
 import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
+import com.doughtnerd.pod.excel.streaming.StreamingOptions;
+import com.doughtnerd.pod.excel.streaming.StreamingSheet;
+import com.doughtnerd.pod.excel.streaming.StreamingWorkbook;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
 
 /**
  * This is an abstract class designed to read organized and tabulated data from
  * an xls or an xlsx document and return an <code>ArrayList</code> that contains
  * the data read from a single sheet or a <code>TreeMap</code> that contains the
  * data extracted from the entire document.
+ * <p>
+ * A reader can either load the whole workbook into memory or stream its
+ * sheets one row at a time, see {@link ExcelReadMode}. Subclasses do not need
+ * to change their {@link #extractItem(Row)} implementation to switch between
+ * the two modes.
+ * </p>
+ * <p>
+ * Subclasses that would rather map rows through a recycled row view, so that
+ * a streaming read creates no Row or Cell objects per row, extend
+ * {@link ExcelViewReader} instead.
+ * </p>
  * 
  * @author Christopher Carlson
  *
@@ -32,219 +79,1375 @@ import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
  *            The type of object that is being created through the extraction
  *            process.
  */
-public abstract class ExcelReader<T> {
+public abstract class ExcelReader<T> implements Closeable {
 
 	/**
-	 * The workbook the file represents.
+	 * The smallest number of rows a parallel sheet read hands to a single
+	 * worker, so that small sheets are not split into tasks that cost more to
+	 * schedule than to map.
+	 */
+	private static final int MIN_CHUNK_ROWS = 512;
+
+	/**
+	 * The workbook the file represents. Null if this reader is in STREAMING
+	 * mode.
 	 */
 	protected Workbook workbook;
 
 	/**
-	 * The original file containing the workbook data.
+	 * The streaming workbook the file represents. Null if this reader is in
+	 * DOM mode.
+	 */
+	protected StreamingWorkbook streamingWorkbook;
+
+	/**
+	 * The original file containing the workbook data.
+	 */
+	protected File file;
+
+	/**
+	 * The columns streaming reads parse, null to parse every column.
+	 */
+	private volatile ColumnProjection projection;
+
+	/**
+	 * The filter rows must pass to be mapped, null to map every row.
+	 */
+	private volatile RowFilter rowFilter;
+
+	/**
+	 * The index of the sheet names, built on the first lookup by name.
+	 */
+	private volatile SheetNameIndex sheetNameIndex;
+
+	/**
+	 * Creates a new ExcelReader Object.
+	 * 
+	 * @param file
+	 *            The file to process
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelReader(File file) throws IOException {
+		this(file, ExcelReadMode.DOM);
+	}
+
+	/**
+	 * Creates a new ExcelReader Object that loads the file using the given
+	 * read mode.
+	 * 
+	 * @param file
+	 *            The file to process
+	 * @param mode
+	 *            How the file should be loaded. STREAMING mode reads xls files
+	 *            record by record and xlsx files through a StAX parser.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelReader(File file, ExcelReadMode mode) throws IOException {
+		this(file, mode, StreamingOptions.defaults());
+	}
+
+	/**
+	 * Creates a new ExcelReader Object that reads the file in STREAMING mode
+	 * using the given options, for example to spill the shared strings of a
+	 * very large xlsx file to disk.
+	 * 
+	 * @param file
+	 *            The file to process
+	 * @param options
+	 *            How the file should be streamed.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelReader(File file, StreamingOptions options) throws IOException {
+		this(file, ExcelReadMode.STREAMING, options);
+	}
+
+	/**
+	 * Loads the file in the given mode, streaming it with the given options
+	 * if the mode is STREAMING.
+	 */
+	private ExcelReader(File file, ExcelReadMode mode, StreamingOptions options) throws IOException {
+		this.file = file;
+		long start = PodMetricsRegistry.startTimer();
+		if (mode == ExcelReadMode.STREAMING) {
+			streamingWorkbook = StreamingWorkbook.open(file, options);
+		} else {
+			String extension = FilenameUtils.getExtension(file.getAbsolutePath());
+			workbook = extension.equals("xls") ? openXls(file)
+					: extension.equals("xlsx") ? openXlsx(file, mode == ExcelReadMode.DOM_FILE_BACKED) : null;
+			if (workbook == null) {
+				throw new IllegalArgumentException("File needs to be of type: xls or xlsx");
+			}
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().documentLoaded(file.getPath(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Creates a new ExcelReader Object.
+	 * 
+	 * @param path
+	 *            The file to process
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelReader(Path path) throws IOException {
+		this(path.toFile(), ExcelReadMode.DOM);
+	}
+
+	/**
+	 * Creates a new ExcelReader Object that loads the file using the given
+	 * read mode.
+	 * 
+	 * @param path
+	 *            The file to process
+	 * @param mode
+	 *            How the file should be loaded. STREAMING mode reads xls files
+	 *            record by record and xlsx files through a StAX parser.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelReader(Path path, ExcelReadMode mode) throws IOException {
+		this(path.toFile(), mode);
+	}
+
+	/**
+	 * Creates a new ExcelReader Object that reads the file in STREAMING mode
+	 * using the given options.
+	 * 
+	 * @param path
+	 *            The file to process
+	 * @param options
+	 *            How the file should be streamed.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelReader(Path path, StreamingOptions options) throws IOException {
+		this(path.toFile(), options);
+	}
+
+	/**
+	 * Loads an xls file through a read only file channel. Blocks are read
+	 * from the file as the records are parsed instead of copying the whole
+	 * file into memory first. The channel is closed once the workbook is
+	 * loaded.
+	 * 
+	 * @param file
+	 *            The xls file to load.
+	 * @return The loaded workbook.
+	 * @throws IOException
+	 *             Thrown if the file could not be read.
+	 */
+	private static Workbook openXls(File file) throws IOException {
+		NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+		try {
+			return new HSSFWorkbook(fs.getRoot(), false);
+		} finally {
+			fs.close();
+		}
+	}
+
+	/**
+	 * Loads an xlsx file. By default the file is loaded through a buffered
+	 * stream that is closed once the workbook is loaded, so the reader holds
+	 * no file handle whether or not it is closed, at the cost of copying the
+	 * whole archive onto the heap. A file backed package reads the zip
+	 * entries in place instead, but keeps the file open for as long as the
+	 * workbook lives, since parts such as pictures are only read from the
+	 * archive when they are first used; it is released by {@link #close()}.
+	 * 
+	 * @param file
+	 *            The xlsx file to load.
+	 * @param fileBacked
+	 *            Whether to open the package from the file itself.
+	 * @return The loaded workbook.
+	 * @throws IOException
+	 *             Thrown if the file could not be read.
+	 */
+	private static Workbook openXlsx(File file, boolean fileBacked) throws IOException {
+		if (fileBacked) {
+			OPCPackage pkg;
+			try {
+				pkg = OPCPackage.open(file, PackageAccess.READ);
+			} catch (InvalidFormatException e) {
+				throw new IOException("Could not open " + file, e);
+			}
+			try {
+				return new XSSFWorkbook(pkg);
+			} catch (IOException | RuntimeException e) {
+				pkg.revert();
+				throw e;
+			}
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return new XSSFWorkbook(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Extracts the first row from the specified sheet (assumes headers are in
+	 * first row of sheet).
+	 * 
+	 * @param sheetName
+	 *            Name of the sheet to extract headers from.
+	 * @return ArrayList of the strings contained in the first row of the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheet was not found.
+	 */
+	public ArrayList<String> extractHeaders(String sheetName) throws SheetNotFoundException {
+		if (isStreaming()) {
+			return extractHeaders(getStreamingSheetIndex(sheetName));
+		}
+		Sheet sheet = this.getSheet(this.workbook, sheetName);
+		return extractHeaders(sheet);
+	}
+
+	/**
+	 * Extracts the first row from the specified sheet (assumes headers are in
+	 * first row of sheet). As in DOM mode, the headers are read from row 0 of
+	 * the sheet only; a sheet whose first row is missing has no headers.
+	 * 
+	 * @param sheetIndex
+	 *            Index of the sheet to extract headers from.
+	 * @return ArrayList of the strings contained in the first row of the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheet was not found.
+	 */
+	public ArrayList<String> extractHeaders(int sheetIndex) throws SheetNotFoundException {
+		if (isStreaming()) {
+			StreamingSheet sheet = openStreamingSheet(sheetIndex);
+			try {
+				Row first = sheet.nextRow();
+				return extractHeaders(first != null && first.getRowNum() == 0 ? first : null);
+			} finally {
+				closeStreamingSheet(sheet);
+			}
+		}
+		Sheet sheet = this.getSheet(this.workbook, sheetIndex);
+		return extractHeaders(sheet);
+	}
+
+	/**
+	 * Extracts the first row from the specified sheet (assumes headers are in
+	 * first row of sheet).
+	 * 
+	 * @param sheet
+	 *            Sheet to extract headers from.
+	 * @return ArrayList of the strings contained in the first row of the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheet was not found.
+	 */
+	public ArrayList<String> extractHeaders(Sheet sheet) {
+		return extractHeaders(sheet.getRow(0));
+	}
+
+	/**
+	 * Collects the string value of every cell in the given header row.
+	 * 
+	 * @param row
+	 *            The header row.
+	 * @return ArrayList of the strings contained in the row.
+	 */
+	private ArrayList<String> extractHeaders(Row row) {
+		ArrayList<String> list = new ArrayList<>();
+		if (row == null) {
+			return list;
+		}
+		Iterator<Cell> iter = row.cellIterator();
+		while (iter.hasNext()) {
+			list.add(iter.next().toString());
+		}
+		return list;
+	}
+
+	/**
+	 * Processes the entire excel document.
+	 * 
+	 * @param headers
+	 *            Whether or not headers are present on every sheet of the file.
+	 * @return A TreeMap keyed by sheet name, containing all data T on that
+	 *         sheet for the whole workbook.
+	 */
+	public TreeMap<String, ArrayList<T>> processDocument(boolean headers) {
+		TreeMap<String, ArrayList<T>> map = new TreeMap<>();
+		if (isStreaming()) {
+			for (int i = 0; i < streamingWorkbook.getNumberOfSheets(); i++) {
+				map.put(streamingWorkbook.getSheetName(i), processSheet(i, headers));
+			}
+			return map;
+		}
+		int sheetCount = workbook.getNumberOfSheets();
+		for (int i = 0; i < sheetCount; i++) {
+			map.put(workbook.getSheetName(i), processSheet(i, headers));
+		}
+		return map;
+	}
+
+	/**
+	 * Processes the entire excel document, running
+	 * {@link #processSheet(int, boolean)} for every sheet as a separate task on
+	 * the given executor. The results are merged into the same TreeMap shape
+	 * returned by {@link #processDocument(boolean)}.
+	 * <p>
+	 * Thread safety contract: rows of different sheets are mapped on different
+	 * threads at the same time, while the rows of any one sheet are always
+	 * mapped in order on a single thread. {@link #extractItem(Row)} must
+	 * therefore be safe to call concurrently whenever it reads or writes state
+	 * shared between sheets (fields of the reader, caches, counters, etc). An
+	 * implementation that only reads from the row it is given and creates a
+	 * new T needs no extra synchronization.
+	 * </p>
+	 * <p>
+	 * In DOM mode the sheets are read concurrently from the same in-memory
+	 * workbook, so extractItem must not modify the row or the workbook. In
+	 * STREAMING mode every task parses its own sheet part.
+	 * </p>
+	 * 
+	 * @param headers
+	 *            Whether or not headers are present on every sheet of the file.
+	 * @param executor
+	 *            The executor the sheet tasks run on, for example
+	 *            ForkJoinPool.commonPool() or a fixed thread pool.
+	 * @return A TreeMap keyed by sheet name, containing all data T on that
+	 *         sheet for the whole workbook.
+	 * @throws ExcelReadException
+	 *             Thrown if a sheet could not be read or the calling thread
+	 *             was interrupted while waiting. RuntimeExceptions thrown by
+	 *             extractItem are rethrown as is.
+	 */
+	public TreeMap<String, ArrayList<T>> processDocument(final boolean headers, Executor executor) {
+		int sheetCount = getNumberOfSheets();
+		List<FutureTask<ArrayList<T>>> tasks = new ArrayList<>(sheetCount);
+		for (int i = 0; i < sheetCount; i++) {
+			final int sheetIndex = i;
+			FutureTask<ArrayList<T>> task = new FutureTask<>(() -> processSheet(sheetIndex, headers));
+			tasks.add(task);
+			executor.execute(task);
+		}
+		TreeMap<String, ArrayList<T>> map = new TreeMap<>();
+		for (int i = 0; i < sheetCount; i++) {
+			String sheetName = getSheetName(i);
+			try {
+				map.put(sheetName, tasks.get(i).get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancelAll(tasks);
+				throw new ExcelReadException("Interrupted while processing sheet: " + sheetName, e);
+			} catch (ExecutionException e) {
+				cancelAll(tasks);
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new ExcelReadException("Could not process sheet: " + sheetName, cause);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Cancels every sheet task that has not started yet.
+	 * 
+	 * @param tasks
+	 *            The sheet tasks.
+	 */
+	private static void cancelAll(List<? extends FutureTask<?>> tasks) {
+		for (FutureTask<?> task : tasks) {
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * Strips data T from the excel sheet.
+	 * 
+	 * @param sheetName
+	 *            The name of the sheet where the data is found
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return An ArrayList containing all T data from the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheetName returned null.
+	 */
+	public ArrayList<T> processSheet(String sheetName, boolean headers) throws SheetNotFoundException {
+		if (isStreaming()) {
+			return processSheet(getStreamingSheetIndex(sheetName), headers);
+		}
+		Sheet sheet = getSheet(workbook, sheetName);
+		return processSheet(sheet, headers);
+	}
+
+	/**
+	 * Strips data T from the excel sheet.
+	 * 
+	 * @param sheetIndex
+	 *            The index of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return An ArrayList containing all T data from the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheetIndex returned null.
+	 */
+	public ArrayList<T> processSheet(int sheetIndex, boolean headers) {
+		if (isStreaming()) {
+			StreamingSheet sheet = openStreamingSheet(sheetIndex);
+			try {
+				return processSheet(sheet, headers);
+			} finally {
+				closeStreamingSheet(sheet);
+			}
+		}
+		Sheet sheet = getSheet(workbook, sheetIndex);
+		return processSheet(sheet, headers);
+	}
+
+	/**
+	 * Strips data T from the excel sheet.
+	 * 
+	 * @param sheet
+	 *            The excel sheet containing the data to extract.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return An ArrayList containing all T data from the sheet.
+	 */
+	public ArrayList<T> processSheet(Sheet sheet, boolean headers) {
+		long start = PodMetricsRegistry.startTimer();
+		long extractNanos = 0;
+		long rows = 0;
+		ArrayList<T> list = new ArrayList<>();
+		RowFilter filter = rowFilter;
+		RowViewAdapter view = new RowViewAdapter();
+		Function<ExcelRowView, T> mapper = headers ? null : bindSheet(null);
+		Iterator<Row> iter = sheet.iterator();
+		while (iter.hasNext()) {
+			ExcelRowView row = view.wrap(iter.next());
+			if (mapper != null) {
+				if (filter != null && !filter.accept(row)) {
+					continue;
+				}
+				long extractStart = start != 0 ? System.nanoTime() : 0;
+				T t = mapper.apply(row);
+				if (start != 0) {
+					extractNanos += System.nanoTime() - extractStart;
+					rows++;
+				}
+				if (t != null) {
+					list.add(t);
+				}
+			} else {
+				mapper = bindSheet(headerColumns(row.asRow()));
+			}
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().sheetRead(sheet.getSheetName(), rows, extractNanos, System.nanoTime() - start);
+		}
+		return list;
+	}
+
+	/**
+	 * Strips data T from a streamed excel sheet, parsing one row at a time
+	 * into a single recycled {@link ExcelRowView}.
+	 * 
+	 * @param sheet
+	 *            The opened streaming sheet containing the data to extract.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return An ArrayList containing all T data from the sheet.
+	 * @throws ExcelReadException
+	 *             Thrown if the sheet data could not be read.
+	 */
+	public ArrayList<T> processSheet(StreamingSheet sheet, boolean headers) {
+		long start = PodMetricsRegistry.startTimer();
+		Function<ExcelRowView, T> mapper = bindSheet(prepareSheet(sheet, headers));
+		long extractNanos = 0;
+		long rows = 0;
+		ArrayList<T> list = new ArrayList<>();
+		ExcelRowView row;
+		while ((row = sheet.nextRowView()) != null) {
+			long extractStart = start != 0 ? System.nanoTime() : 0;
+			T t = mapper.apply(row);
+			if (start != 0) {
+				extractNanos += System.nanoTime() - extractStart;
+				rows++;
+			}
+			if (t != null) {
+				list.add(t);
+			}
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().sheetRead(sheet.getSheetName(), rows, extractNanos, System.nanoTime() - start);
+		}
+		return list;
+	}
+
+	/**
+	 * Strips data T from the excel sheet, splitting the sheet's rows into
+	 * chunks that are mapped on the workers of the given pool. The returned
+	 * list holds the data in row order, exactly as
+	 * {@link #processSheet(int, boolean)} would.
+	 * <p>
+	 * In DOM mode the row range between the sheet's first and last row is
+	 * split recursively into fork-join tasks. In STREAMING mode the sheet is
+	 * parsed on the calling thread, which hands batches of parsed rows to the
+	 * pool while it keeps parsing. At most a few batches per worker are in
+	 * flight at once, so memory use stays bounded.
+	 * </p>
+	 * <p>
+	 * Thread safety contract: unlike {@link #processDocument(boolean, Executor)},
+	 * rows of the same sheet are mapped concurrently and in no particular
+	 * order. {@link #extractItem(Row)} must not depend on being called in row
+	 * order and must be safe to call concurrently, and it must not modify the
+	 * row or the workbook. This pays off when extractItem is CPU heavy.
+	 * </p>
+	 * 
+	 * @param sheetIndex
+	 *            The index of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @param pool
+	 *            The pool whose workers map the rows.
+	 * @return An ArrayList containing all T data from the sheet.
+	 */
+	public ArrayList<T> processSheet(int sheetIndex, boolean headers, ForkJoinPool pool) {
+		if (isStreaming()) {
+			StreamingSheet sheet = openStreamingSheet(sheetIndex);
+			try {
+				return processSheet(sheet, headers, pool);
+			} finally {
+				closeStreamingSheet(sheet);
+			}
+		}
+		return processSheet(getSheet(workbook, sheetIndex), headers, pool);
+	}
+
+	/**
+	 * Strips data T from the excel sheet in parallel. See
+	 * {@link #processSheet(int, boolean, ForkJoinPool)}.
+	 * 
+	 * @param sheetName
+	 *            The name of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @param pool
+	 *            The pool whose workers map the rows.
+	 * @return An ArrayList containing all T data from the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheetName returned null.
+	 */
+	public ArrayList<T> processSheet(String sheetName, boolean headers, ForkJoinPool pool)
+			throws SheetNotFoundException {
+		return processSheet(getSheetIndex(sheetName), headers, pool);
+	}
+
+	/**
+	 * Strips data T from the excel sheet in parallel. See
+	 * {@link #processSheet(int, boolean, ForkJoinPool)}.
+	 * 
+	 * @param sheet
+	 *            The excel sheet containing the data to extract.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @param pool
+	 *            The pool whose workers map the rows.
+	 * @return An ArrayList containing all T data from the sheet.
+	 */
+	public ArrayList<T> processSheet(Sheet sheet, boolean headers, ForkJoinPool pool) {
+		if (sheet.getPhysicalNumberOfRows() == 0) {
+			return new ArrayList<>();
+		}
+		long start = PodMetricsRegistry.startTimer();
+		int first = sheet.getFirstRowNum() + (headers ? 1 : 0);
+		int end = sheet.getLastRowNum() + 1;
+		int chunk = Math.max(MIN_CHUNK_ROWS, (end - first) / (pool.getParallelism() * 4));
+		Function<ExcelRowView, T> mapper = bindSheet(
+				headers ? headerColumns(sheet.getRow(sheet.getFirstRowNum())) : null);
+		ArrayList<T> list = pool.invoke(new RowRangeTask(sheet, mapper, first, end, chunk));
+		if (start != 0) {
+			PodMetricsRegistry.get().sheetRead(sheet.getSheetName(),
+					sheet.getPhysicalNumberOfRows() - (headers ? 1 : 0), -1, System.nanoTime() - start);
+		}
+		return list;
+	}
+
+	/**
+	 * Strips data T from a streamed excel sheet in parallel. See
+	 * {@link #processSheet(int, boolean, ForkJoinPool)}.
+	 * 
+	 * @param sheet
+	 *            The opened streaming sheet containing the data to extract.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @param pool
+	 *            The pool whose workers map the rows.
+	 * @return An ArrayList containing all T data from the sheet.
+	 */
+	public ArrayList<T> processSheet(StreamingSheet sheet, boolean headers, ForkJoinPool pool) {
+		long start = PodMetricsRegistry.startTimer();
+		Function<ExcelRowView, T> mapper = bindSheet(prepareSheet(sheet, headers));
+		long rows = 0;
+		int maxInFlight = pool.getParallelism() * 2;
+		Deque<ForkJoinTask<ArrayList<T>>> inFlight = new ArrayDeque<>();
+		ArrayList<T> list = new ArrayList<>();
+		ArrayList<Row> batch = new ArrayList<>(MIN_CHUNK_ROWS);
+		Row row;
+		try {
+			while ((row = sheet.nextRow()) != null) {
+				rows++;
+				batch.add(row);
+				if (batch.size() == MIN_CHUNK_ROWS) {
+					inFlight.add(pool.submit(new RowBatchTask(mapper, batch)));
+					batch = new ArrayList<>(MIN_CHUNK_ROWS);
+					if (inFlight.size() >= maxInFlight) {
+						list.addAll(inFlight.poll().join());
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				inFlight.add(pool.submit(new RowBatchTask(mapper, batch)));
+			}
+			while (!inFlight.isEmpty()) {
+				list.addAll(inFlight.poll().join());
+			}
+		} finally {
+			for (ForkJoinTask<ArrayList<T>> task : inFlight) {
+				task.cancel(false);
+			}
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().sheetRead(sheet.getSheetName(), rows, -1, System.nanoTime() - start);
+		}
+		return list;
+	}
+
+	/**
+	 * A fork-join task mapping a range of row indexes of an in-memory sheet,
+	 * splitting itself in half until the range is no larger than the chunk
+	 * size.
+	 */
+	private final class RowRangeTask extends RecursiveTask<ArrayList<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Sheet sheet;
+
+		private final Function<ExcelRowView, T> mapper;
+
+		private final int from;
+
+		private final int to;
+
+		private final int chunk;
+
+		private RowRangeTask(Sheet sheet, Function<ExcelRowView, T> mapper, int from, int to, int chunk) {
+			this.sheet = sheet;
+			this.mapper = mapper;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected ArrayList<T> compute() {
+			if (to - from <= chunk) {
+				ArrayList<T> list = new ArrayList<>(to - from);
+				RowFilter filter = rowFilter;
+				RowViewAdapter view = new RowViewAdapter();
+				for (int i = from; i < to; i++) {
+					Row row = sheet.getRow(i);
+					if (row == null) {
+						continue;
+					}
+					ExcelRowView rowView = view.wrap(row);
+					if (filter == null || filter.accept(rowView)) {
+						T t = mapper.apply(rowView);
+						if (t != null) {
+							list.add(t);
+						}
+					}
+				}
+				return list;
+			}
+			int middle = (from + to) >>> 1;
+			RowRangeTask right = new RowRangeTask(sheet, mapper, middle, to, chunk);
+			right.fork();
+			ArrayList<T> list = new RowRangeTask(sheet, mapper, from, middle, chunk).compute();
+			list.addAll(right.join());
+			return list;
+		}
+	}
+
+	/**
+	 * A fork-join task mapping a batch of rows that were already parsed from
+	 * a streaming sheet. The rows of a batch are independent copies, since a
+	 * recycled row view cannot be handed to another thread.
+	 */
+	private final class RowBatchTask extends RecursiveTask<ArrayList<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Function<ExcelRowView, T> mapper;
+
+		private final List<Row> rows;
+
+		private RowBatchTask(Function<ExcelRowView, T> mapper, List<Row> rows) {
+			this.mapper = mapper;
+			this.rows = rows;
+		}
+
+		@Override
+		protected ArrayList<T> compute() {
+			ArrayList<T> list = new ArrayList<>(rows.size());
+			RowViewAdapter view = new RowViewAdapter();
+			for (Row row : rows) {
+				T t = mapper.apply(view.wrap(row));
+				if (t != null) {
+					list.add(t);
+				}
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * Lazily strips data T from the excel sheet. Rows are only read and mapped
+	 * as the returned iterator is advanced. In STREAMING mode the sheet is
+	 * released once the iterator is exhausted.
+	 * 
+	 * @param sheetIndex
+	 *            The index of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return An Iterator over all T data from the sheet.
+	 */
+	public Iterator<T> iterateSheet(int sheetIndex, boolean headers) {
+		return Spliterators.iterator(openItemSpliterator(sheetIndex, headers));
+	}
+
+	/**
+	 * Lazily strips data T from the excel sheet. Rows are only read and mapped
+	 * as the returned iterator is advanced. In STREAMING mode the sheet is
+	 * released once the iterator is exhausted.
+	 * 
+	 * @param sheetName
+	 *            The name of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return An Iterator over all T data from the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheetName returned null.
+	 */
+	public Iterator<T> iterateSheet(String sheetName, boolean headers) throws SheetNotFoundException {
+		return iterateSheet(getSheetIndex(sheetName), headers);
+	}
+
+	/**
+	 * Lazily strips data T from the excel sheet. Rows are only read and mapped
+	 * as the consumer of the stream pulls them, so the data can be filtered,
+	 * aggregated or written elsewhere without holding every T in memory.
+	 * <p>
+	 * In STREAMING mode the returned stream holds the sheet open until it is
+	 * exhausted or closed, so it should be used in a try-with-resources block
+	 * whenever it might not be fully consumed.
+	 * </p>
+	 * 
+	 * @param sheetIndex
+	 *            The index of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return A sequential Stream of all T data from the sheet.
+	 */
+	public Stream<T> streamSheet(int sheetIndex, boolean headers) {
+		ItemSpliterator spliterator = openItemSpliterator(sheetIndex, headers);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+	}
+
+	/**
+	 * Lazily strips data T from the excel sheet. See
+	 * {@link #streamSheet(int, boolean)}.
+	 * 
+	 * @param sheetName
+	 *            The name of the sheet where the data is found.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return A sequential Stream of all T data from the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheetName returned null.
+	 */
+	public Stream<T> streamSheet(String sheetName, boolean headers) throws SheetNotFoundException {
+		return streamSheet(getSheetIndex(sheetName), headers);
+	}
+
+	/**
+	 * Lazily strips data T from the given excel sheet. See
+	 * {@link #streamSheet(int, boolean)}.
+	 * 
+	 * @param sheet
+	 *            The excel sheet containing the data to extract.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @return A sequential Stream of all T data from the sheet.
+	 */
+	public Stream<T> streamSheet(Sheet sheet, boolean headers) {
+		return StreamSupport.stream(new ItemSpliterator(sheet.getSheetName(), sheet.iterator(),
+				sheet.getPhysicalNumberOfRows(), headers ? null : bindSheet(null), null), false);
+	}
+
+	/**
+	 * Lazily strips data T from every sheet of the excel document, in sheet
+	 * order. Only one sheet is open at a time.
+	 * 
+	 * @param headers
+	 *            Whether or not headers are present on every sheet of the file.
+	 * @return A sequential Stream of all T data in the workbook.
+	 */
+	public Stream<T> streamDocument(boolean headers) {
+		return IntStream.range(0, getNumberOfSheets()).boxed().flatMap(i -> streamSheet(i, headers));
+	}
+
+	/**
+	 * Creates the spliterator backing the lazy iteration methods for the sheet
+	 * at the given index.
+	 * 
+	 * @param sheetIndex
+	 *            The index of the sheet.
+	 * @param headers
+	 *            True if the first row of the sheet should be skipped.
+	 * @return The spliterator over the sheet's data.
+	 */
+	private ItemSpliterator openItemSpliterator(int sheetIndex, boolean headers) {
+		if (isStreaming()) {
+			StreamingSheet sheet = openStreamingSheet(sheetIndex);
+			try {
+				long rowCount = sheet.getEstimatedRowCount();
+				Function<ExcelRowView, T> mapper = bindSheet(prepareSheet(sheet, headers));
+				return new ItemSpliterator(sheet.getSheetName(), null, rowCount, mapper, sheet);
+			} catch (RuntimeException e) {
+				closeStreamingSheet(sheet);
+				throw e;
+			}
+		}
+		Sheet sheet = getSheet(workbook, sheetIndex);
+		return new ItemSpliterator(sheet.getSheetName(), sheet.iterator(), sheet.getPhysicalNumberOfRows(),
+				headers ? null : bindSheet(null), null);
+	}
+
+	/**
+	 * Finds the index of the sheet with the given name, else of the first
+	 * sheet whose name contains it, in either read mode.
+	 * 
+	 * @param sheetName
+	 *            The string the sheet should be named or contain.
+	 * @return The index of the sheet.
+	 * @throws SheetNotFoundException
+	 *             Thrown if no sheet name contains the given sheetName.
+	 */
+	private int getSheetIndex(String sheetName) throws SheetNotFoundException {
+		if (isStreaming()) {
+			return getStreamingSheetIndex(sheetName);
+		}
+		int index = findSheet(workbook, sheetName, true);
+		if (index < 0) {
+			throw new SheetNotFoundException("Could not find sheet: " + sheetName);
+		}
+		return index;
+	}
+
+	/**
+	 * A Spliterator that maps rows to T only as elements are pulled from it.
+	 * Its size estimate comes from the sheet's row count and shrinks as rows
+	 * are consumed. Rows for which extractItem returns null are skipped, so
+	 * the estimate is an upper bound rather than an exact size.
+	 */
+	private final class ItemSpliterator implements Spliterator<T> {
+
+		/**
+		 * The name of the sheet being read.
+		 */
+		private final String sheetName;
+
+		/**
+		 * The rows that have not been read yet, null in STREAMING mode.
+		 */
+		private final Iterator<Row> rows;
+
+		/**
+		 * The streaming sheet rows are read from and that is closed once the
+		 * rows run out, null in DOM mode.
+		 */
+		private final StreamingSheet sheet;
+
+		/**
+		 * The view the rows of a loaded sheet are wrapped in.
+		 */
+		private final RowViewAdapter view;
+
+		/**
+		 * The filter rows of a loaded sheet must pass, null in STREAMING mode
+		 * where the sheet applies it while parsing.
+		 */
+		private final RowFilter filter;
+
+		/**
+		 * The estimated number of rows left, Long.MAX_VALUE if unknown.
+		 */
+		private long remaining;
+
+		/**
+		 * The function mapping the rows of the sheet, null until the header
+		 * row of a loaded sheet has been read.
+		 */
+		private Function<ExcelRowView, T> mapper;
+
+		/**
+		 * Whether the streaming sheet has been closed.
+		 */
+		private boolean closed;
+
+		/**
+		 * When iteration started, 0 if instrumentation is switched off.
+		 */
+		private final long start;
+
+		/**
+		 * The number of data rows mapped so far.
+		 */
+		private long rowsRead;
+
+		/**
+		 * The time spent in extractItem so far.
+		 */
+		private long extractNanos;
+
+		private ItemSpliterator(String sheetName, Iterator<Row> rows, long rowCount, Function<ExcelRowView, T> mapper,
+				StreamingSheet sheet) {
+			this.sheetName = sheetName;
+			this.start = PodMetricsRegistry.startTimer();
+			this.rows = rows;
+			this.sheet = sheet;
+			this.view = new RowViewAdapter();
+			this.filter = sheet == null ? rowFilter : null;
+			this.remaining = rowCount < 0 ? Long.MAX_VALUE : rowCount;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			ExcelRowView row;
+			while (!closed && (row = nextRow()) != null) {
+				if (remaining != Long.MAX_VALUE && remaining > 0) {
+					remaining--;
+				}
+				if (mapper == null) {
+					mapper = bindSheet(headerColumns(row.asRow()));
+					continue;
+				}
+				if (filter != null && !filter.accept(row)) {
+					continue;
+				}
+				long extractStart = start != 0 ? System.nanoTime() : 0;
+				T t = mapper.apply(row);
+				if (start != 0) {
+					extractNanos += System.nanoTime() - extractStart;
+					rowsRead++;
+				}
+				if (t != null) {
+					action.accept(t);
+					return true;
+				}
+			}
+			close();
+			return false;
+		}
+
+		/**
+		 * Reads the next row from the streaming sheet or the row iterator.
+		 *
+		 * @return The next row, or null if there are no rows left.
+		 */
+		private ExcelRowView nextRow() {
+			if (sheet != null) {
+				return sheet.nextRowView();
+			}
+			return rows.hasNext() ? view.wrap(rows.next()) : null;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.NONNULL;
+		}
+
+		/**
+		 * Releases the streaming sheet, if there is one.
+		 */
+		private void close() {
+			if (!closed) {
+				closed = true;
+				if (sheet != null) {
+					closeStreamingSheet(sheet);
+				}
+				if (start != 0) {
+					PodMetricsRegistry.get().sheetRead(sheetName, rowsRead, extractNanos, System.nanoTime() - start);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method tells the reader how to extract data type T from a given row
+	 * in the excel sheet.
+	 * 
+	 * @param row
+	 *            The row data is being extracted from
+	 * @return The data extracted from the row, or null to skip the row.
+	 */
+	protected abstract T extractItem(Row row);
+
+	/**
+	 * This method tells the reader how to extract data type T from a view of
+	 * a given row in the excel sheet. In STREAMING mode the same view is
+	 * refilled for every row, so it must not be kept after this method
+	 * returns. The default implementation hands {@link ExcelRowView#asRow()}
+	 * to {@link #extractItem(Row)}.
+	 * 
+	 * @param row
+	 *            The view of the row data is being extracted from
+	 * @return The data extracted from the row, or null to skip the row.
+	 */
+	protected T extractItem(ExcelRowView row) {
+		return extractItem(row.asRow());
+	}
+
+	/**
+	 * Returns the function mapping the rows of a sheet. It is called once per
+	 * sheet, after the header row has been read and before any other row is
+	 * mapped, so subclasses that find their columns by header name can look
+	 * them up once per sheet instead of once per row. The returned function
+	 * is subject to the same threading rules as extractItem. The default
+	 * maps every row through {@link #extractItem(ExcelRowView)}.
+	 * 
+	 * @param headers
+	 *            The headers of the sheet indexed by column, null if the sheet
+	 *            is read without headers.
+	 * @return The function mapping the rows of the sheet, returning null to
+	 *         skip a row.
+	 */
+	protected Function<ExcelRowView, T> bindSheet(List<String> headers) {
+		return row -> extractItem(row);
+	}
+
+	/**
+	 * Finds a sheet of the workbook by name: the sheet named sheetName if
+	 * there is one, otherwise the first sheet whose name contains it. The
+	 * lookup goes through an index of the sheet names that follows sheets
+	 * being added, removed or renamed.
+	 * 
+	 * @param workbook
+	 *            The workbook to scan
+	 * @param sheetName
+	 *            The string the sheet should be named or contain
+	 * @return The sheet named sheetName, else the first sheet containing it.
+	 * @throws SheetNotFoundException
+	 *             Thrown if no sheet name contains the given sheetName.
+	 */
+	protected Sheet getSheet(Workbook workbook, String sheetName) throws SheetNotFoundException {
+		int index = findSheet(workbook, sheetName, true);
+		if (index < 0) {
+			throw new SheetNotFoundException("Could not find sheet: " + sheetName);
+		}
+		return workbook.getSheetAt(index);
+	}
+
+	/**
+	 * Looks a sheet up by name in the sheet name index of the given workbook.
+	 * The index of this reader's workbook is kept between calls and rebuilt
+	 * when the number of sheets changes, when the sheet found no longer has
+	 * the name the index holds for it, or when no sheet matches. Subclasses
+	 * that rename sheets must call {@link #invalidateSheetNames()}.
+	 * 
+	 * @param workbook
+	 *            The workbook to search.
+	 * @param sheetName
+	 *            The name to search for.
+	 * @param caseSensitive
+	 *            Whether the case of the names must match.
+	 * @return The index of the sheet, -1 if there is none.
+	 */
+	private int findSheet(Workbook workbook, String sheetName, boolean caseSensitive) {
+		SheetNameIndex index = SheetNameIndex.of(sheetNameIndex, workbook);
+		int found = index.find(sheetName, caseSensitive);
+		if (!index.isCurrent(found)) {
+			index = SheetNameIndex.of(workbook);
+			found = index.find(sheetName, caseSensitive);
+		}
+		if (workbook == this.workbook) {
+			sheetNameIndex = index;
+		}
+		return found;
+	}
+
+	/**
+	 * Drops the index of the sheet names so that the next lookup by name
+	 * builds it anew. Call this after renaming sheets of the workbook.
+	 */
+	protected void invalidateSheetNames() {
+		sheetNameIndex = null;
+	}
+
+	/**
+	 * @return The index of the sheet names of the streaming workbook.
 	 */
-	protected File file;
+	private SheetNameIndex streamingSheetNames() {
+		SheetNameIndex index = sheetNameIndex;
+		if (index == null) {
+			index = SheetNameIndex.of(streamingWorkbook.getSheetNames());
+			sheetNameIndex = index;
+		}
+		return index;
+	}
 
 	/**
-	 * Creates a new ExcelReader Object.
+	 * Scans the workbook for a specific sheet
 	 * 
-	 * @param file
-	 *            The file to process
-	 * @throws IOException
-	 *             Thrown if an IOException occurred.
+	 * @param workbook
+	 *            The workbook to scan
+	 * @param sheetIndex
+	 *            The index number of the sheet to grab.
+	 * @return The sheet at the given index of the workbook.
+	 * @throws SheetNotFoundException
+	 *             Thrown if the specified sheetIndex returned null.
 	 */
-	public ExcelReader(File file) throws IOException {
-		FileInputStream fis;
-		String extension = FilenameUtils.getExtension(file.getAbsolutePath());
-		this.file = file;
-		fis = new FileInputStream(file);
-		workbook = extension.equals("xls") ? new HSSFWorkbook(fis)
-				: extension.equals("xlsx") ? new XSSFWorkbook(fis) : null;
-		if (workbook == null) {
-			throw new IllegalArgumentException("File needs to be of type: xls or xlsx");
-		}
-		fis.close();
+	protected Sheet getSheet(Workbook workbook, int sheetIndex) {
+		Sheet sheet = workbook.getSheetAt(sheetIndex);
+		return sheet;
 	}
 
 	/**
-	 * Extracts the first row from the specified sheet (assumes headers are in
-	 * first row of sheet).
+	 * Finds a sheet of the streaming workbook by name, with the same rules as
+	 * {@link #getSheet(Workbook, String)}.
 	 * 
 	 * @param sheetName
-	 *            Name of the sheet to extract headers from.
-	 * @return ArrayList of the strings contained in the first row of the sheet.
+	 *            The string the sheet should be named or contain
+	 * @return The index of the sheet named sheetName, else of the first sheet
+	 *         containing it.
 	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheet was not found.
+	 *             Thrown if no sheet name contains the given sheetName.
 	 */
-	public ArrayList<String> extractHeaders(String sheetName) throws SheetNotFoundException {
-		Sheet sheet = this.getSheet(this.workbook, sheetName);
-		return extractHeaders(sheet);
+	protected int getStreamingSheetIndex(String sheetName) throws SheetNotFoundException {
+		int index = streamingSheetNames().find(sheetName);
+		if (index < 0) {
+			throw new SheetNotFoundException("Could not find sheet: " + sheetName);
+		}
+		return index;
 	}
 
 	/**
-	 * Extracts the first row from the specified sheet (assumes headers are in
-	 * first row of sheet).
+	 * Opens the sheet at the given index of the streaming workbook.
 	 * 
 	 * @param sheetIndex
-	 *            Index of the sheet to extract headers from.
-	 * @return ArrayList of the strings contained in the first row of the sheet.
-	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheet was not found.
+	 *            The index of the sheet to open.
+	 * @return The opened sheet, which must be closed once reading is done.
+	 * @throws ExcelReadException
+	 *             Thrown if the sheet could not be opened.
 	 */
-	public ArrayList<String> extractHeaders(int sheetIndex) throws SheetNotFoundException {
-		Sheet sheet = this.getSheet(this.workbook, sheetIndex);
-		return extractHeaders(sheet);
+	protected StreamingSheet openStreamingSheet(int sheetIndex) {
+		try {
+			return streamingWorkbook.openSheet(sheetIndex);
+		} catch (IOException e) {
+			throw new ExcelReadException("Could not open sheet at index: " + sheetIndex, e);
+		}
 	}
 
 	/**
-	 * Extracts the first row from the specified sheet (assumes headers are in
-	 * first row of sheet).
+	 * Closes a streaming sheet once reading is done.
 	 * 
 	 * @param sheet
-	 *            Sheet to extract headers from.
-	 * @return ArrayList of the strings contained in the first row of the sheet.
-	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheet was not found.
+	 *            The sheet to close.
 	 */
-	public ArrayList<String> extractHeaders(Sheet sheet) {
-		ArrayList<String> list = new ArrayList<>();
-		Row row = sheet.getRow(0);
-		Iterator<Cell> iter = row.cellIterator();
-		while (iter.hasNext()) {
-			list.add(iter.next().toString());
+	protected void closeStreamingSheet(StreamingSheet sheet) {
+		try {
+			sheet.close();
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-		return list;
 	}
 
 	/**
-	 * Processes the entire excel document.
+	 * @return The number of sheets in the workbook, in either read mode.
+	 */
+	public int getNumberOfSheets() {
+		return isStreaming() ? streamingWorkbook.getNumberOfSheets() : workbook.getNumberOfSheets();
+	}
+
+	/**
+	 * Returns the name of the sheet at the given index, in either read mode.
 	 * 
-	 * @param headers
-	 *            Whether or not headers are present on every sheet of the file.
-	 * @return A TreeMap keyed by sheet name, containing all data T on that
-	 *         sheet for the whole workbook.
+	 * @param sheetIndex
+	 *            The index of the sheet.
+	 * @return The name of the sheet.
 	 */
-	public TreeMap<String, ArrayList<T>> processDocument(boolean headers) {
-		TreeMap<String, ArrayList<T>> map = new TreeMap<>();
-		int sheetCount = workbook.getNumberOfSheets();
-		for (int i = 0; i < sheetCount; i++) {
-			String sheetName = workbook.getSheetName(i);
-			ArrayList<T> sheetData;
-			try {
-				sheetData = processSheet(sheetName, headers);
-				map.put(sheetName, sheetData);
-			} catch (SheetNotFoundException e) {
-				e.printStackTrace();
-			}
-		}
-		return map;
+	public String getSheetName(int sheetIndex) {
+		return isStreaming() ? streamingWorkbook.getSheetName(sheetIndex) : workbook.getSheetName(sheetIndex);
 	}
 
 	/**
-	 * Strips data T from the excel sheet.
+	 * Restricts streaming reads to the given columns. Cells of any other
+	 * column are skipped while parsing, without decoding their values, and
+	 * read as blank in extractItem. A projection by header name is resolved
+	 * against the header row of every sheet as it is read, and requires the
+	 * sheet to be read with headers.
+	 * <p>
+	 * In DOM mode the whole workbook is already loaded, so the projection has
+	 * no effect.
+	 * </p>
 	 * 
-	 * @param sheetName
-	 *            The name of the sheet where the data is found
-	 * @param headers
-	 *            True if there is a header row present in the sheet, false
-	 *            otherwise.
-	 * @return An ArrayList containing all T data from the sheet.
-	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheetName returned null.
+	 * @param projection
+	 *            The columns to read, or null to read every column.
 	 */
-	public ArrayList<T> processSheet(String sheetName, boolean headers) throws SheetNotFoundException {
-		Sheet sheet = getSheet(workbook, sheetName);
-		return processSheet(sheet, headers);
+	public void setColumnProjection(ColumnProjection projection) {
+		this.projection = projection;
 	}
 
 	/**
-	 * Strips data T from the excel sheet.
+	 * @return The columns streaming reads parse, null if every column is
+	 *         read.
+	 */
+	public ColumnProjection getColumnProjection() {
+		return projection;
+	}
+
+	/**
+	 * Sets the rows streaming reads and DOM reads map to those the given
+	 * filter accepts. The filter is evaluated before extractItem, and in
+	 * STREAMING mode as each row is parsed, so rejected rows cost neither a
+	 * domain object nor a row allocation. Header rows are never filtered.
 	 * 
-	 * @param sheetIndex
-	 *            The index of the sheet where the data is found.
-	 * @param headers
-	 *            True if there is a header row present in the sheet, false
-	 *            otherwise.
-	 * @return An ArrayList containing all T data from the sheet.
-	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheetIndex returned null.
+	 * @param filter
+	 *            The filter rows must pass, or null to map every row.
 	 */
-	public ArrayList<T> processSheet(int sheetIndex, boolean headers) {
-		Sheet sheet = getSheet(workbook, sheetIndex);
-		return processSheet(sheet, headers);
+	public void setRowFilter(RowFilter filter) {
+		this.rowFilter = filter;
 	}
 
 	/**
-	 * Strips data T from the excel sheet.
+	 * @return The filter rows must pass to be mapped, null if every row is
+	 *         mapped.
+	 */
+	public RowFilter getRowFilter() {
+		return rowFilter;
+	}
+
+	/**
+	 * Applies the column projection and the row filter to a streaming sheet
+	 * that has not been read yet. The header row is consumed first, so it is
+	 * neither filtered nor mapped, and a projection by header name is
+	 * resolved against it.
 	 * 
 	 * @param sheet
-	 *            The excel sheet containing the data to extract.
+	 *            The sheet about to be read.
 	 * @param headers
-	 *            True if there is a header row present in the sheet, false
-	 *            otherwise.
-	 * @return An ArrayList containing all T data from the sheet.
+	 *            True if the sheet has a header row.
+	 * @return The headers of the sheet indexed by column, null if it has no
+	 *         header row.
+	 * @throws IllegalStateException
+	 *             Thrown if the projection is by header name and the sheet has
+	 *             no header row.
 	 */
-	public ArrayList<T> processSheet(Sheet sheet, boolean headers) {
-		ArrayList<T> list = new ArrayList<>();
-		Iterator<Row> iter = sheet.iterator();
-		while (iter.hasNext()) {
-			Row row = iter.next();
-			if (!headers) {
-				T t = extractItem(row);
-				if (t != null) {
-					list.add(t);
-				}
-			} else {
-				headers = false;
+	private List<String> prepareSheet(StreamingSheet sheet, boolean headers) {
+		ColumnProjection projection = this.projection;
+		if (projection != null && !projection.isByHeader()) {
+			sheet.setColumnProjection(projection.resolve(null));
+		}
+		if (projection != null && projection.isByHeader() && !headers) {
+			throw new IllegalStateException("A column projection by header name requires a header row");
+		}
+		List<String> headerRow = null;
+		if (headers) {
+			headerRow = headerColumns(sheet.nextRow());
+			if (projection != null && projection.isByHeader()) {
+				sheet.setColumnProjection(projection.resolve(headerRow));
 			}
 		}
-		return list;
+		sheet.setRowFilter(rowFilter);
+		return headerRow;
 	}
 
 	/**
-	 * This method tells the reader how to extract data type T from a given row
-	 * in the excel sheet.
+	 * Collects the string value of every cell in the given header row,
+	 * indexed by column. Columns without a cell hold null.
 	 * 
 	 * @param row
-	 *            The row data is being extracted from
-	 * @return
+	 *            The header row, may be null.
+	 * @return The headers indexed by column.
 	 */
-	protected abstract T extractItem(Row row);
+	private static List<String> headerColumns(Row row) {
+		List<String> list = new ArrayList<>();
+		if (row == null) {
+			return list;
+		}
+		for (int i = 0; i < row.getLastCellNum(); i++) {
+			Cell cell = row.getCell(i);
+			list.add(cell != null ? cell.toString() : null);
+		}
+		return list;
+	}
 
 	/**
-	 * Scans the workbook for a specific sheet
-	 * 
-	 * @param workbook
-	 *            The workbook to scan
-	 * @param sheetName
-	 *            The string the sheet should contain
-	 * @return The first sheet containing the sheetName given to the method.
-	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheetIndex returned null.
+	 * @return True if this reader streams its sheets instead of holding the
+	 *         whole workbook in memory.
 	 */
-	protected Sheet getSheet(Workbook workbook, String sheetName) throws SheetNotFoundException {
-		for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-			Sheet sheet = workbook.getSheetAt(i);
-			if (sheet.getSheetName().contains(sheetName)) {
-				return sheet;
-			}
-		}
-		throw new SheetNotFoundException("Could not find sheet: " + sheetName);
+	public boolean isStreaming() {
+		return streamingWorkbook != null;
 	}
 
 	/**
-	 * Scans the workbook for a specific sheet
+	 * Closes the workbook this reader operates on. In STREAMING mode this
+	 * releases the underlying file, as it does for an xlsx file read in
+	 * DOM_FILE_BACKED mode. In DOM mode the file was already released when it
+	 * was loaded, so a DOM reader that is never closed holds no file handle.
 	 * 
-	 * @param workbook
-	 *            The workbook to scan
-	 * @param sheetIndex
-	 *            The index number of the sheet to grab.
-	 * @return The sheet at the given index of the workbook.
-	 * @throws SheetNotFoundException
-	 *             Thrown if the specified sheetIndex returned null.
+	 * @throws IOException
+	 *             Thrown if the workbook could not be closed.
 	 */
-	protected Sheet getSheet(Workbook workbook, int sheetIndex) {
-		Sheet sheet = workbook.getSheetAt(sheetIndex);
-		return sheet;
+	@Override
+	public void close() throws IOException {
+		if (isStreaming()) {
+			streamingWorkbook.close();
+		} else if (workbook instanceof XSSFWorkbook) {
+			((XSSFWorkbook) workbook).getPackage().revert();
+		} else {
+			workbook.close();
+		}
 	}
 
 	/**
@@ -253,6 +1456,9 @@ public abstract class ExcelReader<T> {
 	 *         that sheet's index within the workbook.
 	 */
 	public int getFirstSheetIndex() {
+		if (isStreaming()) {
+			return streamingWorkbook.getNumberOfSheets() > 0 ? 0 : -1;
+		}
 		Iterator<Sheet> iter = workbook.sheetIterator();
 		while (iter.hasNext()) {
 			Sheet sheet = iter.next();
@@ -267,6 +1473,14 @@ public abstract class ExcelReader<T> {
 	 * @return The first visible tab within the workbook.
 	 */
 	public int getFirstVisibleSheetIndex() {
+		if (isStreaming()) {
+			for (int i = 0; i < streamingWorkbook.getNumberOfSheets(); i++) {
+				if (!streamingWorkbook.isSheetHidden(i)) {
+					return i;
+				}
+			}
+			return 0;
+		}
 		return workbook.getFirstVisibleTab();
 	}
 
@@ -278,6 +1492,14 @@ public abstract class ExcelReader<T> {
 	 */
 	public ArrayList<String> getSheetNames() {
 		ArrayList<String> list = new ArrayList<>();
+		if (isStreaming()) {
+			for (String name : streamingWorkbook.getSheetNames()) {
+				if (name != null && !name.equals("")) {
+					list.add(name);
+				}
+			}
+			return list;
+		}
 		Iterator<Sheet> iter = workbook.sheetIterator();
 		while (iter.hasNext()) {
 			Sheet sheet = iter.next();
@@ -290,8 +1512,8 @@ public abstract class ExcelReader<T> {
 	}
 
 	/**
-	 * Iterates through the workbook to find the first sheet whose name contains
-	 * the input string.
+	 * Finds the sheet named by the input string, or failing that the first
+	 * sheet whose name contains it.
 	 * 
 	 * @param string
 	 *            The input string the desired sheet should have in its name.
@@ -302,16 +1524,10 @@ public abstract class ExcelReader<T> {
 	 *         found.
 	 */
 	public int getFirstIndexOfSheetContaining(String string, boolean caseSensitive) {
-		Iterator<Sheet> iter = workbook.sheetIterator();
-		while (iter.hasNext()) {
-			Sheet sheet = iter.next();
-			String name = caseSensitive ? sheet.getSheetName() : sheet.getSheetName().toLowerCase();
-			string = caseSensitive ? string : string.toLowerCase();
-			if (name.contains(string)) {
-				return workbook.getSheetIndex(sheet);
-			}
+		if (isStreaming()) {
+			return streamingSheetNames().find(string, caseSensitive);
 		}
-		return -1;
+		return findSheet(workbook, string, caseSensitive);
 	}
 
 	/**
@@ -391,26 +1607,239 @@ public abstract class ExcelReader<T> {
 	}
 
 	/**
-	 * Tries to get a string value from an excel cell. If the cell is a number,
-	 * returns the integer value formatted as a string. If the cell is a string,
-	 * returns that cell's string value. If cell==null returns an empty string.
+	 * Tries to get a string value from an excel cell. If the cell is a number
+	 * or blank, returns the integer value formatted as a string. Any other
+	 * cell is returned as {@link #getCellString(Cell)} returns it. If
+	 * cell==null returns an empty string.
 	 * 
 	 * @param cell
 	 *            The cell to get a string from.
 	 * @return A string representing the cell's value.
 	 */
 	public static String getCellStringValue(Cell cell) {
+		if (cell == null) {
+			return "";
+		}
+		CellType type = getValueType(cell);
+		if (type == CellType.NUMERIC || type == CellType.BLANK) {
+			return Integer.toString((int) cell.getNumericCellValue());
+		}
+		return getCellString(cell);
+	}
 
+	/**
+	 * Returns the type of the value stored in a cell, which is the cached
+	 * result type for formula cells.
+	 * 
+	 * @param cell
+	 *            The cell to inspect.
+	 * @return The type of the cell's value, BLANK if cell==null.
+	 */
+	public static CellType getValueType(Cell cell) {
 		if (cell == null) {
+			return CellType.BLANK;
+		}
+		CellType type = cell.getCellTypeEnum();
+		return type == CellType.FORMULA ? cell.getCachedFormulaResultTypeEnum() : type;
+	}
+
+	/**
+	 * Returns the value of a cell as a string, whatever its type. Whole
+	 * numbers are returned without a fraction, other numbers as
+	 * Double.toString returns them, booleans as TRUE or FALSE and errors as
+	 * their error text. Formula cells return their cached result.
+	 * 
+	 * @param cell
+	 *            The cell to get a string from.
+	 * @return The cell's value as a string, an empty string if the cell is
+	 *         blank or cell==null.
+	 */
+	public static String getCellString(Cell cell) {
+		switch (getValueType(cell)) {
+		case STRING:
+			return cell.getStringCellValue();
+		case NUMERIC:
+			double value = cell.getNumericCellValue();
+			if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+				return Long.toString((long) value);
+			}
+			return Double.toString(value);
+		case BOOLEAN:
+			return cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+		case ERROR:
+			return errorText(cell.getErrorCellValue());
+		default:
 			return "";
 		}
+	}
 
-		String value = "";
-		try {
-			value = (int) cell.getNumericCellValue() + "";
-		} catch (Exception e) {
-			value = cell.getStringCellValue();
+	/**
+	 * Returns the value of a cell as a double. Numbers are returned as they
+	 * are and strings holding a decimal number are parsed.
+	 * 
+	 * @param cell
+	 *            The cell to get a number from.
+	 * @param defaultValue
+	 *            The value returned for any other cell.
+	 * @return The cell's value as a double.
+	 */
+	public static double getCellDouble(Cell cell, double defaultValue) {
+		switch (getValueType(cell)) {
+		case NUMERIC:
+			return cell.getNumericCellValue();
+		case STRING:
+			String text = cell.getStringCellValue().trim();
+			return isDecimal(text) ? Double.parseDouble(text) : defaultValue;
+		default:
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns the value of a cell as a double. See
+	 * {@link #getCellDouble(Cell, double)}.
+	 * 
+	 * @param cell
+	 *            The cell to get a number from.
+	 * @return The cell's value as a double, 0.0 if it is not a number.
+	 */
+	public static double getCellDouble(Cell cell) {
+		return getCellDouble(cell, 0.0);
+	}
+
+	/**
+	 * Returns the value of a cell as a long, dropping any fraction. See
+	 * {@link #getCellDouble(Cell, double)}.
+	 * 
+	 * @param cell
+	 *            The cell to get a number from.
+	 * @param defaultValue
+	 *            The value returned for a cell that is not a number.
+	 * @return The cell's value as a long.
+	 */
+	public static long getCellLong(Cell cell, long defaultValue) {
+		double value = getCellDouble(cell, Double.NaN);
+		return Double.isNaN(value) ? defaultValue : (long) value;
+	}
+
+	/**
+	 * Returns the value of a cell as a long, dropping any fraction. See
+	 * {@link #getCellDouble(Cell, double)}.
+	 * 
+	 * @param cell
+	 *            The cell to get a number from.
+	 * @return The cell's value as a long, 0 if it is not a number.
+	 */
+	public static long getCellLong(Cell cell) {
+		return getCellLong(cell, 0);
+	}
+
+	/**
+	 * Returns the value of a numeric cell as a date, using the date system of
+	 * the cell's workbook.
+	 * 
+	 * @param cell
+	 *            The cell to get a date from.
+	 * @return The cell's value as a date, null if the cell is not a number.
+	 */
+	public static Date getCellDate(Cell cell) {
+		return getValueType(cell) == CellType.NUMERIC ? cell.getDateCellValue() : null;
+	}
+
+	/**
+	 * Returns the value of a cell as a boolean. Boolean cells are returned as
+	 * they are and strings holding true or false, in any case, are parsed.
+	 * 
+	 * @param cell
+	 *            The cell to get a boolean from.
+	 * @param defaultValue
+	 *            The value returned for any other cell.
+	 * @return The cell's value as a boolean.
+	 */
+	public static boolean getCellBoolean(Cell cell, boolean defaultValue) {
+		switch (getValueType(cell)) {
+		case BOOLEAN:
+			return cell.getBooleanCellValue();
+		case STRING:
+			String text = cell.getStringCellValue().trim();
+			if (text.equalsIgnoreCase("true")) {
+				return true;
+			}
+			return text.equalsIgnoreCase("false") ? false : defaultValue;
+		default:
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns the value of a cell as a boolean. See
+	 * {@link #getCellBoolean(Cell, boolean)}.
+	 * 
+	 * @param cell
+	 *            The cell to get a boolean from.
+	 * @return The cell's value as a boolean, false if it is not a boolean.
+	 */
+	public static boolean getCellBoolean(Cell cell) {
+		return getCellBoolean(cell, false);
+	}
+
+	/**
+	 * Checks whether a string is a plain decimal number such as -12, 3.5 or
+	 * 1.2E-3, so it can be parsed without Double.parseDouble throwing.
+	 * 
+	 * @param text
+	 *            The string to check.
+	 * @return True if the string is a decimal number.
+	 */
+	private static boolean isDecimal(String text) {
+		int i = 0;
+		int length = text.length();
+		if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			i++;
 		}
-		return value;
+		int digits = 0;
+		while (i < length && isDigit(text.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < length && text.charAt(i) == '.') {
+			i++;
+			while (i < length && isDigit(text.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return false;
+		}
+		if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+			i++;
+			if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+				i++;
+			}
+			int exponentDigits = 0;
+			while (i < length && isDigit(text.charAt(i))) {
+				i++;
+				exponentDigits++;
+			}
+			if (exponentDigits == 0) {
+				return false;
+			}
+		}
+		return i == length;
+	}
+
+	/**
+	 * @return True if the character is one of the ASCII digits 0 to 9.
+	 */
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Returns the text Excel shows for the given error code.
+	 */
+	static String errorText(byte code) {
+		return FormulaError.isValidCode(code) ? FormulaError.forInt(code).getString() : "#N/A";
 	}
 }
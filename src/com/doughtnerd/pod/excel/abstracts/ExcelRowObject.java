@@ -1,6 +1,9 @@
 package com.doughtnerd.pod.excel.abstracts;
 
+import java.util.Objects;
+
 import com.doughtnerd.pod.excel.ExcelCellObject;
+import com.doughtnerd.pod.excel.RowSink;
 import com.doughtnerd.pod.excel.enums.ExcelFormatType;
 
 /**
@@ -8,8 +11,14 @@ import com.doughtnerd.pod.excel.enums.ExcelFormatType;
  * in an excel document by use of the toCellObjectArray method. It also provides
  * the createCell method that allows for the quick creation of ExcelCellObjects
  * when filling in the toCellObjectArray method.
+ * <p>
+ * Rows written in large volumes can extend {@link SinkRowObject} instead,
+ * whose {@link #writeTo(RowSink)} pushes primitive values straight to the
+ * sheet without creating an ExcelCellObject per cell.
+ * </p>
  * 
  * @see #toCellObjectArray()
+ * @see SinkRowObject
  * @see #createCell(Object)
  * @author Christopher Carlson
  *
@@ -25,6 +34,22 @@ public abstract class ExcelRowObject {
 	 */
 	public abstract ExcelCellObject[] toCellObjectArray();
 
+	/**
+	 * Writes this object's field values to the given sink as a complete row.
+	 * By default the cells returned by {@link #toCellObjectArray()} are
+	 * written in order.
+	 * 
+	 * @param sink
+	 *            The sink the cell values are written to.
+	 */
+	public void writeTo(RowSink sink) {
+		ExcelCellObject[] objArr = toCellObjectArray();
+		Objects.requireNonNull(objArr, "ExcelRowObject.toCellObjectArray() cannot result in a null object");
+		for (int i = 0; i < objArr.length; i++) {
+			sink.writeCell(i, objArr[i]);
+		}
+	}
+
 	/**
 	 * This method provides a quick way for the user to wrap an ExcelRowObject
 	 * field into an ExcelCellObject - which contains formatting data, allowing faster creation of
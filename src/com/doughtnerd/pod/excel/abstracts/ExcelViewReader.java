@@ -0,0 +1,136 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.poi.ss.usermodel.Row;
+
+import com.doughtnerd.pod.excel.ExcelRowView;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+import com.doughtnerd.pod.excel.streaming.StreamingOptions;
+
+/**
+ * This is an abstract class designed to read organized and tabulated data from
+ * an xls or an xlsx document the way {@link ExcelReader} does, mapping each
+ * row through an {@link ExcelRowView} instead of a POI Row. A streaming read
+ * recycles a single view for the whole sheet, so no Row or Cell objects are
+ * created per row.
+ * 
+ * @author Christopher Carlson
+ *
+ * @param <T>
+ *            The type of object that is being created through the extraction
+ *            process.
+ */
+public abstract class ExcelViewReader<T> extends ExcelReader<T> {
+
+	/**
+	 * Creates a new ExcelViewReader Object.
+	 * 
+	 * @param file
+	 *            The file to process
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelViewReader(File file) throws IOException {
+		super(file);
+	}
+
+	/**
+	 * Creates a new ExcelViewReader Object that loads the file using the
+	 * given read mode.
+	 * 
+	 * @param file
+	 *            The file to process
+	 * @param mode
+	 *            How the file should be loaded.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelViewReader(File file, ExcelReadMode mode) throws IOException {
+		super(file, mode);
+	}
+
+	/**
+	 * Creates a new ExcelViewReader Object that reads the file in STREAMING
+	 * mode using the given options.
+	 * 
+	 * @param file
+	 *            The file to process
+	 * @param options
+	 *            How the file should be streamed.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelViewReader(File file, StreamingOptions options) throws IOException {
+		super(file, options);
+	}
+
+	/**
+	 * Creates a new ExcelViewReader Object.
+	 * 
+	 * @param path
+	 *            The file to process
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelViewReader(Path path) throws IOException {
+		super(path);
+	}
+
+	/**
+	 * Creates a new ExcelViewReader Object that loads the file using the
+	 * given read mode.
+	 * 
+	 * @param path
+	 *            The file to process
+	 * @param mode
+	 *            How the file should be loaded.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelViewReader(Path path, ExcelReadMode mode) throws IOException {
+		super(path, mode);
+	}
+
+	/**
+	 * Creates a new ExcelViewReader Object that reads the file in STREAMING
+	 * mode using the given options.
+	 * 
+	 * @param path
+	 *            The file to process
+	 * @param options
+	 *            How the file should be streamed.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 */
+	public ExcelViewReader(Path path, StreamingOptions options) throws IOException {
+		super(path, options);
+	}
+
+	/**
+	 * Maps a POI Row by viewing it through {@link #extractItem(ExcelRowView)}.
+	 * 
+	 * @param row
+	 *            The row data is being extracted from
+	 * @return The data extracted from the row, or null to skip the row.
+	 */
+	@Override
+	protected final T extractItem(Row row) {
+		return extractItem(new RowViewAdapter().wrap(row));
+	}
+
+	/**
+	 * This method tells the reader how to extract data type T from a view of
+	 * a given row in the excel sheet. In STREAMING mode the same view is
+	 * refilled for every row, so it must not be kept after this method
+	 * returns.
+	 * 
+	 * @param row
+	 *            The view of the row data is being extracted from
+	 * @return The data extracted from the row, or null to skip the row.
+	 */
+	@Override
+	protected abstract T extractItem(ExcelRowView row);
+}
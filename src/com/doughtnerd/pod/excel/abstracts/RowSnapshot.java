@@ -0,0 +1,196 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * The values and formats of the cells of a row, captured before the row is
+ * edited so the edit can be compared against them. One snapshot is reused
+ * for every row of a sheet; its arrays only grow to the width of the widest
+ * row, and cell values are only converted to text for the cells that
+ * changed.
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class RowSnapshot {
+
+	/**
+	 * The type of each cell, FORMULA for formulas and BLANK for missing cells.
+	 */
+	private CellType[] types = new CellType[16];
+
+	/**
+	 * The numeric value of each cell: the number, 1 or 0 for booleans and the
+	 * code of errors.
+	 */
+	private double[] numbers = new double[16];
+
+	/**
+	 * The text of each string cell and the formula of each formula cell.
+	 */
+	private String[] strings = new String[16];
+
+	/**
+	 * The index of the style of each cell, -1 for missing cells.
+	 */
+	private int[] styles = new int[16];
+
+	/**
+	 * The number of cells captured.
+	 */
+	private int width;
+
+	/**
+	 * Captures the cells of a row, replacing the row captured before.
+	 *
+	 * @param row
+	 *            The row to capture.
+	 */
+	void capture(Row row) {
+		width = Math.max(0, row.getLastCellNum());
+		if (width > types.length) {
+			int length = Math.max(width, types.length * 2);
+			types = new CellType[length];
+			numbers = new double[length];
+			strings = new String[length];
+			styles = new int[length];
+		}
+		for (int column = 0; column < width; column++) {
+			Cell cell = row.getCell(column);
+			CellType type = cell != null ? cell.getCellTypeEnum() : CellType.BLANK;
+			types[column] = type;
+			numbers[column] = 0;
+			strings[column] = null;
+			styles[column] = cell != null ? cell.getCellStyle().getIndex() : -1;
+			switch (type) {
+			case NUMERIC:
+				numbers[column] = cell.getNumericCellValue();
+				break;
+			case BOOLEAN:
+				numbers[column] = cell.getBooleanCellValue() ? 1 : 0;
+				break;
+			case ERROR:
+				numbers[column] = cell.getErrorCellValue();
+				break;
+			case STRING:
+				strings[column] = cell.getStringCellValue();
+				break;
+			case FORMULA:
+				strings[column] = cell.getCellFormula();
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Compares the row, as it is now, against the captured cells and records
+	 * every difference in the change log.
+	 *
+	 * @param row
+	 *            The row that was captured, after it was edited.
+	 * @param sheetName
+	 *            The name of the sheet holding the row.
+	 * @param log
+	 *            The change log to record the differences in.
+	 * @return True if any cell changed in value or format.
+	 */
+	boolean compare(Row row, String sheetName, ExcelChangeLog log) {
+		int columns = Math.max(width, Math.max(0, row.getLastCellNum()));
+		boolean changed = false;
+		for (int column = 0; column < columns; column++) {
+			Cell cell = row.getCell(column);
+			CellType type = cell != null ? cell.getCellTypeEnum() : CellType.BLANK;
+			boolean captured = column < width;
+			CellType oldType = captured ? types[column] : CellType.BLANK;
+			if (type != oldType || !sameValue(cell, type, column)) {
+				log.cellChanged(new CellChange(sheetName, row.getRowNum(), column, oldType,
+						captured ? text(column) : "", type, text(cell, type)));
+				changed = true;
+			} else if ((cell != null ? cell.getCellStyle().getIndex() : -1) != (captured ? styles[column] : -1)) {
+				log.rowChanged(sheetName, row.getRowNum());
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Compares the value of a cell against the captured value of its column,
+	 * given both are of the given type.
+	 */
+	private boolean sameValue(Cell cell, CellType type, int column) {
+		switch (type) {
+		case NUMERIC:
+			return Double.compare(cell.getNumericCellValue(), numbers[column]) == 0;
+		case BOOLEAN:
+			return (cell.getBooleanCellValue() ? 1 : 0) == numbers[column];
+		case ERROR:
+			return cell.getErrorCellValue() == numbers[column];
+		case STRING:
+			return cell.getStringCellValue().equals(strings[column]);
+		case FORMULA:
+			return cell.getCellFormula().equals(strings[column]);
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the captured value of a column as text.
+	 */
+	private String text(int column) {
+		switch (types[column]) {
+		case NUMERIC:
+			return number(numbers[column]);
+		case BOOLEAN:
+			return numbers[column] != 0 ? "TRUE" : "FALSE";
+		case ERROR:
+			return ExcelReader.errorText((byte) numbers[column]);
+		case STRING:
+			return strings[column];
+		case FORMULA:
+			return "=" + strings[column];
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * Returns the value of a cell of the given type as text.
+	 */
+	private static String text(Cell cell, CellType type) {
+		switch (type) {
+		case FORMULA:
+			return "=" + cell.getCellFormula();
+		case BLANK:
+			return "";
+		default:
+			return ExcelReader.getCellString(cell);
+		}
+	}
+
+	/**
+	 * Writes a number the way {@link ExcelReader#getCellString(Cell)} does.
+	 */
+	private static String number(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	/**
+	 * Releases the captured strings, so they are not kept alive between
+	 * sheets.
+	 */
+	void clear() {
+		Arrays.fill(strings, null);
+		width = 0;
+	}
+}
@@ -0,0 +1,104 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+import com.doughtnerd.pod.excel.ExcelRowView;
+
+/**
+ * An {@link ExcelRowView} over a POI Row, so rows of a fully loaded workbook
+ * can be handed to code written against the view. One adapter is reused for
+ * every row of a sheet by calling {@link #wrap(Row)} again.
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class RowViewAdapter implements ExcelRowView {
+
+	/**
+	 * The row currently being viewed.
+	 */
+	private Row row;
+
+	/**
+	 * Returns a view over the given row. Rows that already are a view, such
+	 * as rows parsed by a streaming sheet, are returned as they are; any other
+	 * row is wrapped by this adapter, replacing the row it wrapped before.
+	 *
+	 * @param row
+	 *            The row to view.
+	 * @return A view over the row.
+	 */
+	ExcelRowView wrap(Row row) {
+		if (row instanceof ExcelRowView) {
+			return (ExcelRowView) row;
+		}
+		this.row = row;
+		return this;
+	}
+
+	/**
+	 * Returns the cell at the given column, null if there is none.
+	 */
+	private Cell cell(int column) {
+		return column >= 0 ? row.getCell(column) : null;
+	}
+
+	@Override
+	public int getRowNum() {
+		return row.getRowNum();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return Math.max(0, row.getLastCellNum());
+	}
+
+	@Override
+	public CellType getCellType(int column) {
+		Cell cell = cell(column);
+		if (cell == null) {
+			return CellType.BLANK;
+		}
+		CellType type = cell.getCellTypeEnum();
+		return type == CellType.FORMULA ? cell.getCachedFormulaResultTypeEnum() : type;
+	}
+
+	@Override
+	public double getDouble(int column) {
+		Cell cell = cell(column);
+		return cell != null ? cell.getNumericCellValue() : 0.0;
+	}
+
+	@Override
+	public String getString(int column) {
+		Cell cell = cell(column);
+		return cell != null ? cell.getStringCellValue() : "";
+	}
+
+	@Override
+	public boolean getBoolean(int column) {
+		Cell cell = cell(column);
+		return cell != null && cell.getBooleanCellValue();
+	}
+
+	@Override
+	public Date getDate(int column) {
+		Cell cell = cell(column);
+		return cell != null ? cell.getDateCellValue() : null;
+	}
+
+	@Override
+	public String getFormula(int column) {
+		Cell cell = cell(column);
+		return cell != null && cell.getCellTypeEnum() == CellType.FORMULA ? cell.getCellFormula() : null;
+	}
+
+	@Override
+	public Row asRow() {
+		return row;
+	}
+}
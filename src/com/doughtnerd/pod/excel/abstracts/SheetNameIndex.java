@@ -0,0 +1,252 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * An index over the sheet names of a workbook, built once so that finding a
+ * sheet by name does not scan and compare every sheet name on each call.
+ * <p>
+ * A lookup returns the sheet whose name equals the search string if there is
+ * one, and otherwise the first sheet, in workbook order, whose name contains
+ * it. Exact matches are answered from a hash map. Contains matches are found
+ * with a single search over all names joined into one string, and every
+ * answer is remembered, so repeated lookups of the same name are constant
+ * time.
+ * </p>
+ * <p>
+ * An index built from a workbook is reused while the workbook has the same
+ * number of sheets, see {@link #of(SheetNameIndex, Workbook)}. Its callers
+ * check each answer with {@link #isCurrent(int)}, a single name comparison,
+ * and rebuild the index when the answer is stale or there is no match, so a
+ * sheet that was added or renamed to the name looked up is still found. A
+ * rename that makes another sheet a better match than a remembered one, such
+ * as an exact match for a name first answered by a contains match, is not
+ * seen this way; whoever renames sheets must drop the index. Lookups may be
+ * made from several threads at once.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class SheetNameIndex {
+
+	/**
+	 * Separates the names in the joined strings. Sheet names cannot contain
+	 * it, so no match can span two names.
+	 */
+	private static final char SEPARATOR = '\0';
+
+	/**
+	 * The number of answers remembered before the memo is cleared.
+	 */
+	private static final int MAX_MEMO = 1024;
+
+	/**
+	 * The workbook the index was built from, null if it was built from a
+	 * list of names.
+	 */
+	private final Workbook workbook;
+
+	/**
+	 * The sheet names, in workbook order.
+	 */
+	private final String[] names;
+
+	/**
+	 * The first sheet with each name.
+	 */
+	private final Map<String, Integer> exact;
+
+	/**
+	 * The first sheet with each lower case name.
+	 */
+	private final Map<String, Integer> exactIgnoreCase;
+
+	/**
+	 * Every name, each followed by SEPARATOR.
+	 */
+	private final String joined;
+
+	/**
+	 * Every lower case name, each followed by SEPARATOR.
+	 */
+	private final String joinedIgnoreCase;
+
+	/**
+	 * The offset of each name within the joined names.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The offset of each lower case name within the joined lower case names.
+	 */
+	private final int[] offsetsIgnoreCase;
+
+	/**
+	 * The answers of case sensitive lookups, -1 for no match.
+	 */
+	private final Map<String, Integer> memo = new ConcurrentHashMap<>();
+
+	/**
+	 * The answers of case insensitive lookups, -1 for no match.
+	 */
+	private final Map<String, Integer> memoIgnoreCase = new ConcurrentHashMap<>();
+
+	private SheetNameIndex(Workbook workbook, List<String> names) {
+		this.workbook = workbook;
+		this.names = names.toArray(new String[names.size()]);
+		this.exact = new HashMap<>();
+		this.exactIgnoreCase = new HashMap<>();
+		this.offsets = new int[this.names.length];
+		this.offsetsIgnoreCase = new int[this.names.length];
+		StringBuilder joined = new StringBuilder();
+		StringBuilder joinedIgnoreCase = new StringBuilder();
+		for (int i = 0; i < this.names.length; i++) {
+			String name = this.names[i];
+			String lower = lowerCase(name);
+			exact.putIfAbsent(name, i);
+			exactIgnoreCase.putIfAbsent(lower, i);
+			offsets[i] = joined.length();
+			offsetsIgnoreCase[i] = joinedIgnoreCase.length();
+			joined.append(name).append(SEPARATOR);
+			joinedIgnoreCase.append(lower).append(SEPARATOR);
+		}
+		this.joined = joined.toString();
+		this.joinedIgnoreCase = joinedIgnoreCase.toString();
+	}
+
+	/**
+	 * Creates an index over the given sheet names.
+	 *
+	 * @param names
+	 *            The sheet names, in workbook order.
+	 * @return The index.
+	 */
+	static SheetNameIndex of(List<String> names) {
+		return new SheetNameIndex(null, names);
+	}
+
+	/**
+	 * Returns an index over the sheets of the given workbook, reusing the
+	 * given index if it was built from the same workbook and the workbook
+	 * still has as many sheets. The names themselves are not compared, see
+	 * {@link #isCurrent(int)}.
+	 *
+	 * @param index
+	 *            The index built before, may be null.
+	 * @param workbook
+	 *            The workbook to index.
+	 * @return The index.
+	 */
+	static SheetNameIndex of(SheetNameIndex index, Workbook workbook) {
+		if (index != null && index.workbook == workbook && index.names.length == workbook.getNumberOfSheets()) {
+			return index;
+		}
+		return of(workbook);
+	}
+
+	/**
+	 * Creates an index over the sheets of the given workbook.
+	 *
+	 * @param workbook
+	 *            The workbook to index.
+	 * @return The index.
+	 */
+	static SheetNameIndex of(Workbook workbook) {
+		List<String> names = new ArrayList<>(workbook.getNumberOfSheets());
+		for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+			names.add(workbook.getSheetName(i));
+		}
+		return new SheetNameIndex(workbook, names);
+	}
+
+	/**
+	 * Checks an answer of {@link #find(String, boolean)} against the
+	 * workbook this index was built from: the sheet found must still have
+	 * the name this index holds for it. A miss is never current, since the
+	 * name may have been given to a sheet since. Answers of an index built
+	 * from a list of names are always current.
+	 *
+	 * @param found
+	 *            The answer of a lookup.
+	 * @return Whether the answer can be used.
+	 */
+	boolean isCurrent(int found) {
+		if (workbook == null) {
+			return true;
+		}
+		return found >= 0 && found < workbook.getNumberOfSheets()
+				&& names[found].equals(workbook.getSheetName(found));
+	}
+
+	/**
+	 * Finds a sheet by name, case sensitively.
+	 *
+	 * @param name
+	 *            The name to search for.
+	 * @return The index of the sheet with that name, else of the first sheet
+	 *         whose name contains it, -1 if there is none.
+	 */
+	int find(String name) {
+		return find(name, true);
+	}
+
+	/**
+	 * Finds a sheet by name.
+	 *
+	 * @param name
+	 *            The name to search for.
+	 * @param caseSensitive
+	 *            Whether the case of the names must match.
+	 * @return The index of the sheet with that name, else of the first sheet
+	 *         whose name contains it, -1 if there is none.
+	 */
+	int find(String name, boolean caseSensitive) {
+		Map<String, Integer> memo = caseSensitive ? this.memo : memoIgnoreCase;
+		Integer found = memo.get(name);
+		if (found != null) {
+			return found;
+		}
+		String key = caseSensitive ? name : lowerCase(name);
+		found = (caseSensitive ? exact : exactIgnoreCase).get(key);
+		if (found == null) {
+			found = caseSensitive ? contains(joined, offsets, key) : contains(joinedIgnoreCase, offsetsIgnoreCase, key);
+		}
+		if (memo.size() >= MAX_MEMO) {
+			memo.clear();
+		}
+		memo.put(name, found);
+		return found;
+	}
+
+	/**
+	 * Finds the first name containing the given string within the given
+	 * joined names.
+	 */
+	private static int contains(String joined, int[] offsets, String key) {
+		if (key.indexOf(SEPARATOR) >= 0) {
+			return -1;
+		}
+		int at = joined.indexOf(key);
+		if (at < 0) {
+			return -1;
+		}
+		int sheet = Arrays.binarySearch(offsets, at);
+		return sheet >= 0 ? sheet : -sheet - 2;
+	}
+
+	/**
+	 * Lower cases a name independently of the default locale.
+	 */
+	private static String lowerCase(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,92 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import com.doughtnerd.pod.excel.ExcelCellObject;
+import com.doughtnerd.pod.excel.RowSink;
+import com.doughtnerd.pod.excel.StyleRef;
+
+/**
+ * This is an abstract class that represents an object that is writable as a row
+ * in an excel document by use of the writeTo method, which pushes primitive
+ * values straight to the sheet without creating an ExcelCellObject per cell.
+ * Rows written in large volumes should extend this class rather than
+ * implementing {@link ExcelRowObject#toCellObjectArray()}.
+ *
+ * @see #writeTo(RowSink)
+ * @author Christopher Carlson
+ *
+ */
+public abstract class SinkRowObject extends ExcelRowObject {
+
+	/**
+	 * Writes this object's field values to the given sink as a complete row.
+	 *
+	 * @param sink
+	 *            The sink the cell values are written to.
+	 */
+	@Override
+	public abstract void writeTo(RowSink sink);
+
+	/**
+	 * Collects the values {@link #writeTo(RowSink)} writes into
+	 * ExcelCellObjects. Columns writeTo skips hold an empty string.
+	 *
+	 * @return An ExcelCellObject[] of all of this object's written values.
+	 */
+	@Override
+	public ExcelCellObject[] toCellObjectArray() {
+		final ArrayList<ExcelCellObject> cells = new ArrayList<>();
+		writeTo(new RowSink() {
+			@Override
+			public void writeDouble(int column, double value, StyleRef style) {
+				set(column, styled(new ExcelCellObject(value), style));
+			}
+
+			@Override
+			public void writeString(int column, String value, StyleRef style) {
+				set(column, styled(new ExcelCellObject(value != null ? value : ""), style));
+			}
+
+			@Override
+			public void writeBoolean(int column, boolean value, StyleRef style) {
+				set(column, styled(new ExcelCellObject(value), style));
+			}
+
+			@Override
+			public void writeDate(int column, Date value, StyleRef style) {
+				set(column, value != null ? styled(new ExcelCellObject(value), style) : null);
+			}
+
+			@Override
+			public void writeCell(int column, ExcelCellObject cell) {
+				set(column, cell);
+			}
+
+			private void set(int column, ExcelCellObject cell) {
+				while (cells.size() <= column) {
+					cells.add(null);
+				}
+				cells.set(column, cell);
+			}
+		});
+		ExcelCellObject[] array = new ExcelCellObject[cells.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = cells.get(i) != null ? cells.get(i) : createCell("");
+		}
+		return array;
+	}
+
+	/**
+	 * Applies the formatting of a StyleRef to a cell.
+	 */
+	private static ExcelCellObject styled(ExcelCellObject cell, StyleRef style) {
+		if (style != null) {
+			cell.setDataFormat(style.getFormat());
+			cell.setWrapText(style.getWrapText());
+			cell.setHorizontalAlignment(style.getHorizontalAlignment());
+		}
+		return cell;
+	}
+}
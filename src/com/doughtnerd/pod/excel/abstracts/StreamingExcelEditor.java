@@ -0,0 +1,278 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.doughtnerd.pod.excel.exceptions.ExcelReadException;
+import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
+import com.doughtnerd.pod.excel.streaming.EditableRow;
+import com.doughtnerd.pod.excel.streaming.StreamingWorkbookEditor;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+
+/**
+ * This class edits an xlsx file the way {@link ExcelEditor} does, without
+ * loading the workbook into memory. Each processed sheet is streamed row by
+ * row through {@link #editRow(EditableRow)} and written to a temporary file;
+ * saving assembles the edited sheets and the untouched parts of the original
+ * file into a new package. Memory use depends on the width of a row, not on
+ * the number of rows, so sheets of a million rows can be edited on a small
+ * heap.
+ * <p>
+ * Only the cells editRow changes are written anew. Every other row and cell
+ * is copied as it was read. Since every sheet is edited into a file of its
+ * own, the sheets of a workbook can be edited in parallel with
+ * {@link #processDocument(boolean, Executor)}. The editor must be closed once saved to delete
+ * its temporary files.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public abstract class StreamingExcelEditor implements Closeable {
+
+	/**
+	 * The original file containing the workbook data.
+	 */
+	protected File file;
+
+	/**
+	 * The editor streaming the sheets of the file.
+	 */
+	private final StreamingWorkbookEditor editor;
+
+	/**
+	 * The index of the sheet names, built on the first lookup by name.
+	 */
+	private SheetNameIndex sheetNameIndex;
+
+	/**
+	 * Creates a new StreamingExcelEditor Object.
+	 *
+	 * @param file
+	 *            The xlsx file to process.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the file is not an xlsx file.
+	 */
+	public StreamingExcelEditor(File file) throws IOException {
+		long start = PodMetricsRegistry.startTimer();
+		this.file = file;
+		this.editor = new StreamingWorkbookEditor(file);
+		if (start != 0) {
+			PodMetricsRegistry.get().documentLoaded(file.getPath(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Creates a new StreamingExcelEditor Object.
+	 *
+	 * @param path
+	 *            The xlsx file to process.
+	 * @throws IOException
+	 *             Thrown if an IOException occurred.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the file is not an xlsx file.
+	 */
+	public StreamingExcelEditor(Path path) throws IOException {
+		this(path.toFile());
+	}
+
+	/**
+	 * Starts the processing of the excel sheet.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet where the data is found. The sheet with
+	 *            this name is edited, else the first sheet containing it.
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @throws SheetNotFoundException
+	 *             Thrown if no sheet name contains the given sheetName.
+	 * @throws ExcelReadException
+	 *             Thrown if the sheet could not be read or written.
+	 */
+	public void processSheet(String sheetName, boolean headers) throws SheetNotFoundException {
+		if (sheetNameIndex == null) {
+			sheetNameIndex = SheetNameIndex.of(editor.getSheetNames());
+		}
+		int sheetIndex = sheetNameIndex.find(sheetName);
+		if (sheetIndex < 0) {
+			throw new SheetNotFoundException("Could not find sheet: " + sheetName);
+		}
+		processSheet(sheetIndex, headers);
+	}
+
+	/**
+	 * Starts the processing of the excel sheet.
+	 *
+	 * @param sheetIndex
+	 *            The index of the sheet where the data is found
+	 * @param headers
+	 *            True if there is a header row present in the sheet, false
+	 *            otherwise.
+	 * @throws SheetNotFoundException
+	 *             Thrown if there is no sheet at the given index.
+	 * @throws ExcelReadException
+	 *             Thrown if the sheet could not be read or written.
+	 */
+	public void processSheet(int sheetIndex, boolean headers) throws SheetNotFoundException {
+		if (sheetIndex < 0 || sheetIndex >= editor.getNumberOfSheets()) {
+			throw new SheetNotFoundException("Could not find sheet at index: " + sheetIndex);
+		}
+		long start = PodMetricsRegistry.startTimer();
+		long[] editNanos = new long[1];
+		long rows;
+		try {
+			rows = editor.editSheet(sheetIndex, headers, start == 0 ? this::editRow : row -> {
+				long editStart = System.nanoTime();
+				editRow(row);
+				editNanos[0] += System.nanoTime() - editStart;
+			});
+		} catch (IOException e) {
+			throw new ExcelReadException("Could not edit sheet: " + editor.getSheetName(sheetIndex), e);
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().sheetEdited(editor.getSheetName(sheetIndex), rows, editNanos[0],
+					System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Edits every sheet of the workbook, one after the other.
+	 * 
+	 * @param headers
+	 *            Whether or not headers are present on every sheet of the file.
+	 * @throws ExcelReadException
+	 *             Thrown if a sheet could not be read or written.
+	 */
+	public void processDocument(boolean headers) {
+		for (int i = 0; i < editor.getNumberOfSheets(); i++) {
+			processSheetAt(i, headers);
+		}
+	}
+
+	/**
+	 * Edits every sheet of the workbook, running
+	 * {@link #processSheet(int, boolean)} for every sheet as a separate task on
+	 * the given executor. Each task streams its sheet into its own temporary
+	 * file, and the files are put together into one package when the workbook
+	 * is saved.
+	 * <p>
+	 * Thread safety contract: rows of different sheets are edited on
+	 * different threads at the same time, while the rows of any one sheet are
+	 * always edited in order on a single thread. {@link #editRow(EditableRow)}
+	 * must therefore be safe to call concurrently whenever it reads or writes
+	 * state shared between sheets. An implementation that only reads and
+	 * writes the row it is given needs no extra synchronization.
+	 * </p>
+	 * 
+	 * @param headers
+	 *            Whether or not headers are present on every sheet of the file.
+	 * @param executor
+	 *            The executor the sheet tasks run on, for example
+	 *            ForkJoinPool.commonPool() or a fixed thread pool.
+	 * @throws ExcelReadException
+	 *             Thrown if a sheet could not be read or written or the calling
+	 *             thread was interrupted while waiting. RuntimeExceptions thrown
+	 *             by editRow are rethrown as is.
+	 */
+	public void processDocument(final boolean headers, Executor executor) {
+		int sheetCount = editor.getNumberOfSheets();
+		List<FutureTask<Void>> tasks = new ArrayList<>(sheetCount);
+		for (int i = 0; i < sheetCount; i++) {
+			final int sheetIndex = i;
+			FutureTask<Void> task = new FutureTask<>(() -> processSheetAt(sheetIndex, headers), null);
+			tasks.add(task);
+			executor.execute(task);
+		}
+		for (int i = 0; i < sheetCount; i++) {
+			String sheetName = editor.getSheetName(i);
+			try {
+				tasks.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancelAll(tasks);
+				throw new ExcelReadException("Interrupted while editing sheet: " + sheetName, e);
+			} catch (ExecutionException e) {
+				cancelAll(tasks);
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new ExcelReadException("Could not edit sheet: " + sheetName, cause);
+			}
+		}
+	}
+
+	/**
+	 * Edits the sheet at an index known to exist.
+	 */
+	private void processSheetAt(int sheetIndex, boolean headers) {
+		try {
+			processSheet(sheetIndex, headers);
+		} catch (SheetNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Cancels every sheet task that has not started yet.
+	 * 
+	 * @param tasks
+	 *            The sheet tasks.
+	 */
+	private static void cancelAll(List<? extends FutureTask<?>> tasks) {
+		for (FutureTask<?> task : tasks) {
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * Instructs the Excel Editor how to edit the given row. The row is reused
+	 * for every row of the sheet, so it must not be kept after this method
+	 * returns. The cell holding a shared formula that other cells depend on
+	 * must not be changed; the edit of the sheet fails with an
+	 * IllegalStateException if it is.
+	 *
+	 * @param row
+	 *            The current Excel row being edited.
+	 */
+	protected abstract void editRow(EditableRow row);
+
+	/**
+	 * Saves the edited workbook to the specified file. The file being edited
+	 * may be saved over.
+	 *
+	 * @param file
+	 *            The file location to write to.
+	 * @throws IOException
+	 *             Thrown if a file access error occurred.
+	 */
+	public void save(File file) throws IOException {
+		long start = PodMetricsRegistry.startTimer();
+		editor.save(file);
+		if (start != 0) {
+			PodMetricsRegistry.get().documentSaved(file.getPath(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Releases the original file and deletes the temporary files of the
+	 * edited sheets. Edits not saved by then are lost.
+	 */
+	@Override
+	public void close() throws IOException {
+		editor.close();
+	}
+}
@@ -0,0 +1,332 @@
+package com.doughtnerd.pod.excel.abstracts;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.doughtnerd.pod.excel.ZipPackageWriter;
+
+/**
+ * Saves an XSSFWorkbook loaded from a file by serializing only the parts that
+ * may have changed since it was loaded, and copying every other part from the
+ * original file as it is stored. The parts that may have changed are the
+ * edited sheets and the parts they relate to, the workbook, the styles, the
+ * calculation chain and, if strings were added, the shared strings.
+ * <p>
+ * The structure of the package is recorded on load: its parts, their content
+ * types and their relationships. If it differs on save, because parts or
+ * relationships were added or removed, or if the original file has changed
+ * on disk, the copy is not attempted and the caller writes the workbook in
+ * full.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsxCopyThrough {
+
+	/**
+	 * The name of the content types part of every package.
+	 */
+	private static final String CONTENT_TYPES = "[Content_Types].xml";
+
+	/**
+	 * POIXMLDocumentPart.prepareForCommit, which clears a part before it is
+	 * serialized.
+	 */
+	private static final Method PREPARE_FOR_COMMIT = method("prepareForCommit");
+
+	/**
+	 * POIXMLDocumentPart.commit, which serializes a part into its package.
+	 */
+	private static final Method COMMIT = method("commit");
+
+	/**
+	 * The file the workbook was loaded from.
+	 */
+	private final File source;
+
+	/**
+	 * The length of the source when the workbook was loaded.
+	 */
+	private final long length;
+
+	/**
+	 * The modification time of the source when the workbook was loaded.
+	 */
+	private final long modified;
+
+	/**
+	 * The structure of the package when the workbook was loaded.
+	 */
+	private final Map<String, String> structure;
+
+	/**
+	 * The number of string references in the shared strings table on load.
+	 */
+	private final int stringCount;
+
+	/**
+	 * The number of distinct strings in the shared strings table on load.
+	 */
+	private final int uniqueStringCount;
+
+	private XlsxCopyThrough(File source, long length, long modified, Map<String, String> structure,
+			SharedStringsTable strings) {
+		this.source = source;
+		this.length = length;
+		this.modified = modified;
+		this.structure = structure;
+		this.stringCount = strings != null ? strings.getCount() : 0;
+		this.uniqueStringCount = strings != null ? strings.getUniqueCount() : 0;
+	}
+
+	/**
+	 * Records the structure of a workbook just loaded from the given file.
+	 *
+	 * @param workbook
+	 *            The workbook.
+	 * @param source
+	 *            The file the workbook was loaded from.
+	 * @return The recorded state, null if the workbook cannot be saved by
+	 *         copying.
+	 */
+	static XlsxCopyThrough of(XSSFWorkbook workbook, File source) {
+		if (COMMIT == null || PREPARE_FOR_COMMIT == null) {
+			return null;
+		}
+		long length = source.length();
+		long modified = source.lastModified();
+		Map<String, String> structure = structure(workbook.getPackage());
+		if (structure == null) {
+			return null;
+		}
+		return new XlsxCopyThrough(source, length, modified, structure, workbook.getSharedStringSource());
+	}
+
+	/**
+	 * Saves the workbook by serializing the parts that may have changed and
+	 * copying the others from the source file.
+	 *
+	 * @param workbook
+	 *            The workbook, as loaded from the source file.
+	 * @param editedSheets
+	 *            The sheets that may have changed.
+	 * @param destination
+	 *            The file to write. May be the source file.
+	 * @return False if the workbook could not be saved this way and must be
+	 *         written in full. Nothing has been written in that case.
+	 * @throws IOException
+	 *             Thrown if the workbook could not be written.
+	 */
+	boolean save(XSSFWorkbook workbook, Collection<? extends Sheet> editedSheets, File destination)
+			throws IOException {
+		if (source.length() != length || source.lastModified() != modified) {
+			return false;
+		}
+		List<POIXMLDocumentPart> dirty = new ArrayList<>();
+		dirty.add(workbook);
+		dirty.add(workbook.getStylesSource());
+		SharedStringsTable strings = workbook.getSharedStringSource();
+		if (strings != null && (strings.getCount() != stringCount || strings.getUniqueCount() != uniqueStringCount)) {
+			dirty.add(strings);
+		}
+		Set<POIXMLDocumentPart> visited = new HashSet<>(dirty);
+		for (Sheet sheet : editedSheets) {
+			addWithRelations(dirty, visited, (XSSFSheet) sheet);
+		}
+		for (POIXMLDocumentPart part : dirty) {
+			if (part != null && !commit(part)) {
+				return false;
+			}
+		}
+		if (workbook.getCalculationChain() != null && !commit(workbook.getCalculationChain())) {
+			return false;
+		}
+		OPCPackage pkg = workbook.getPackage();
+		if (!structure.equals(structure(pkg))) {
+			return false;
+		}
+		if (workbook.getCalculationChain() != null) {
+			dirty.add(workbook.getCalculationChain());
+		}
+		Map<String, PackagePart> serialized = new LinkedHashMap<>();
+		for (POIXMLDocumentPart part : dirty) {
+			if (part != null && part.getPackagePart() != null) {
+				// committing a part read from a zip replaces it in the package
+				// with an in memory part, so the committed data is looked up by
+				// name rather than through the document part
+				PackagePartName name = part.getPackagePart().getPartName();
+				PackagePart committed = pkg.getPart(name);
+				if (committed == null) {
+					return false;
+				}
+				serialized.put(name.getName().substring(1), committed);
+			}
+		}
+		File directory = destination.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("pod", ".xlsx", directory);
+		try {
+			ZipPackageWriter out;
+			try {
+				out = new ZipPackageWriter(source, new BufferedOutputStream(new FileOutputStream(temp)));
+			} catch (ZipException e) {
+				return false;
+			}
+			try {
+				List<String> names = out.getSourceEntryNames();
+				if (!names.containsAll(serialized.keySet()) || !matchesEntries(names)) {
+					return false;
+				}
+				for (String name : names) {
+					PackagePart part = serialized.get(name);
+					if (part == null) {
+						out.copyEntry(name);
+						continue;
+					}
+					out.putNextEntry(name);
+					try (InputStream in = part.getInputStream()) {
+						IOUtils.copy(in, out.getEntryStream());
+					}
+					out.closeEntry();
+				}
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Checks that the source file holds exactly the parts of the package, so
+	 * no part is lost or added by copying its entries.
+	 */
+	private boolean matchesEntries(List<String> names) {
+		Set<String> parts = new HashSet<>();
+		for (String name : names) {
+			if (!name.equals(CONTENT_TYPES) && !name.endsWith(".rels") && !name.endsWith("/")) {
+				parts.add("/" + name);
+			}
+		}
+		Set<String> expected = new HashSet<>(structure.keySet());
+		expected.remove("");
+		return parts.equals(expected);
+	}
+
+	/**
+	 * Adds a sheet and every part it relates to, directly or through other
+	 * parts, such as its comments and drawings.
+	 */
+	private static void addWithRelations(List<POIXMLDocumentPart> dirty, Set<POIXMLDocumentPart> visited,
+			POIXMLDocumentPart part) {
+		if (!visited.add(part)) {
+			return;
+		}
+		dirty.add(part);
+		for (POIXMLDocumentPart related : part.getRelations()) {
+			addWithRelations(dirty, visited, related);
+		}
+	}
+
+	/**
+	 * Serializes a part into its package part.
+	 *
+	 * @return False if the part could not be serialized this way.
+	 */
+	private static boolean commit(POIXMLDocumentPart part) throws IOException {
+		try {
+			PREPARE_FOR_COMMIT.invoke(part);
+			COMMIT.invoke(part);
+			return true;
+		} catch (IllegalAccessException e) {
+			return false;
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("Could not serialize part: " + part, e.getCause());
+		}
+	}
+
+	/**
+	 * Describes every part of a package with its content type and
+	 * relationships, keyed by part name. The package relationships are kept
+	 * under the empty name.
+	 *
+	 * @return The structure, null if the package could not be read.
+	 */
+	private static Map<String, String> structure(OPCPackage pkg) {
+		try {
+			Map<String, String> structure = new TreeMap<>();
+			structure.put("", describe(pkg.getRelationships()));
+			for (PackagePart part : pkg.getParts()) {
+				if (!part.isRelationshipPart()) {
+					structure.put(part.getPartName().getName(),
+							part.getContentType() + "\n" + describe(part.getRelationships()));
+				}
+			}
+			return structure;
+		} catch (InvalidFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Describes a set of relationships, independent of their order.
+	 */
+	private static String describe(PackageRelationshipCollection relationships) {
+		TreeMap<String, String> sorted = new TreeMap<>();
+		for (PackageRelationship rel : relationships) {
+			sorted.put(rel.getId(), rel.getRelationshipType() + " " + rel.getTargetURI() + " " + rel.getTargetMode());
+		}
+		return sorted.toString();
+	}
+
+	/**
+	 * Looks up a protected method of POIXMLDocumentPart.
+	 *
+	 * @return The method, null if it does not exist in this version of POI.
+	 */
+	private static Method method(String name) {
+		try {
+			Method method = POIXMLDocumentPart.class.getDeclaredMethod(name);
+			method.setAccessible(true);
+			return method;
+		} catch (NoSuchMethodException | RuntimeException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.doughtnerd.pod.excel.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.doughtnerd.pod.excel.enums.ExcelFormatType;
+
+/**
+ * Marks a field as a column of a sheet, so objects of the declaring class can
+ * be read and written by an {@link com.doughtnerd.pod.excel.ExcelMapper}
+ * without a hand written extractItem or toCellObjectArray.
+ * <p>
+ * A column is placed by its index if one is given. Otherwise it is found by
+ * header name when a sheet is read with headers, and placed at its position
+ * among the annotated fields of the class, in declaration order, when there
+ * is no header row or the object is written.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ExcelColumn {
+
+	/**
+	 * @return The header of the column, the field name if empty.
+	 */
+	String name() default "";
+
+	/**
+	 * @return The zero based index of the column, -1 to place the column by
+	 *         header name or declaration order.
+	 */
+	int index() default -1;
+
+	/**
+	 * @return The format cells of the column are written with.
+	 */
+	ExcelFormatType format() default ExcelFormatType.GENERAL;
+}
@@ -0,0 +1,20 @@
+package com.doughtnerd.pod.excel.enums;
+
+/**
+ * Represents the value types a column of a compiled reader configuration can
+ * be declared with.
+ *
+ * <ul>
+ * <li>STRING - Text. Numbers and booleans are read as their text.</li>
+ * <li>DOUBLE, LONG, INT - Numbers. Text is parsed as a number.</li>
+ * <li>BOOLEAN - A boolean cell.</li>
+ * <li>DATE - A numeric cell holding a date. Defaults are written as
+ * yyyy-MM-dd.</li>
+ * </ul>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public enum ColumnType {
+	STRING, DOUBLE, LONG, INT, BOOLEAN, DATE
+}
@@ -0,0 +1,24 @@
+package com.doughtnerd.pod.excel.enums;
+
+/**
+ * Represents the ways an ExcelReader can load the workbook it reads from.
+ * 
+ * <ul>
+ * <li>DOM - The whole workbook is loaded into memory as a POI Workbook. Every
+ * sheet and row is available at any time.</li>
+ * <li>STREAMING - Sheets are parsed one row at a time straight from the file,
+ * so memory use stays flat no matter how large the file is. Rows can only be
+ * read once and in order.</li>
+ * <li>DOM_FILE_BACKED - Like DOM, but an xlsx file is opened as a read only
+ * package backed by the file itself, so its zip entries are read in place
+ * instead of the whole archive first being copied onto the heap. The file
+ * stays open until the reader is closed, so readers in this mode must be
+ * closed. xls files are loaded as in DOM mode.</li>
+ * </ul>
+ * 
+ * @author Christopher Carlson
+ *
+ */
+public enum ExcelReadMode {
+	DOM, STREAMING, DOM_FILE_BACKED
+}
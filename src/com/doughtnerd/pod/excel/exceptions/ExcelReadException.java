@@ -0,0 +1,29 @@
+package com.doughtnerd.pod.excel.exceptions;
+
+/**
+ * This class represents an unchecked exception that is thrown when the
+ * underlying file of a streaming read could not be read or parsed part way
+ * through processing a sheet.
+ * 
+ * @author Christopher Carlson
+ *
+ */
+public final class ExcelReadException extends RuntimeException {
+
+	/**
+	 * The serial ID.
+	 */
+	private static final long serialVersionUID = 4120857362904517843L;
+
+	/**
+	 * Creates a new ExcelReadException with the specified message and cause.
+	 * 
+	 * @param message
+	 *            The exception message.
+	 * @param cause
+	 *            The exception that caused the read to fail.
+	 */
+	public ExcelReadException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
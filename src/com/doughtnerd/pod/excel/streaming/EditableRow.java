@@ -0,0 +1,207 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.util.BitSet;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+
+import com.doughtnerd.pod.excel.ExcelRowView;
+
+/**
+ * This class is a row of a sheet being edited by a
+ * {@link StreamingWorkbookEditor}. It reads like any other
+ * {@link ExcelRowView}, and its setters replace the values of single cells.
+ * Reads see the values set so far. A changed cell keeps its style but loses
+ * its formula.
+ * <p>
+ * Only the cells that were changed are written anew; every other cell of the
+ * row, and every row that was not changed at all, is copied to the edited
+ * sheet exactly as it was read. The same EditableRow is refilled for every
+ * row of the sheet, so it must not be kept after the edit of a row returns.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class EditableRow implements ExcelRowView {
+
+	/**
+	 * The values of the row, including the changes made so far.
+	 */
+	private final StreamingRow row;
+
+	/**
+	 * The columns whose cells were changed.
+	 */
+	private final BitSet changed;
+
+	/**
+	 * Creates a new EditableRow over the given row.
+	 *
+	 * @param row
+	 *            The row holding the cell values.
+	 */
+	EditableRow(StreamingRow row) {
+		this.row = row;
+		this.changed = new BitSet();
+	}
+
+	/**
+	 * Forgets the changes of the previous row. Called after the row has been
+	 * refilled with the next row of the sheet.
+	 */
+	void reset() {
+		changed.clear();
+	}
+
+	/**
+	 * @return True if any cell of this row was changed.
+	 */
+	public boolean isChanged() {
+		return !changed.isEmpty();
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return True if the cell at the given column was changed.
+	 */
+	public boolean isChanged(int column) {
+		return changed.get(column);
+	}
+
+	/**
+	 * @return The columns whose cells were changed. Must not be modified.
+	 */
+	BitSet getChangedColumns() {
+		return changed;
+	}
+
+	/**
+	 * Sets the cell at the given column to a number.
+	 *
+	 * @param column
+	 *            The zero based column index.
+	 * @param value
+	 *            The new value.
+	 */
+	public void setDouble(int column, double value) {
+		set(column, CellType.NUMERIC, value, null, false);
+	}
+
+	/**
+	 * Sets the cell at the given column to text.
+	 *
+	 * @param column
+	 *            The zero based column index.
+	 * @param value
+	 *            The new value, null to blank the cell.
+	 */
+	public void setString(int column, String value) {
+		if (value == null) {
+			setBlank(column);
+		} else {
+			set(column, CellType.STRING, 0.0, value, false);
+		}
+	}
+
+	/**
+	 * Sets the cell at the given column to a boolean.
+	 *
+	 * @param column
+	 *            The zero based column index.
+	 * @param value
+	 *            The new value.
+	 */
+	public void setBoolean(int column, boolean value) {
+		set(column, CellType.BOOLEAN, 0.0, null, value);
+	}
+
+	/**
+	 * Sets the cell at the given column to a date. The cell must already have
+	 * a date style to be shown as a date.
+	 *
+	 * @param column
+	 *            The zero based column index.
+	 * @param value
+	 *            The new value, null to blank the cell.
+	 */
+	public void setDate(int column, Date value) {
+		if (value == null) {
+			setBlank(column);
+		} else {
+			setDouble(column, DateUtil.getExcelDate(value, row.isDate1904()));
+		}
+	}
+
+	/**
+	 * Removes the value of the cell at the given column, keeping its style.
+	 *
+	 * @param column
+	 *            The zero based column index.
+	 */
+	public void setBlank(int column) {
+		set(column, CellType.BLANK, 0.0, null, false);
+	}
+
+	/**
+	 * Replaces the value of a cell and marks it changed.
+	 */
+	private void set(int column, CellType type, double number, String text, boolean bool) {
+		if (column < 0) {
+			throw new IllegalArgumentException("Invalid column index: " + column);
+		}
+		row.setValue(column, type, number, text, bool);
+		changed.set(column);
+	}
+
+	@Override
+	public int getRowNum() {
+		return row.getRowNum();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return row.getColumnCount();
+	}
+
+	@Override
+	public CellType getCellType(int column) {
+		return row.getCellType(column);
+	}
+
+	@Override
+	public double getDouble(int column) {
+		return row.getDouble(column);
+	}
+
+	@Override
+	public String getString(int column) {
+		return row.getString(column);
+	}
+
+	@Override
+	public boolean getBoolean(int column) {
+		return row.getBoolean(column);
+	}
+
+	@Override
+	public Date getDate(int column) {
+		return row.getDate(column);
+	}
+
+	@Override
+	public String getFormula(int column) {
+		return row.getFormula(column);
+	}
+
+	/**
+	 * @return A read only Row holding the current values of this row.
+	 */
+	@Override
+	public Row asRow() {
+		return row;
+	}
+}
@@ -0,0 +1,20 @@
+package com.doughtnerd.pod.excel.streaming;
+
+/**
+ * The shared strings table of an xlsx workbook as seen by a streaming sheet,
+ * so the table can either be held in memory or read back from disk.
+ *
+ * @author Christopher Carlson
+ *
+ */
+interface SharedStrings {
+
+	/**
+	 * @param index
+	 *            The zero based index of the string.
+	 * @return The string at the given index.
+	 * @throws IndexOutOfBoundsException
+	 *             Thrown if the table has no string at the given index.
+	 */
+	String getEntryAt(int index);
+}
@@ -0,0 +1,250 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+import com.doughtnerd.pod.excel.exceptions.ExcelReadException;
+
+/**
+ * A shared strings table that lives on disk instead of on the heap. The
+ * sharedStrings.xml part is parsed once and each string is written to a
+ * temporary data file, length prefixed and UTF-8 encoded, while the offset of
+ * each string goes to a second temporary file that is memory mapped as the
+ * index. Lookups read the string back from the data file and keep it in a
+ * bounded LRU cache, so the heap only ever holds the cached strings no matter
+ * how large the table is.
+ * <p>
+ * Lookups may be made from several threads at once. Both temporary files are
+ * deleted when the table is closed.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class SpilledSharedStrings implements SharedStrings, Closeable {
+
+	/**
+	 * The file holding the length prefixed strings.
+	 */
+	private final File dataFile;
+
+	/**
+	 * The file holding the offset of each string within the data file.
+	 */
+	private final File indexFile;
+
+	/**
+	 * The open data file, read with positional reads.
+	 */
+	private final FileChannel data;
+
+	/**
+	 * The offset of each string within the data file, mapped from the index
+	 * file.
+	 */
+	private final LongBuffer offsets;
+
+	/**
+	 * The number of strings in the table.
+	 */
+	private final int count;
+
+	/**
+	 * The most recently used strings, in access order. Guarded by itself.
+	 */
+	private final Map<Integer, String> cache;
+
+	private SpilledSharedStrings(File dataFile, File indexFile, int count, final int cacheSize) throws IOException {
+		this.dataFile = dataFile;
+		this.indexFile = indexFile;
+		this.count = count;
+		try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+			this.offsets = index.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, count * 8L).asLongBuffer();
+		}
+		this.data = new RandomAccessFile(dataFile, "r").getChannel();
+		this.cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Spills the shared strings part of the given package to disk.
+	 *
+	 * @param pkg
+	 *            The package to read the shared strings from.
+	 * @param factory
+	 *            The factory used to create the XML reader.
+	 * @param cacheSize
+	 *            The number of strings to keep in memory.
+	 * @return The spilled table, empty if the package has no shared strings.
+	 * @throws IOException
+	 *             Thrown if the part could not be read or the temporary files
+	 *             could not be written.
+	 */
+	static SpilledSharedStrings read(OPCPackage pkg, XMLInputFactory factory, int cacheSize) throws IOException {
+		File dataFile = File.createTempFile("pod-sst", ".dat");
+		File indexFile = File.createTempFile("pod-sst", ".idx");
+		dataFile.deleteOnExit();
+		indexFile.deleteOnExit();
+		try {
+			int count = 0;
+			List<PackagePart> parts;
+			try {
+				parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+			} catch (Exception e) {
+				throw new IOException("Could not find the shared strings part", e);
+			}
+			if (!parts.isEmpty()) {
+				try (InputStream in = parts.get(0).getInputStream()) {
+					count = spill(factory.createXMLStreamReader(in), dataFile, indexFile);
+				}
+			}
+			return new SpilledSharedStrings(dataFile, indexFile, count, cacheSize);
+		} catch (IOException | XMLStreamException | RuntimeException e) {
+			dataFile.delete();
+			indexFile.delete();
+			throw e instanceof IOException ? (IOException) e : new IOException("Could not read the shared strings", e);
+		}
+	}
+
+	/**
+	 * Writes every string item of a shared strings part to the data file and
+	 * its offset to the index file. The text of every run is concatenated,
+	 * phonetic runs included, so strings read the same as they do through
+	 * POI's ReadOnlySharedStringsTable.
+	 *
+	 * @return The number of strings written.
+	 */
+	private static int spill(XMLStreamReader xml, File dataFile, File indexFile)
+			throws IOException, XMLStreamException {
+		int count = 0;
+		long offset = 0;
+		StringBuilder text = new StringBuilder();
+		try (DataOutputStream dataOut = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(dataFile), 1 << 16));
+				DataOutputStream indexOut = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(indexFile), 1 << 16))) {
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = xml.getLocalName();
+					if (name.equals("si")) {
+						text.setLength(0);
+					} else if (name.equals("t")) {
+						text.append(xml.getElementText());
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("si")) {
+					byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+					indexOut.writeLong(offset);
+					dataOut.writeInt(bytes.length);
+					dataOut.write(bytes);
+					offset += 4 + bytes.length;
+					count++;
+				}
+			}
+		} finally {
+			xml.close();
+		}
+		return count;
+	}
+
+	@Override
+	public String getEntryAt(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Shared string index (" + index + ") is out of range (0.."
+					+ (count - 1) + ")");
+		}
+		Integer key = index;
+		synchronized (cache) {
+			String cached = cache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		String value;
+		try {
+			value = load(offsets.get(index));
+		} catch (IOException e) {
+			throw new ExcelReadException("Could not read shared string: " + index, e);
+		}
+		synchronized (cache) {
+			cache.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the string stored at the given offset of the data file.
+	 */
+	private String load(long offset) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(length, offset);
+		ByteBuffer bytes = ByteBuffer.allocate(length.getInt(0));
+		readFully(bytes, offset + 4);
+		return new String(bytes.array(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Fills the given buffer from the data file, starting at the given
+	 * position. Positional reads leave the channel position alone, so
+	 * concurrent lookups do not interfere.
+	 */
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = data.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of the shared strings file");
+			}
+		}
+	}
+
+	/**
+	 * @return The number of strings in the table.
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * Closes the data file and deletes both temporary files.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			data.close();
+		} finally {
+			synchronized (cache) {
+				cache.clear();
+			}
+			dataFile.delete();
+			indexFile.delete();
+		}
+	}
+}
@@ -0,0 +1,448 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.poi.hssf.usermodel.HSSFRichTextString;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.LocaleUtil;
+
+/**
+ * This class is a read only implementation of POI's Cell interface that holds
+ * the value of a single cell parsed by a {@link StreamingSheet}. Value getters
+ * behave like their XSSFCell counterparts, including the
+ * IllegalStateException thrown when asking for a value of the wrong type, so
+ * row mapping code written against a fully loaded workbook keeps working.
+ * Every method that would modify the cell throws an
+ * UnsupportedOperationException.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class StreamingCell implements Cell {
+
+	/**
+	 * The row this cell belongs to.
+	 */
+	private final StreamingRow row;
+
+	/**
+	 * The column index of this cell.
+	 */
+	private final int columnIndex;
+
+	/**
+	 * The type of this cell. FORMULA if the cell holds a formula.
+	 */
+	private final CellType cellType;
+
+	/**
+	 * The type of the value stored in this cell, which is the cached result
+	 * type for formula cells.
+	 */
+	private final CellType valueType;
+
+	/**
+	 * The numeric value of this cell if its value type is NUMERIC.
+	 */
+	private final double numericValue;
+
+	/**
+	 * The string value of this cell if its value type is STRING, or the error
+	 * text if its value type is ERROR.
+	 */
+	private final String stringValue;
+
+	/**
+	 * The boolean value of this cell if its value type is BOOLEAN.
+	 */
+	private final boolean booleanValue;
+
+	/**
+	 * The formula text of this cell, null if the cell holds no formula.
+	 */
+	private final String formula;
+
+	/**
+	 * The number format index of the style applied to this cell.
+	 */
+	private final int formatIndex;
+
+	/**
+	 * The number format string of the style applied to this cell.
+	 */
+	private final String formatString;
+
+	/**
+	 * Creates a new StreamingCell.
+	 *
+	 * @param row
+	 *            The row the cell belongs to.
+	 * @param columnIndex
+	 *            The column index of the cell.
+	 * @param valueType
+	 *            The type of the value stored in the cell.
+	 * @param numericValue
+	 *            The numeric value if the value type is NUMERIC.
+	 * @param stringValue
+	 *            The string value if the value type is STRING or ERROR.
+	 * @param booleanValue
+	 *            The boolean value if the value type is BOOLEAN.
+	 * @param formula
+	 *            The formula text or null if the cell holds no formula.
+	 * @param formatIndex
+	 *            The number format index of the cell's style.
+	 * @param formatString
+	 *            The number format string of the cell's style.
+	 */
+	StreamingCell(StreamingRow row, int columnIndex, CellType valueType, double numericValue, String stringValue,
+			boolean booleanValue, String formula, int formatIndex, String formatString) {
+		this.row = row;
+		this.columnIndex = columnIndex;
+		this.valueType = valueType;
+		this.cellType = formula != null ? CellType.FORMULA : valueType;
+		this.numericValue = numericValue;
+		this.stringValue = stringValue;
+		this.booleanValue = booleanValue;
+		this.formula = formula;
+		this.formatIndex = formatIndex;
+		this.formatString = formatString;
+	}
+
+	@Override
+	public int getColumnIndex() {
+		return columnIndex;
+	}
+
+	@Override
+	public int getRowIndex() {
+		return row.getRowNum();
+	}
+
+	/**
+	 * Streaming cells are not attached to a Sheet object.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             Always.
+	 */
+	@Override
+	public Sheet getSheet() {
+		throw new UnsupportedOperationException("Streaming cells are not attached to a Sheet");
+	}
+
+	@Override
+	public Row getRow() {
+		return row;
+	}
+
+	@Override
+	@Deprecated
+	public int getCellType() {
+		return cellType.getCode();
+	}
+
+	@Override
+	public CellType getCellTypeEnum() {
+		return cellType;
+	}
+
+	@Override
+	@Deprecated
+	public int getCachedFormulaResultType() {
+		return getCachedFormulaResultTypeEnum().getCode();
+	}
+
+	@Override
+	public CellType getCachedFormulaResultTypeEnum() {
+		if (formula == null) {
+			throw new IllegalStateException("Only formula cells have cached results");
+		}
+		return valueType;
+	}
+
+	@Override
+	public String getCellFormula() {
+		if (formula == null) {
+			throw typeMismatch(CellType.FORMULA);
+		}
+		return formula;
+	}
+
+	@Override
+	public double getNumericCellValue() {
+		switch (valueType) {
+		case BLANK:
+			return 0.0;
+		case NUMERIC:
+			return numericValue;
+		default:
+			throw typeMismatch(CellType.NUMERIC);
+		}
+	}
+
+	@Override
+	public Date getDateCellValue() {
+		if (valueType == CellType.BLANK) {
+			return null;
+		}
+		return DateUtil.getJavaDate(getNumericCellValue(), row.isDate1904());
+	}
+
+	@Override
+	public RichTextString getRichStringCellValue() {
+		return new HSSFRichTextString(getStringCellValue());
+	}
+
+	@Override
+	public String getStringCellValue() {
+		switch (valueType) {
+		case BLANK:
+			return "";
+		case STRING:
+			return stringValue;
+		default:
+			throw typeMismatch(CellType.STRING);
+		}
+	}
+
+	@Override
+	public boolean getBooleanCellValue() {
+		switch (valueType) {
+		case BLANK:
+			return false;
+		case BOOLEAN:
+			return booleanValue;
+		default:
+			throw typeMismatch(CellType.BOOLEAN);
+		}
+	}
+
+	@Override
+	public byte getErrorCellValue() {
+		if (valueType != CellType.ERROR) {
+			throw typeMismatch(CellType.ERROR);
+		}
+		return FormulaError.forString(stringValue).getCode();
+	}
+
+	/**
+	 * Streaming cells do not carry a CellStyle object, use
+	 * {@link #getDataFormat()} and {@link #getDataFormatString()} instead.
+	 *
+	 * @return null
+	 */
+	@Override
+	public CellStyle getCellStyle() {
+		return null;
+	}
+
+	/**
+	 * @return The number format index of the style applied to this cell.
+	 */
+	public int getDataFormat() {
+		return formatIndex;
+	}
+
+	/**
+	 * @return The number format string of the style applied to this cell.
+	 */
+	public String getDataFormatString() {
+		return formatString;
+	}
+
+	/**
+	 * Whether or not this cell holds a number that is formatted as a date.
+	 * This is the streaming equivalent of DateUtil.isCellDateFormatted(Cell).
+	 *
+	 * @return True if the cell value is a date, false otherwise.
+	 */
+	public boolean isDateFormatted() {
+		return valueType == CellType.NUMERIC && DateUtil.isValidExcelDate(numericValue)
+				&& DateUtil.isADateFormat(formatIndex, formatString);
+	}
+
+	@Override
+	public CellAddress getAddress() {
+		return new CellAddress(getRowIndex(), columnIndex);
+	}
+
+	/**
+	 * Streaming reads do not load comments.
+	 *
+	 * @return null
+	 */
+	@Override
+	public Comment getCellComment() {
+		return null;
+	}
+
+	/**
+	 * Streaming reads do not load hyperlinks.
+	 *
+	 * @return null
+	 */
+	@Override
+	public Hyperlink getHyperlink() {
+		return null;
+	}
+
+	/**
+	 * Streaming reads do not load array formula ranges.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             Always.
+	 */
+	@Override
+	public CellRangeAddress getArrayFormulaRange() {
+		throw new UnsupportedOperationException("Streaming cells do not support array formulas");
+	}
+
+	@Override
+	public boolean isPartOfArrayFormulaGroup() {
+		return false;
+	}
+
+	@Override
+	@Deprecated
+	public void setCellType(int cellType) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellType(CellType cellType) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellValue(double value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellValue(Date value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellValue(Calendar value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellValue(RichTextString value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellValue(String value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellValue(boolean value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellFormula(String formula) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellErrorValue(byte value) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellStyle(CellStyle style) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setAsActiveCell() {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCellComment(Comment comment) {
+		throw readOnly();
+	}
+
+	@Override
+	public void removeCellComment() {
+		throw readOnly();
+	}
+
+	@Override
+	public void setHyperlink(Hyperlink link) {
+		throw readOnly();
+	}
+
+	@Override
+	public void removeHyperlink() {
+		throw readOnly();
+	}
+
+	/**
+	 * Returns a string representation of this cell the same way XSSFCell
+	 * does: numbers as doubles, dates as dd-MMM-yyyy, booleans as TRUE or
+	 * FALSE and formulas as their formula text.
+	 */
+	@Override
+	public String toString() {
+		switch (cellType) {
+		case BLANK:
+			return "";
+		case BOOLEAN:
+			return booleanValue ? "TRUE" : "FALSE";
+		case ERROR:
+			return stringValue;
+		case FORMULA:
+			return formula;
+		case NUMERIC:
+			if (isDateFormatted()) {
+				SimpleDateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy", LocaleUtil.getUserLocale());
+				sdf.setTimeZone(LocaleUtil.getUserTimeZone());
+				return sdf.format(getDateCellValue());
+			}
+			return String.valueOf(numericValue);
+		case STRING:
+			return stringValue;
+		default:
+			return "Unknown Cell Type: " + cellType;
+		}
+	}
+
+	/**
+	 * Creates the exception thrown when a value of the wrong type is requested
+	 * from this cell.
+	 *
+	 * @param requested
+	 *            The type of value that was requested.
+	 * @return The exception to throw.
+	 */
+	private IllegalStateException typeMismatch(CellType requested) {
+		return new IllegalStateException("Cannot get a " + requested + " value from a " + cellType + " "
+				+ (formula != null ? "formula " : "") + "cell");
+	}
+
+	/**
+	 * @return The exception thrown by every method that would modify this
+	 *         cell.
+	 */
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Streaming cells are read only");
+	}
+}
@@ -0,0 +1,73 @@
+package com.doughtnerd.pod.excel.streaming;
+
+/**
+ * This class holds the settings of a streaming read. Instances are immutable,
+ * every with method returns a copy holding the changed setting.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class StreamingOptions {
+
+	/**
+	 * The options used when none are given.
+	 */
+	private static final StreamingOptions DEFAULTS = new StreamingOptions(0);
+
+	/**
+	 * The number of shared strings kept in memory when the shared strings
+	 * table is spilled to disk, 0 to load the whole table into memory.
+	 */
+	private final int sharedStringsCacheSize;
+
+	private StreamingOptions(int sharedStringsCacheSize) {
+		this.sharedStringsCacheSize = sharedStringsCacheSize;
+	}
+
+	/**
+	 * @return The default options, which load the whole shared strings table
+	 *         into memory.
+	 */
+	public static StreamingOptions defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * Returns options that spill the shared strings table of xlsx files to a
+	 * temporary file instead of loading it into memory. Strings are then read
+	 * back from disk when a cell references them, with the most recently used
+	 * strings kept in memory. This keeps the heap flat for workbooks with
+	 * millions of unique strings, at the cost of a disk read for each cache
+	 * miss. xls files keep their strings in memory regardless.
+	 *
+	 * @param cacheSize
+	 *            The number of strings to keep in memory, must be positive.
+	 * @return The changed options.
+	 */
+	public StreamingOptions withSpilledSharedStrings(int cacheSize) {
+		if (cacheSize <= 0) {
+			throw new IllegalArgumentException("Shared strings cache size must be positive: " + cacheSize);
+		}
+		return new StreamingOptions(cacheSize);
+	}
+
+	/**
+	 * @return True if the shared strings table is spilled to disk.
+	 */
+	public boolean isSpillingSharedStrings() {
+		return sharedStringsCacheSize > 0;
+	}
+
+	/**
+	 * @return The number of shared strings kept in memory when the table is
+	 *         spilled, 0 if it is not.
+	 */
+	public int getSharedStringsCacheSize() {
+		return sharedStringsCacheSize;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamingOptions[sharedStringsCacheSize=" + sharedStringsCacheSize + "]";
+	}
+}
@@ -0,0 +1,595 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import com.doughtnerd.pod.excel.ExcelRowView;
+
+/**
+ * This class is a read only implementation of POI's Row interface that holds
+ * the cells of a single row parsed by a {@link StreamingSheet}. It can be
+ * handed to row mapping code written against a fully loaded workbook. Every
+ * method that would modify the row throws an UnsupportedOperationException.
+ * <p>
+ * Cell values are kept in arrays indexed by column and are read directly
+ * through the {@link ExcelRowView} accessors. A StreamingCell is only created
+ * when a cell is asked for through the Row interface. Cells holding a shared
+ * string keep only the string's index until their value is first read, so a
+ * row a {@link com.doughtnerd.pod.excel.RowFilter} rejects without reading
+ * those cells never looks the strings up. Such rows must therefore be read
+ * before their workbook is closed. The row returned by
+ * {@link StreamingSheet#nextRowView()} is reset and refilled for every row of
+ * the sheet.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class StreamingRow implements Row, ExcelRowView {
+
+	/**
+	 * The initial number of columns the value arrays have room for.
+	 */
+	private static final int INITIAL_COLUMNS = 16;
+
+	/**
+	 * The zero based index of this row within its sheet.
+	 */
+	private int rowNum;
+
+	/**
+	 * Whether dates in the workbook use the 1904 date system.
+	 */
+	private final boolean date1904;
+
+	/**
+	 * The value type of every cell indexed by column, null where a column has
+	 * no cell.
+	 */
+	private CellType[] valueTypes;
+
+	/**
+	 * The numeric values of the cells whose value type is NUMERIC.
+	 */
+	private double[] numericValues;
+
+	/**
+	 * The string values of the cells whose value type is STRING, or the error
+	 * text of the cells whose value type is ERROR. Null for a shared string
+	 * that has not been looked up yet.
+	 */
+	private String[] stringValues;
+
+	/**
+	 * The index of the shared string of every cell added by
+	 * {@link #addSharedStringCell}, -1 for other cells.
+	 */
+	private int[] sharedStringIndexes;
+
+	/**
+	 * The table the shared strings of this row are looked up in.
+	 */
+	private SharedStrings sharedStrings;
+
+	/**
+	 * The boolean values of the cells whose value type is BOOLEAN.
+	 */
+	private boolean[] booleanValues;
+
+	/**
+	 * The formula text of every formula cell, null for other cells.
+	 */
+	private String[] formulas;
+
+	/**
+	 * The number format index of every cell's style.
+	 */
+	private int[] formatIndexes;
+
+	/**
+	 * The number format string of every cell's style.
+	 */
+	private String[] formatStrings;
+
+	/**
+	 * The cells created so far through the Row interface, indexed by column.
+	 */
+	private StreamingCell[] cells;
+
+	/**
+	 * One more than the highest column index holding a cell, 0 if the row has
+	 * no cells.
+	 */
+	private int lastCellNum;
+
+	/**
+	 * The height of this row in twips, -1 if the file does not specify one.
+	 */
+	private short height;
+
+	/**
+	 * Whether this row is hidden.
+	 */
+	private boolean zeroHeight;
+
+	/**
+	 * Whether this row has a custom row style.
+	 */
+	private boolean formatted;
+
+	/**
+	 * The outline level of this row.
+	 */
+	private int outlineLevel;
+
+	/**
+	 * Creates a new, empty StreamingRow. The row must be {@link #reset(int)}
+	 * before cells are added to it.
+	 *
+	 * @param date1904
+	 *            Whether dates in the workbook use the 1904 date system.
+	 */
+	StreamingRow(boolean date1904) {
+		this.date1904 = date1904;
+		this.valueTypes = new CellType[INITIAL_COLUMNS];
+		this.numericValues = new double[INITIAL_COLUMNS];
+		this.stringValues = new String[INITIAL_COLUMNS];
+		this.sharedStringIndexes = new int[INITIAL_COLUMNS];
+		this.booleanValues = new boolean[INITIAL_COLUMNS];
+		this.formulas = new String[INITIAL_COLUMNS];
+		this.formatIndexes = new int[INITIAL_COLUMNS];
+		this.formatStrings = new String[INITIAL_COLUMNS];
+		this.cells = new StreamingCell[INITIAL_COLUMNS];
+		this.height = -1;
+	}
+
+	/**
+	 * Clears every cell and attribute of this row so it can hold the row with
+	 * the given index. The value arrays are kept, so a recycled row does not
+	 * allocate again once it has grown to the width of the sheet.
+	 *
+	 * @param rowNum
+	 *            The zero based index of the row.
+	 */
+	void reset(int rowNum) {
+		Arrays.fill(valueTypes, 0, lastCellNum, null);
+		Arrays.fill(stringValues, 0, lastCellNum, null);
+		Arrays.fill(formulas, 0, lastCellNum, null);
+		Arrays.fill(formatStrings, 0, lastCellNum, null);
+		Arrays.fill(cells, 0, lastCellNum, null);
+		this.rowNum = rowNum;
+		this.lastCellNum = 0;
+		this.height = -1;
+		this.zeroHeight = false;
+		this.formatted = false;
+		this.outlineLevel = 0;
+	}
+
+	/**
+	 * Adds a parsed cell to this row.
+	 *
+	 * @param columnIndex
+	 *            The column index of the cell.
+	 * @param valueType
+	 *            The type of the value stored in the cell.
+	 * @param numericValue
+	 *            The numeric value if the value type is NUMERIC.
+	 * @param stringValue
+	 *            The string value if the value type is STRING or ERROR.
+	 * @param booleanValue
+	 *            The boolean value if the value type is BOOLEAN.
+	 * @param formula
+	 *            The formula text or null if the cell holds no formula.
+	 * @param formatIndex
+	 *            The number format index of the cell's style.
+	 * @param formatString
+	 *            The number format string of the cell's style.
+	 */
+	void addCell(int columnIndex, CellType valueType, double numericValue, String stringValue, boolean booleanValue,
+			String formula, int formatIndex, String formatString) {
+		if (columnIndex >= valueTypes.length) {
+			grow(columnIndex + 1);
+		}
+		valueTypes[columnIndex] = valueType;
+		numericValues[columnIndex] = numericValue;
+		stringValues[columnIndex] = stringValue;
+		sharedStringIndexes[columnIndex] = -1;
+		booleanValues[columnIndex] = booleanValue;
+		formulas[columnIndex] = formula;
+		formatIndexes[columnIndex] = formatIndex;
+		formatStrings[columnIndex] = formatString;
+		cells[columnIndex] = null;
+		lastCellNum = Math.max(lastCellNum, columnIndex + 1);
+	}
+
+	/**
+	 * Adds a parsed cell holding a shared string. Only the index of the
+	 * string is stored; the string is looked up when the cell's value is
+	 * first read.
+	 *
+	 * @param columnIndex
+	 *            The column index of the cell.
+	 * @param sharedStrings
+	 *            The table the string is held in.
+	 * @param index
+	 *            The index of the string within the table.
+	 * @param formula
+	 *            The formula text or null if the cell holds no formula.
+	 * @param formatIndex
+	 *            The number format index of the cell's style.
+	 * @param formatString
+	 *            The number format string of the cell's style.
+	 */
+	void addSharedStringCell(int columnIndex, SharedStrings sharedStrings, int index, String formula,
+			int formatIndex, String formatString) {
+		addCell(columnIndex, CellType.STRING, 0.0, null, false, formula, formatIndex, formatString);
+		sharedStringIndexes[columnIndex] = index;
+		this.sharedStrings = sharedStrings;
+	}
+
+	/**
+	 * Returns the string value of the cell at the given column, looking a
+	 * shared string up the first time it is read.
+	 */
+	private String stringValue(int column) {
+		String value = stringValues[column];
+		if (value == null && sharedStringIndexes[column] >= 0) {
+			value = sharedStrings.getEntryAt(sharedStringIndexes[column]);
+			stringValues[column] = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Replaces the value of the cell at the given column, keeping the number
+	 * format of the cell's style. The cell no longer holds a formula.
+	 *
+	 * @param columnIndex
+	 *            The column index of the cell.
+	 * @param valueType
+	 *            The type of the new value.
+	 * @param numericValue
+	 *            The numeric value if the value type is NUMERIC.
+	 * @param stringValue
+	 *            The string value if the value type is STRING.
+	 * @param booleanValue
+	 *            The boolean value if the value type is BOOLEAN.
+	 */
+	void setValue(int columnIndex, CellType valueType, double numericValue, String stringValue,
+			boolean booleanValue) {
+		boolean exists = columnIndex < lastCellNum && valueTypes[columnIndex] != null;
+		int formatIndex = exists ? formatIndexes[columnIndex] : 0;
+		String formatString = exists ? formatStrings[columnIndex] : "General";
+		addCell(columnIndex, valueType, numericValue, stringValue, booleanValue, null, formatIndex, formatString);
+	}
+
+	/**
+	 * Grows the value arrays to hold at least the given number of columns.
+	 */
+	private void grow(int columns) {
+		int length = Math.max(valueTypes.length * 2, columns);
+		valueTypes = Arrays.copyOf(valueTypes, length);
+		numericValues = Arrays.copyOf(numericValues, length);
+		stringValues = Arrays.copyOf(stringValues, length);
+		sharedStringIndexes = Arrays.copyOf(sharedStringIndexes, length);
+		booleanValues = Arrays.copyOf(booleanValues, length);
+		formulas = Arrays.copyOf(formulas, length);
+		formatIndexes = Arrays.copyOf(formatIndexes, length);
+		formatStrings = Arrays.copyOf(formatStrings, length);
+		cells = Arrays.copyOf(cells, length);
+	}
+
+	/**
+	 * Sets the row level attributes parsed from the file.
+	 *
+	 * @param height
+	 *            The height of the row in twips or -1 if not specified.
+	 * @param zeroHeight
+	 *            Whether the row is hidden.
+	 * @param formatted
+	 *            Whether the row has a custom row style.
+	 * @param outlineLevel
+	 *            The outline level of the row.
+	 */
+	void setAttributes(short height, boolean zeroHeight, boolean formatted, int outlineLevel) {
+		this.height = height;
+		this.zeroHeight = zeroHeight;
+		this.formatted = formatted;
+		this.outlineLevel = outlineLevel;
+	}
+
+	/**
+	 * @return Whether dates in the workbook use the 1904 date system.
+	 */
+	boolean isDate1904() {
+		return date1904;
+	}
+
+	/**
+	 * Returns the value type of the cell at the given column.
+	 */
+	private CellType valueType(int column) {
+		CellType type = column >= 0 && column < lastCellNum ? valueTypes[column] : null;
+		return type != null ? type : CellType.BLANK;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return lastCellNum;
+	}
+
+	@Override
+	public CellType getCellType(int column) {
+		return valueType(column);
+	}
+
+	@Override
+	public double getDouble(int column) {
+		switch (valueType(column)) {
+		case BLANK:
+			return 0.0;
+		case NUMERIC:
+			return numericValues[column];
+		default:
+			throw typeMismatch(CellType.NUMERIC, column);
+		}
+	}
+
+	@Override
+	public String getString(int column) {
+		switch (valueType(column)) {
+		case BLANK:
+			return "";
+		case STRING:
+			return stringValue(column);
+		default:
+			throw typeMismatch(CellType.STRING, column);
+		}
+	}
+
+	@Override
+	public boolean getBoolean(int column) {
+		switch (valueType(column)) {
+		case BLANK:
+			return false;
+		case BOOLEAN:
+			return booleanValues[column];
+		default:
+			throw typeMismatch(CellType.BOOLEAN, column);
+		}
+	}
+
+	@Override
+	public Date getDate(int column) {
+		if (valueType(column) == CellType.BLANK) {
+			return null;
+		}
+		return DateUtil.getJavaDate(getDouble(column), date1904);
+	}
+
+	@Override
+	public String getFormula(int column) {
+		return column >= 0 && column < lastCellNum ? formulas[column] : null;
+	}
+
+	/**
+	 * @return This row.
+	 */
+	@Override
+	public Row asRow() {
+		return this;
+	}
+
+	/**
+	 * Creates the exception thrown when a value of the wrong type is requested
+	 * from a column.
+	 */
+	private IllegalStateException typeMismatch(CellType requested, int column) {
+		return new IllegalStateException("Cannot get a " + requested + " value from a " + valueTypes[column] + " "
+				+ (formulas[column] != null ? "formula " : "") + "cell");
+	}
+
+	@Override
+	public int getRowNum() {
+		return rowNum;
+	}
+
+	@Override
+	public Cell getCell(int cellnum) {
+		if (cellnum < 0 || cellnum >= lastCellNum || valueTypes[cellnum] == null) {
+			return null;
+		}
+		StreamingCell cell = cells[cellnum];
+		if (cell == null) {
+			cell = new StreamingCell(this, cellnum, valueTypes[cellnum], numericValues[cellnum],
+					stringValue(cellnum), booleanValues[cellnum], formulas[cellnum], formatIndexes[cellnum],
+					formatStrings[cellnum]);
+			cells[cellnum] = cell;
+		}
+		return cell;
+	}
+
+	@Override
+	public Cell getCell(int cellnum, MissingCellPolicy policy) {
+		Cell cell = getCell(cellnum);
+		switch (policy) {
+		case RETURN_BLANK_AS_NULL:
+			return cell != null && cell.getCellTypeEnum() == CellType.BLANK ? null : cell;
+		case CREATE_NULL_AS_BLANK:
+			return cell != null ? cell
+					: new StreamingCell(this, cellnum, CellType.BLANK, 0.0, null, false, null, 0, "General");
+		default:
+			return cell;
+		}
+	}
+
+	@Override
+	public short getFirstCellNum() {
+		for (int i = 0; i < lastCellNum; i++) {
+			if (valueTypes[i] != null) {
+				return (short) i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public short getLastCellNum() {
+		return lastCellNum == 0 ? -1 : (short) lastCellNum;
+	}
+
+	@Override
+	public int getPhysicalNumberOfCells() {
+		int count = 0;
+		for (int i = 0; i < lastCellNum; i++) {
+			if (valueTypes[i] != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public boolean getZeroHeight() {
+		return zeroHeight;
+	}
+
+	@Override
+	public short getHeight() {
+		return height;
+	}
+
+	@Override
+	public float getHeightInPoints() {
+		return height == -1 ? -1 : height / 20f;
+	}
+
+	@Override
+	public boolean isFormatted() {
+		return formatted;
+	}
+
+	/**
+	 * Streaming rows do not carry a CellStyle object.
+	 *
+	 * @return null
+	 */
+	@Override
+	public CellStyle getRowStyle() {
+		return null;
+	}
+
+	@Override
+	public int getOutlineLevel() {
+		return outlineLevel;
+	}
+
+	@Override
+	public Iterator<Cell> cellIterator() {
+		return new Iterator<Cell>() {
+
+			private int next = advance(0);
+
+			@Override
+			public boolean hasNext() {
+				return next < lastCellNum;
+			}
+
+			@Override
+			public Cell next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Cell cell = getCell(next);
+				next = advance(next + 1);
+				return cell;
+			}
+
+			private int advance(int from) {
+				while (from < lastCellNum && valueTypes[from] == null) {
+					from++;
+				}
+				return from;
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Cell> iterator() {
+		return cellIterator();
+	}
+
+	/**
+	 * Streaming rows are not attached to a Sheet object.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             Always.
+	 */
+	@Override
+	public Sheet getSheet() {
+		throw new UnsupportedOperationException("Streaming rows are not attached to a Sheet");
+	}
+
+	@Override
+	public Cell createCell(int column) {
+		throw readOnly();
+	}
+
+	@Override
+	@Deprecated
+	public Cell createCell(int column, int type) {
+		throw readOnly();
+	}
+
+	@Override
+	public Cell createCell(int column, CellType type) {
+		throw readOnly();
+	}
+
+	@Override
+	public void removeCell(Cell cell) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setRowNum(int rowNum) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setHeight(short height) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setZeroHeight(boolean zHeight) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setHeightInPoints(float height) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setRowStyle(CellStyle style) {
+		throw readOnly();
+	}
+
+	/**
+	 * @return The exception thrown by every method that would modify this
+	 *         row.
+	 */
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Streaming rows are read only");
+	}
+}
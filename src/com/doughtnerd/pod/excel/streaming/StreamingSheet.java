@@ -0,0 +1,220 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.Closeable;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.ss.usermodel.Row;
+
+import com.doughtnerd.pod.excel.ExcelRowView;
+import com.doughtnerd.pod.excel.RowFilter;
+
+/**
+ * This class represents a single sheet of a {@link StreamingWorkbook} whose
+ * rows are parsed one at a time, in the order they appear in the file.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public abstract class StreamingSheet implements Closeable {
+
+	/**
+	 * The name of this sheet.
+	 */
+	private final String sheetName;
+
+	/**
+	 * The index of this sheet within its workbook.
+	 */
+	private final int sheetIndex;
+
+	/**
+	 * Whether dates in the workbook use the 1904 date system.
+	 */
+	private final boolean date1904;
+
+	/**
+	 * The row recycled by {@link #nextRowView()}, created on first use.
+	 */
+	private StreamingRow view;
+
+	/**
+	 * The columns whose cells are parsed, null to parse every column.
+	 */
+	private BitSet projection;
+
+	/**
+	 * The filter rows must pass to be returned, null to return every row.
+	 */
+	private RowFilter filter;
+
+	/**
+	 * Creates a new StreamingSheet.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet.
+	 * @param sheetIndex
+	 *            The index of the sheet within its workbook.
+	 * @param date1904
+	 *            Whether dates in the workbook use the 1904 date system.
+	 */
+	StreamingSheet(String sheetName, int sheetIndex, boolean date1904) {
+		this.sheetName = sheetName;
+		this.sheetIndex = sheetIndex;
+		this.date1904 = date1904;
+	}
+
+	/**
+	 * Parses the next row of the sheet. Rows that have no entry in the file
+	 * are skipped, the same way they are skipped by Sheet.iterator().
+	 * <p>
+	 * Every call returns a new row that stays valid after further rows are
+	 * read. Use {@link #nextRowView()} when each row is done with before the
+	 * next one is read.
+	 * </p>
+	 *
+	 * @return The next row of the sheet or null if there are no rows left.
+	 * @throws com.doughtnerd.pod.excel.exceptions.ExcelReadException
+	 *             Thrown if the sheet data could not be read.
+	 */
+	public Row nextRow() {
+		return nextAccepted(new StreamingRow(date1904));
+	}
+
+	/**
+	 * Parses the next row of the sheet into the view returned by the previous
+	 * call, so reading a sheet this way allocates nothing per row or cell once
+	 * the view has grown to the width of the sheet. The returned view is only
+	 * valid until the next call. It shares its position with
+	 * {@link #nextRow()}.
+	 *
+	 * @return The next row of the sheet or null if there are no rows left.
+	 * @throws com.doughtnerd.pod.excel.exceptions.ExcelReadException
+	 *             Thrown if the sheet data could not be read.
+	 */
+	public ExcelRowView nextRowView() {
+		if (view == null) {
+			view = new StreamingRow(date1904);
+		}
+		return nextAccepted(view);
+	}
+
+	/**
+	 * Parses rows into the given row until one passes the row filter. Rows
+	 * that are rejected are overwritten by the next row parsed.
+	 *
+	 * @param row
+	 *            The row to fill.
+	 * @return The given row, or null if there are no rows left.
+	 */
+	private StreamingRow nextAccepted(StreamingRow row) {
+		StreamingRow next;
+		do {
+			next = readRow(row);
+		} while (next != null && filter != null && !filter.accept(next));
+		return next;
+	}
+
+	/**
+	 * Restricts parsing to the given columns. Cells of any other column are
+	 * skipped without decoding their values and read as if they did not
+	 * exist. Rows that have no cells in the projected columns are still
+	 * returned, as empty rows.
+	 *
+	 * @param columns
+	 *            The zero based indexes of the columns to parse, or null to
+	 *            parse every column.
+	 */
+	public void setColumnProjection(BitSet columns) {
+		this.projection = columns != null ? (BitSet) columns.clone() : null;
+	}
+
+	/**
+	 * Makes {@link #nextRow()} and {@link #nextRowView()} skip every row the
+	 * given filter rejects. Rejected rows are parsed into the row that is
+	 * being filled anyway, so they cost no allocation.
+	 *
+	 * @param filter
+	 *            The filter rows must pass, or null to return every row.
+	 */
+	public void setRowFilter(RowFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * @param column
+	 *            The zero based column index.
+	 * @return Whether the cells of the given column are parsed.
+	 */
+	boolean isProjected(int column) {
+		return projection == null || projection.get(column);
+	}
+
+	/**
+	 * Parses the next row of the sheet into the given row, resetting it
+	 * first.
+	 *
+	 * @param row
+	 *            The row to fill.
+	 * @return The given row, or null if there are no rows left.
+	 */
+	abstract StreamingRow readRow(StreamingRow row);
+
+	/**
+	 * Returns an estimate of how many rows this sheet holds, as recorded in
+	 * the file. The estimate is read ahead of the first row and does not
+	 * consume any rows.
+	 *
+	 * @return The estimated number of rows or -1 if the file does not record
+	 *         one.
+	 */
+	public long getEstimatedRowCount() {
+		return -1;
+	}
+
+	/**
+	 * Returns an iterator over the rows of this sheet that have not been read
+	 * yet. The iterator and {@link #nextRow()} share the same position.
+	 *
+	 * @return An iterator over the remaining rows of this sheet.
+	 */
+	public Iterator<Row> rowIterator() {
+		return new Iterator<Row>() {
+
+			private Row next;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null) {
+					next = nextRow();
+				}
+				return next != null;
+			}
+
+			@Override
+			public Row next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Row row = next;
+				next = null;
+				return row;
+			}
+		};
+	}
+
+	/**
+	 * @return The name of this sheet.
+	 */
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	/**
+	 * @return The index of this sheet within its workbook.
+	 */
+	public int getSheetIndex() {
+		return sheetIndex;
+	}
+}
@@ -0,0 +1,124 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * This class represents a workbook that is read one row at a time instead of
+ * being loaded into memory as a whole. Only the sheet names and the small
+ * workbook wide tables (shared strings, number formats) are kept in memory,
+ * sheet data is parsed on demand through {@link #openSheet(int)}.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public abstract class StreamingWorkbook implements Closeable {
+
+	/**
+	 * The names of the sheets in this workbook, in workbook order.
+	 */
+	protected List<String> sheetNames;
+
+	/**
+	 * Opens the given file for streaming reads.
+	 *
+	 * @param file
+	 *            The xls or xlsx file to open.
+	 * @return A StreamingWorkbook reading from the given file.
+	 * @throws IOException
+	 *             Thrown if the file could not be opened or is not a valid
+	 *             workbook.
+	 */
+	public static StreamingWorkbook open(File file) throws IOException {
+		return open(file, StreamingOptions.defaults());
+	}
+
+	/**
+	 * Opens the given file for streaming reads using the given options.
+	 *
+	 * @param file
+	 *            The xls or xlsx file to open.
+	 * @param options
+	 *            How the workbook is read.
+	 * @return A StreamingWorkbook reading from the given file.
+	 * @throws IOException
+	 *             Thrown if the file could not be opened or is not a valid
+	 *             workbook.
+	 */
+	public static StreamingWorkbook open(File file, StreamingOptions options) throws IOException {
+		String extension = FilenameUtils.getExtension(file.getAbsolutePath());
+		if (extension.equals("xlsx")) {
+			return new XlsxStreamingWorkbook(file, options);
+		} else if (extension.equals("xls")) {
+			return new XlsStreamingWorkbook(file);
+		}
+		throw new IllegalArgumentException("Streaming reads require a file of type: xls or xlsx");
+	}
+
+	/**
+	 * @return The names of the sheets this workbook contains, in workbook
+	 *         order.
+	 */
+	public List<String> getSheetNames() {
+		return Collections.unmodifiableList(sheetNames);
+	}
+
+	/**
+	 * @return The number of sheets in this workbook.
+	 */
+	public int getNumberOfSheets() {
+		return sheetNames.size();
+	}
+
+	/**
+	 * Returns the name of the sheet at the given index.
+	 *
+	 * @param sheetIndex
+	 *            The index of the sheet.
+	 * @return The name of the sheet.
+	 */
+	public String getSheetName(int sheetIndex) {
+		checkSheetIndex(sheetIndex);
+		return sheetNames.get(sheetIndex);
+	}
+
+	/**
+	 * Whether or not the sheet at the given index is hidden from the user.
+	 *
+	 * @param sheetIndex
+	 *            The index of the sheet.
+	 * @return True if the sheet is hidden or very hidden, false otherwise.
+	 */
+	public abstract boolean isSheetHidden(int sheetIndex);
+
+	/**
+	 * Opens the sheet at the given index so that its rows can be read in
+	 * order. The returned sheet must be closed once reading is finished.
+	 *
+	 * @param sheetIndex
+	 *            The index of the sheet to open.
+	 * @return The opened sheet.
+	 * @throws IOException
+	 *             Thrown if the sheet data could not be read.
+	 */
+	public abstract StreamingSheet openSheet(int sheetIndex) throws IOException;
+
+	/**
+	 * Throws an IllegalArgumentException if the given sheet index is out of
+	 * range, matching the behavior of POI's Workbook.getSheetAt(int).
+	 *
+	 * @param sheetIndex
+	 *            The index to check.
+	 */
+	protected void checkSheetIndex(int sheetIndex) {
+		if (sheetIndex < 0 || sheetIndex >= sheetNames.size()) {
+			throw new IllegalArgumentException(
+					"Sheet index (" + sheetIndex + ") is out of range (0.." + (sheetNames.size() - 1) + ")");
+		}
+	}
+}
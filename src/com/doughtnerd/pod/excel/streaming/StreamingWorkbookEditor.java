@@ -0,0 +1,358 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+import com.doughtnerd.pod.excel.ZipPackageWriter;
+
+/**
+ * This class edits the sheets of an xlsx file without loading the workbook.
+ * Each edited sheet is streamed row by row through an editor and written to a
+ * temporary file, so memory use does not grow with the size of the sheet.
+ * Saving assembles a new package from the edited sheets and copies every
+ * other part of the original file as it is stored, without inflating it.
+ * <p>
+ * Changed cells are written with inline strings, so the shared strings table
+ * is left as it was. If a changed cell held a formula, the calculation chain
+ * is dropped from the saved package and rebuilt by Excel on the next load.
+ * </p>
+ * <p>
+ * Different sheets may be edited concurrently: every edit reads its sheet
+ * and writes its own temporary file, sharing only the read only workbook
+ * tables. An editor must be closed to release the original file and delete
+ * its temporary files.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class StreamingWorkbookEditor implements Closeable {
+
+	/**
+	 * The factory used to create every XML reader for the edited parts.
+	 */
+	private static final XMLInputFactory XML_INPUT_FACTORY = XlsxStreamingWorkbook.createInputFactory();
+
+	/**
+	 * The factory used to create the writers of rewritten package parts.
+	 */
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	/**
+	 * The name of the content types part of every package.
+	 */
+	private static final String CONTENT_TYPES = "[Content_Types].xml";
+
+	private static final QName PART_NAME = new QName("PartName");
+
+	private static final QName TYPE = new QName("Type");
+
+	/**
+	 * The file being edited.
+	 */
+	private final File file;
+
+	/**
+	 * The workbook giving the sheet list and the workbook wide tables.
+	 */
+	private final XlsxStreamingWorkbook workbook;
+
+	/**
+	 * The file opened as a zip archive, for reading the parts as stored.
+	 */
+	private final ZipFile zip;
+
+	/**
+	 * The zip entry name of each sheet, resolved once so sheets can be edited
+	 * concurrently.
+	 */
+	private final List<String> sheetEntryNames = new ArrayList<>();
+
+	/**
+	 * The temporary file holding each edited sheet, keyed by zip entry name.
+	 */
+	private final Map<String, File> editedParts = new ConcurrentHashMap<>();
+
+	/**
+	 * Whether a changed cell held a formula, so the calculation chain is out
+	 * of date.
+	 */
+	private volatile boolean formulaRemoved;
+
+	/**
+	 * Opens the given xlsx file for editing.
+	 *
+	 * @param file
+	 *            The file to edit.
+	 * @throws IOException
+	 *             Thrown if the file could not be opened or is not a valid
+	 *             xlsx workbook.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the file is not an xlsx file.
+	 */
+	public StreamingWorkbookEditor(File file) throws IOException {
+		if (!FilenameUtils.getExtension(file.getAbsolutePath()).equals("xlsx")) {
+			throw new IllegalArgumentException("Streaming edits require a file of type: xlsx");
+		}
+		this.file = file;
+		this.workbook = new XlsxStreamingWorkbook(file, StreamingOptions.defaults());
+		try {
+			for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+				sheetEntryNames.add(workbook.getSheetPartName(i).substring(1));
+			}
+			this.zip = new ZipFile(file);
+		} catch (IOException | RuntimeException e) {
+			workbook.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The names of the sheets, in workbook order.
+	 */
+	public List<String> getSheetNames() {
+		return workbook.getSheetNames();
+	}
+
+	/**
+	 * @return The number of sheets in the workbook.
+	 */
+	public int getNumberOfSheets() {
+		return workbook.getNumberOfSheets();
+	}
+
+	/**
+	 * @param sheetIndex
+	 *            The index of the sheet.
+	 * @return The name of the sheet.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the index is out of range.
+	 */
+	public String getSheetName(int sheetIndex) {
+		return workbook.getSheetName(sheetIndex);
+	}
+
+	/**
+	 * Streams every row of a sheet through the given editor. The edited sheet
+	 * is kept in a temporary file until the workbook is saved. A sheet edited
+	 * again is read back with the changes of the earlier edits. Different
+	 * sheets may be edited on different threads at the same time, but one
+	 * sheet must not be edited twice at once.
+	 *
+	 * @param sheetIndex
+	 *            The index of the sheet to edit.
+	 * @param headers
+	 *            True if the first row is a header row, which is not edited.
+	 * @param editor
+	 *            Called with every row of the sheet.
+	 * @return The number of rows handed to the editor.
+	 * @throws IOException
+	 *             Thrown if the sheet could not be read or written.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the index is out of range.
+	 * @throws IllegalStateException
+	 *             Thrown if the editor changed the cell holding a shared
+	 *             formula that other cells depend on.
+	 */
+	public long editSheet(int sheetIndex, boolean headers, Consumer<EditableRow> editor) throws IOException {
+		workbook.checkSheetIndex(sheetIndex);
+		String entryName = sheetEntryNames.get(sheetIndex);
+		XlsxSheetRewriter rewriter = new XlsxSheetRewriter(workbook.getSharedStrings(), workbook.getStyles(),
+				workbook.isDate1904());
+		File edited = File.createTempFile("pod-sheet", ".xml");
+		try {
+			try (InputStream in = openPart(entryName);
+					OutputStream out = new BufferedOutputStream(new FileOutputStream(edited))) {
+				rewriter.rewrite(in, out, XML_INPUT_FACTORY, headers, editor);
+			} catch (XMLStreamException e) {
+				throw new IOException("Could not edit sheet: " + workbook.getSheetName(sheetIndex), e);
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			edited.delete();
+			throw e;
+		}
+		File previous = editedParts.put(entryName, edited);
+		if (previous != null) {
+			previous.delete();
+		}
+		if (rewriter.isFormulaRemoved()) {
+			formulaRemoved = true;
+		}
+		return rewriter.getRowsEdited();
+	}
+
+	/**
+	 * Opens a part as it is now: edited if it was edited, else as stored.
+	 */
+	private InputStream openPart(String entryName) throws IOException {
+		File edited = editedParts.get(entryName);
+		if (edited != null) {
+			return new BufferedInputStream(new FileInputStream(edited));
+		}
+		ZipEntry entry = zip.getEntry(entryName);
+		if (entry == null) {
+			throw new IOException("Missing package part: " + entryName);
+		}
+		return zip.getInputStream(entry);
+	}
+
+	/**
+	 * Saves the edited workbook to the given file. The package is written to
+	 * a temporary file next to the destination first and then moved over it,
+	 * so the file being edited may be saved over.
+	 *
+	 * @param destination
+	 *            The file to write.
+	 * @throws IOException
+	 *             Thrown if the workbook could not be written.
+	 */
+	public void save(File destination) throws IOException {
+		File directory = destination.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("pod", ".xlsx", directory);
+		try {
+			try (ZipPackageWriter out = new ZipPackageWriter(file,
+					new BufferedOutputStream(new FileOutputStream(temp)))) {
+				writePackage(out);
+			}
+			Files.move(temp.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Writes every part of the package in the order of the original file.
+	 * Parts that were neither edited nor rewritten are copied as stored.
+	 */
+	private void writePackage(ZipPackageWriter out) throws IOException {
+		List<String> dropped = new ArrayList<>();
+		String workbookRels = null;
+		if (formulaRemoved) {
+			for (String partName : workbook.getPartNames(XSSFRelation.CALC_CHAIN.getContentType())) {
+				dropped.add(partName.substring(1));
+			}
+			String workbookPart = workbook.getWorkbookPartName().substring(1);
+			int slash = workbookPart.lastIndexOf('/');
+			workbookRels = workbookPart.substring(0, slash + 1) + "_rels/" + workbookPart.substring(slash + 1)
+					+ ".rels";
+		}
+		for (String name : out.getSourceEntryNames()) {
+			boolean contentTypes = !dropped.isEmpty() && name.equals(CONTENT_TYPES);
+			boolean rels = !dropped.isEmpty() && name.equals(workbookRels);
+			if (dropped.contains(name)) {
+				continue;
+			} else if (!contentTypes && !rels && !editedParts.containsKey(name)) {
+				out.copyEntry(name);
+				continue;
+			}
+			out.putNextEntry(name);
+			try (InputStream in = openPart(name)) {
+				if (contentTypes) {
+					filterPart(in, out.getEntryStream(), start -> start.getName().getLocalPart().equals("Override")
+							&& dropped.contains(attribute(start, PART_NAME).substring(1)));
+				} else if (rels) {
+					filterPart(in, out.getEntryStream(), start -> start.getName().getLocalPart()
+							.equals("Relationship")
+							&& attribute(start, TYPE).equals(XSSFRelation.CALC_CHAIN.getRelation()));
+				} else {
+					IOUtils.copy(in, out.getEntryStream());
+				}
+			}
+			out.closeEntry();
+		}
+	}
+
+	/**
+	 * Copies an XML part, leaving out every element the filter matches along
+	 * with its content.
+	 */
+	private static void filterPart(InputStream in, OutputStream out, Predicate<StartElement> filter)
+			throws IOException {
+		try {
+			XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(in);
+			XMLEventWriter writer = XML_OUTPUT_FACTORY.createXMLEventWriter(out, "UTF-8");
+			int skipping = 0;
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (skipping > 0) {
+					skipping += event.isStartElement() ? 1 : event.isEndElement() ? -1 : 0;
+				} else if (event.isStartElement() && filter.test(event.asStartElement())) {
+					skipping = 1;
+				} else {
+					writer.add(event);
+				}
+			}
+			writer.flush();
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not rewrite package part", e);
+		}
+	}
+
+	/**
+	 * @return The value of an unqualified attribute, an empty string if it is
+	 *         not set.
+	 */
+	private static String attribute(StartElement start, QName name) {
+		Attribute attribute = start.getAttributeByName(name);
+		return attribute != null ? attribute.getValue() : "";
+	}
+
+	/**
+	 * @return The file being edited.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Releases the original file and deletes the edited sheets. Edits not
+	 * saved by then are lost.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			zip.close();
+		} finally {
+			try {
+				workbook.close();
+			} finally {
+				for (File edited : editedParts.values()) {
+					edited.delete();
+				}
+				editedParts.clear();
+			}
+		}
+	}
+}
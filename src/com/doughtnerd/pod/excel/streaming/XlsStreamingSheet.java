@@ -0,0 +1,436 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.hssf.record.ArrayRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SharedFormulaRecord;
+import org.apache.poi.hssf.record.SharedValueRecordBase;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.formula.ptg.ExpPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.RecordFormatException;
+
+import com.doughtnerd.pod.excel.exceptions.ExcelReadException;
+
+/**
+ * Streaming implementation of {@link StreamingSheet} for a sheet of an xls
+ * file. The BIFF8 records of the sheet are pulled one at a time, starting at
+ * the sheet's BOF record, and the cells of each row are collected until a
+ * record of the next row is read. That record is held back until the next
+ * row is asked for.
+ * <p>
+ * Rows that have a ROW record but no cells are returned as empty rows, the
+ * same way HSSFSheet.iterator() returns them.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsStreamingSheet extends StreamingSheet {
+
+	/**
+	 * The file system the sheet is read from, owned by this sheet.
+	 */
+	private final NPOIFSFileSystem fs;
+
+	/**
+	 * The stream of the workbook entry, positioned within this sheet.
+	 */
+	private final InputStream in;
+
+	/**
+	 * The record stream over {@link #in}.
+	 */
+	private final RecordInputStream records;
+
+	/**
+	 * The workbook the sheet belongs to.
+	 */
+	private final XlsStreamingWorkbook workbook;
+
+	/**
+	 * The shared strings of the workbook.
+	 */
+	private final SharedStrings sharedStrings;
+
+	/**
+	 * The ROW records read that have not been turned into rows yet, keyed by
+	 * row index.
+	 */
+	private final TreeMap<Integer, RowRecord> rowRecords;
+
+	/**
+	 * The shared and array formulas of the sheet, keyed by their first cell.
+	 */
+	private final Map<Long, SharedValueRecordBase> sharedValues;
+
+	/**
+	 * A record that was read ahead and has not been handled yet.
+	 */
+	private Record pushedBack;
+
+	/**
+	 * Whether the sheet's EOF record has been reached.
+	 */
+	private boolean finished;
+
+	/**
+	 * The row count recorded by the DIMENSIONS record, -1 if not read yet or
+	 * not present.
+	 */
+	private long estimatedRowCount;
+
+	/**
+	 * Whether the DIMENSIONS record has been looked for already.
+	 */
+	private boolean dimensionRead;
+
+	/**
+	 * Creates a new XlsStreamingSheet.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet.
+	 * @param sheetIndex
+	 *            The index of the sheet within its workbook.
+	 * @param fs
+	 *            The file system the sheet is read from.
+	 * @param in
+	 *            The stream of the workbook entry, positioned at the sheet's
+	 *            BOF record.
+	 * @param workbook
+	 *            The workbook the sheet belongs to.
+	 */
+	XlsStreamingSheet(String sheetName, int sheetIndex, NPOIFSFileSystem fs, InputStream in,
+			XlsStreamingWorkbook workbook) {
+		super(sheetName, sheetIndex, workbook.isDate1904());
+		this.fs = fs;
+		this.in = in;
+		this.records = new RecordInputStream(in);
+		this.workbook = workbook;
+		this.sharedStrings = workbook::getSharedString;
+		this.rowRecords = new TreeMap<>();
+		this.sharedValues = new HashMap<>();
+		this.estimatedRowCount = -1;
+	}
+
+	/**
+	 * Reads the records ahead of the first row, picking up the DIMENSIONS
+	 * record if the file has one.
+	 */
+	@Override
+	public long getEstimatedRowCount() {
+		if (dimensionRead) {
+			return estimatedRowCount;
+		}
+		dimensionRead = true;
+		while (!finished) {
+			Record record = readRecord();
+			if (record instanceof DimensionsRecord) {
+				DimensionsRecord dimensions = (DimensionsRecord) record;
+				estimatedRowCount = dimensions.getLastRow() - dimensions.getFirstRow();
+				break;
+			}
+			if (record instanceof RowRecord || record instanceof EOFRecord || rowOf(record) >= 0) {
+				pushedBack = record;
+				break;
+			}
+		}
+		return estimatedRowCount;
+	}
+
+	@Override
+	StreamingRow readRow(StreamingRow row) {
+		dimensionRead = true;
+		boolean started = false;
+		while (!finished) {
+			Record record = readRecord();
+			if (record instanceof EOFRecord) {
+				if (started) {
+					pushedBack = record;
+					return row;
+				}
+				Map.Entry<Integer, RowRecord> empty = rowRecords.pollFirstEntry();
+				if (empty != null) {
+					pushedBack = record;
+					return startRow(row, empty.getKey(), empty.getValue());
+				}
+				finished = true;
+			} else if (record instanceof RowRecord) {
+				RowRecord rowRecord = (RowRecord) record;
+				rowRecords.put(rowRecord.getRowNumber(), rowRecord);
+			} else if (record instanceof SharedFormulaRecord || record instanceof ArrayRecord) {
+				SharedValueRecordBase shared = (SharedValueRecordBase) record;
+				sharedValues.put(cellKey(shared.getFirstRow(), shared.getFirstColumn()), shared);
+			} else {
+				int rowNum = rowOf(record);
+				if (rowNum < 0) {
+					continue;
+				}
+				if (started && rowNum != row.getRowNum()) {
+					pushedBack = record;
+					return row;
+				}
+				if (!started) {
+					Map.Entry<Integer, RowRecord> empty = rowRecords.firstEntry();
+					if (empty != null && empty.getKey() < rowNum) {
+						rowRecords.remove(empty.getKey());
+						pushedBack = record;
+						return startRow(row, empty.getKey(), empty.getValue());
+					}
+					startRow(row, rowNum, rowRecords.remove(rowNum));
+					started = true;
+				}
+				addCells(row, record);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the index of the row a cell record belongs to.
+	 *
+	 * @return The row index, or -1 if the record is not a cell record.
+	 */
+	private static int rowOf(Record record) {
+		if (record instanceof CellValueRecordInterface) {
+			return ((CellValueRecordInterface) record).getRow();
+		} else if (record instanceof MulRKRecord) {
+			return ((MulRKRecord) record).getRow();
+		} else if (record instanceof MulBlankRecord) {
+			return ((MulBlankRecord) record).getRow();
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the next record of the sheet.
+	 *
+	 * @return The next record, or an EOFRecord if the stream ended early.
+	 */
+	private Record readRecord() {
+		if (pushedBack != null) {
+			Record record = pushedBack;
+			pushedBack = null;
+			return record;
+		}
+		try {
+			if (!records.hasNextRecord()) {
+				return EOFRecord.instance;
+			}
+			records.nextRecord();
+			return RecordFactory.createSingleRecord(records);
+		} catch (RecordFormatException e) {
+			throw new ExcelReadException("Could not parse sheet: " + getSheetName(), e);
+		}
+	}
+
+	/**
+	 * Adds the cells of a single cell record to the row, skipping the cells
+	 * outside the column projection.
+	 */
+	private void addCells(StreamingRow row, Record record) {
+		if (record instanceof CellValueRecordInterface
+				&& !isProjected(((CellValueRecordInterface) record).getColumn())) {
+			return;
+		}
+		if (record instanceof NumberRecord) {
+			NumberRecord number = (NumberRecord) record;
+			addCell(row, number, CellType.NUMERIC, number.getValue(), null, false, null);
+		} else if (record instanceof RKRecord) {
+			RKRecord rk = (RKRecord) record;
+			addCell(row, rk, CellType.NUMERIC, rk.getRKNumber(), null, false, null);
+		} else if (record instanceof MulRKRecord) {
+			MulRKRecord mulRk = (MulRKRecord) record;
+			for (int i = 0; i < mulRk.getNumColumns(); i++) {
+				if (!isProjected(mulRk.getFirstColumn() + i)) {
+					continue;
+				}
+				int xf = mulRk.getXFAt(i);
+				row.addCell(mulRk.getFirstColumn() + i, CellType.NUMERIC, mulRk.getRKNumberAt(i), null, false, null,
+						workbook.getFormatIndex(xf), workbook.getFormatString(xf));
+			}
+		} else if (record instanceof LabelSSTRecord) {
+			LabelSSTRecord label = (LabelSSTRecord) record;
+			int xf = label.getXFIndex();
+			row.addSharedStringCell(label.getColumn(), sharedStrings, label.getSSTIndex(), null,
+					workbook.getFormatIndex(xf), workbook.getFormatString(xf));
+		} else if (record instanceof LabelRecord) {
+			LabelRecord label = (LabelRecord) record;
+			addCell(row, label, CellType.STRING, 0.0, label.getValue(), false, null);
+		} else if (record instanceof BoolErrRecord) {
+			BoolErrRecord boolErr = (BoolErrRecord) record;
+			if (boolErr.isBoolean()) {
+				addCell(row, boolErr, CellType.BOOLEAN, 0.0, null, boolErr.getBooleanValue(), null);
+			} else {
+				addCell(row, boolErr, CellType.ERROR, 0.0, errorText(boolErr.getErrorValue()), false, null);
+			}
+		} else if (record instanceof BlankRecord) {
+			addCell(row, (BlankRecord) record, CellType.BLANK, 0.0, null, false, null);
+		} else if (record instanceof MulBlankRecord) {
+			MulBlankRecord mulBlank = (MulBlankRecord) record;
+			for (int i = 0; i < mulBlank.getNumColumns(); i++) {
+				if (!isProjected(mulBlank.getFirstColumn() + i)) {
+					continue;
+				}
+				int xf = mulBlank.getXFAt(i);
+				row.addCell(mulBlank.getFirstColumn() + i, CellType.BLANK, 0.0, null, false, null,
+						workbook.getFormatIndex(xf), workbook.getFormatString(xf));
+			}
+		} else if (record instanceof FormulaRecord) {
+			addFormulaCell(row, (FormulaRecord) record);
+		}
+	}
+
+	/**
+	 * Adds a formula cell, reading its cached string result and its shared
+	 * formula from the records that follow it when needed.
+	 */
+	private void addFormulaCell(StreamingRow row, FormulaRecord formula) {
+		CellType cachedType = cachedResultType(formula.getCachedResultType());
+		String text = null;
+		boolean bool = false;
+		if (cachedType == CellType.STRING) {
+			Record next = readRecord();
+			if (next instanceof StringRecord) {
+				text = ((StringRecord) next).getString();
+			} else {
+				text = "";
+				pushedBack = next;
+			}
+		} else if (cachedType == CellType.BOOLEAN) {
+			bool = formula.getCachedBooleanValue();
+		} else if (cachedType == CellType.ERROR) {
+			text = errorText(formula.getCachedErrorValue());
+		}
+		addCell(row, formula, cachedType, formula.getValue(), text, bool, formulaText(formula));
+	}
+
+	/**
+	 * Renders the formula of a formula cell, resolving shared and array
+	 * formulas.
+	 */
+	private String formulaText(FormulaRecord formula) {
+		Ptg[] ptgs = formula.getParsedExpression();
+		if (ptgs.length > 0 && ptgs[0] instanceof ExpPtg) {
+			ExpPtg exp = (ExpPtg) ptgs[0];
+			long key = cellKey(exp.getRow(), exp.getColumn());
+			SharedValueRecordBase shared = sharedValues.get(key);
+			if (shared == null && pushedBack == null) {
+				Record next = readRecord();
+				if (next instanceof SharedFormulaRecord || next instanceof ArrayRecord) {
+					shared = (SharedValueRecordBase) next;
+					sharedValues.put(key, shared);
+				} else {
+					pushedBack = next;
+				}
+			}
+			if (shared instanceof SharedFormulaRecord) {
+				ptgs = ((SharedFormulaRecord) shared).getFormulaTokens(formula);
+			} else if (shared instanceof ArrayRecord) {
+				ptgs = ((ArrayRecord) shared).getFormulaTokens();
+			} else {
+				return "";
+			}
+		}
+		try {
+			return workbook.renderFormula(ptgs);
+		} catch (RuntimeException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * Adds a single cell to the row.
+	 */
+	private void addCell(StreamingRow row, CellValueRecordInterface record, CellType valueType, double number,
+			String text, boolean bool, String formula) {
+		int xf = record.getXFIndex();
+		row.addCell(record.getColumn(), valueType, number, text, bool, formula, workbook.getFormatIndex(xf),
+				workbook.getFormatString(xf));
+	}
+
+	/**
+	 * Resets the row to the given index, applying the attributes of its ROW
+	 * record if there is one.
+	 */
+	private static StreamingRow startRow(StreamingRow row, int rowNum, RowRecord rowRecord) {
+		row.reset(rowNum);
+		if (rowRecord != null) {
+			row.setAttributes(rowRecord.getHeight(), rowRecord.getZeroHeight(), rowRecord.getFormatted(),
+					rowRecord.getOutlineLevel());
+		}
+		return row;
+	}
+
+	/**
+	 * Maps the cached result type of a FORMULA record to a cell type. The
+	 * record already translates the raw BIFF8 value, which uses 0 for
+	 * strings, 1 for booleans and 2 for errors, into POI cell type codes, so
+	 * the codes are compared with those of the cell types. A formula never
+	 * caches a formula or blank result, so any other code is read as a
+	 * number the way the record reads its value. The codes are read through
+	 * getCode, which this POI release deprecates, since the record offers
+	 * the type only as a code.
+	 */
+	@SuppressWarnings("deprecation")
+	private static CellType cachedResultType(int code) {
+		if (code == CellType.STRING.getCode()) {
+			return CellType.STRING;
+		} else if (code == CellType.BOOLEAN.getCode()) {
+			return CellType.BOOLEAN;
+		} else if (code == CellType.ERROR.getCode()) {
+			return CellType.ERROR;
+		}
+		return CellType.NUMERIC;
+	}
+
+	/**
+	 * Returns the text Excel shows for the given error code.
+	 */
+	private static String errorText(int code) {
+		try {
+			return FormulaError.forInt(code).getString();
+		} catch (IllegalArgumentException e) {
+			return "#N/A";
+		}
+	}
+
+	/**
+	 * Combines a row and column index into a single map key.
+	 */
+	private static long cellKey(int row, int column) {
+		return ((long) row << 16) | column;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			in.close();
+		} finally {
+			fs.close();
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder;
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.ExtendedFormatRecord;
+import org.apache.poi.hssf.record.ExternSheetRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.FormatRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+
+/**
+ * Streaming implementation of {@link StreamingWorkbook} for xls files. The
+ * BIFF8 records of the workbook globals are read once to collect the sheet
+ * list, shared strings and number formats. Each sheet is then read record by
+ * record from its own BOF offset, so no HSSFWorkbook is ever built.
+ * <p>
+ * Every opened sheet reads through its own file system handle, so sheets can
+ * be read from different threads at the same time.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsStreamingWorkbook extends StreamingWorkbook {
+
+	/**
+	 * The names the workbook stream can have in an xls file.
+	 */
+	private static final String[] WORKBOOK_ENTRY_NAMES = { "Workbook", "WORKBOOK", "BOOK" };
+
+	/**
+	 * The file being read.
+	 */
+	private final File file;
+
+	/**
+	 * The name of the workbook stream within the file.
+	 */
+	private final String entryName;
+
+	/**
+	 * The BoundSheet records of the workbook, in workbook order.
+	 */
+	private final List<BoundSheetRecord> boundSheets;
+
+	/**
+	 * The ExternSheet records of the workbook, needed to render formulas
+	 * referring to other sheets.
+	 */
+	private final List<ExternSheetRecord> externSheets;
+
+	/**
+	 * The number format index of every extended format, indexed by XF index.
+	 */
+	private final List<Short> xfFormats;
+
+	/**
+	 * The number format strings defined in the workbook, keyed by index.
+	 */
+	private final Map<Integer, String> customFormats;
+
+	/**
+	 * The shared strings of the workbook.
+	 */
+	private SSTRecord sst;
+
+	/**
+	 * Whether dates in this workbook use the 1904 date system.
+	 */
+	private boolean date1904;
+
+	/**
+	 * Resolves sheet references while rendering formulas, created when the
+	 * first formula is read.
+	 */
+	private FormulaRenderingWorkbook formulaWorkbook;
+
+	/**
+	 * Opens the given xls file for streaming reads.
+	 *
+	 * @param file
+	 *            The file to open.
+	 * @throws IOException
+	 *             Thrown if the file could not be opened or is not a valid
+	 *             BIFF8 workbook.
+	 */
+	XlsStreamingWorkbook(File file) throws IOException {
+		this.file = file;
+		this.sheetNames = new ArrayList<>();
+		this.boundSheets = new ArrayList<>();
+		this.externSheets = new ArrayList<>();
+		this.xfFormats = new ArrayList<>();
+		this.customFormats = new HashMap<>();
+		NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+		try {
+			this.entryName = findWorkbookEntry(fs.getRoot(), file);
+			InputStream in = fs.getRoot().createDocumentInputStream(entryName);
+			try {
+				readGlobals(new RecordInputStream(in));
+			} finally {
+				in.close();
+			}
+		} finally {
+			fs.close();
+		}
+		for (BoundSheetRecord boundSheet : boundSheets) {
+			sheetNames.add(boundSheet.getSheetname());
+		}
+	}
+
+	/**
+	 * Finds the name of the workbook stream, rejecting files written by
+	 * versions of Excel older than 97.
+	 */
+	private static String findWorkbookEntry(DirectoryNode root, File file) throws IOException {
+		for (String name : WORKBOOK_ENTRY_NAMES) {
+			if (root.hasEntry(name)) {
+				if (name.equals("BOOK")) {
+					throw new IOException("Excel 5.0/95 files are not supported: " + file);
+				}
+				return name;
+			}
+		}
+		throw new IOException("File does not contain an xls workbook: " + file);
+	}
+
+	/**
+	 * Reads the workbook globals, up to their EOF record.
+	 */
+	private void readGlobals(RecordInputStream rs) throws IOException {
+		while (rs.hasNextRecord()) {
+			rs.nextRecord();
+			Record record = RecordFactory.createSingleRecord(rs);
+			if (record instanceof EOFRecord) {
+				break;
+			} else if (record instanceof BoundSheetRecord) {
+				boundSheets.add((BoundSheetRecord) record);
+			} else if (record instanceof SSTRecord) {
+				sst = (SSTRecord) record;
+			} else if (record instanceof ExtendedFormatRecord) {
+				xfFormats.add(((ExtendedFormatRecord) record).getFormatIndex());
+			} else if (record instanceof FormatRecord) {
+				FormatRecord format = (FormatRecord) record;
+				customFormats.put(format.getIndexCode(), format.getFormatString());
+			} else if (record instanceof DateWindow1904Record) {
+				date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+			} else if (record instanceof ExternSheetRecord) {
+				externSheets.add((ExternSheetRecord) record);
+			} else if (record instanceof FilePassRecord) {
+				throw new IOException("Encrypted xls files cannot be read in STREAMING mode: " + file);
+			}
+		}
+	}
+
+	@Override
+	public boolean isSheetHidden(int sheetIndex) {
+		checkSheetIndex(sheetIndex);
+		BoundSheetRecord boundSheet = boundSheets.get(sheetIndex);
+		return boundSheet.isHidden() || boundSheet.isVeryHidden();
+	}
+
+	@Override
+	public StreamingSheet openSheet(int sheetIndex) throws IOException {
+		checkSheetIndex(sheetIndex);
+		NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+		try {
+			InputStream in = fs.getRoot().createDocumentInputStream(entryName);
+			long offset = boundSheets.get(sheetIndex).getPositionOfBof();
+			while (offset > 0) {
+				long skipped = in.skip(offset);
+				if (skipped <= 0) {
+					throw new IOException("Could not find sheet: " + getSheetName(sheetIndex));
+				}
+				offset -= skipped;
+			}
+			return new XlsStreamingSheet(getSheetName(sheetIndex), sheetIndex, fs, in, this);
+		} catch (IOException | RuntimeException e) {
+			fs.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the shared string at the given index.
+	 *
+	 * @param index
+	 *            The index of the string.
+	 * @return The string.
+	 */
+	String getSharedString(int index) {
+		return sst.getString(index).getString();
+	}
+
+	/**
+	 * Returns the number format index of the given extended format.
+	 *
+	 * @param xfIndex
+	 *            The index of the extended format.
+	 * @return The number format index, 0 (General) if the XF is unknown.
+	 */
+	int getFormatIndex(int xfIndex) {
+		return xfIndex >= 0 && xfIndex < xfFormats.size() ? xfFormats.get(xfIndex) : 0;
+	}
+
+	/**
+	 * Returns the number format string of the given extended format.
+	 *
+	 * @param xfIndex
+	 *            The index of the extended format.
+	 * @return The format string, General if the XF is unknown.
+	 */
+	String getFormatString(int xfIndex) {
+		int formatIndex = getFormatIndex(xfIndex);
+		String format = customFormats.get(formatIndex);
+		if (format == null) {
+			format = BuiltinFormats.getBuiltinFormat(formatIndex);
+		}
+		return format != null ? format : "General";
+	}
+
+	/**
+	 * @return Whether dates in this workbook use the 1904 date system.
+	 */
+	boolean isDate1904() {
+		return date1904;
+	}
+
+	/**
+	 * Renders the given formula tokens as formula text.
+	 *
+	 * @param ptgs
+	 *            The parsed formula.
+	 * @return The formula text.
+	 */
+	synchronized String renderFormula(Ptg[] ptgs) {
+		if (formulaWorkbook == null) {
+			formulaWorkbook = new StubRenderingWorkbook(EventWorkbookBuilder.createStubWorkbook(
+					externSheets.toArray(new ExternSheetRecord[externSheets.size()]),
+					boundSheets.toArray(new BoundSheetRecord[boundSheets.size()]), sst));
+		}
+		return FormulaRenderer.toFormulaString(formulaWorkbook, ptgs);
+	}
+
+	/**
+	 * Renders formulas against the stub InternalWorkbook built from the
+	 * workbook globals. Unlike HSSFEvaluationWorkbook it does not need the
+	 * sheets themselves to be loaded to name the sheets a formula refers to.
+	 */
+	private static final class StubRenderingWorkbook implements FormulaRenderingWorkbook {
+
+		private final InternalWorkbook book;
+
+		StubRenderingWorkbook(InternalWorkbook book) {
+			this.book = book;
+		}
+
+		@Override
+		public ExternalSheet getExternalSheet(int externSheetIndex) {
+			return book.getExternalSheet(externSheetIndex);
+		}
+
+		@Override
+		public String getSheetFirstNameByExternSheet(int externSheetIndex) {
+			return book.findSheetFirstNameFromExternSheet(externSheetIndex);
+		}
+
+		@Override
+		public String getSheetLastNameByExternSheet(int externSheetIndex) {
+			return book.findSheetLastNameFromExternSheet(externSheetIndex);
+		}
+
+		@Override
+		public String resolveNameXText(NameXPtg ptg) {
+			return book.resolveNameXText(ptg.getSheetRefIndex(), ptg.getNameIndex());
+		}
+
+		@Override
+		public String getNameText(NamePtg ptg) {
+			return book.getNameRecord(ptg.getIndex()).getNameText();
+		}
+	}
+
+	/**
+	 * Nothing is held open between sheets, every sheet closes its own file
+	 * system handle.
+	 */
+	@Override
+	public void close() throws IOException {
+	}
+}
@@ -0,0 +1,515 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Rewrites the XML of one worksheet part, handing every row to an editor on
+ * the way through. Everything outside the rows, every row the editor leaves
+ * unchanged and every unchanged cell of a changed row is copied as the events
+ * it was read as. Only the changed cells are written anew, so styles, shared
+ * formulas and attributes this class knows nothing about survive the edit.
+ * Only one row is held in memory at a time.
+ * <p>
+ * The cell holding a shared formula's master, the f element with t="shared"
+ * and a ref, cannot be changed, since every other cell of the range reads
+ * its formula from the master. Changing it throws an IllegalStateException
+ * before anything of the row is written.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsxSheetRewriter {
+
+	/**
+	 * The factory creating the elements of changed cells.
+	 */
+	private static final XMLEventFactory EVENTS = XMLEventFactory.newInstance();
+
+	/**
+	 * The factory creating the writers of edited parts.
+	 */
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	/**
+	 * Keeps the leading and trailing spaces of a text element.
+	 */
+	private static final Attribute PRESERVE_SPACE = EVENTS.createAttribute(XMLConstants.XML_NS_PREFIX,
+			XMLConstants.XML_NS_URI, "space", "preserve");
+
+	/**
+	 * The namespace declarations of written elements, which have none of
+	 * their own.
+	 */
+	private static final Iterator<Namespace> NO_NAMESPACES = Collections.emptyIterator();
+
+	private static final QName R = new QName("r");
+
+	private static final QName S = new QName("s");
+
+	private static final QName T = new QName("t");
+
+	private static final QName SPANS = new QName("spans");
+
+	private static final QName HT = new QName("ht");
+
+	private static final QName HIDDEN = new QName("hidden");
+
+	private static final QName CUSTOM_FORMAT = new QName("customFormat");
+
+	private static final QName OUTLINE_LEVEL = new QName("outlineLevel");
+
+	private static final QName REF = new QName("ref");
+
+	/**
+	 * The shared strings of the workbook.
+	 */
+	private final SharedStrings sharedStrings;
+
+	/**
+	 * The cell style number formats of the workbook.
+	 */
+	private final XlsxStyles styles;
+
+	/**
+	 * The values of the current row.
+	 */
+	private final StreamingRow row;
+
+	/**
+	 * The current row as handed to the editor.
+	 */
+	private final EditableRow editable;
+
+	/**
+	 * The cells of the current row, in the order they were read.
+	 */
+	private final List<RawCell> cells = new ArrayList<>();
+
+	/**
+	 * The events of the current row that are not part of a cell, such as an
+	 * extension list.
+	 */
+	private final List<XMLEvent> trailing = new ArrayList<>();
+
+	/**
+	 * The index of the previous row, used for rows that do not state their
+	 * own index.
+	 */
+	private int lastRowNum = -1;
+
+	/**
+	 * The number of rows handed to the editor.
+	 */
+	private long rowsEdited;
+
+	/**
+	 * The number of rows the editor changed.
+	 */
+	private long rowsChanged;
+
+	/**
+	 * Whether a changed cell held a formula before it was changed.
+	 */
+	private boolean formulaRemoved;
+
+	/**
+	 * Creates a new rewriter for one sheet.
+	 *
+	 * @param sharedStrings
+	 *            The shared strings of the workbook.
+	 * @param styles
+	 *            The cell style number formats of the workbook.
+	 * @param date1904
+	 *            Whether dates in the workbook use the 1904 date system.
+	 */
+	XlsxSheetRewriter(SharedStrings sharedStrings, XlsxStyles styles, boolean date1904) {
+		this.sharedStrings = sharedStrings;
+		this.styles = styles;
+		this.row = new StreamingRow(date1904);
+		this.editable = new EditableRow(row);
+	}
+
+	/**
+	 * Copies the sheet XML from in to out, passing every row except a header
+	 * row through the editor.
+	 *
+	 * @param in
+	 *            The sheet XML to read.
+	 * @param out
+	 *            The stream the edited sheet XML is written to.
+	 * @param factory
+	 *            The factory creating the XML reader.
+	 * @param headers
+	 *            True if the first row is a header row and is copied as is.
+	 * @param editor
+	 *            Edits each row.
+	 * @throws XMLStreamException
+	 *             Thrown if the sheet XML could not be parsed or written.
+	 */
+	void rewrite(InputStream in, OutputStream out, XMLInputFactory factory, boolean headers,
+			Consumer<EditableRow> editor) throws XMLStreamException {
+		XMLEventReader reader = factory.createXMLEventReader(in);
+		XMLEventWriter writer = XML_OUTPUT_FACTORY.createXMLEventWriter(out, "UTF-8");
+		try {
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (event.isStartElement() && event.asStartElement().getName().getLocalPart().equals("row")) {
+					StartElement start = event.asStartElement();
+					readRow(reader, start);
+					if (headers) {
+						headers = false;
+					} else {
+						rowsEdited++;
+						editor.accept(editable);
+					}
+					writeRow(writer, start);
+				} else {
+					writer.add(event);
+				}
+			}
+			writer.flush();
+		} finally {
+			writer.close();
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return The number of rows handed to the editor.
+	 */
+	long getRowsEdited() {
+		return rowsEdited;
+	}
+
+	/**
+	 * @return The number of rows the editor changed.
+	 */
+	long getRowsChanged() {
+		return rowsChanged;
+	}
+
+	/**
+	 * @return True if a changed cell held a formula before it was changed.
+	 */
+	boolean isFormulaRemoved() {
+		return formulaRemoved;
+	}
+
+	/**
+	 * Reads the row element the reader is positioned in, buffering the events
+	 * of every cell and filling the row with their values.
+	 */
+	private void readRow(XMLEventReader reader, StartElement start) throws XMLStreamException {
+		String r = value(start, R);
+		int rowNum = r != null ? Integer.parseInt(r) - 1 : lastRowNum + 1;
+		lastRowNum = rowNum;
+		row.reset(rowNum);
+		editable.reset();
+		cells.clear();
+		trailing.clear();
+		String ht = value(start, HT);
+		String outline = value(start, OUTLINE_LEVEL);
+		row.setAttributes(ht != null ? (short) (Double.parseDouble(ht) * 20) : -1,
+				XlsxStreamingWorkbook.isTrue(value(start, HIDDEN)),
+				XlsxStreamingWorkbook.isTrue(value(start, CUSTOM_FORMAT)),
+				outline != null ? Integer.parseInt(outline) : 0);
+		int lastColumn = -1;
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement() && event.asStartElement().getName().getLocalPart().equals("c")) {
+				lastColumn = readCell(reader, event.asStartElement(), lastColumn);
+			} else if (event.isEndElement() && event.asEndElement().getName().getLocalPart().equals("row")) {
+				trailing.add(event);
+				return;
+			} else {
+				trailing.add(event);
+			}
+		}
+	}
+
+	/**
+	 * Buffers the events of the cell element the reader is positioned in and
+	 * adds its value to the row.
+	 *
+	 * @return The column index of the cell.
+	 */
+	private int readCell(XMLEventReader reader, StartElement start, int lastColumn) throws XMLStreamException {
+		String ref = value(start, R);
+		int column = ref != null ? XlsxStreamingSheet.columnIndex(ref) : lastColumn + 1;
+		String style = value(start, S);
+		RawCell cell = new RawCell(column, start);
+		String value = null;
+		String formula = null;
+		StringBuilder inline = null;
+		StringBuilder text = null;
+		int depth = 0;
+		int phoneticDepth = 0;
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			cell.events.add(event);
+			if (event.isStartElement()) {
+				String name = event.asStartElement().getName().getLocalPart();
+				depth++;
+				if (name.equals("f") && depth == 1 && "shared".equals(value(event.asStartElement(), T))) {
+					cell.sharedRange = value(event.asStartElement(), REF);
+				}
+				if (name.equals("rPh")) {
+					phoneticDepth++;
+				} else if (name.equals("is")) {
+					inline = new StringBuilder();
+				} else if ((name.equals("v") || name.equals("f")) && depth == 1
+						|| name.equals("t") && inline != null && phoneticDepth == 0) {
+					text = new StringBuilder();
+				}
+			} else if (event.isCharacters() && text != null) {
+				text.append(event.asCharacters().getData());
+			} else if (event.isEndElement()) {
+				String name = event.asEndElement().getName().getLocalPart();
+				if (depth-- == 0) {
+					break;
+				} else if (name.equals("rPh")) {
+					phoneticDepth--;
+				} else if (text != null && name.equals("v")) {
+					value = text.toString();
+					text = null;
+				} else if (text != null && name.equals("f")) {
+					formula = text.toString();
+					text = null;
+				} else if (text != null && name.equals("t")) {
+					inline.append(text);
+					text = null;
+				}
+			}
+		}
+		cell.formula = formula != null;
+		cells.add(cell);
+		XlsxStreamingSheet.addCell(row, column, value(start, T), value, inline, formula,
+				style != null ? Integer.parseInt(style) : -1, sharedStrings, styles);
+		return column;
+	}
+
+	/**
+	 * Writes the current row: as it was read if the editor left it unchanged,
+	 * otherwise with the changed cells written from their new values.
+	 */
+	private void writeRow(XMLEventWriter writer, StartElement start) throws XMLStreamException {
+		BitSet changed = editable.getChangedColumns();
+		if (changed.isEmpty()) {
+			writer.add(start);
+			for (RawCell cell : cells) {
+				writeEvents(writer, cell);
+			}
+			for (XMLEvent event : trailing) {
+				writer.add(event);
+			}
+			return;
+		}
+		BitSet existing = new BitSet();
+		for (RawCell cell : cells) {
+			existing.set(cell.column);
+			if (cell.sharedRange != null && changed.get(cell.column)) {
+				String ref = CellReference.convertNumToColString(cell.column) + (row.getRowNum() + 1);
+				if (!cell.sharedRange.equals(ref)) {
+					throw new IllegalStateException("Cannot change cell " + ref
+							+ ": it holds the shared formula of the cells " + cell.sharedRange);
+				}
+			}
+		}
+		rowsChanged++;
+		BitSet added = (BitSet) changed.clone();
+		added.andNot(existing);
+		writer.add(added.isEmpty() ? start : withoutSpans(start));
+		int next = changed.nextSetBit(0);
+		for (RawCell cell : cells) {
+			while (next >= 0 && next < cell.column) {
+				writeCell(writer, start, next, null);
+				next = changed.nextSetBit(next + 1);
+			}
+			if (next == cell.column) {
+				formulaRemoved |= cell.formula;
+				writeCell(writer, start, next, cell.start.getAttributeByName(S));
+				next = changed.nextSetBit(next + 1);
+			} else {
+				writeEvents(writer, cell);
+			}
+		}
+		while (next >= 0) {
+			writeCell(writer, start, next, null);
+			next = changed.nextSetBit(next + 1);
+		}
+		for (XMLEvent event : trailing) {
+			writer.add(event);
+		}
+	}
+
+	/**
+	 * Writes the buffered events of an unchanged cell.
+	 */
+	private static void writeEvents(XMLEventWriter writer, RawCell cell) throws XMLStreamException {
+		writer.add(cell.start);
+		for (XMLEvent event : cell.events) {
+			writer.add(event);
+		}
+	}
+
+	/**
+	 * Writes a changed cell from its current value in the row.
+	 *
+	 * @param writer
+	 *            The writer of the edited sheet.
+	 * @param rowStart
+	 *            The row element, giving the namespace of the cell.
+	 * @param column
+	 *            The column of the cell.
+	 * @param style
+	 *            The style attribute of the cell as read, null if none.
+	 */
+	private void writeCell(XMLEventWriter writer, StartElement rowStart, int column, Attribute style)
+			throws XMLStreamException {
+		CellType type = row.getCellType(column);
+		if (type == CellType.BLANK && style == null) {
+			return;
+		}
+		String prefix = rowStart.getName().getPrefix();
+		String namespace = rowStart.getName().getNamespaceURI();
+		List<Attribute> attributes = new ArrayList<>(3);
+		attributes.add(EVENTS.createAttribute(R, CellReference.convertNumToColString(column) + (row.getRowNum() + 1)));
+		if (style != null) {
+			attributes.add(style);
+		}
+		if (type == CellType.STRING) {
+			attributes.add(EVENTS.createAttribute(T, "inlineStr"));
+		} else if (type == CellType.BOOLEAN) {
+			attributes.add(EVENTS.createAttribute(T, "b"));
+		}
+		writer.add(EVENTS.createStartElement(prefix, namespace, "c", attributes.iterator(), NO_NAMESPACES));
+		switch (type) {
+		case STRING:
+			writer.add(EVENTS.createStartElement(prefix, namespace, "is"));
+			String text = row.getString(column);
+			Iterator<Attribute> space = text.equals(text.trim()) ? Collections.emptyIterator()
+					: Collections.singletonList(PRESERVE_SPACE).iterator();
+			writer.add(EVENTS.createStartElement(prefix, namespace, "t", space, NO_NAMESPACES));
+			writer.add(EVENTS.createCharacters(text));
+			writer.add(EVENTS.createEndElement(prefix, namespace, "t"));
+			writer.add(EVENTS.createEndElement(prefix, namespace, "is"));
+			break;
+		case NUMERIC:
+			writeValue(writer, prefix, namespace, toText(row.getDouble(column)));
+			break;
+		case BOOLEAN:
+			writeValue(writer, prefix, namespace, row.getBoolean(column) ? "1" : "0");
+			break;
+		default:
+			break;
+		}
+		writer.add(EVENTS.createEndElement(prefix, namespace, "c"));
+	}
+
+	/**
+	 * Writes a v element holding the given text.
+	 */
+	private static void writeValue(XMLEventWriter writer, String prefix, String namespace, String value)
+			throws XMLStreamException {
+		writer.add(EVENTS.createStartElement(prefix, namespace, "v"));
+		writer.add(EVENTS.createCharacters(value));
+		writer.add(EVENTS.createEndElement(prefix, namespace, "v"));
+	}
+
+	/**
+	 * Formats a number for a v element, without a fraction if it has none.
+	 */
+	private static String toText(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	/**
+	 * Copies a row element without its spans attribute, which no longer holds
+	 * once cells are added to the row.
+	 */
+	private static StartElement withoutSpans(StartElement start) {
+		List<Attribute> attributes = new ArrayList<>();
+		@SuppressWarnings("unchecked")
+		Iterator<Attribute> iter = start.getAttributes();
+		while (iter.hasNext()) {
+			Attribute attribute = iter.next();
+			if (!attribute.getName().equals(SPANS)) {
+				attributes.add(attribute);
+			}
+		}
+		return EVENTS.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+	}
+
+	/**
+	 * @return The value of an unqualified attribute, null if it is not set.
+	 */
+	private static String value(StartElement start, QName name) {
+		Attribute attribute = start.getAttributeByName(name);
+		return attribute != null ? attribute.getValue() : null;
+	}
+
+	/**
+	 * The buffered events of one cell element as read.
+	 */
+	private static final class RawCell {
+
+		/**
+		 * The column index of the cell.
+		 */
+		private final int column;
+
+		/**
+		 * The start of the cell element.
+		 */
+		private final StartElement start;
+
+		/**
+		 * Every event after the start, up to and including the end of the
+		 * cell element.
+		 */
+		private final List<XMLEvent> events = new ArrayList<>(4);
+
+		/**
+		 * Whether the cell holds a formula.
+		 */
+		private boolean formula;
+
+		/**
+		 * The range of the shared formula whose master this cell holds, null
+		 * if it holds none.
+		 */
+		private String sharedRange;
+
+		private RawCell(int column, StartElement start) {
+			this.column = column;
+			this.start = start;
+		}
+	}
+}
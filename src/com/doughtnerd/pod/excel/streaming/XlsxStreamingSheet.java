@@ -0,0 +1,375 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import com.doughtnerd.pod.excel.exceptions.ExcelReadException;
+
+/**
+ * Streaming implementation of {@link StreamingSheet} for a worksheet part of
+ * an xlsx file. The sheet XML is pulled with a StAX reader one row element at
+ * a time.
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsxStreamingSheet extends StreamingSheet {
+
+	/**
+	 * The reader positioned somewhere within the sheet XML.
+	 */
+	private final XMLStreamReader xml;
+
+	/**
+	 * The stream the sheet XML is read from.
+	 */
+	private final InputStream in;
+
+	/**
+	 * The shared strings of the workbook.
+	 */
+	private final SharedStrings sharedStrings;
+
+	/**
+	 * The cell style number formats of the workbook.
+	 */
+	private final XlsxStyles styles;
+
+	/**
+	 * The index of the last row returned, used for rows that do not state
+	 * their own index.
+	 */
+	private int lastRowNum;
+
+	/**
+	 * The row count recorded by the dimension element, -1 if not read yet or
+	 * not present.
+	 */
+	private long estimatedRowCount;
+
+	/**
+	 * Whether the reader has already moved past the dimension element.
+	 */
+	private boolean dimensionRead;
+
+	/**
+	 * Creates a new XlsxStreamingSheet.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet.
+	 * @param sheetIndex
+	 *            The index of the sheet within its workbook.
+	 * @param xml
+	 *            The reader over the sheet XML.
+	 * @param in
+	 *            The stream the sheet XML is read from.
+	 * @param sharedStrings
+	 *            The shared strings of the workbook.
+	 * @param styles
+	 *            The cell style number formats of the workbook.
+	 * @param date1904
+	 *            Whether dates in the workbook use the 1904 date system.
+	 */
+	XlsxStreamingSheet(String sheetName, int sheetIndex, XMLStreamReader xml, InputStream in,
+			SharedStrings sharedStrings, XlsxStyles styles, boolean date1904) {
+		super(sheetName, sheetIndex, date1904);
+		this.xml = xml;
+		this.in = in;
+		this.sharedStrings = sharedStrings;
+		this.styles = styles;
+		this.lastRowNum = -1;
+		this.estimatedRowCount = -1;
+	}
+
+	/**
+	 * Reads the sheet XML up to the start of the sheet data, picking up the
+	 * dimension element if the file has one.
+	 */
+	@Override
+	public long getEstimatedRowCount() {
+		if (dimensionRead) {
+			return estimatedRowCount;
+		}
+		dimensionRead = true;
+		try {
+			while (xml.hasNext()) {
+				if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String name = xml.getLocalName();
+				if (name.equals("dimension")) {
+					estimatedRowCount = rowCount(xml.getAttributeValue(null, "ref"));
+				} else if (name.equals("sheetData")) {
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new ExcelReadException("Could not parse sheet: " + getSheetName(), e);
+		}
+		return estimatedRowCount;
+	}
+
+	/**
+	 * Counts the rows covered by a range reference such as A1:D300.
+	 *
+	 * @param ref
+	 *            The range reference.
+	 * @return The number of rows covered or -1 if the reference is missing.
+	 */
+	private static long rowCount(String ref) {
+		if (ref == null || ref.isEmpty()) {
+			return -1;
+		}
+		int split = ref.indexOf(':');
+		long first = rowNumber(split < 0 ? ref : ref.substring(0, split));
+		long last = split < 0 ? first : rowNumber(ref.substring(split + 1));
+		return last - first + 1;
+	}
+
+	/**
+	 * Reads the one based row number of a cell reference such as AB12.
+	 *
+	 * @param ref
+	 *            The cell reference.
+	 * @return The row number.
+	 */
+	private static long rowNumber(String ref) {
+		int i = 0;
+		while (i < ref.length() && !Character.isDigit(ref.charAt(i))) {
+			i++;
+		}
+		return i < ref.length() ? Long.parseLong(ref.substring(i)) : 1;
+	}
+
+	@Override
+	StreamingRow readRow(StreamingRow row) {
+		dimensionRead = true;
+		try {
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("row")) {
+					return parseRow(row);
+				}
+			}
+			return null;
+		} catch (XMLStreamException e) {
+			throw new ExcelReadException("Could not parse sheet: " + getSheetName(), e);
+		}
+	}
+
+	/**
+	 * Reads the row element the reader is positioned on, including all of its
+	 * cells.
+	 *
+	 * @param row
+	 *            The row to fill.
+	 * @return The parsed row.
+	 */
+	private StreamingRow parseRow(StreamingRow row) throws XMLStreamException {
+		String r = xml.getAttributeValue(null, "r");
+		int rowNum = r != null ? Integer.parseInt(r) - 1 : lastRowNum + 1;
+		lastRowNum = rowNum;
+		row.reset(rowNum);
+		String ht = xml.getAttributeValue(null, "ht");
+		String outline = xml.getAttributeValue(null, "outlineLevel");
+		row.setAttributes(ht != null ? (short) (Double.parseDouble(ht) * 20) : -1,
+				XlsxStreamingWorkbook.isTrue(xml.getAttributeValue(null, "hidden")),
+				XlsxStreamingWorkbook.isTrue(xml.getAttributeValue(null, "customFormat")),
+				outline != null ? Integer.parseInt(outline) : 0);
+		int lastColumn = -1;
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("c")) {
+				lastColumn = readCell(row, lastColumn);
+			} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("row")) {
+				break;
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Reads the cell element the reader is positioned on and adds it to the
+	 * row.
+	 *
+	 * @param row
+	 *            The row the cell belongs to.
+	 * @param lastColumn
+	 *            The column index of the previous cell in the row.
+	 * @return The column index of the cell that was read.
+	 */
+	private int readCell(StreamingRow row, int lastColumn) throws XMLStreamException {
+		String ref = xml.getAttributeValue(null, "r");
+		int column = ref != null ? columnIndex(ref) : lastColumn + 1;
+		if (!isProjected(column)) {
+			skipElement();
+			return column;
+		}
+		String type = xml.getAttributeValue(null, "t");
+		String style = xml.getAttributeValue(null, "s");
+		int styleIndex = style != null ? Integer.parseInt(style) : -1;
+		String value = null;
+		String formula = null;
+		StringBuilder inline = null;
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				if (name.equals("v")) {
+					value = xml.getElementText();
+				} else if (name.equals("f")) {
+					formula = xml.getElementText();
+				} else if (name.equals("is")) {
+					inline = readInlineString();
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("c")) {
+				break;
+			}
+		}
+		addCell(row, column, type, value, inline, formula, styleIndex, sharedStrings, styles);
+		return column;
+	}
+
+	/**
+	 * Moves the reader past the end of the element it is positioned on
+	 * without decoding anything inside it.
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Reads the text of an inline string element, ignoring phonetic runs.
+	 *
+	 * @return The text of the inline string.
+	 */
+	private StringBuilder readInlineString() throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int phoneticDepth = 0;
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				if (name.equals("rPh")) {
+					phoneticDepth++;
+				} else if (name.equals("t") && phoneticDepth == 0) {
+					text.append(xml.getElementText());
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				String name = xml.getLocalName();
+				if (name.equals("rPh")) {
+					phoneticDepth--;
+				} else if (name.equals("is")) {
+					break;
+				}
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Converts the raw values of a cell element to a typed value and adds the
+	 * cell to the row. A shared string is not looked up here, the row looks
+	 * it up when the cell is first read.
+	 *
+	 * @param row
+	 *            The row the cell belongs to.
+	 * @param column
+	 *            The column index of the cell.
+	 * @param type
+	 *            The t attribute of the cell, null if it has none.
+	 * @param value
+	 *            The text of the v element, null if the cell has none.
+	 * @param inline
+	 *            The text of the is element, null if the cell has none.
+	 * @param formula
+	 *            The text of the f element, null if the cell has none.
+	 * @param styleIndex
+	 *            The s attribute of the cell, -1 if it has none.
+	 * @param sharedStrings
+	 *            The shared strings of the workbook.
+	 * @param styles
+	 *            The cell style number formats of the workbook.
+	 */
+	static void addCell(StreamingRow row, int column, String type, String value, CharSequence inline, String formula,
+			int styleIndex, SharedStrings sharedStrings, XlsxStyles styles) {
+		CellType valueType;
+		double number = 0.0;
+		String text = null;
+		boolean bool = false;
+		if (type == null || type.equals("n")) {
+			if (value == null || value.isEmpty()) {
+				valueType = formula != null ? CellType.NUMERIC : CellType.BLANK;
+			} else {
+				valueType = CellType.NUMERIC;
+				number = Double.parseDouble(value);
+			}
+		} else if (type.equals("s")) {
+			if (value == null || value.isEmpty()) {
+				valueType = CellType.BLANK;
+			} else {
+				row.addSharedStringCell(column, sharedStrings, Integer.parseInt(value.trim()), formula,
+						styles.getFormatIndex(styleIndex), styles.getFormatString(styleIndex));
+				return;
+			}
+		} else if (type.equals("inlineStr")) {
+			valueType = CellType.STRING;
+			text = inline != null ? inline.toString() : value;
+		} else if (type.equals("b")) {
+			valueType = CellType.BOOLEAN;
+			bool = XlsxStreamingWorkbook.isTrue(value);
+		} else if (type.equals("e")) {
+			valueType = CellType.ERROR;
+			text = value;
+		} else {
+			valueType = CellType.STRING;
+			text = value != null ? value : "";
+		}
+		row.addCell(column, valueType, number, text, bool, formula, styles.getFormatIndex(styleIndex),
+				styles.getFormatString(styleIndex));
+	}
+
+	/**
+	 * Converts the column letters of a cell reference such as AB12 to a zero
+	 * based column index.
+	 *
+	 * @param ref
+	 *            The cell reference.
+	 * @return The zero based column index.
+	 */
+	static int columnIndex(String ref) {
+		int column = 0;
+		for (int i = 0; i < ref.length(); i++) {
+			char c = ref.charAt(i);
+			if (c < 'A' || c > 'Z') {
+				break;
+			}
+			column = column * 26 + (c - 'A' + 1);
+		}
+		return column - 1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+/**
+ * Streaming implementation of {@link StreamingWorkbook} for xlsx files. The
+ * package is opened read only through POI's XSSFReader and each sheet part is
+ * parsed with a StAX reader, so only the workbook wide tables are held in
+ * memory.
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsxStreamingWorkbook extends StreamingWorkbook {
+
+	/**
+	 * The factory used to create every XML reader for this workbook's parts.
+	 */
+	private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+	/**
+	 * The opened package.
+	 */
+	private final OPCPackage pkg;
+
+	/**
+	 * The reader used to access the package parts.
+	 */
+	private final XSSFReader xssfReader;
+
+	/**
+	 * The relationship ids of the sheet parts, in workbook order.
+	 */
+	private final List<String> sheetRelIds;
+
+	/**
+	 * Whether each sheet is hidden, in workbook order.
+	 */
+	private final List<Boolean> sheetHidden;
+
+	/**
+	 * Whether dates in this workbook use the 1904 date system.
+	 */
+	private boolean date1904;
+
+	/**
+	 * How this workbook is read.
+	 */
+	private final StreamingOptions options;
+
+	/**
+	 * The shared strings of this workbook, loaded when the first sheet is
+	 * opened.
+	 */
+	private SharedStrings sharedStrings;
+
+	/**
+	 * The number formats of this workbook's cell styles, loaded when the first
+	 * sheet is opened.
+	 */
+	private XlsxStyles styles;
+
+	/**
+	 * Opens the given xlsx file for streaming reads.
+	 *
+	 * @param file
+	 *            The file to open.
+	 * @param options
+	 *            How the workbook is read.
+	 * @throws IOException
+	 *             Thrown if the file could not be opened or is not a valid
+	 *             xlsx workbook.
+	 */
+	XlsxStreamingWorkbook(File file, StreamingOptions options) throws IOException {
+		this.options = options;
+		this.sheetNames = new ArrayList<>();
+		this.sheetRelIds = new ArrayList<>();
+		this.sheetHidden = new ArrayList<>();
+		try {
+			this.pkg = OPCPackage.open(file, PackageAccess.READ);
+		} catch (InvalidFormatException e) {
+			throw new IOException("Could not open xlsx file: " + file, e);
+		}
+		try {
+			this.xssfReader = new XSSFReader(pkg);
+			readWorkbook();
+		} catch (IOException | OpenXML4JException | XMLStreamException e) {
+			pkg.revert();
+			throw e instanceof IOException ? (IOException) e : new IOException("Could not read xlsx file: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the sheet list and the date system from the workbook part.
+	 */
+	private void readWorkbook() throws IOException, InvalidFormatException, XMLStreamException {
+		InputStream in = xssfReader.getWorkbookData();
+		XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(in);
+		try {
+			while (xml.hasNext()) {
+				if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String name = xml.getLocalName();
+				if (name.equals("workbookPr")) {
+					date1904 = isTrue(xml.getAttributeValue(null, "date1904"));
+				} else if (name.equals("sheet")) {
+					sheetNames.add(xml.getAttributeValue(null, "name"));
+					String state = xml.getAttributeValue(null, "state");
+					sheetHidden.add(state != null && !state.equals("visible"));
+					sheetRelIds.add(getRelationshipId(xml));
+				}
+			}
+		} finally {
+			xml.close();
+			in.close();
+		}
+	}
+
+	@Override
+	public boolean isSheetHidden(int sheetIndex) {
+		checkSheetIndex(sheetIndex);
+		return sheetHidden.get(sheetIndex);
+	}
+
+	@Override
+	public StreamingSheet openSheet(int sheetIndex) throws IOException {
+		checkSheetIndex(sheetIndex);
+		loadTables();
+		InputStream in;
+		try {
+			in = xssfReader.getSheet(sheetRelIds.get(sheetIndex));
+		} catch (InvalidFormatException e) {
+			throw new IOException("Could not open sheet: " + sheetNames.get(sheetIndex), e);
+		}
+		try {
+			return new XlsxStreamingSheet(sheetNames.get(sheetIndex), sheetIndex,
+					XML_INPUT_FACTORY.createXMLStreamReader(in), in, sharedStrings, styles, date1904);
+		} catch (XMLStreamException e) {
+			in.close();
+			throw new IOException("Could not parse sheet: " + sheetNames.get(sheetIndex), e);
+		}
+	}
+
+	/**
+	 * Resolves the name of the package part holding a sheet, such as
+	 * /xl/worksheets/sheet1.xml.
+	 *
+	 * @param sheetIndex
+	 *            The index of the sheet.
+	 * @return The part name of the sheet.
+	 * @throws IOException
+	 *             Thrown if the sheet is not part of the package.
+	 */
+	String getSheetPartName(int sheetIndex) throws IOException {
+		checkSheetIndex(sheetIndex);
+		try {
+			PackagePart workbookPart = getWorkbookPart();
+			PackageRelationship rel = workbookPart.getRelationship(sheetRelIds.get(sheetIndex));
+			if (rel == null) {
+				throw new IOException("Could not find sheet: " + sheetNames.get(sheetIndex));
+			}
+			URI target = PackagingURIHelper.resolvePartUri(workbookPart.getPartName().getURI(), rel.getTargetURI());
+			return PackagingURIHelper.createPartName(target).getName();
+		} catch (InvalidFormatException e) {
+			throw new IOException("Could not find sheet: " + sheetNames.get(sheetIndex), e);
+		}
+	}
+
+	/**
+	 * Returns the name of the package part holding the workbook, such as
+	 * /xl/workbook.xml.
+	 *
+	 * @return The part name of the workbook.
+	 * @throws IOException
+	 *             Thrown if the package has no workbook part.
+	 */
+	String getWorkbookPartName() throws IOException {
+		try {
+			return getWorkbookPart().getPartName().getName();
+		} catch (InvalidFormatException e) {
+			throw new IOException("Could not find the workbook part", e);
+		}
+	}
+
+	/**
+	 * Finds the workbook part through the package relationships.
+	 */
+	private PackagePart getWorkbookPart() throws InvalidFormatException {
+		PackageRelationshipCollection rels = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+		if (rels.size() == 0) {
+			rels = pkg.getRelationshipsByType(PackageRelationshipTypes.STRICT_CORE_DOCUMENT);
+		}
+		if (rels.size() == 0) {
+			throw new InvalidFormatException("The package has no workbook part");
+		}
+		return pkg.getPart(rels.getRelationship(0));
+	}
+
+	/**
+	 * Returns the names of the package parts of the given content type.
+	 *
+	 * @param contentType
+	 *            The content type of the parts.
+	 * @return The part names, empty if there are none.
+	 */
+	List<String> getPartNames(String contentType) {
+		List<String> names = new ArrayList<>();
+		for (PackagePart part : pkg.getPartsByContentType(contentType)) {
+			names.add(part.getPartName().getName());
+		}
+		return names;
+	}
+
+	/**
+	 * @return The shared strings of this workbook, loading them if needed.
+	 * @throws IOException
+	 *             Thrown if the tables could not be read.
+	 */
+	SharedStrings getSharedStrings() throws IOException {
+		loadTables();
+		return sharedStrings;
+	}
+
+	/**
+	 * @return The cell style number formats of this workbook, loading them if
+	 *         needed.
+	 * @throws IOException
+	 *             Thrown if the tables could not be read.
+	 */
+	XlsxStyles getStyles() throws IOException {
+		loadTables();
+		return styles;
+	}
+
+	/**
+	 * @return Whether dates in this workbook use the 1904 date system.
+	 */
+	boolean isDate1904() {
+		return date1904;
+	}
+
+	/**
+	 * Loads the shared strings and styles tables if they have not been loaded
+	 * yet. The shared strings are spilled to disk if the options ask for it.
+	 */
+	private synchronized void loadTables() throws IOException {
+		if (sharedStrings != null) {
+			return;
+		}
+		try {
+			styles = XlsxStyles.read(xssfReader, XML_INPUT_FACTORY);
+			if (options.isSpillingSharedStrings()) {
+				sharedStrings = SpilledSharedStrings.read(pkg, XML_INPUT_FACTORY, options.getSharedStringsCacheSize());
+			} else {
+				sharedStrings = new ReadOnlySharedStringsTable(pkg)::getEntryAt;
+			}
+		} catch (SAXException | XMLStreamException e) {
+			throw new IOException("Could not read the workbook tables", e);
+		}
+	}
+
+	/**
+	 * Closes the underlying package without writing anything back to the
+	 * file, and deletes the spilled shared strings if there are any.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (sharedStrings instanceof SpilledSharedStrings) {
+				((SpilledSharedStrings) sharedStrings).close();
+			}
+		} finally {
+			pkg.revert();
+		}
+	}
+
+	/**
+	 * Finds the relationship id attribute (r:id) of the current element.
+	 *
+	 * @param xml
+	 *            The reader positioned on a sheet element.
+	 * @return The relationship id or null if the element has none.
+	 */
+	private static String getRelationshipId(XMLStreamReader xml) {
+		for (int i = 0; i < xml.getAttributeCount(); i++) {
+			String namespace = xml.getAttributeNamespace(i);
+			if (xml.getAttributeLocalName(i).equals("id") && namespace != null && !namespace.isEmpty()) {
+				return xml.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses an xsd:boolean attribute value.
+	 *
+	 * @param value
+	 *            The attribute value, may be null.
+	 * @return True if the value is 1 or true.
+	 */
+	static boolean isTrue(String value) {
+		return value != null && (value.equals("1") || value.equals("true"));
+	}
+
+	/**
+	 * Creates an XML input factory that does not resolve DTDs or external
+	 * entities.
+	 *
+	 * @return The new factory.
+	 */
+	static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+}
@@ -0,0 +1,140 @@
+package com.doughtnerd.pod.excel.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+/**
+ * Holds the number format of every cell style of an xlsx workbook, which is
+ * the only part of the styles table a streaming read needs (to tell dates
+ * apart from plain numbers).
+ *
+ * @author Christopher Carlson
+ *
+ */
+final class XlsxStyles {
+
+	/**
+	 * The format string used for cells without a style.
+	 */
+	private static final String GENERAL = "General";
+
+	/**
+	 * The number format index of each cell style, indexed by style index.
+	 */
+	private final int[] formatIndexes;
+
+	/**
+	 * The number format string of each cell style, indexed by style index.
+	 */
+	private final String[] formatStrings;
+
+	/**
+	 * Creates a new XlsxStyles object.
+	 *
+	 * @param formatIndexes
+	 *            The number format index of each cell style.
+	 * @param formatStrings
+	 *            The number format string of each cell style.
+	 */
+	private XlsxStyles(int[] formatIndexes, String[] formatStrings) {
+		this.formatIndexes = formatIndexes;
+		this.formatStrings = formatStrings;
+	}
+
+	/**
+	 * Returns the number format index of the given cell style.
+	 *
+	 * @param styleIndex
+	 *            The cell style index, -1 if the cell has no style.
+	 * @return The number format index.
+	 */
+	int getFormatIndex(int styleIndex) {
+		return styleIndex >= 0 && styleIndex < formatIndexes.length ? formatIndexes[styleIndex] : 0;
+	}
+
+	/**
+	 * Returns the number format string of the given cell style.
+	 *
+	 * @param styleIndex
+	 *            The cell style index, -1 if the cell has no style.
+	 * @return The number format string.
+	 */
+	String getFormatString(int styleIndex) {
+		return styleIndex >= 0 && styleIndex < formatStrings.length ? formatStrings[styleIndex] : GENERAL;
+	}
+
+	/**
+	 * Reads the cell style number formats of a workbook.
+	 *
+	 * @param reader
+	 *            The reader used to access the styles part.
+	 * @param factory
+	 *            The factory used to create the XML reader.
+	 * @return The styles of the workbook. Empty if it has no styles part.
+	 */
+	static XlsxStyles read(XSSFReader reader, XMLInputFactory factory) throws IOException, XMLStreamException {
+		InputStream in;
+		try {
+			in = reader.getStylesData();
+		} catch (InvalidFormatException | IllegalArgumentException e) {
+			in = null;
+		}
+		if (in == null) {
+			return new XlsxStyles(new int[0], new String[0]);
+		}
+		Map<Integer, String> customFormats = new HashMap<>();
+		int[] indexes = new int[16];
+		int count = 0;
+		XMLStreamReader xml = factory.createXMLStreamReader(in);
+		try {
+			boolean inCellXfs = false;
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = xml.getLocalName();
+					if (name.equals("numFmt")) {
+						customFormats.put(Integer.parseInt(xml.getAttributeValue(null, "numFmtId")),
+								xml.getAttributeValue(null, "formatCode"));
+					} else if (name.equals("cellXfs")) {
+						inCellXfs = true;
+					} else if (inCellXfs && name.equals("xf")) {
+						String id = xml.getAttributeValue(null, "numFmtId");
+						if (count == indexes.length) {
+							int[] grown = new int[count * 2];
+							System.arraycopy(indexes, 0, grown, 0, count);
+							indexes = grown;
+						}
+						indexes[count++] = id == null ? 0 : Integer.parseInt(id);
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("cellXfs")) {
+					inCellXfs = false;
+				}
+			}
+		} finally {
+			xml.close();
+			in.close();
+		}
+		int[] formatIndexes = new int[count];
+		String[] formatStrings = new String[count];
+		for (int i = 0; i < count; i++) {
+			formatIndexes[i] = indexes[i];
+			String format = customFormats.get(indexes[i]);
+			if (format == null) {
+				format = BuiltinFormats.getBuiltinFormat(indexes[i]);
+			}
+			formatStrings[i] = format == null ? GENERAL : format;
+		}
+		return new XlsxStyles(formatIndexes, formatStrings);
+	}
+}
@@ -0,0 +1,344 @@
+package com.doughtnerd.pod.excel.unitTests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipFile;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.doughtnerd.pod.excel.ExcelMapper;
+import com.doughtnerd.pod.excel.ExcelWriter;
+import com.doughtnerd.pod.excel.MappedExcelReader;
+import com.doughtnerd.pod.excel.abstracts.CellChange;
+import com.doughtnerd.pod.excel.abstracts.ExcelChangeLog;
+import com.doughtnerd.pod.excel.abstracts.ExcelEditor;
+import com.doughtnerd.pod.excel.abstracts.StreamingExcelEditor;
+import com.doughtnerd.pod.excel.annotations.ExcelColumn;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
+import com.doughtnerd.pod.excel.streaming.EditableRow;
+
+public class ExcelEditorTests {
+
+	@Test
+	public void streamingEditChangesOnlyEditedCellsTest() throws IOException, SheetNotFoundException {
+		File file = writeItems(100);
+		File saved = File.createTempFile("pod", ".xlsx");
+		TestStreamingEditor editor = new TestStreamingEditor(file);
+		try {
+			editor.processSheet("Data", true);
+			editor.save(saved);
+		} finally {
+			editor.close();
+		}
+		MappedExcelReader<Item> reader = new MappedExcelReader<>(Item.class, saved, ExcelReadMode.STREAMING);
+		try {
+			List<Item> items = reader.processSheet(0, true);
+			Assert.assertEquals(100, items.size());
+			Assert.assertEquals("Item 3", items.get(3).name);
+			Assert.assertEquals(3.0, items.get(3).value, 0.0);
+			Assert.assertEquals("Item 4 edited", items.get(4).name);
+			Assert.assertEquals(8.0, items.get(4).value, 0.0);
+		} finally {
+			reader.close();
+		}
+		file.delete();
+		saved.delete();
+	}
+
+	@Test
+	public void parallelStreamingEditChangesEverySheetTest() throws IOException {
+		File file = writeItemSheets(300, "First", "Second", "Third", "Fourth");
+		File saved = File.createTempFile("pod", ".xlsx");
+		StreamingExcelEditor editor = new StreamingExcelEditor(file) {
+			@Override
+			protected void editRow(EditableRow row) {
+				double value = row.getDouble(1);
+				row.setDouble(1, value + ((int) value / 1000 + 1) * 0.25);
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			editor.processDocument(true, executor);
+			editor.save(saved);
+		} finally {
+			executor.shutdown();
+			editor.close();
+		}
+		assertItemSheets(saved, 300, 0.25, 0.5, 0.75, 1.0);
+		Map<String, byte[]> before = ZipPackageWriterTests.rawEntries(file);
+		Map<String, byte[]> after = ZipPackageWriterTests.rawEntries(saved);
+		Assert.assertEquals(before.keySet(), after.keySet());
+		for (String name : before.keySet()) {
+			if (!name.startsWith("xl/worksheets/sheet")) {
+				Assert.assertArrayEquals(name, before.get(name), after.get(name));
+			}
+		}
+		file.delete();
+		saved.delete();
+	}
+
+	@Test
+	public void sharedFormulaMasterCannotBeChangedTest() throws IOException, SheetNotFoundException {
+		File file = ExcelReaderTests.writeRawXlsx(
+				"<row r=\"1\"><c r=\"A1\"><v>1</v></c><c r=\"B1\"><f t=\"shared\" ref=\"B1:B3\" si=\"0\">A1*2</f><v>2</v></c></row>"
+						+ "<row r=\"2\"><c r=\"A2\"><v>2</v></c><c r=\"B2\"><f t=\"shared\" si=\"0\"/><v>4</v></c></row>"
+						+ "<row r=\"3\"><c r=\"A3\"><v>3</v></c><c r=\"B3\"><f t=\"shared\" si=\"0\"/><v>6</v></c></row>");
+		File saved = File.createTempFile("pod", ".xlsx");
+		StreamingExcelEditor editor = new StreamingExcelEditor(file) {
+			@Override
+			protected void editRow(EditableRow row) {
+				double value = row.getDouble(0);
+				row.setDouble(0, value * 10);
+				if (value == 3 || value == 10) {
+					row.setDouble(1, 0);
+				}
+			}
+		};
+		try {
+			editor.processSheet("Data", false);
+			try {
+				editor.processSheet("Data", false);
+				Assert.fail("Changed the master cell of a shared formula");
+			} catch (IllegalStateException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains("B1:B3"));
+			}
+			editor.save(saved);
+		} finally {
+			editor.close();
+		}
+		try (ZipFile zip = new ZipFile(saved)) {
+			String sheet = new String(IOUtils.toByteArray(zip.getInputStream(zip.getEntry("xl/worksheets/sheet1.xml"))),
+					"UTF-8");
+			Assert.assertTrue(sheet, sheet.contains("ref=\"B1:B3\""));
+			Assert.assertTrue(sheet, sheet.contains("<v>30</v>"));
+			Assert.assertFalse(sheet, sheet.contains("<v>300</v>"));
+		}
+		file.delete();
+		saved.delete();
+	}
+
+	@Test
+	public void copyUnchangedPartsKeepsUntouchedEntriesTest() throws IOException, SheetNotFoundException {
+		File file = writeItemSheets(50, "First", "Second", "Third");
+		File saved = File.createTempFile("pod", ".xlsx");
+		ExcelEditor editor = new ExcelEditor(file) {
+			@Override
+			protected void editRow(Row row) {
+				row.getCell(1).setCellValue(row.getCell(1).getNumericCellValue() + 0.5);
+			}
+		};
+		editor.setCopyUnchangedParts(true);
+		editor.processSheet("Second", true);
+		editor.save(saved);
+		Map<String, byte[]> before = ZipPackageWriterTests.rawEntries(file);
+		Map<String, byte[]> after = ZipPackageWriterTests.rawEntries(saved);
+		Assert.assertEquals(before.keySet(), after.keySet());
+		List<String> rewritten = Arrays.asList("xl/worksheets/sheet2.xml", "xl/workbook.xml", "xl/styles.xml");
+		for (String name : before.keySet()) {
+			if (!rewritten.contains(name)) {
+				Assert.assertArrayEquals(name, before.get(name), after.get(name));
+			}
+		}
+		Assert.assertFalse(Arrays.equals(before.get("xl/worksheets/sheet2.xml"), after.get("xl/worksheets/sheet2.xml")));
+		assertItemSheets(saved, 50, 0.0, 0.5, 0.0);
+		file.delete();
+		saved.delete();
+	}
+
+	@Test
+	public void defaultSaveKeepsEditsOutsideProcessedRowsTest() throws IOException, SheetNotFoundException {
+		for (boolean track : new boolean[] { false, true }) {
+			File file = writeItemSheets(5, "First", "Second");
+			ExcelEditor editor = new ExcelEditor(file) {
+				@Override
+				protected void editRow(Row row) {
+					row.getSheet().getWorkbook().getSheet("Second").getRow(row.getRowNum()).getCell(1)
+							.setCellValue(1000 + row.getRowNum() - 1 + 0.25);
+				}
+			};
+			editor.setTrackChanges(track);
+			editor.processSheet("First", true);
+			Assert.assertTrue(editor.getChangeLog().isEmpty());
+			editor.save(file);
+			assertItemSheets(file, 5, 0.0, 0.25);
+			file.delete();
+		}
+	}
+
+	@Test
+	public void changeLogRecordsOnlyChangedCellsTest() throws IOException, SheetNotFoundException {
+		File file = writeItems(10, ExcelFileType.XLS);
+		ExcelEditor editor = new ExcelEditor(file) {
+			@Override
+			protected void editRow(Row row) {
+				if (row.getCell(1).getNumericCellValue() == 4) {
+					row.getCell(0).setCellValue("Item, \"four\"");
+				} else {
+					row.getCell(1).setCellValue(row.getCell(1).getNumericCellValue());
+				}
+			}
+		};
+		ExcelChangeLog log = editor.getChangeLog();
+		editor.setTrackChanges(true);
+		editor.processSheet("Data", true);
+		Assert.assertEquals(1, log.getChanges().size());
+		CellChange change = log.getChanges().get(0);
+		Assert.assertEquals(5, change.getRowNum());
+		Assert.assertEquals(0, change.getColumn());
+		Assert.assertEquals("Item 4", change.getOldValue());
+		Assert.assertEquals("[5]", log.getChangedRows("Data").toString());
+		StringWriter diff = new StringWriter();
+		log.writeDiff(diff);
+		Assert.assertEquals("sheet,row,column,old,new\r\nData,5,0,Item 4,\"Item, \"\"four\"\"\"\r\n", diff.toString());
+		file.delete();
+	}
+
+	@Test
+	public void sheetLookupFollowsRenamedSheetsTest() throws IOException, SheetNotFoundException {
+		Workbook workbook = new HSSFWorkbook();
+		workbook.createSheet("Data 2024");
+		workbook.createSheet("Summary");
+		File file = File.createTempFile("pod", ".xls");
+		ExcelWriter.writeWorkbookToFile(workbook, file.getAbsolutePath());
+		RenamingEditor editor = new RenamingEditor(file);
+		Assert.assertEquals("Data 2024", editor.find("Data"));
+		editor.rename(1, "Data", true);
+		Assert.assertEquals("Data", editor.find("Data"));
+		editor.rename(1, "Totals", false);
+		Assert.assertEquals("Totals", editor.find("Totals"));
+		Assert.assertEquals("Data 2024", editor.find("Data"));
+		editor.rename(0, "Archive", false);
+		for (String sheetName : new String[] { "Data", "Summary" }) {
+			try {
+				editor.find(sheetName);
+				Assert.fail("Found a sheet by its old name");
+			} catch (SheetNotFoundException e) {
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Writes an xlsx file with a sheet of the given name for each name. Row i
+	 * of sheet s holds the value s * 1000 + i.
+	 */
+	private File writeItemSheets(int rows, String... sheetNames) throws IOException {
+		ExcelMapper<Item> mapper = ExcelMapper.of(Item.class);
+		Workbook workbook = ExcelWriter.getNewWorkbook(ExcelFileType.XLSX);
+		for (int s = 0; s < sheetNames.length; s++) {
+			ArrayList<Item> items = new ArrayList<>();
+			for (int i = 0; i < rows; i++) {
+				items.add(new Item("Item " + i, s * 1000 + i));
+			}
+			ExcelWriter.writeNewSheetToWorkbook(workbook, sheetNames[s], mapper.getHeaders(), mapper.toRowObjects(items));
+		}
+		File file = File.createTempFile("pod", ".xlsx");
+		ExcelWriter.writeWorkbookToFile(workbook, file.getAbsolutePath());
+		return file;
+	}
+
+	/**
+	 * Checks that each sheet written by writeItemSheets holds its values plus
+	 * the given offset of the sheet.
+	 */
+	private void assertItemSheets(File file, int rows, double... offsets) throws IOException {
+		MappedExcelReader<Item> reader = new MappedExcelReader<>(Item.class, file, ExcelReadMode.STREAMING);
+		try {
+			for (int s = 0; s < offsets.length; s++) {
+				List<Item> items = reader.processSheet(s, true);
+				Assert.assertEquals(rows, items.size());
+				for (int i = 0; i < rows; i++) {
+					Assert.assertEquals("Item " + i, items.get(i).name);
+					Assert.assertEquals(s * 1000 + i + offsets[s], items.get(i).value, 0.0);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private File writeItems(int rows) throws IOException {
+		return writeItems(rows, ExcelFileType.XLSX);
+	}
+
+	private File writeItems(int rows, ExcelFileType type) throws IOException {
+		ExcelMapper<Item> mapper = ExcelMapper.of(Item.class);
+		ArrayList<Item> items = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			items.add(new Item("Item " + i, i));
+		}
+		File file = File.createTempFile("pod", type == ExcelFileType.XLS ? ".xls" : ".xlsx");
+		ExcelWriter.writeWorkbookToFile(ExcelWriter.writeNewSheetToNewWorkbook(type, "Data",
+				mapper.getHeaders(), mapper.toRowObjects(items)), file.getAbsolutePath());
+		return file;
+	}
+
+	class RenamingEditor extends ExcelEditor {
+
+		public RenamingEditor(File file) throws IOException {
+			super(file);
+		}
+
+		String find(String sheetName) throws SheetNotFoundException {
+			return getSheet(workbook, sheetName).getSheetName();
+		}
+
+		void rename(int sheetIndex, String sheetName, boolean invalidate) {
+			workbook.setSheetName(sheetIndex, sheetName);
+			if (invalidate) {
+				invalidateSheetNames();
+			}
+		}
+
+		@Override
+		protected void editRow(Row row) {
+		}
+	}
+
+	class TestStreamingEditor extends StreamingExcelEditor {
+
+		public TestStreamingEditor(File file) throws IOException {
+			super(file);
+		}
+
+		@Override
+		protected void editRow(EditableRow row) {
+			if (row.getDouble(1) % 2 == 0) {
+				row.setString(0, row.getString(0) + " edited");
+				row.setDouble(1, row.getDouble(1) * 2);
+			}
+		}
+	}
+
+	public static class Item {
+
+		@ExcelColumn(name = "Name")
+		String name;
+
+		@ExcelColumn(name = "Value")
+		double value;
+
+		public Item() {
+		}
+
+		Item(String name, double value) {
+			this.name = name;
+			this.value = value;
+		}
+	}
+}
@@ -1,18 +1,49 @@
 package com.doughtnerd.pod.excel.unitTests;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import com.doughtnerd.pod.excel.ColumnPlan;
+import com.doughtnerd.pod.excel.ColumnProjection;
 import com.doughtnerd.pod.excel.ExcelCellObject;
+import com.doughtnerd.pod.excel.ExcelMapper;
+import com.doughtnerd.pod.excel.ExcelRowView;
+import com.doughtnerd.pod.excel.ExcelWriter;
+import com.doughtnerd.pod.excel.MappedExcelReader;
+import com.doughtnerd.pod.excel.PodBatchReader;
+import com.doughtnerd.pod.excel.ReaderConfig;
+import com.doughtnerd.pod.excel.RowFilter;
+import com.doughtnerd.pod.excel.abstracts.ConfiguredViewReader;
 import com.doughtnerd.pod.excel.abstracts.ExcelReader;
 import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
+import com.doughtnerd.pod.excel.abstracts.ExcelViewReader;
+import com.doughtnerd.pod.excel.annotations.ExcelColumn;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.excel.enums.ExcelFormatType;
+import com.doughtnerd.pod.excel.enums.ExcelReadMode;
+import com.doughtnerd.pod.excel.exceptions.SheetNotFoundException;
+import com.doughtnerd.pod.excel.streaming.StreamingOptions;
 
 public class ExcelReaderTests {
 
@@ -21,6 +52,568 @@ public class ExcelReaderTests {
 
 	}
 
+	@Test
+	public void streamingReadMatchesDomReadTest() throws IOException, SheetNotFoundException {
+		File file = writeTestFile(ExcelFileType.XLSX, 50);
+		ArrayList<String> dom = readRows(new TestStringReader(file, ExcelReadMode.DOM));
+		ArrayList<String> streamed = readRows(new TestStringReader(file, ExcelReadMode.STREAMING));
+		Assert.assertEquals(50, streamed.size());
+		Assert.assertEquals(dom, streamed);
+		file.delete();
+	}
+
+	@Test
+	public void spilledSharedStringsMatchInMemoryTest() throws IOException, SheetNotFoundException {
+		File file = writeTestFile(ExcelFileType.XLSX, 50);
+		ArrayList<String> inMemory = readRows(new TestStringReader(file, ExcelReadMode.STREAMING));
+		ArrayList<String> spilled = readRows(
+				new TestStringReader(file, StreamingOptions.defaults().withSpilledSharedStrings(8)));
+		Assert.assertEquals(inMemory, spilled);
+		file.delete();
+	}
+
+	@Test
+	public void streamingXlsReadMatchesDomReadTest() throws IOException, SheetNotFoundException {
+		File file = writeTestFile(ExcelFileType.XLS, 50);
+		ArrayList<String> dom = readRows(new TestStringReader(file, ExcelReadMode.DOM));
+		ArrayList<String> streamed = readRows(new TestStringReader(file, ExcelReadMode.STREAMING));
+		Assert.assertEquals(50, streamed.size());
+		Assert.assertEquals(dom, streamed);
+		file.delete();
+	}
+
+	@Test
+	public void rowViewMatchesRowTest() throws IOException, SheetNotFoundException {
+		File file = writeTestFile(ExcelFileType.XLS, 50);
+		ArrayList<String> expected = readRows(new TestStringReader(file, ExcelReadMode.DOM));
+		Assert.assertEquals(expected, readRows(new TestViewReader(file, ExcelReadMode.DOM)));
+		Assert.assertEquals(expected, readRows(new TestViewReader(file, ExcelReadMode.STREAMING)));
+		file.delete();
+	}
+
+	@Test
+	public void columnProjectionSkipsOtherColumnsTest() throws IOException, SheetNotFoundException {
+		File file = writeTestFile(ExcelFileType.XLS, 10);
+		TestViewReader reader = new TestViewReader(file, ExcelReadMode.STREAMING) {
+			@Override
+			protected String extractItem(ExcelRowView row) {
+				return row.isBlank(0) + "=" + row.getDouble(1);
+			}
+		};
+		reader.setColumnProjection(ColumnProjection.ofHeaders("Value"));
+		ArrayList<String> rows = readRows(reader);
+		Assert.assertEquals(10, rows.size());
+		Assert.assertEquals("true=1.5", rows.get(1));
+		file.delete();
+	}
+
+	@Test
+	public void rowFilterSkipsRejectedRowsTest() throws IOException, SheetNotFoundException {
+		File file = writeTestFile(ExcelFileType.XLS, 20);
+		RowFilter filter = RowFilter.numberBetween(1, 3.0, 6.0).or(RowFilter.stringEquals(0, "Row 10"));
+		for (ExcelReadMode mode : ExcelReadMode.values()) {
+			TestStringReader reader = new TestStringReader(file, mode);
+			reader.setRowFilter(filter);
+			Assert.assertEquals(Arrays.asList("Row 2=3.0", "Row 3=4.5", "Row 4=6.0", "Row 10=15.0"), readRows(reader));
+		}
+		file.delete();
+	}
+
+	@Test
+	public void rowFilterRunsBeforeSharedStringsAreLookedUpTest() throws IOException, SheetNotFoundException {
+		// The shared strings table holds a single string, so the first row
+		// cannot be read, but the filter rejects it on its number alone.
+		File file = writeRawXlsx("<row r=\"1\"><c r=\"A1\"><v>1</v></c><c r=\"B1\" t=\"s\"><v>5</v></c></row>"
+				+ "<row r=\"2\"><c r=\"A2\"><v>2</v></c><c r=\"B2\" t=\"s\"><v>0</v></c></row>");
+		ExcelReader<String> reader = new TestViewReader(file, ExcelReadMode.STREAMING) {
+			@Override
+			protected String extractItem(ExcelRowView row) {
+				return row.getString(1);
+			}
+		};
+		reader.setRowFilter(RowFilter.numberBetween(0, 2.0, 2.0));
+		try {
+			Assert.assertEquals(Arrays.asList("Shared"), reader.processSheet(0, false));
+		} finally {
+			reader.close();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void annotatedMapperRoundTripTest() throws IOException {
+		ExcelMapper<MappedItem> mapper = ExcelMapper.of(MappedItem.class);
+		ArrayList<MappedItem> items = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			items.add(new MappedItem("Item " + i, i * 2.5, i % 2 == 0 ? Integer.valueOf(i) : null));
+		}
+		File file = File.createTempFile("pod", ".xls");
+		ExcelWriter.writeWorkbookToFile(ExcelWriter.writeNewSheetToNewWorkbook(ExcelFileType.XLS, "Items",
+				mapper.getHeaders(), mapper.toRowObjects(items)), file.getAbsolutePath());
+		for (ExcelReadMode mode : ExcelReadMode.values()) {
+			MappedExcelReader<ReorderedItem> reader = new MappedExcelReader<>(ReorderedItem.class, file, mode);
+			try {
+				ArrayList<ReorderedItem> read = reader.processSheet(0, true);
+				Assert.assertEquals(10, read.size());
+				Assert.assertEquals("Item 3", read.get(3).name);
+				Assert.assertEquals(7.5, read.get(3).value, 0.0);
+				Assert.assertNull(read.get(3).count);
+				Assert.assertEquals(Integer.valueOf(4), read.get(4).count);
+			} finally {
+				reader.close();
+			}
+		}
+		file.delete();
+	}
+
+	@Test
+	public void configuredReaderUsesCompiledPlanTest() throws IOException {
+		File data = writeTestFile(ExcelFileType.XLS, 5);
+		File configFile = File.createTempFile("pod", ".properties");
+		Properties props = new Properties();
+		props.setProperty("column.name.header", "Name");
+		props.setProperty("column.value.header", "Value");
+		props.setProperty("column.value.type", "double");
+		props.setProperty("column.extra.index", "7");
+		props.setProperty("column.extra.type", "int");
+		props.setProperty("column.extra.default", "3");
+		try (FileOutputStream out = new FileOutputStream(configFile)) {
+			props.store(out, null);
+		}
+		ReaderConfig config = ReaderConfig.load(configFile);
+		Assert.assertSame(config, ReaderConfig.load(configFile));
+		for (ExcelReadMode mode : ExcelReadMode.values()) {
+			TestConfiguredReader reader = new TestConfiguredReader(config, data, mode);
+			try {
+				Assert.assertEquals(Arrays.asList("Row 0=0.0/3", "Row 1=1.5/3", "Row 2=3.0/3", "Row 3=4.5/3",
+						"Row 4=6.0/3"), reader.getReader().processSheet(0, true));
+			} finally {
+				reader.getReader().close();
+			}
+		}
+		configFile.delete();
+		data.delete();
+	}
+
+	@Test
+	public void configuredRowMappingBindsPlanOnceTest() throws IOException {
+		File data = writeTestFile(ExcelFileType.XLS, 5);
+		Row row = new HSSFWorkbook().createSheet("Data").createRow(0);
+		row.createCell(0).setCellValue("Row 0");
+		row.createCell(1).setCellValue(1.5);
+		Properties byIndex = new Properties();
+		byIndex.setProperty("column.name.index", "0");
+		byIndex.setProperty("column.value.index", "1");
+		byIndex.setProperty("column.value.type", "double");
+		byIndex.setProperty("column.extra.index", "7");
+		byIndex.setProperty("column.extra.type", "int");
+		byIndex.setProperty("column.extra.default", "3");
+		TestConfiguredReader reader = new TestConfiguredReader(ReaderConfig.compile(byIndex), data, ExcelReadMode.DOM);
+		try {
+			Assert.assertEquals("Row 0=1.5/3", reader.extractItem(row, byIndex));
+			ColumnPlan plan = reader.lastPlan;
+			Assert.assertEquals("Row 0=1.5/3", reader.extractItem(row, byIndex));
+			Assert.assertSame(plan, reader.lastPlan);
+		} finally {
+			reader.getReader().close();
+		}
+		Properties byHeader = new Properties();
+		byHeader.setProperty("column.name.header", "Name");
+		byHeader.setProperty("column.value.index", "1");
+		byHeader.setProperty("column.extra.index", "7");
+		reader = new TestConfiguredReader(ReaderConfig.compile(byHeader), data, ExcelReadMode.DOM);
+		try {
+			reader.extractItem(row, byHeader);
+			Assert.fail("Mapped a row without a header row by header");
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("needs an index"));
+		} finally {
+			reader.getReader().close();
+		}
+		data.delete();
+	}
+
+	@Test
+	public void typedCellAccessorsTest() throws IOException {
+		Workbook workbook = new HSSFWorkbook();
+		Row row = workbook.createSheet("Types").createRow(0);
+		row.createCell(0).setCellValue(42.0);
+		row.createCell(1).setCellValue(" 2.5e1 ");
+		row.createCell(2).setCellValue("ACTIVE");
+		row.createCell(3).setCellValue(true);
+		row.createCell(4).setCellErrorValue(FormulaError.DIV0.getCode());
+		row.createCell(5).setCellFormula("A1/4");
+		workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+		Assert.assertEquals("42", ExcelReader.getCellString(row.getCell(0)));
+		Assert.assertEquals("10.5", ExcelReader.getCellString(row.getCell(5)));
+		Assert.assertEquals("TRUE", ExcelReader.getCellString(row.getCell(3)));
+		Assert.assertEquals("#DIV/0!", ExcelReader.getCellString(row.getCell(4)));
+		Assert.assertEquals("", ExcelReader.getCellString(row.getCell(6)));
+		Assert.assertEquals(25.0, ExcelReader.getCellDouble(row.getCell(1)), 0.0);
+		Assert.assertEquals(-1.0, ExcelReader.getCellDouble(row.getCell(2), -1.0), 0.0);
+		Assert.assertEquals(10L, ExcelReader.getCellLong(row.getCell(5)));
+		Assert.assertTrue(ExcelReader.getCellBoolean(row.getCell(3)));
+		Assert.assertNull(ExcelReader.getCellDate(row.getCell(2)));
+		Assert.assertEquals("42", ExcelReader.getCellStringValue(row.getCell(0)));
+		Assert.assertEquals("ACTIVE", ExcelReader.getCellStringValue(row.getCell(2)));
+		workbook.close();
+	}
+
+	@Test
+	public void cachedFormulaResultsTest() throws IOException {
+		Workbook workbook = new HSSFWorkbook();
+		Row row = workbook.createSheet("Formulas").createRow(0);
+		row.createCell(0).setCellValue("abc");
+		row.createCell(1).setCellFormula("A1&\"d\"");
+		row.createCell(2).setCellFormula("1=1");
+		row.createCell(3).setCellFormula("1/0");
+		row.createCell(4).setCellFormula("2*3");
+		workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+		File file = File.createTempFile("pod", ".xls");
+		ExcelWriter.writeWorkbookToFile(workbook, file.getAbsolutePath());
+		for (ExcelReadMode mode : ExcelReadMode.values()) {
+			ExcelReader<String> reader = new TestViewReader(file, mode) {
+				@Override
+				protected String extractItem(ExcelRowView row) {
+					return row.getString(1) + "/" + row.getBoolean(2) + "/" + row.getCellType(3) + "/"
+							+ row.getDouble(4);
+				}
+			};
+			try {
+				Assert.assertEquals(Arrays.asList("abcd/true/ERROR/6.0"), reader.processSheet(0, false));
+			} finally {
+				reader.close();
+			}
+		}
+		file.delete();
+	}
+
+	@Test
+	public void streamSheetMatchesProcessSheetTest() throws IOException {
+		File file = writeTestFile(ExcelFileType.XLS, 20);
+		TestStringReader reader = new TestStringReader(file, ExcelReadMode.DOM);
+		try {
+			ArrayList<String> expected = reader.processSheet(0, true);
+			Assert.assertEquals(expected, reader.streamSheet(0, true).collect(Collectors.toList()));
+			Assert.assertEquals(expected.get(0), reader.iterateSheet(0, true).next());
+			Assert.assertEquals(20, reader.streamDocument(true).count());
+		} finally {
+			reader.close();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void parallelProcessDocumentTest() throws IOException {
+		File file = writeTestFile(ExcelFileType.XLS, 20);
+		TestStringReader reader = new TestStringReader(file, ExcelReadMode.DOM);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Assert.assertEquals(reader.processDocument(true), reader.processDocument(true, executor));
+		} finally {
+			executor.shutdown();
+			reader.close();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void parallelProcessSheetKeepsRowOrderTest() throws IOException {
+		// Streaming reads map batches of 512 rows and keep at most two per
+		// worker in flight, so 3000 rows on two workers fill that limit.
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			for (ExcelFileType type : Arrays.asList(ExcelFileType.XLS, ExcelFileType.XLSX)) {
+				File file = writeTestFile(type, 3000);
+				for (ExcelReadMode mode : ExcelReadMode.values()) {
+					TestStringReader sequential = new TestStringReader(file, mode);
+					TestStringReader parallel = new TestStringReader(file, mode);
+					try {
+						ArrayList<String> expected = sequential.processSheet(0, true);
+						ArrayList<String> rows = parallel.processSheet(0, true, pool);
+						Assert.assertEquals(3000, rows.size());
+						Assert.assertEquals("Row 2999=4498.5", rows.get(2999));
+						Assert.assertEquals(type + " " + mode, expected, rows);
+					} finally {
+						sequential.close();
+						parallel.close();
+					}
+				}
+				file.delete();
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void sheetLookupPrefersExactNameTest() throws IOException, SheetNotFoundException {
+		Workbook workbook = new HSSFWorkbook();
+		workbook.createSheet("Data 2024");
+		workbook.createSheet("Data");
+		workbook.createSheet("Summary");
+		File file = File.createTempFile("pod", ".xls");
+		ExcelWriter.writeWorkbookToFile(workbook, file.getAbsolutePath());
+		for (ExcelReadMode mode : ExcelReadMode.values()) {
+			TestStringReader reader = new TestStringReader(file, mode);
+			try {
+				Assert.assertEquals(1, reader.getFirstIndexOfSheetContaining("Data", true));
+				Assert.assertEquals(0, reader.getFirstIndexOfSheetContaining("2024", true));
+				Assert.assertEquals(2, reader.getFirstIndexOfSheetContaining("summ", false));
+				Assert.assertEquals(-1, reader.getFirstIndexOfSheetContaining("summ", true));
+				Assert.assertTrue(reader.processSheet("Data", true).isEmpty());
+			} finally {
+				reader.close();
+			}
+		}
+		file.delete();
+	}
+
+	@Test
+	public void batchReaderIsolatesFailedFilesTest() throws IOException {
+		File first = writeTestFile(ExcelFileType.XLS, 300);
+		File second = writeTestFile(ExcelFileType.XLS, 5);
+		File broken = File.createTempFile("pod", ".xls");
+		try (FileOutputStream out = new FileOutputStream(broken)) {
+			out.write("not a workbook".getBytes("UTF-8"));
+		}
+		PodBatchReader<String> batch = PodBatchReader.mapping(row -> row.getString(0), ExcelReadMode.DOM, true, 2);
+		ArrayList<Path> failed = new ArrayList<>();
+		ArrayList<String> rows = new ArrayList<>();
+		batch.read(Arrays.asList(first.toPath(), broken.toPath(), second.toPath()), rows::add,
+				(file, e) -> failed.add(file));
+		Assert.assertEquals(Arrays.asList(broken.toPath()), failed);
+		Assert.assertEquals(305, rows.size());
+		Assert.assertTrue(rows.contains("Row 299"));
+		first.delete();
+		second.delete();
+		broken.delete();
+	}
+
+	@Test
+	public void streamingReadsMissingHeaderRowAndEmptySharedStringTest() throws IOException, SheetNotFoundException {
+		File file = writeRawXlsx("<row r=\"2\"><c r=\"A2\" t=\"s\"/><c r=\"B2\" t=\"s\"><v>0</v></c></row>");
+		ExcelReader<String> dom = new TestViewReader(file, ExcelReadMode.DOM);
+		ExcelReader<String> streamed = new TestViewReader(file, ExcelReadMode.STREAMING);
+		try {
+			Assert.assertEquals(dom.extractHeaders(0), streamed.extractHeaders(0));
+			Assert.assertTrue(streamed.extractHeaders(0).isEmpty());
+		} finally {
+			dom.close();
+			streamed.close();
+		}
+		ExcelReader<String> reader = new TestViewReader(file, ExcelReadMode.STREAMING) {
+			@Override
+			protected String extractItem(ExcelRowView row) {
+				return row.getCellType(0) + "/" + row.getString(1);
+			}
+		};
+		try {
+			Assert.assertEquals(Arrays.asList("BLANK/Shared"), reader.processSheet(0, false));
+		} finally {
+			reader.close();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void domReaderReleasesFileWithoutCloseTest() throws IOException, SheetNotFoundException {
+		Assume.assumeTrue(new File("/proc/self/fd").isDirectory());
+		for (ExcelFileType type : Arrays.asList(ExcelFileType.XLS, ExcelFileType.XLSX)) {
+			File file = writeTestFile(type, 20);
+			TestStringReader reader = new TestStringReader(file, ExcelReadMode.DOM);
+			Assert.assertEquals(20, reader.processSheet(0, true).size());
+			Assert.assertFalse(isOpen(file));
+			Assert.assertTrue(file.delete());
+		}
+	}
+
+	@Test
+	public void fileBackedReaderHoldsFileUntilCloseTest() throws IOException, SheetNotFoundException {
+		Assume.assumeTrue(new File("/proc/self/fd").isDirectory());
+		File file = writeTestFile(ExcelFileType.XLSX, 20);
+		TestStringReader reader = new TestStringReader(file, ExcelReadMode.DOM_FILE_BACKED);
+		try {
+			Assert.assertEquals(20, reader.processSheet(0, true).size());
+			Assert.assertTrue(isOpen(file));
+		} finally {
+			reader.close();
+		}
+		Assert.assertFalse(isOpen(file));
+		file.delete();
+	}
+
+	/**
+	 * Checks whether a descriptor of this process points at the given file.
+	 */
+	private static boolean isOpen(File file) throws IOException {
+		Path path = file.toPath().toRealPath();
+		for (File fd : new File("/proc/self/fd").listFiles()) {
+			try {
+				if (path.equals(fd.toPath().toRealPath())) {
+					return true;
+				}
+			} catch (IOException e) {
+				// the descriptor closed while the directory was listed
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes a minimal xlsx package with one sheet named Data holding the
+	 * given row elements and one shared string, "Shared".
+	 */
+	static File writeRawXlsx(String rows) throws IOException {
+		File file = File.createTempFile("pod", ".xlsx");
+		String main = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+		String rel = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+		String type = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+		String[][] parts = {
+				{ "[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+						+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+						+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+						+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + type + "sheet.main+xml\"/>"
+						+ "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"" + type + "worksheet+xml\"/>"
+						+ "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"" + type + "sharedStrings+xml\"/>"
+						+ "</Types>" },
+				{ "_rels/.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+						+ "<Relationship Id=\"rId1\" Type=\"" + rel + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+						+ "</Relationships>" },
+				{ "xl/workbook.xml", "<workbook xmlns=\"" + main + "\" xmlns:r=\"" + rel + "\"><sheets>"
+						+ "<sheet name=\"Data\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>" },
+				{ "xl/_rels/workbook.xml.rels",
+						"<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+								+ "<Relationship Id=\"rId1\" Type=\"" + rel + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+								+ "<Relationship Id=\"rId2\" Type=\"" + rel + "/sharedStrings\" Target=\"sharedStrings.xml\"/>"
+								+ "</Relationships>" },
+				{ "xl/sharedStrings.xml", "<sst xmlns=\"" + main + "\" count=\"1\" uniqueCount=\"1\"><si><t>Shared</t></si></sst>" },
+				{ "xl/worksheets/sheet1.xml", "<worksheet xmlns=\"" + main + "\"><sheetData>" + rows
+						+ "</sheetData></worksheet>" } };
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+			for (String[] part : parts) {
+				out.putNextEntry(new ZipEntry(part[0]));
+				out.write(part[1].getBytes("UTF-8"));
+				out.closeEntry();
+			}
+		}
+		return file;
+	}
+
+	private ArrayList<String> readRows(ExcelReader<String> reader) throws IOException, SheetNotFoundException {
+		try {
+			Assert.assertEquals(Arrays.asList("Name", "Value"), reader.extractHeaders(0));
+			return reader.processSheet(0, true);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private File writeTestFile(ExcelFileType type, int rows) throws IOException {
+		ArrayList<TestData> list = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			TestData data = new TestData();
+			data.data.add("Row " + i);
+			data.data.add(Double.valueOf(i * 1.5));
+			list.add(data);
+		}
+		File file = File.createTempFile("pod", type == ExcelFileType.XLS ? ".xls" : ".xlsx");
+		Workbook workbook = ExcelWriter.writeNewSheetToNewWorkbook(type, "Data", Arrays.asList("Name", "Value"),
+				list);
+		ExcelWriter.writeWorkbookToFile(workbook, file.getAbsolutePath());
+		return file;
+	}
+
+	class TestStringReader extends ExcelReader<String> {
+
+		public TestStringReader(File file, ExcelReadMode mode) throws IOException {
+			super(file, mode);
+		}
+
+		public TestStringReader(File file, StreamingOptions options) throws IOException {
+			super(file, options);
+		}
+
+		@Override
+		protected String extractItem(Row row) {
+			return row.getCell(0).getStringCellValue() + "=" + row.getCell(1).getNumericCellValue();
+		}
+	}
+
+	class TestViewReader extends ExcelViewReader<String> {
+
+		public TestViewReader(File file, ExcelReadMode mode) throws IOException {
+			super(file, mode);
+		}
+
+		@Override
+		protected String extractItem(ExcelRowView row) {
+			return row.getString(0) + "=" + row.getDouble(1);
+		}
+	}
+
+	static class TestConfiguredReader extends ConfiguredViewReader<String> {
+
+		private int name;
+
+		private int value;
+
+		private int extra;
+
+		private ColumnPlan lastPlan;
+
+		TestConfiguredReader(ReaderConfig config, File file, ExcelReadMode mode) throws IOException {
+			super(config, file, mode);
+		}
+
+		@Override
+		public void configureReader(ReaderConfig config) {
+			name = config.slot("name");
+			value = config.slot("value");
+			extra = config.slot("extra");
+		}
+
+		@Override
+		public String extractItem(ExcelRowView row, ColumnPlan plan) {
+			lastPlan = plan;
+			return plan.getString(row, name) + "=" + plan.getDouble(row, value) + "/" + plan.getInt(row, extra);
+		}
+	}
+
+	public static class MappedItem {
+
+		@ExcelColumn(name = "Name")
+		String name;
+
+		@ExcelColumn(name = "Value", format = ExcelFormatType.US_CURRENCY)
+		double value;
+
+		@ExcelColumn(name = "Count")
+		Integer count;
+
+		public MappedItem() {
+		}
+
+		MappedItem(String name, double value, Integer count) {
+			this.name = name;
+			this.value = value;
+			this.count = count;
+		}
+	}
+
+	public static class ReorderedItem {
+
+		@ExcelColumn(name = "Count")
+		Integer count;
+
+		@ExcelColumn(name = "Name")
+		String name;
+
+		@ExcelColumn(name = "Value")
+		double value;
+	}
+
 	class TestReader extends ExcelReader<TestData>{
 
 		public TestReader(File file) throws IOException {
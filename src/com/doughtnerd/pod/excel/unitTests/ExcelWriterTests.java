@@ -0,0 +1,220 @@
+package com.doughtnerd.pod.excel.unitTests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.doughtnerd.pod.excel.ExcelCellObject;
+import com.doughtnerd.pod.excel.ExcelSheetWriter;
+import com.doughtnerd.pod.excel.ExcelWriter;
+import com.doughtnerd.pod.excel.RowSink;
+import com.doughtnerd.pod.excel.StyleRef;
+import com.doughtnerd.pod.excel.abstracts.ExcelRowObject;
+import com.doughtnerd.pod.excel.abstracts.SinkRowObject;
+import com.doughtnerd.pod.excel.enums.ExcelFileType;
+import com.doughtnerd.pod.excel.enums.ExcelFormatType;
+import com.doughtnerd.pod.metrics.PodMetricsRecorder;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+
+public class ExcelWriterTests {
+
+	@Test
+	public void stylesAreSharedAcrossSheetsTest() {
+		Workbook workbook = ExcelWriter.getNewWorkbook(ExcelFileType.XLS);
+		int builtInStyles = workbook.getNumCellStyles();
+		ExcelWriter.writeNewSheetToWorkbook(workbook, "First", null, createRows(100));
+		ExcelWriter.writeNewSheetToWorkbook(workbook, "Second", null, createRows(100));
+		Assert.assertEquals(builtInStyles + 2, workbook.getNumCellStyles());
+
+		Sheet first = workbook.getSheet("First");
+		Sheet second = workbook.getSheet("Second");
+		Assert.assertEquals(first.getRow(5).getCell(1).getCellStyle().getIndex(),
+				second.getRow(50).getCell(1).getCellStyle().getIndex());
+		Assert.assertEquals("0.0%", second.getRow(50).getCell(1).getCellStyle().getDataFormatString());
+		Assert.assertEquals(HorizontalAlignment.RIGHT,
+				second.getRow(50).getCell(1).getCellStyle().getAlignmentEnum());
+		Assert.assertEquals(HorizontalAlignment.GENERAL,
+				second.getRow(50).getCell(0).getCellStyle().getAlignmentEnum());
+	}
+
+	@Test
+	public void openSheetWritesAppendedRowsTest() throws IOException {
+		File file = File.createTempFile("pod", ".xlsx");
+		ExcelSheetWriter<TestRow> writer = ExcelWriter.openSheet(file.getAbsolutePath(), "Data",
+				Arrays.asList("Name", "Percent"), 10, true);
+		try {
+			writer.appendAll(createRows(100).iterator());
+			writer.flush();
+			writer.appendAll(createRows(250).subList(100, 250));
+			writer.append(new TestRow("Last", 1.0));
+			Assert.assertEquals(252, writer.getRowCount());
+		} finally {
+			writer.close();
+		}
+		try (Workbook workbook = new XSSFWorkbook(new FileInputStream(file))) {
+			Sheet sheet = workbook.getSheet("Data");
+			Assert.assertEquals(251, sheet.getLastRowNum());
+			Assert.assertEquals("Name", sheet.getRow(0).getCell(0).getStringCellValue());
+			Assert.assertEquals("Percent", sheet.getRow(0).getCell(1).getStringCellValue());
+			Assert.assertEquals("Row 5", sheet.getRow(6).getCell(0).getStringCellValue());
+			Assert.assertEquals(0.05, sheet.getRow(6).getCell(1).getNumericCellValue(), 0.0);
+			Assert.assertEquals("0.0%", sheet.getRow(6).getCell(1).getCellStyle().getDataFormatString());
+			Assert.assertEquals("Row 149", sheet.getRow(150).getCell(0).getStringCellValue());
+			Assert.assertEquals("Last", sheet.getRow(251).getCell(0).getStringCellValue());
+			Assert.assertEquals(1.0, sheet.getRow(251).getCell(1).getNumericCellValue(), 0.0);
+		}
+		file.delete();
+	}
+
+	@Test
+	public void failedAppendDiscardsWorkbookTest() throws IOException {
+		File file = File.createTempFile("pod", ".xlsx");
+		file.delete();
+		Iterator<TestRow> failing = new Iterator<TestRow>() {
+			private int count;
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public TestRow next() {
+				if (count == 20) {
+					throw new IllegalStateException("Source failed");
+				}
+				return new TestRow("Row " + count, count++ / 100.0);
+			}
+		};
+		ExcelSheetWriter<TestRow> writer = ExcelWriter.openSheet(file.getAbsolutePath(), "Data", null, 10, true);
+		try {
+			try {
+				writer.appendAll(failing);
+				Assert.fail("The source should have failed");
+			} catch (IllegalStateException e) {
+				Assert.assertEquals("Source failed", e.getMessage());
+			}
+			Assert.assertTrue(writer.isFailed());
+			try {
+				writer.append(new TestRow("After", 0.5));
+				Assert.fail("A failed writer accepted a row");
+			} catch (IllegalStateException e) {
+			}
+			Assert.assertEquals(20, writer.getRowCount());
+		} finally {
+			writer.close();
+		}
+		Assert.assertFalse(file.exists());
+
+		ExcelSheetWriter<TestRow> aborted = ExcelWriter.openSheet(file.getAbsolutePath(), "Data", null);
+		aborted.append(new TestRow("Only", 0.5));
+		aborted.abort();
+		aborted.close();
+		Assert.assertTrue(aborted.isFailed());
+		Assert.assertFalse(file.exists());
+	}
+
+	@Test
+	public void rowSinkMatchesCellObjectsTest() {
+		Workbook workbook = ExcelWriter.getNewWorkbook(ExcelFileType.XLS);
+		ExcelWriter.writeNewSheetToWorkbook(workbook, "Cells", null, createRows(10));
+		List<SinkRow> sinkRows = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			sinkRows.add(new SinkRow("Row " + i, i / 100.0));
+		}
+		int styles = workbook.getNumCellStyles();
+		ExcelWriter.writeNewSheetToWorkbook(workbook, "Sink", null, sinkRows);
+		Assert.assertEquals(styles, workbook.getNumCellStyles());
+
+		Sheet cells = workbook.getSheet("Cells");
+		Sheet sink = workbook.getSheet("Sink");
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(cells.getRow(i).getCell(0).getStringCellValue(),
+					sink.getRow(i).getCell(0).getStringCellValue());
+			Assert.assertEquals(cells.getRow(i).getCell(1).getNumericCellValue(),
+					sink.getRow(i).getCell(1).getNumericCellValue(), 0.0);
+			Assert.assertEquals(cells.getRow(i).getCell(1).getCellStyle().getIndex(),
+					sink.getRow(i).getCell(1).getCellStyle().getIndex());
+		}
+		ExcelCellObject[] collected = sinkRows.get(3).toCellObjectArray();
+		Assert.assertEquals(2, collected.length);
+		Assert.assertEquals("Row 3", collected[0].getValue());
+		Assert.assertEquals(0.03, (Double) collected[1].getValue(), 0.0);
+		Assert.assertEquals("0.0%", collected[1].getDataFormat().getFormatString());
+	}
+
+	@Test
+	public void metricsReportRowsCellsAndStylesTest() {
+		PodMetricsRecorder recorder = new PodMetricsRecorder();
+		PodMetricsRegistry.set(recorder);
+		try {
+			Workbook workbook = ExcelWriter.getNewWorkbook(ExcelFileType.XLS);
+			ExcelWriter.writeNewSheetToWorkbook(workbook, "Data", Arrays.asList("Name", "Percent"), createRows(25));
+			Assert.assertEquals(25, recorder.getRowsWritten());
+			Assert.assertEquals(50, recorder.getCellsWritten());
+			Assert.assertEquals(26, recorder.getPeakRowsBuffered());
+			Assert.assertEquals(2, recorder.getStylesCreated());
+		} finally {
+			PodMetricsRegistry.set(null);
+		}
+		Assert.assertFalse(PodMetricsRegistry.isEnabled());
+	}
+
+	private List<TestRow> createRows(int count) {
+		List<TestRow> rows = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			rows.add(new TestRow("Row " + i, i / 100.0));
+		}
+		return rows;
+	}
+
+	class TestRow extends ExcelRowObject {
+
+		private String name;
+
+		private double percent;
+
+		public TestRow(String name, double percent) {
+			this.name = name;
+			this.percent = percent;
+		}
+
+		@Override
+		public ExcelCellObject[] toCellObjectArray() {
+			ExcelCellObject percentCell = this.createCell(percent, ExcelFormatType.PERCENT);
+			percentCell.setHorizontalAlignment(HorizontalAlignment.RIGHT);
+			return new ExcelCellObject[] { this.createCell(name), percentCell };
+		}
+	}
+
+	class SinkRow extends SinkRowObject {
+
+		private final StyleRef percentStyle = StyleRef.of(ExcelFormatType.PERCENT, false, HorizontalAlignment.RIGHT);
+
+		private String name;
+
+		private double percent;
+
+		public SinkRow(String name, double percent) {
+			this.name = name;
+			this.percent = percent;
+		}
+
+		@Override
+		public void writeTo(RowSink sink) {
+			sink.writeString(0, name, StyleRef.GENERAL);
+			sink.writeDouble(1, percent, percentStyle);
+		}
+	}
+}
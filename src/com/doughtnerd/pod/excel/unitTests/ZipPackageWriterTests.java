@@ -0,0 +1,181 @@
+package com.doughtnerd.pod.excel.unitTests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.util.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.doughtnerd.pod.excel.ZipPackageWriter;
+
+public class ZipPackageWriterTests {
+
+	@Test
+	public void copiedEntriesKeepTheirStoredBytesTest() throws IOException {
+		File source = writeSource();
+		File copy = File.createTempFile("pod", ".zip");
+		ZipPackageWriter out = new ZipPackageWriter(source, new FileOutputStream(copy));
+		try {
+			Assert.assertEquals(Arrays.asList("deflated.xml", "stored.bin", "replaced.xml"), out.getSourceEntryNames());
+			out.copyEntry("deflated.xml");
+			out.copyEntry("stored.bin");
+			out.putNextEntry("replaced.xml");
+			out.getEntryStream().write("<new/>".getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		} finally {
+			out.close();
+		}
+		Map<String, byte[]> before = rawEntries(source);
+		Map<String, byte[]> after = rawEntries(copy);
+		Assert.assertArrayEquals(before.get("deflated.xml"), after.get("deflated.xml"));
+		Assert.assertArrayEquals(before.get("stored.bin"), after.get("stored.bin"));
+		try (ZipFile zip = new ZipFile(copy)) {
+			Assert.assertEquals(3, zip.size());
+			Assert.assertEquals(ZipEntry.STORED, zip.getEntry("stored.bin").getMethod());
+			Assert.assertEquals(xml(), new String(read(zip, "deflated.xml"), StandardCharsets.UTF_8));
+			Assert.assertEquals("<new/>", new String(read(zip, "replaced.xml"), StandardCharsets.UTF_8));
+		}
+		try (ZipInputStream in = new ZipInputStream(new FileInputStream(copy))) {
+			int entries = 0;
+			while (in.getNextEntry() != null) {
+				IOUtils.toByteArray(in);
+				entries++;
+			}
+			Assert.assertEquals(3, entries);
+		}
+		source.delete();
+		copy.delete();
+	}
+
+	@Test
+	public void misuseIsRejectedTest() throws IOException {
+		File source = writeSource();
+		File copy = File.createTempFile("pod", ".zip");
+		ZipPackageWriter out = new ZipPackageWriter(source, new FileOutputStream(copy));
+		try {
+			try {
+				out.copyEntry("missing.xml");
+				Assert.fail("Copied a missing entry");
+			} catch (IllegalArgumentException e) {
+			}
+			out.putNextEntry("open.xml");
+			try {
+				out.copyEntry("deflated.xml");
+				Assert.fail("Copied an entry while another was open");
+			} catch (IllegalStateException e) {
+			}
+		} finally {
+			out.close();
+		}
+		try (ZipFile zip = new ZipFile(copy)) {
+			Assert.assertEquals(0, read(zip, "open.xml").length);
+		}
+		source.delete();
+		copy.delete();
+	}
+
+	@Test(expected = ZipException.class)
+	public void sourceMustBeZipTest() throws IOException {
+		File source = File.createTempFile("pod", ".zip");
+		try (FileOutputStream out = new FileOutputStream(source)) {
+			out.write(new byte[100]);
+		}
+		try {
+			new ZipPackageWriter(source, new ByteArrayOutputStream()).close();
+		} finally {
+			source.delete();
+		}
+	}
+
+	/**
+	 * Writes an archive with a deflated entry, which ZipOutputStream follows
+	 * with a data descriptor, a stored entry and an entry to be replaced.
+	 */
+	private static File writeSource() throws IOException {
+		File file = File.createTempFile("pod", ".zip");
+		byte[] binary = new byte[1000];
+		for (int i = 0; i < binary.length; i++) {
+			binary[i] = (byte) (i * 31);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(binary);
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+			out.putNextEntry(new ZipEntry("deflated.xml"));
+			out.write(xml().getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+			ZipEntry stored = new ZipEntry("stored.bin");
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(binary.length);
+			stored.setCrc(crc.getValue());
+			out.putNextEntry(stored);
+			out.write(binary);
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("replaced.xml"));
+			out.write("<old/>".getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+		return file;
+	}
+
+	private static String xml() {
+		StringBuilder xml = new StringBuilder("<rows>");
+		for (int i = 0; i < 200; i++) {
+			xml.append("<row r=\"").append(i).append("\"/>");
+		}
+		return xml.append("</rows>").toString();
+	}
+
+	private static byte[] read(ZipFile zip, String name) throws IOException {
+		try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+			return IOUtils.toByteArray(in);
+		}
+	}
+
+	/**
+	 * Returns the data of every entry of an archive as it is stored, before
+	 * it is inflated, keyed by entry name.
+	 */
+	static Map<String, byte[]> rawEntries(File file) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			ByteBuffer zip = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+			int end = bytes.length - 22;
+			while (zip.getInt(end) != 0x06054b50) {
+				end--;
+			}
+			int count = zip.getShort(end + 10) & 0xFFFF;
+			int position = zip.getInt(end + 16);
+			Map<String, byte[]> entries = new LinkedHashMap<>();
+			for (int i = 0; i < count; i++) {
+				int compressedSize = zip.getInt(position + 20);
+				int nameLength = zip.getShort(position + 28) & 0xFFFF;
+				int skip = nameLength + (zip.getShort(position + 30) & 0xFFFF) + (zip.getShort(position + 32) & 0xFFFF);
+				int local = zip.getInt(position + 42);
+				String name = new String(bytes, position + 46, nameLength, StandardCharsets.UTF_8);
+				int data = local + 30 + (zip.getShort(local + 26) & 0xFFFF) + (zip.getShort(local + 28) & 0xFFFF);
+				entries.put(name, Arrays.copyOfRange(bytes, data, data + compressedSize));
+				position += 46 + skip;
+			}
+			return entries;
+		}
+	}
+}
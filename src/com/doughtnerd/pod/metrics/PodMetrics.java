@@ -0,0 +1,118 @@
+package com.doughtnerd.pod.metrics;
+
+/**
+ * This interface receives measurements from the readers, writers and editors
+ * of POD while they work. Every method has an empty default implementation,
+ * so a listener only overrides the events it cares about. A listener is
+ * installed with {@link PodMetricsRegistry#set(PodMetrics)}.
+ * <p>
+ * Methods may be called from several threads at once when sheets or rows are
+ * processed in parallel, so implementations must be thread safe. Durations
+ * are given in nanoseconds.
+ * </p>
+ *
+ * @see PodMetricsRecorder
+ * @author Christopher Carlson
+ *
+ */
+public interface PodMetrics {
+
+	/**
+	 * The listener installed by default, which ignores every event.
+	 */
+	PodMetrics NO_OP = new PodMetrics() {
+	};
+
+	/**
+	 * Called after a workbook or document has been loaded from a file.
+	 *
+	 * @param source
+	 *            The path of the file.
+	 * @param nanos
+	 *            The time spent loading the file.
+	 */
+	default void documentLoaded(String source, long nanos) {
+	}
+
+	/**
+	 * Called after the data rows of a sheet have been read.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet.
+	 * @param rows
+	 *            The number of data rows passed to extractItem.
+	 * @param extractNanos
+	 *            The time spent in extractItem, or -1 if the rows were mapped
+	 *            in parallel and this time was not measured.
+	 * @param elapsedNanos
+	 *            The total time spent reading the sheet.
+	 */
+	default void sheetRead(String sheetName, long rows, long extractNanos, long elapsedNanos) {
+	}
+
+	/**
+	 * Called after rows have been written to a sheet.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet.
+	 * @param rows
+	 *            The number of data rows written.
+	 * @param cells
+	 *            The number of cells written.
+	 * @param peakRowsBuffered
+	 *            The largest number of rows held in memory at once.
+	 * @param elapsedNanos
+	 *            The total time spent writing the rows.
+	 */
+	default void sheetWritten(String sheetName, long rows, long cells, long peakRowsBuffered, long elapsedNanos) {
+	}
+
+	/**
+	 * Called after the rows of a sheet have been edited.
+	 *
+	 * @param sheetName
+	 *            The name of the sheet.
+	 * @param rows
+	 *            The number of data rows passed to editRow.
+	 * @param editNanos
+	 *            The time spent in editRow.
+	 * @param elapsedNanos
+	 *            The total time spent editing the sheet.
+	 */
+	default void sheetEdited(String sheetName, long rows, long editNanos, long elapsedNanos) {
+	}
+
+	/**
+	 * Called when a new cell style is added to a workbook being written.
+	 *
+	 * @param styleIndex
+	 *            The index of the new style.
+	 */
+	default void styleCreated(int styleIndex) {
+	}
+
+	/**
+	 * Called after a placeholder has been replaced throughout a Word
+	 * document.
+	 *
+	 * @param placeholder
+	 *            The name of the placeholder.
+	 * @param replacements
+	 *            The number of runs the placeholder was replaced in.
+	 * @param nanos
+	 *            The time spent searching and replacing.
+	 */
+	default void placeholderReplaced(String placeholder, int replacements, long nanos) {
+	}
+
+	/**
+	 * Called after a workbook or document has been serialized to a file.
+	 *
+	 * @param destination
+	 *            The path of the file.
+	 * @param nanos
+	 *            The time spent serializing.
+	 */
+	default void documentSaved(String destination, long nanos) {
+	}
+}
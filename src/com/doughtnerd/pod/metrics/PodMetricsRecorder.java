@@ -0,0 +1,254 @@
+package com.doughtnerd.pod.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link PodMetrics} listener that adds up every measurement it receives,
+ * for jobs that want totals and throughput rather than individual events.
+ *
+ * <pre>
+ * PodMetricsRecorder recorder = new PodMetricsRecorder();
+ * PodMetricsRegistry.set(recorder);
+ * // run the job
+ * System.out.println(recorder);
+ * </pre>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public class PodMetricsRecorder implements PodMetrics {
+
+	/**
+	 * The time spent loading files, in nanoseconds.
+	 */
+	private final LongAdder loadNanos = new LongAdder();
+
+	/**
+	 * The number of data rows read.
+	 */
+	private final LongAdder rowsRead = new LongAdder();
+
+	/**
+	 * The time spent in extractItem, in nanoseconds.
+	 */
+	private final LongAdder extractNanos = new LongAdder();
+
+	/**
+	 * The time spent reading sheets, in nanoseconds.
+	 */
+	private final LongAdder readNanos = new LongAdder();
+
+	/**
+	 * The number of data rows written.
+	 */
+	private final LongAdder rowsWritten = new LongAdder();
+
+	/**
+	 * The number of cells written.
+	 */
+	private final LongAdder cellsWritten = new LongAdder();
+
+	/**
+	 * The time spent writing sheets, in nanoseconds.
+	 */
+	private final LongAdder writeNanos = new LongAdder();
+
+	/**
+	 * The largest number of rows any writer held in memory at once.
+	 */
+	private final AtomicLong peakRowsBuffered = new AtomicLong();
+
+	/**
+	 * The number of rows edited.
+	 */
+	private final LongAdder rowsEdited = new LongAdder();
+
+	/**
+	 * The time spent in editRow, in nanoseconds.
+	 */
+	private final LongAdder editNanos = new LongAdder();
+
+	/**
+	 * The number of cell styles created.
+	 */
+	private final LongAdder stylesCreated = new LongAdder();
+
+	/**
+	 * The number of runs placeholders were replaced in.
+	 */
+	private final LongAdder replacements = new LongAdder();
+
+	/**
+	 * The time spent replacing placeholders, in nanoseconds.
+	 */
+	private final LongAdder replaceNanos = new LongAdder();
+
+	/**
+	 * The time spent saving files, in nanoseconds.
+	 */
+	private final LongAdder saveNanos = new LongAdder();
+
+	@Override
+	public void documentLoaded(String source, long nanos) {
+		loadNanos.add(nanos);
+	}
+
+	@Override
+	public void sheetRead(String sheetName, long rows, long extractNanos, long elapsedNanos) {
+		rowsRead.add(rows);
+		if (extractNanos >= 0) {
+			this.extractNanos.add(extractNanos);
+		}
+		readNanos.add(elapsedNanos);
+	}
+
+	@Override
+	public void sheetWritten(String sheetName, long rows, long cells, long peakRowsBuffered, long elapsedNanos) {
+		rowsWritten.add(rows);
+		cellsWritten.add(cells);
+		writeNanos.add(elapsedNanos);
+		this.peakRowsBuffered.accumulateAndGet(peakRowsBuffered, Math::max);
+	}
+
+	@Override
+	public void sheetEdited(String sheetName, long rows, long editNanos, long elapsedNanos) {
+		rowsEdited.add(rows);
+		this.editNanos.add(editNanos);
+	}
+
+	@Override
+	public void styleCreated(int styleIndex) {
+		stylesCreated.increment();
+	}
+
+	@Override
+	public void placeholderReplaced(String placeholder, int replacements, long nanos) {
+		this.replacements.add(replacements);
+		replaceNanos.add(nanos);
+	}
+
+	@Override
+	public void documentSaved(String destination, long nanos) {
+		saveNanos.add(nanos);
+	}
+
+	/**
+	 * @return The total time spent loading files, in nanoseconds.
+	 */
+	public long getLoadNanos() {
+		return loadNanos.sum();
+	}
+
+	/**
+	 * @return The number of data rows read.
+	 */
+	public long getRowsRead() {
+		return rowsRead.sum();
+	}
+
+	/**
+	 * @return The time spent in extractItem, in nanoseconds. Parallel reads
+	 *         are not included.
+	 */
+	public long getExtractNanos() {
+		return extractNanos.sum();
+	}
+
+	/**
+	 * @return The rows read per second of reading time.
+	 */
+	public double getRowsReadPerSecond() {
+		return perSecond(rowsRead.sum(), readNanos.sum());
+	}
+
+	/**
+	 * @return The number of data rows written.
+	 */
+	public long getRowsWritten() {
+		return rowsWritten.sum();
+	}
+
+	/**
+	 * @return The number of cells written.
+	 */
+	public long getCellsWritten() {
+		return cellsWritten.sum();
+	}
+
+	/**
+	 * @return The rows written per second of writing time.
+	 */
+	public double getRowsWrittenPerSecond() {
+		return perSecond(rowsWritten.sum(), writeNanos.sum());
+	}
+
+	/**
+	 * @return The largest number of rows any single write held in memory.
+	 */
+	public long getPeakRowsBuffered() {
+		return peakRowsBuffered.get();
+	}
+
+	/**
+	 * @return The number of data rows edited.
+	 */
+	public long getRowsEdited() {
+		return rowsEdited.sum();
+	}
+
+	/**
+	 * @return The time spent in editRow, in nanoseconds.
+	 */
+	public long getEditNanos() {
+		return editNanos.sum();
+	}
+
+	/**
+	 * @return The number of cell styles created.
+	 */
+	public long getStylesCreated() {
+		return stylesCreated.sum();
+	}
+
+	/**
+	 * @return The number of placeholder replacements made in Word documents.
+	 */
+	public long getReplacements() {
+		return replacements.sum();
+	}
+
+	/**
+	 * @return The time spent replacing placeholders, in nanoseconds.
+	 */
+	public long getReplaceNanos() {
+		return replaceNanos.sum();
+	}
+
+	/**
+	 * @return The total time spent serializing files, in nanoseconds.
+	 */
+	public long getSaveNanos() {
+		return saveNanos.sum();
+	}
+
+	/**
+	 * Divides a count by a duration in nanoseconds.
+	 */
+	private static double perSecond(long count, long nanos) {
+		return nanos > 0 ? count * (double) TimeUnit.SECONDS.toNanos(1) / nanos : 0.0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"load=%dms read=%d rows (%.0f rows/s, extractItem=%dms) written=%d rows/%d cells (%.0f rows/s, peak buffered=%d) "
+						+ "edited=%d rows (editRow=%dms) styles=%d replacements=%d (%dms) save=%dms",
+				TimeUnit.NANOSECONDS.toMillis(getLoadNanos()), getRowsRead(), getRowsReadPerSecond(),
+				TimeUnit.NANOSECONDS.toMillis(getExtractNanos()), getRowsWritten(), getCellsWritten(),
+				getRowsWrittenPerSecond(), getPeakRowsBuffered(), getRowsEdited(),
+				TimeUnit.NANOSECONDS.toMillis(getEditNanos()), getStylesCreated(), getReplacements(),
+				TimeUnit.NANOSECONDS.toMillis(getReplaceNanos()), TimeUnit.NANOSECONDS.toMillis(getSaveNanos()));
+	}
+}
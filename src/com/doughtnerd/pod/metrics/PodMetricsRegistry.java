@@ -0,0 +1,56 @@
+package com.doughtnerd.pod.metrics;
+
+/**
+ * This class holds the {@link PodMetrics} listener every reader, writer and
+ * editor reports to. Until a listener is set the no-op listener is used and
+ * call sites skip taking timestamps altogether, so instrumentation costs
+ * nothing unless it is switched on.
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class PodMetricsRegistry {
+
+	/**
+	 * The installed listener.
+	 */
+	private static volatile PodMetrics metrics = PodMetrics.NO_OP;
+
+	private PodMetricsRegistry() {
+	}
+
+	/**
+	 * @return The installed listener, never null.
+	 */
+	public static PodMetrics get() {
+		return metrics;
+	}
+
+	/**
+	 * Installs the listener all further measurements are reported to.
+	 *
+	 * @param listener
+	 *            The new listener, or null to switch instrumentation off.
+	 */
+	public static void set(PodMetrics listener) {
+		metrics = listener != null ? listener : PodMetrics.NO_OP;
+	}
+
+	/**
+	 * @return True if a listener other than the no-op listener is installed.
+	 */
+	public static boolean isEnabled() {
+		return metrics != PodMetrics.NO_OP;
+	}
+
+	/**
+	 * Returns the current time for measuring a duration, or 0 if
+	 * instrumentation is switched off. Call sites only take a second timestamp
+	 * and report the duration when the start they got is not 0.
+	 *
+	 * @return The value of System.nanoTime(), or 0.
+	 */
+	public static long startTimer() {
+		return metrics != PodMetrics.NO_OP ? System.nanoTime() : 0;
+	}
+}
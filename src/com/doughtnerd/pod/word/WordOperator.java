@@ -1,10 +1,14 @@
 package com.doughtnerd.pod.word;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -15,13 +19,28 @@ import org.apache.poi.xwpf.usermodel.XWPFTable;
 import org.apache.poi.xwpf.usermodel.XWPFTableCell;
 import org.apache.poi.xwpf.usermodel.XWPFTableRow;
 
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+
 public final class WordOperator {
 	
 	//private static Pattern variableSyntax = Pattern.compile("#{\\w*}");
 	private static String variableSyntax  = "#{%1$s}";
 	
 	public static XWPFDocument loadDocument(File inputFile) throws FileNotFoundException, IOException{
-		return new XWPFDocument(new FileInputStream(inputFile));
+		long start = PodMetricsRegistry.startTimer();
+		InputStream in = new BufferedInputStream(new FileInputStream(inputFile));
+		try {
+			return new XWPFDocument(in);
+		} finally {
+			in.close();
+			if (start != 0) {
+				PodMetricsRegistry.get().documentLoaded(inputFile.getPath(), System.nanoTime() - start);
+			}
+		}
+	}
+	
+	public static XWPFDocument loadDocument(Path inputPath) throws IOException{
+		return loadDocument(inputPath.toFile());
 	}
 	
 	public static void saveDocument(XWPFDocument doc, String outputPath) throws FileNotFoundException, IOException{
@@ -29,16 +48,38 @@ public final class WordOperator {
 	}
 	
 	public static void saveDocument(XWPFDocument doc, File outputFile) throws FileNotFoundException, IOException{
-		doc.write(new FileOutputStream(outputFile));
+		long start = PodMetricsRegistry.startTimer();
+		OutputStream out = new FileOutputStream(outputFile);
+		try {
+			doc.write(out);
+		} finally {
+			out.close();
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().documentSaved(outputFile.getPath(), System.nanoTime() - start);
+		}
 	}
 	
 	public static void replaceInDocument(XWPFDocument doc, String lookFor, String replaceWith, boolean replaceAll){
+		long start = PodMetricsRegistry.startTimer();
+		int replacements = replaceRuns(doc, lookFor, replaceWith, replaceAll);
+		if (start != 0) {
+			PodMetricsRegistry.get().placeholderReplaced(lookFor, replacements, System.nanoTime() - start);
+		}
+	}
+	
+	private static int replaceRuns(XWPFDocument doc, String lookFor, String replaceWith, boolean replaceAll){
+		int replacements = 0;
+		String token = "#{" + lookFor + "}";
     	for (XWPFParagraph p : doc.getParagraphs()) {
     	    List<XWPFRun> runs = p.getRuns();
     	    if (runs != null) {
     	        for (XWPFRun r : runs) {
-    	        	if(searchAndReplaceInRun(r, lookFor, replaceWith) && !replaceAll){
-    	        		return;
+    	        	if(searchAndReplaceInRun(r, token, replaceWith)){
+    	        		replacements++;
+    	        		if(!replaceAll){
+    	        			return replacements;
+    	        		}
     	        	}
     	        }
     	    }
@@ -49,21 +90,24 @@ public final class WordOperator {
     	      for (XWPFTableCell cell : row.getTableCells()) {
     	         for (XWPFParagraph p : cell.getParagraphs()) {
     	            for (XWPFRun r : p.getRuns()) {
-    	            	if(searchAndReplaceInRun(r, lookFor, replaceWith) && !replaceAll){
-    	            		return;
+    	            	if(searchAndReplaceInRun(r, token, replaceWith)){
+    	            		replacements++;
+    	            		if(!replaceAll){
+    	            			return replacements;
+    	            		}
     	            	}
     	            }
     	         }
     	      }
     	   }
     	}
+    	return replacements;
     }
     
-    private static boolean searchAndReplaceInRun(XWPFRun r, String lookFor, String replace){
+    private static boolean searchAndReplaceInRun(XWPFRun r, String token, String replace){
         String text = r.getText(0);
-        lookFor = "#{"+lookFor+"}";
-        if (text != null && text.contains(lookFor)) {
-          text = text.replace(lookFor, replace);
+        if (text != null && text.contains(token)) {
+          text = text.replace(token, replace);
           r.setText(text,0);
           return true;
         }
@@ -0,0 +1,322 @@
+package com.doughtnerd.pod.word;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+
+/**
+ * A Word document whose #{name} placeholders have been located once, so it
+ * can be filled with any number of value maps without searching the document
+ * again. Compiling walks the paragraphs and tables the way
+ * {@link WordOperator#replaceInDocument(XWPFDocument, String, String, boolean)}
+ * does and records every run holding a placeholder, with its text split into
+ * literal text and placeholder names. Rendering loads a fresh copy of the
+ * document and rewrites only those runs, filling in every placeholder in a
+ * single pass.
+ * <p>
+ * As with WordOperator, a placeholder is only found when it lies within the
+ * text of a single run. Placeholders without a value in the map are left as
+ * they are. A WordTemplate is immutable, so one template can be rendered by
+ * several threads at once.
+ * </p>
+ *
+ * @author Christopher Carlson
+ *
+ */
+public final class WordTemplate {
+
+	private static final String OPEN = "#{";
+
+	private static final char CLOSE = '}';
+
+	/**
+	 * The path of the file the template was read from.
+	 */
+	private final String source;
+
+	/**
+	 * The document as stored in the file, parsed anew for every render.
+	 */
+	private final byte[] document;
+
+	/**
+	 * Every run holding a placeholder, in document order.
+	 */
+	private final List<Slot> slots;
+
+	/**
+	 * The name of every placeholder, in the order they first appear.
+	 */
+	private final Set<String> placeholders;
+
+	private WordTemplate(String source, byte[] document, List<Slot> slots, Set<String> placeholders) {
+		this.source = source;
+		this.document = document;
+		this.slots = slots;
+		this.placeholders = placeholders;
+	}
+
+	/**
+	 * Reads a Word document and locates its placeholders.
+	 *
+	 * @param file
+	 *            The docx file to compile.
+	 * @return The compiled template.
+	 * @throws IOException
+	 *             Thrown if the file could not be read or is not a valid docx
+	 *             document.
+	 */
+	public static WordTemplate compile(File file) throws IOException {
+		long start = PodMetricsRegistry.startTimer();
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(bytes));
+		List<Slot> slots = new ArrayList<>();
+		Set<String> placeholders = new LinkedHashSet<>();
+		try {
+			List<XWPFParagraph> paragraphs = doc.getParagraphs();
+			for (int p = 0; p < paragraphs.size(); p++) {
+				index(paragraphs.get(p), -1, -1, -1, p, slots, placeholders);
+			}
+			List<XWPFTable> tables = doc.getTables();
+			for (int t = 0; t < tables.size(); t++) {
+				List<XWPFTableRow> rows = tables.get(t).getRows();
+				for (int r = 0; r < rows.size(); r++) {
+					List<XWPFTableCell> cells = rows.get(r).getTableCells();
+					for (int c = 0; c < cells.size(); c++) {
+						List<XWPFParagraph> cellParagraphs = cells.get(c).getParagraphs();
+						for (int p = 0; p < cellParagraphs.size(); p++) {
+							index(cellParagraphs.get(p), t, r, c, p, slots, placeholders);
+						}
+					}
+				}
+			}
+		} finally {
+			doc.close();
+		}
+		if (start != 0) {
+			PodMetricsRegistry.get().documentLoaded(file.getPath(), System.nanoTime() - start);
+		}
+		return new WordTemplate(file.getPath(), bytes, Collections.unmodifiableList(slots),
+				Collections.unmodifiableSet(placeholders));
+	}
+
+	/**
+	 * Reads a Word document and locates its placeholders.
+	 *
+	 * @param path
+	 *            The docx file to compile.
+	 * @return The compiled template.
+	 * @throws IOException
+	 *             Thrown if the file could not be read or is not a valid docx
+	 *             document.
+	 */
+	public static WordTemplate compile(Path path) throws IOException {
+		return compile(path.toFile());
+	}
+
+	/**
+	 * Records every run of a paragraph whose text holds a placeholder.
+	 */
+	private static void index(XWPFParagraph paragraph, int table, int row, int cell, int paragraphIndex,
+			List<Slot> slots, Set<String> placeholders) {
+		List<XWPFRun> runs = paragraph.getRuns();
+		if (runs == null) {
+			return;
+		}
+		for (int i = 0; i < runs.size(); i++) {
+			String text = runs.get(i).getText(0);
+			if (text == null) {
+				continue;
+			}
+			List<String> parts = split(text);
+			if (parts.size() > 1) {
+				for (int k = 1; k < parts.size(); k += 2) {
+					placeholders.add(parts.get(k));
+				}
+				slots.add(new Slot(table, row, cell, paragraphIndex, i, parts.toArray(new String[parts.size()])));
+			}
+		}
+	}
+
+	/**
+	 * Splits the text of a run into literal text and placeholder names, which
+	 * alternate starting with literal text. Text without a placeholder gives
+	 * a single part.
+	 */
+	private static List<String> split(String text) {
+		List<String> parts = new ArrayList<>();
+		int from = 0;
+		int open;
+		while ((open = text.indexOf(OPEN, from)) >= 0) {
+			int close = text.indexOf(CLOSE, open + OPEN.length());
+			if (close < 0) {
+				break;
+			}
+			parts.add(text.substring(from, open));
+			parts.add(text.substring(open + OPEN.length(), close));
+			from = close + 1;
+		}
+		if (!parts.isEmpty()) {
+			parts.add(text.substring(from));
+		} else {
+			parts.add(text);
+		}
+		return parts;
+	}
+
+	/**
+	 * @return The name of every placeholder in the template, in the order
+	 *         they first appear.
+	 */
+	public Set<String> getPlaceholders() {
+		return placeholders;
+	}
+
+	/**
+	 * Creates a copy of the document with every placeholder that has a value
+	 * in the map replaced by that value. Each placeholder replaced is reported
+	 * to the metrics listener with the number of runs it was replaced in, the
+	 * way {@link WordOperator#replaceInDocument} reports it. Since every
+	 * placeholder is filled in the same pass, the time of the pass is shared
+	 * out evenly between them.
+	 *
+	 * @param values
+	 *            The value of each placeholder, keyed by placeholder name.
+	 * @return The filled in document, which can be edited further and saved
+	 *         with {@link WordOperator#saveDocument(XWPFDocument, File)}.
+	 * @throws IOException
+	 *             Thrown if the document could not be loaded.
+	 */
+	public XWPFDocument render(Map<String, String> values) throws IOException {
+		long start = PodMetricsRegistry.startTimer();
+		Map<String, Integer> replacements = start != 0 ? new LinkedHashMap<>() : null;
+		XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(document));
+		StringBuilder text = new StringBuilder();
+		for (Slot slot : slots) {
+			XWPFParagraph paragraph = slot.table < 0 ? doc.getParagraphs().get(slot.paragraph)
+					: doc.getTables().get(slot.table).getRows().get(slot.row).getTableCells().get(slot.cell)
+							.getParagraphs().get(slot.paragraph);
+			text.setLength(0);
+			boolean replaced = false;
+			for (int k = 0; k < slot.parts.length; k++) {
+				String part = slot.parts[k];
+				if ((k & 1) == 0) {
+					text.append(part);
+					continue;
+				}
+				String value = values.get(part);
+				if (value != null) {
+					text.append(value);
+					replaced = true;
+					if (replacements != null && firstInRun(slot.parts, k)) {
+						replacements.merge(part, 1, Integer::sum);
+					}
+				} else {
+					text.append(OPEN).append(part).append(CLOSE);
+				}
+			}
+			if (replaced) {
+				paragraph.getRuns().get(slot.run).setText(text.toString(), 0);
+			}
+		}
+		if (start != 0 && !replacements.isEmpty()) {
+			long nanos = (System.nanoTime() - start) / replacements.size();
+			for (Map.Entry<String, Integer> entry : replacements.entrySet()) {
+				PodMetricsRegistry.get().placeholderReplaced(entry.getKey(), entry.getValue(), nanos);
+			}
+		}
+		return doc;
+	}
+
+	/**
+	 * Checks whether the placeholder at the given part of a run is its first
+	 * occurrence within the run, so a run is counted once per placeholder.
+	 */
+	private static boolean firstInRun(String[] parts, int k) {
+		for (int i = 1; i < k; i += 2) {
+			if (parts[i].equals(parts[k])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fills in the template and saves it to a file. See {@link #render(Map)}.
+	 * Saving is reported to the metrics listener through
+	 * {@link WordOperator#saveDocument(XWPFDocument, File)}.
+	 *
+	 * @param values
+	 *            The value of each placeholder, keyed by placeholder name.
+	 * @param outputFile
+	 *            The file to write.
+	 * @throws IOException
+	 *             Thrown if the document could not be loaded or saved.
+	 */
+	public void render(Map<String, String> values, File outputFile) throws IOException {
+		XWPFDocument doc = render(values);
+		try {
+			WordOperator.saveDocument(doc, outputFile);
+		} finally {
+			doc.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "WordTemplate[" + source + ", " + placeholders.size() + " placeholders]";
+	}
+
+	/**
+	 * The location of a run holding placeholders, and its text split into
+	 * literal text and placeholder names.
+	 */
+	private static final class Slot {
+
+		/**
+		 * The index of the table, -1 for a paragraph of the body.
+		 */
+		final int table;
+
+		final int row;
+
+		final int cell;
+
+		final int paragraph;
+
+		final int run;
+
+		/**
+		 * Literal text and placeholder names, alternating, starting with
+		 * literal text.
+		 */
+		final String[] parts;
+
+		Slot(int table, int row, int cell, int paragraph, int run, String[] parts) {
+			this.table = table;
+			this.row = row;
+			this.cell = cell;
+			this.paragraph = paragraph;
+			this.run = run;
+			this.parts = parts;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.doughtnerd.pod.word.unitTests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.doughtnerd.pod.metrics.PodMetricsRecorder;
+import com.doughtnerd.pod.metrics.PodMetricsRegistry;
+import com.doughtnerd.pod.word.WordOperator;
+import com.doughtnerd.pod.word.WordTemplate;
+
+public class WordTemplateTests {
+
+	@Test
+	public void placeholdersAreFoundOnceTest() throws IOException {
+		File file = writeTemplate();
+		WordTemplate template = WordTemplate.compile(file);
+		Assert.assertEquals(Arrays.asList("first", "last", "amount", "missing"),
+				Arrays.asList(template.getPlaceholders().toArray()));
+		file.delete();
+	}
+
+	@Test
+	public void renderFillsParagraphsAndTablesTest() throws IOException {
+		File file = writeTemplate();
+		WordTemplate template = WordTemplate.compile(file);
+		XWPFDocument doc = template.render(values("Ada", "Lovelace", "10"));
+		try {
+			List<XWPFParagraph> paragraphs = doc.getParagraphs();
+			Assert.assertEquals("Dear Ada Lovelace, you owe 10.", paragraphs.get(0).getText());
+			Assert.assertEquals("#{split}", paragraphs.get(1).getText());
+			Assert.assertEquals("#{missing} stays", paragraphs.get(2).getText());
+			XWPFTable table = doc.getTables().get(0);
+			Assert.assertEquals("Ada", cellText(table, 0, 0));
+			Assert.assertEquals("", cellText(table, 0, 1));
+			Assert.assertEquals("Total: 10 (10)", cellText(table, 1, 1));
+		} finally {
+			doc.close();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void templateIsReusedAcrossRendersTest() throws IOException {
+		File file = writeTemplate();
+		WordTemplate template = WordTemplate.compile(file);
+		XWPFDocument first = template.render(values("Ada", "Lovelace", "10"));
+		XWPFDocument second = template.render(values("Alan", "Turing", "20"));
+		File saved = File.createTempFile("pod", ".docx");
+		template.render(values("Grace", "Hopper", "30"), saved);
+		XWPFDocument third = WordOperator.loadDocument(saved);
+		try {
+			Assert.assertEquals("Dear Ada Lovelace, you owe 10.", first.getParagraphs().get(0).getText());
+			Assert.assertEquals("Dear Alan Turing, you owe 20.", second.getParagraphs().get(0).getText());
+			Assert.assertEquals("Dear Grace Hopper, you owe 30.", third.getParagraphs().get(0).getText());
+			Assert.assertEquals("Total: 20 (20)", cellText(second.getTables().get(0), 1, 1));
+		} finally {
+			first.close();
+			second.close();
+			third.close();
+		}
+		file.delete();
+		saved.delete();
+	}
+
+	@Test
+	public void renderReportsMetricsTest() throws IOException {
+		File file = writeTemplate();
+		WordTemplate template = WordTemplate.compile(file);
+		File saved = File.createTempFile("pod", ".docx");
+		PodMetricsRecorder recorder = new PodMetricsRecorder();
+		PodMetricsRegistry.set(recorder);
+		try {
+			template.render(values("Ada", "Lovelace", "10"), saved);
+		} finally {
+			PodMetricsRegistry.set(null);
+		}
+		// first is replaced in two runs, last in one and amount in two, one
+		// of which holds it twice
+		Assert.assertEquals(5, recorder.getReplacements());
+		Assert.assertTrue(recorder.getReplaceNanos() > 0);
+		Assert.assertTrue(recorder.getSaveNanos() > 0);
+		file.delete();
+		saved.delete();
+	}
+
+	@Test
+	public void wordOperatorReplacesInParagraphsAndTablesTest() throws IOException {
+		File file = writeTemplate();
+		XWPFDocument doc = WordOperator.loadDocument(file);
+		try {
+			WordOperator.replaceInDocument(doc, "amount", "5", true);
+			Assert.assertEquals("Dear #{first} #{last}, you owe 5.", doc.getParagraphs().get(0).getText());
+			Assert.assertEquals("Total: 5 (5)", cellText(doc.getTables().get(0), 1, 1));
+		} finally {
+			doc.close();
+		}
+		file.delete();
+	}
+
+	/**
+	 * Writes a document holding several placeholders in one run, a
+	 * placeholder split across two runs, a placeholder without a value and
+	 * placeholders in table cells.
+	 */
+	private static File writeTemplate() throws IOException {
+		XWPFDocument doc = new XWPFDocument();
+		doc.createParagraph().createRun().setText("Dear #{first} #{last}, you owe #{amount}.");
+		XWPFParagraph split = doc.createParagraph();
+		split.createRun().setText("#{spl");
+		split.createRun().setText("it}");
+		doc.createParagraph().createRun().setText("#{missing} stays");
+		XWPFTable table = doc.createTable(2, 2);
+		table.getRows().get(0).getTableCells().get(0).getParagraphs().get(0).createRun().setText("#{first}");
+		table.getRows().get(1).getTableCells().get(1).getParagraphs().get(0).createRun()
+				.setText("Total: #{amount} (#{amount})");
+		File file = File.createTempFile("pod", ".docx");
+		try {
+			WordOperator.saveDocument(doc, file);
+		} finally {
+			doc.close();
+		}
+		return file;
+	}
+
+	private static Map<String, String> values(String first, String last, String amount) {
+		Map<String, String> values = new HashMap<>();
+		values.put("first", first);
+		values.put("last", last);
+		values.put("amount", amount);
+		return values;
+	}
+
+	private static String cellText(XWPFTable table, int row, int column) {
+		return table.getRows().get(row).getTableCells().get(column).getText();
+	}
+}